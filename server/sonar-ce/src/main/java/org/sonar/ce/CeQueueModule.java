@@ -21,9 +21,11 @@ package org.sonar.ce;
 
 import org.sonar.core.platform.Module;
 import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
+import org.sonar.server.computation.monitoring.CeTaskStepsRecorder;
 import org.sonar.server.computation.monitoring.CeTasksMBeanImpl;
 import org.sonar.server.computation.queue.CeQueueCleaner;
 import org.sonar.server.computation.queue.CeQueueInitializer;
+import org.sonar.server.computation.queue.CeQueuePeekPolicyImpl;
 import org.sonar.server.computation.queue.InternalCeQueueImpl;
 
 public class CeQueueModule extends Module {
@@ -32,10 +34,12 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      CeQueuePeekPolicyImpl.class,
 
       // queue monitoring
       CEQueueStatusImpl.class,
       CeTasksMBeanImpl.class,
+      CeTaskStepsRecorder.class,
 
       // queue cleaning
       CeQueueCleaner.class,
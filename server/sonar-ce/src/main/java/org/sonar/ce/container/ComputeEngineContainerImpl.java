@@ -70,11 +70,14 @@ import org.sonar.server.component.ComponentCleanerService;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.component.ComponentService;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.computation.dbcleaner.ProjectPurgeTaskProcessor;
 import org.sonar.server.computation.queue.PurgeCeActivities;
 import org.sonar.server.computation.task.projectanalysis.ProjectAnalysisTaskModule;
 import org.sonar.server.computation.taskprocessor.CeTaskProcessorModule;
 import org.sonar.server.debt.DebtModelPluginRepository;
 import org.sonar.server.debt.DebtRulesXMLImporter;
+import org.sonar.server.es.IndexingQueue;
+import org.sonar.server.es.RecoveryIndexer;
 import org.sonar.server.event.NewAlerts;
 import org.sonar.server.issue.IssueFieldsSetter;
 import org.sonar.server.issue.index.IssueIndex;
@@ -343,6 +346,8 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       ViewIndex.class,
 
       // issues
+      IndexingQueue.class,
+      RecoveryIndexer.class,
       IssueIndexer.class,
       PermissionIndexer.class,
       IssueFieldsSetter.class, // used in Web Services and CE's DebtCalculator
@@ -389,6 +394,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       CeHttpModule.class,
       CeTaskCommonsModule.class,
       ProjectAnalysisTaskModule.class,
+      ProjectPurgeTaskProcessor.class,
       CeTaskProcessorModule.class,
 
       InternalPropertiesImpl.class,
@@ -88,10 +88,10 @@ public class ComputeEngineContainerImplTest {
     assertThat(picoContainer.getComponentAdapters())
       .hasSize(
         CONTAINER_ITSELF
-          + 77 // level 4
+          + 80 // level 4
           + 4 // content of CeConfigurationModule
-          + 3 // content of CeHttpModule
-          + 5 // content of CeQueueModule
+          + 4 // content of CeHttpModule
+          + 7 // content of CeQueueModule
           + 4 // content of ProjectAnalysisTaskModule
           + 4 // content of CeTaskProcessorModule
     );
@@ -108,7 +108,7 @@ public class ComputeEngineContainerImplTest {
         + 27 // level 1
         + 47 // content of DaoModule
         + 2 // content of EsSearchModule
-        + 63 // content of CorePropertyDefinitions
+        + 64 // content of CorePropertyDefinitions
         + 1 // content of CePropertyDefinitions
     );
     assertThat(picoContainer.getParent().getParent().getParent().getParent()).isNull();
@@ -28,6 +28,7 @@ public class DbVersion63 implements DbVersion {
     registry
       .add(1500, "Add Events.UUID", AddUuidToEvents.class)
       .add(1501, "Populate Events.UUID", PopulateUuidColumnOfEvents.class)
-      .add(1502, "Make Events.UUID not nullable", MakeUuidNotNullOnEvents.class);
+      .add(1502, "Make Events.UUID not nullable", MakeUuidNotNullOnEvents.class)
+      .add(1503, "Create table CE_TASK_STEPS", CreateTableCeTaskSteps.class);
   }
 }
@@ -20,8 +20,10 @@
 package org.sonar.ce;
 
 import org.sonar.ce.http.CeHttpClient;
+import org.sonar.ce.http.WakeUpCeWorkersQueueListener;
 import org.sonar.ce.log.CeLogging;
 import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.taskprocessor.ProjectPurgeTaskProcessorDeclaration;
 import org.sonar.ce.taskprocessor.ReportTaskProcessorDeclaration;
 import org.sonar.core.platform.Module;
 import org.sonar.server.computation.queue.ReportSubmitter;
@@ -34,9 +36,11 @@ public class CeModule extends Module {
 
       // Queue
       CeQueueImpl.class,
+      WakeUpCeWorkersQueueListener.class,
       ReportSubmitter.class,
 
       // Core tasks processors
-      ReportTaskProcessorDeclaration.class);
+      ReportTaskProcessorDeclaration.class,
+      ProjectPurgeTaskProcessorDeclaration.class);
   }
 }
@@ -23,11 +23,16 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.process.DefaultProcessCommands;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
@@ -42,8 +47,16 @@ public class CeHttpClient {
 
   private static final String PATH_CHANGE_LOG_LEVEL = "changeLogLevel";
   private static final String PATH_SYSTEM_INFO = "systemInfo";
+  private static final String PATH_WAKE_UP_WORKERS = "wakeUpWorkers";
+  private static final long WAKE_UP_WORKERS_TIMEOUT_MS = 1_000L;
+  private static final Logger LOG = Loggers.get(CeHttpClient.class);
 
   private final File ipcSharedDir;
+  private final OkHttpClient wakeUpWorkersClient = new OkHttpClient.Builder()
+    .connectTimeout(WAKE_UP_WORKERS_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+    .readTimeout(WAKE_UP_WORKERS_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+    .build();
+  private final WakeUpWorkersActionClient wakeUpWorkersActionClient = new WakeUpWorkersActionClient();
 
   public CeHttpClient(Settings props) {
     this.ipcSharedDir = new File(props.getString(PROPERTY_SHARED_PATH));
@@ -119,6 +132,52 @@ public class CeHttpClient {
     }
   }
 
+  /**
+   * Requests the idle workers of the Compute Engine to poll the queue right away. Does nothing if the
+   * Compute Engine is not up.
+   * <p>
+   * The request is sent asynchronously: this method returns once the call is enqueued, and failures are only logged.
+   * </p>
+   */
+  public void wakeUpWorkers() {
+    call(wakeUpWorkersActionClient);
+  }
+
+  private final class WakeUpWorkersActionClient implements ActionClient<Void> {
+    @Override
+    public String getPath() {
+      return PATH_WAKE_UP_WORKERS;
+    }
+
+    @Override
+    public Void getDefault() {
+      return null;
+    }
+
+    @Override
+    public Void call(String url) {
+      okhttp3.Request request = new okhttp3.Request.Builder()
+        .post(RequestBody.create(null, new byte[0]))
+        .url(url)
+        .build();
+      wakeUpWorkersClient.newCall(request).enqueue(new Callback() {
+        @Override
+        public void onFailure(Call call, IOException e) {
+          LOG.debug(String.format("Failed to wake up workers of Compute Engine with url '%s'", url), e);
+        }
+
+        @Override
+        public void onResponse(Call call, okhttp3.Response response) {
+          response.body().close();
+          if (response.code() != 200) {
+            LOG.debug("Failed to wake up workers of Compute Engine. Code was '{}' for url '{}'", response.code(), url);
+          }
+        }
+      });
+      return null;
+    }
+  }
+
   private <T> T call(ActionClient<T> actionClient) {
     try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(ipcSharedDir, COMPUTE_ENGINE.getIpcIndex())) {
       if (commands.isUp()) {
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.http;
+
+import java.util.Collection;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeQueueListener;
+import org.sonar.ce.queue.CeTask;
+
+/**
+ * Wakes up the idle workers of the Compute Engine as soon as tasks are submitted from the Web Server, so that
+ * they are picked up without waiting for the next poll of the queue.
+ * <p>
+ * Waking up workers is an optimization only: the HTTP call is sent asynchronously so that submission never waits
+ * for the Compute Engine, and when it fails, the tasks are picked up on the next poll.
+ * </p>
+ */
+public class WakeUpCeWorkersQueueListener implements CeQueueListener {
+  private static final Logger LOG = Loggers.get(WakeUpCeWorkersQueueListener.class);
+
+  private final CeHttpClient ceHttpClient;
+
+  public WakeUpCeWorkersQueueListener(CeHttpClient ceHttpClient) {
+    this.ceHttpClient = ceHttpClient;
+  }
+
+  @Override
+  public void onSubmit(Collection<CeTask> tasks) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    try {
+      ceHttpClient.wakeUpWorkers();
+    } catch (IllegalStateException e) {
+      LOG.debug("Failed to wake up workers of Compute Engine", e);
+    }
+  }
+}
@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.Map;
+
 public interface CEQueueStatus {
 
   /**
@@ -61,6 +63,16 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Records the time a task waited in the queue before being peeked.
+   *
+   * @param bucket the bucket of the task, as defined by the peek policy of the queue
+   * @param queueWaitTime duration between submission and start of processing in ms
+   *
+   * @throws IllegalArgumentException if queueWaitTime is < 0
+   */
+  void addQueueWait(String bucket, long queueWaitTime);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -85,4 +97,9 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Percentiles of the time the latest peeked tasks of each bucket waited in the queue, sorted by bucket.
+   */
+  Map<String, String> getQueueWaitPercentiles();
 }
@@ -31,6 +31,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -49,13 +50,22 @@ public class CeQueueImpl implements CeQueue {
 
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
+  private final CeQueueListener[] listeners;
 
   // state
   private AtomicBoolean submitPaused = new AtomicBoolean(false);
 
+  /**
+   * Used by Pico when there is no {@link CeQueueListener}.
+   */
   public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory) {
+    this(dbClient, uuidFactory, new CeQueueListener[0]);
+  }
+
+  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory, CeQueueListener[] listeners) {
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
+    this.listeners = listeners;
   }
 
   @Override
@@ -72,6 +82,7 @@ public class CeQueueImpl implements CeQueue {
       CeQueueDto dto = new CeTaskSubmitToInsertedCeQueueDto(dbSession, dbClient).apply(submission);
       CeTask task = loadTask(dbSession, dto);
       dbSession.commit();
+      notifyListeners(singleton(task));
       return task;
 
     } finally {
@@ -93,6 +104,7 @@ public class CeQueueImpl implements CeQueue {
         .toList();
       List<CeTask> tasks = loadTasks(dbSession, ceQueueDtos);
       dbSession.commit();
+      notifyListeners(tasks);
       return tasks;
 
     } finally {
@@ -100,6 +112,16 @@ public class CeQueueImpl implements CeQueue {
     }
   }
 
+  private void notifyListeners(Collection<CeTask> tasks) {
+    for (CeQueueListener listener : listeners) {
+      try {
+        listener.onSubmit(tasks);
+      } catch (Exception e) {
+        Loggers.get(CeQueueImpl.class).warn("Failed to notify listener {} of submitted tasks", listener.getClass().getName(), e);
+      }
+    }
+  }
+
   protected CeTask loadTask(DbSession dbSession, CeQueueDto dto) {
     if (dto.getComponentUuid() == null) {
       return new CeQueueDtoToCeTask().apply(dto);
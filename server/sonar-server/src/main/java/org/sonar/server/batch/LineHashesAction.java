@@ -0,0 +1,144 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.resources.Scopes;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.scanner.protocol.input.ScannerInput;
+import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.user.UserSession;
+import org.sonarqube.ws.MediaTypes;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static java.util.stream.Collectors.toSet;
+import static org.sonar.api.web.UserRole.USER;
+import static org.sonar.server.ws.KeyExamples.KEY_FILE_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.WsUtils.checkRequest;
+
+/**
+ * Bulk equivalent of api/sources/hash, used by the scanner in issues mode to track the issues of
+ * many files without one HTTP call per file.
+ */
+public class LineHashesAction implements BatchWsAction {
+
+  private static final String PARAM_KEY = "key";
+  private static final String PARAM_FILES = "files";
+
+  private final DbClient dbClient;
+  private final UserSession userSession;
+  private final ComponentFinder componentFinder;
+
+  public LineHashesAction(DbClient dbClient, UserSession userSession, ComponentFinder componentFinder) {
+    this.dbClient = dbClient;
+    this.userSession = userSession;
+    this.componentFinder = componentFinder;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("line_hashes")
+      .setDescription("Return the line hashes of the files of a project or module, as a stream of protocol buffer messages. " +
+        "Files without sources are not returned.")
+      .setResponseExample(getClass().getResource("line_hashes-example.proto"))
+      .setSince("6.3")
+      .setInternal(true)
+      .setHandler(this);
+
+    action
+      .createParam(PARAM_KEY)
+      .setRequired(true)
+      .setDescription("Project or module key")
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_FILES)
+      .setDescription("Comma-separated list of the keys of the files to return. " +
+        "Keys of files that are not in the project or module are ignored. If not set, all files are returned.")
+      .setExampleValue(KEY_FILE_EXAMPLE_001);
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    String componentKey = request.mandatoryParam(PARAM_KEY);
+    List<String> fileKeys = request.paramAsStrings(PARAM_FILES);
+    userSession.checkComponentPermission(USER, componentKey);
+
+    try (DbSession session = dbClient.openSession(false)) {
+      ComponentDto component = componentFinder.getByKey(session, componentKey);
+      checkRequest(Scopes.PROJECT.equals(component.scope()), "Component '%s' must be a project or a module", componentKey);
+
+      Map<String, String> keysByUuid = fileKeys == null ? allFileKeysByUuid(session, component) : fileKeysByUuid(session, component, fileKeys);
+      response.stream().setMediaType(MediaTypes.PROTOBUF);
+      OutputStream output = response.stream().output();
+      ScannerInput.LineHashes.Builder builder = ScannerInput.LineHashes.newBuilder();
+      dbClient.fileSourceDao().readLineHashesStream(session, keysByUuid.keySet(),
+        (fileUuid, reader) -> writeLineHashes(builder.setFileKey(keysByUuid.get(fileUuid)), reader, output));
+    }
+  }
+
+  private Map<String, String> allFileKeysByUuid(DbSession session, ComponentDto module) {
+    Map<String, String> moduleKeysByUuid = newHashMap();
+    for (ComponentDto componentDto : dbClient.componentDao().selectDescendantModules(session, module.uuid())) {
+      moduleKeysByUuid.put(componentDto.uuid(), componentDto.key());
+    }
+    Map<String, String> keysByUuid = newHashMap();
+    for (FilePathWithHashDto file : dbClient.componentDao().selectEnabledDescendantFiles(session, module.uuid())) {
+      keysByUuid.put(file.getUuid(), moduleKeysByUuid.get(file.getModuleUuid()) + ":" + file.getPath());
+    }
+    return keysByUuid;
+  }
+
+  private Map<String, String> fileKeysByUuid(DbSession session, ComponentDto module, List<String> fileKeys) {
+    Set<String> moduleUuids = dbClient.componentDao().selectDescendantModules(session, module.uuid()).stream()
+      .map(ComponentDto::uuid)
+      .collect(toSet());
+    Map<String, String> keysByUuid = newHashMap();
+    for (ComponentDto file : dbClient.componentDao().selectByKeys(session, fileKeys)) {
+      // the permission is checked on the requested module only, so files of other modules or projects must be filtered out
+      if (Scopes.FILE.equals(file.scope()) && moduleUuids.contains(file.moduleUuid())) {
+        keysByUuid.put(file.uuid(), file.key());
+      }
+    }
+    return keysByUuid;
+  }
+
+  private static void writeLineHashes(ScannerInput.LineHashes.Builder builder, Reader reader, OutputStream output) {
+    try {
+      builder.setLineHashes(IOUtils.toString(reader)).build().writeDelimitedTo(output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to serialize line hashes", e);
+    }
+    builder.clear();
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -26,6 +27,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
@@ -34,6 +37,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
@@ -63,15 +67,8 @@ public class ProjectDataLoader {
     DbSession session = dbClient.openSession(false);
     try {
       ProjectRepositories data = new ProjectRepositories();
-      ComponentDto module = checkFoundWithOptional(dbClient.componentDao().selectByKey(session, query.getModuleKey()),
-        "Project or module with key '%s' is not found", query.getModuleKey());
-      if (!isProjectOrModule(module)) {
-        throw new BadRequestException(format("Key '%s' belongs to a component which is not a Project", query.getModuleKey()));
-      }
-
+      ComponentDto module = selectAuthorizedModule(session, query);
       boolean hasScanPerm = userSession.hasComponentUuidPermission(SCAN_EXECUTION, module.projectUuid());
-      boolean hasBrowsePerm = userSession.hasComponentUuidPermission(USER, module.projectUuid());
-      checkPermission(query.isIssuesMode(), hasScanPerm, hasBrowsePerm);
 
       ComponentDto project = getProject(module, session);
       if (!project.key().equals(module.key())) {
@@ -99,6 +96,49 @@ public class ProjectDataLoader {
     }
   }
 
+  /**
+   * Version of the data returned by {@link #load(ProjectDataQuery)}. It changes when the project is analyzed, when
+   * its settings or its modules change, or when the permissions of the user change.
+   * The loaded data are not read.
+   * <p>
+   * Absent when the data contain secured settings, which must not be kept by clients.
+   */
+  public Optional<String> loadVersion(ProjectDataQuery query) {
+    DbSession session = dbClient.openSession(false);
+    try {
+      ComponentDto module = selectAuthorizedModule(session, query);
+      String projectUuid = module.projectUuid();
+      boolean hasScanPerm = userSession.hasComponentUuidPermission(SCAN_EXECUTION, projectUuid);
+      if (hasScanPerm && dbClient.propertiesDao().hasProjectSecuredSettings(session, projectUuid)) {
+        return Optional.empty();
+      }
+      String lastAnalysisUuid = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(session, projectUuid)
+        .map(SnapshotDto::getUuid)
+        .orElse("");
+      List<String> moduleKeys = dbClient.componentDao().selectEnabledDescendantModules(session, projectUuid).stream()
+        .map(ComponentDto::getKey)
+        .sorted()
+        .collect(Collectors.toList());
+      return Optional.of(Joiner.on('|').join(module.getKey(), query.isIssuesMode(), hasScanPerm, lastAnalysisUuid,
+        dbClient.propertiesDao().selectProjectSettingsVersion(session, projectUuid), Joiner.on(',').join(moduleKeys)));
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  private ComponentDto selectAuthorizedModule(DbSession session, ProjectDataQuery query) {
+    ComponentDto module = checkFoundWithOptional(dbClient.componentDao().selectByKey(session, query.getModuleKey()),
+      "Project or module with key '%s' is not found", query.getModuleKey());
+    if (!isProjectOrModule(module)) {
+      throw new BadRequestException(format("Key '%s' belongs to a component which is not a Project", query.getModuleKey()));
+    }
+
+    boolean hasScanPerm = userSession.hasComponentUuidPermission(SCAN_EXECUTION, module.projectUuid());
+    boolean hasBrowsePerm = userSession.hasComponentUuidPermission(USER, module.projectUuid());
+    checkPermission(query.isIssuesMode(), hasScanPerm, hasBrowsePerm);
+    return module;
+  }
+
   private static boolean isProjectOrModule(ComponentDto module) {
     if (!Scopes.PROJECT.equals(module.scope())) {
       return false;
@@ -30,12 +30,14 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskQuery;
+import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.ws.KeyExamples;
 import org.sonar.server.ws.WsUtils;
 
+import static java.util.stream.Collectors.toList;
 import static org.sonar.server.component.ComponentFinder.ParamNames.COMPONENT_ID_AND_KEY;
 import static org.sonarqube.ws.WsCe.ProjectResponse;
 
@@ -66,7 +68,8 @@ public class ComponentAction implements CeWsAction {
         "<li>'Administer' rights on the specified component</li>" +
         "</ul>" +
         "Either '%s' or '%s' must be provided, not both.<br>" +
-        "Since 6.1, field \"logs\" is deprecated and its value is always false.",
+        "Since 6.1, field \"logs\" is deprecated and its value is always false.<br>" +
+        "Since 6.3, only the analysis report tasks are returned.",
         PARAM_COMPONENT_ID, PARAM_COMPONENT_KEY)
       .setSince("5.2")
       .setResponseExample(getClass().getResource("component-example.json"))
@@ -87,9 +90,12 @@ public class ComponentAction implements CeWsAction {
     try {
       ComponentDto component = componentFinder.getByUuidOrKey(dbSession, wsRequest.param(PARAM_COMPONENT_ID), wsRequest.param(PARAM_COMPONENT_KEY), COMPONENT_ID_AND_KEY);
       userSession.checkComponentUuidPermission(UserRole.USER, component.uuid());
-      List<CeQueueDto> queueDtos = dbClient.ceQueueDao().selectByComponentUuid(dbSession, component.uuid());
+      List<CeQueueDto> queueDtos = dbClient.ceQueueDao().selectByComponentUuid(dbSession, component.uuid()).stream()
+        .filter(queueDto -> CeTaskTypes.REPORT.equals(queueDto.getTaskType()))
+        .collect(toList());
       CeTaskQuery activityQuery = new CeTaskQuery()
         .setComponentUuid(component.uuid())
+        .setType(CeTaskTypes.REPORT)
         .setOnlyCurrents(true);
       List<CeActivityDto> activityDtos = dbClient.ceActivityDao().selectByQuery(dbSession, activityQuery, 0, 1);
 
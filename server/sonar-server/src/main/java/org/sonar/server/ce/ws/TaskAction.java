@@ -37,6 +37,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskStepDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.WsCe;
@@ -68,7 +69,8 @@ public class TaskAction implements CeWsAction {
     WebService.NewAction action = controller.createAction(ACTION)
       .setDescription("Give Compute Engine task details such as type, status, duration and associated component.<br />" +
         "Requires 'Administer System' or 'Execute Analysis' permission.<br/>" +
-        "Since 6.1, field \"logs\" is deprecated and its value is always false.")
+        "Since 6.1, field \"logs\" is deprecated and its value is always false.<br/>" +
+        "Since 6.3, execution statistics of the steps and of the component visitors of a finished task are returned when additional field \"steps\" is requested.")
       .setResponseExample(getClass().getResource("task-example.json"))
       .setSince("5.2")
       .setHandler(this);
@@ -101,8 +103,8 @@ public class TaskAction implements CeWsAction {
           checkPermission(ceActivityDto.getComponentUuid());
           Set<AdditionalField> additionalFields = AdditionalField.getFromRequest(wsRequest);
           maskErrorStacktrace(ceActivityDto, additionalFields);
-          wsTaskResponse.setTask(
-            wsTaskFormatter.formatActivity(dbSession, ceActivityDto, extractScannerContext(dbSession, ceActivityDto, additionalFields)));
+          WsCe.Task task = wsTaskFormatter.formatActivity(dbSession, ceActivityDto, extractScannerContext(dbSession, ceActivityDto, additionalFields));
+          wsTaskResponse.setTask(addSteps(dbSession, task, additionalFields));
         } else {
           throw new NotFoundException();
         }
@@ -136,9 +138,33 @@ public class TaskAction implements CeWsAction {
     return null;
   }
 
+  private WsCe.Task addSteps(DbSession dbSession, WsCe.Task task, Set<AdditionalField> additionalFields) {
+    if (!additionalFields.contains(AdditionalField.STEPS)) {
+      return task;
+    }
+    WsCe.Task.Builder builder = task.toBuilder();
+    for (CeTaskStepDto dto : dbClient.ceTaskStepDao().selectByTaskUuid(dbSession, task.getId())) {
+      WsCe.TaskStep.Builder stepBuilder = builder.addStepsBuilder()
+        .setType(dto.getStepType().name())
+        .setName(dto.getName())
+        .setDurationMs(dto.getDurationMs());
+      if (dto.getCpuTimeMs() != null) {
+        stepBuilder.setCpuTimeMs(dto.getCpuTimeMs());
+      }
+      if (dto.getAllocatedBytes() != null) {
+        stepBuilder.setAllocatedBytes(dto.getAllocatedBytes());
+      }
+      if (dto.getProcessedCount() != null) {
+        stepBuilder.setProcessedCount(dto.getProcessedCount());
+      }
+    }
+    return builder.build();
+  }
+
   private enum AdditionalField {
     STACKTRACE("stacktrace"),
-    SCANNER_CONTEXT("scannerContext");
+    SCANNER_CONTEXT("scannerContext"),
+    STEPS("steps");
 
     private final String label;
 
@@ -52,10 +52,26 @@ public class ProjectMeasuresIndexer extends BaseIndexer {
     return doIndex(createBulkIndexer(false), lastUpdatedAt, null);
   }
 
+  @Override
+  protected long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+    return doIndex(bulk, lastUpdatedAt, null);
+  }
+
   public void index(String projectUuid) {
     doIndex(createBulkIndexer(false), 0L, projectUuid);
   }
 
+  /**
+   * Indexes a document which is already built, for example by the Compute Engine from the measures
+   * it has just computed. Database is not read.
+   */
+  public void index(ProjectMeasuresDoc doc) {
+    BulkIndexer bulk = createBulkIndexer(false);
+    bulk.start();
+    bulk.add(newIndexRequest(doc));
+    bulk.stop();
+  }
+
   public void deleteProject(String uuid) {
     esClient
       .prepareDelete(INDEX_PROJECT_MEASURES, TYPE_PROJECT_MEASURES, uuid)
@@ -31,4 +31,11 @@ public interface CeConfiguration {
    * when previous one had nothing to do.
    */
   long getQueuePollingDelay();
+
+  /**
+   * The maximum delay in milliseconds between two calls to {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}
+   * of an idle worker. The delay is doubled, starting from {@link #getQueuePollingDelay()}, each time a worker
+   * has nothing to do, until this value is reached.
+   */
+  long getQueueMaxPollingDelay();
 }
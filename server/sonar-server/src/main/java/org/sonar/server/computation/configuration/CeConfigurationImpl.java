@@ -31,7 +31,8 @@ import static java.lang.String.format;
 /**
  * Immutable implementation of {@link CeConfiguration} which takes value returned by
  * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY} and
- * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called and
+ * {@link #DEFAULT_QUEUE_MAX_POLLING_DELAY} when {@link CeConfiguration#getQueueMaxPollingDelay()} is called.
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   public static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
@@ -43,6 +44,9 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   // 2 seconds
   @VisibleForTesting
   protected static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  // 30 seconds
+  @VisibleForTesting
+  protected static final long DEFAULT_QUEUE_MAX_POLLING_DELAY = 30 * 1000L;
 
   private final int workerCount;
 
@@ -96,4 +100,9 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   public long getQueuePollingDelay() {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
+
+  @Override
+  public long getQueueMaxPollingDelay() {
+    return DEFAULT_QUEUE_MAX_POLLING_DELAY;
+  }
 }
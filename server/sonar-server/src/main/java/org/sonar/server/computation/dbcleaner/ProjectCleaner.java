@@ -20,6 +20,7 @@
 package org.sonar.server.computation.dbcleaner;
 
 import java.util.Collection;
+import java.util.Collections;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.config.Settings;
@@ -33,6 +34,7 @@ import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeListener;
 import org.sonar.db.purge.PurgeProfiler;
+import org.sonar.db.purge.PurgeThrottler;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
 import static org.sonar.db.purge.PurgeConfiguration.newDefaultPurgeConfiguration;
@@ -54,14 +56,33 @@ public class ProjectCleaner {
     this.purgeListener = purgeListener;
   }
 
-  public ProjectCleaner purge(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, Collection<String> disabledComponentUuids) {
+  /**
+   * Purges the data of the components disabled by an analysis. This purge is cheap and done during the analysis.
+   */
+  public ProjectCleaner purgeDisabledComponents(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, Collection<String> disabledComponentUuids) {
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, disabledComponentUuids);
+    try {
+      purgeDao.purgeDisabledComponents(session, configuration, purgeListener);
+    } catch (Exception e) {
+      // purge errors must no fail the report analysis
+      LOG.error("Fail to purge data of disabled components [id=" + idUuidPair.getId() + "]", e);
+    }
+    session.commit();
+    return this;
+  }
+
+  /**
+   * Purges the historical data of a project, which is not kept anymore according to project settings. This purge
+   * can be long on big projects and is done in background, out of the analysis.
+   */
+  public ProjectCleaner purgeHistory(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, PurgeThrottler throttler) {
     long start = System.currentTimeMillis();
     profiler.reset();
 
-    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, disabledComponentUuids);
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, Collections.emptyList());
 
-    cleanHistoricalData(session, configuration.rootProjectIdUuid().getUuid(), projectSettings);
-    doPurge(session, configuration);
+    cleanHistoricalData(session, configuration.rootProjectIdUuid().getUuid(), projectSettings, throttler);
+    doPurge(session, configuration, throttler);
 
     session.commit();
     logProfiling(start, projectSettings);
@@ -77,20 +98,20 @@ public class ProjectCleaner {
     }
   }
 
-  private void cleanHistoricalData(DbSession session, String rootUuid, Settings settings) {
+  private void cleanHistoricalData(DbSession session, String rootUuid, Settings settings, PurgeThrottler throttler) {
     try {
-      periodCleaner.clean(session, rootUuid, settings);
+      periodCleaner.clean(session, rootUuid, settings, throttler);
     } catch (Exception e) {
       // purge errors must no fail the batch
       LOG.error("Fail to clean historical data [uuid=" + rootUuid + "]", e);
     }
   }
 
-  private void doPurge(DbSession session, PurgeConfiguration configuration) {
+  private void doPurge(DbSession session, PurgeConfiguration configuration, PurgeThrottler throttler) {
     try {
-      purgeDao.purge(session, configuration, purgeListener, profiler);
+      purgeDao.purgeHistory(session, configuration, purgeListener, profiler, throttler);
     } catch (Exception e) {
-      // purge errors must no fail the report analysis
+      // purge errors must no fail the purge of the other data
       LOG.error("Fail to purge data [id=" + configuration.rootProjectIdUuid().getId() + "]", e);
     }
   }
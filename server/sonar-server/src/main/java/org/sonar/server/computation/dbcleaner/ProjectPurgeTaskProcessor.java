@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import com.google.common.base.Optional;
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskResult;
+import org.sonar.ce.settings.ProjectSettingsFactory;
+import org.sonar.ce.taskprocessor.CeTaskProcessor;
+import org.sonar.core.util.ProgressLogger;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeThrottler;
+
+import static java.util.Objects.requireNonNull;
+import static org.sonar.core.config.PurgeConstants.MAX_ROWS_DELETED_PER_SECOND;
+
+/**
+ * Purges the historical data of a project out of the analysis which submitted the task.
+ * <p>
+ * Data is deleted by small chunks which are committed separately. If the Compute Engine is stopped during the purge,
+ * the task is reset to pending at next startup and the purge resumes from the data which has not been deleted yet.
+ * </p>
+ */
+public class ProjectPurgeTaskProcessor implements CeTaskProcessor {
+  private static final Logger LOG = Loggers.get(ProjectPurgeTaskProcessor.class);
+  private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.PROJECT_PURGE);
+  static final int CHUNK_SIZE = 100;
+
+  private final DbClient dbClient;
+  private final ProjectCleaner projectCleaner;
+  private final ProjectSettingsFactory projectSettingsFactory;
+  private final System2 system2;
+
+  public ProjectPurgeTaskProcessor(DbClient dbClient, ProjectCleaner projectCleaner, ProjectSettingsFactory projectSettingsFactory, System2 system2) {
+    this.dbClient = dbClient;
+    this.projectCleaner = projectCleaner;
+    this.projectSettingsFactory = projectSettingsFactory;
+    this.system2 = system2;
+  }
+
+  @Override
+  public Set<String> getHandledCeTaskTypes() {
+    return HANDLED_TYPES;
+  }
+
+  @Override
+  @CheckForNull
+  public CeTaskResult process(CeTask task) {
+    String componentUuid = requireNonNull(task.getComponentUuid(), "Purge task must have a component");
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Optional<ComponentDto> component = dbClient.componentDao().selectByUuid(dbSession, componentUuid);
+      if (!component.isPresent()) {
+        LOG.info("Component {} does not exist anymore, nothing to purge", componentUuid);
+        return null;
+      }
+      purge(dbSession, component.get());
+    }
+    return null;
+  }
+
+  private void purge(DbSession dbSession, ComponentDto component) {
+    Settings settings = projectSettingsFactory.newProjectSettings(component.key());
+    PurgeThrottler throttler = new PurgeThrottler(CHUNK_SIZE, settings.getInt(MAX_ROWS_DELETED_PER_SECOND), system2);
+    ProgressLogger progressLogger = ProgressLogger.create(ProjectPurgeTaskProcessor.class, throttler.getDeletedRows());
+    progressLogger.start();
+    try {
+      projectCleaner.purgeHistory(dbSession, new IdUuidPair(component.getId(), component.uuid()), settings, throttler);
+    } finally {
+      progressLogger.stop();
+    }
+    LOG.info("Purge of {} deleted {} rows", component.key(), throttler.getDeletedRows().get());
+  }
+}
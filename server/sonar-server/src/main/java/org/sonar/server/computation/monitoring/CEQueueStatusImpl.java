@@ -19,6 +19,9 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.db.DbClient;
@@ -34,6 +37,7 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final Map<String, DurationWindow> queueWaitsByBucket = new HashMap<>();
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
@@ -63,6 +67,19 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     processingTime.addAndGet(ms);
   }
 
+  @Override
+  public synchronized void addQueueWait(String bucket, long queueWaitTime) {
+    checkArgument(queueWaitTime >= 0, "Queue wait time can not be < 0");
+    queueWaitsByBucket.computeIfAbsent(bucket, b -> new DurationWindow()).add(queueWaitTime);
+  }
+
+  @Override
+  public synchronized Map<String, String> getQueueWaitPercentiles() {
+    Map<String, String> res = new TreeMap<>();
+    queueWaitsByBucket.forEach((bucket, window) -> res.put(bucket, window.formatPercentiles("tasks")));
+    return res;
+  }
+
   @Override
   public long getPendingCount() {
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.UuidFactory;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskStepDto;
+import org.sonar.server.computation.task.step.ExecutionStatistics;
+import org.sonar.server.computation.task.step.ExecutionStatisticsHolder;
+
+/**
+ * Persists the {@link ExecutionStatistics} of the steps and visitors of each task into table CE_TASK_STEPS and keeps
+ * the durations of the latest executions in memory, in order to compute percentiles exposed by {@link CeTasksMBean}.
+ */
+@ComputeEngineSide
+public class CeTaskStepsRecorder {
+
+  private final DbClient dbClient;
+  private final System2 system;
+  private final UuidFactory uuidFactory;
+  private final Map<String, DurationWindow> durationsByName = new HashMap<>();
+
+  public CeTaskStepsRecorder(DbClient dbClient, System2 system, UuidFactory uuidFactory) {
+    this.dbClient = dbClient;
+    this.system = system;
+    this.uuidFactory = uuidFactory;
+  }
+
+  public void record(String taskUuid, ExecutionStatisticsHolder statisticsHolder) {
+    List<ExecutionStatistics> steps = statisticsHolder.getSteps();
+    List<ExecutionStatistics> visitors = statisticsHolder.getVisitors();
+    long now = system.now();
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      insert(dbSession, taskUuid, CeTaskStepDto.Type.STEP, steps, now);
+      insert(dbSession, taskUuid, CeTaskStepDto.Type.VISITOR, visitors, now);
+      dbSession.commit();
+    }
+    addDurations(steps);
+    addDurations(visitors);
+  }
+
+  private void insert(DbSession dbSession, String taskUuid, CeTaskStepDto.Type type, List<ExecutionStatistics> statistics, long now) {
+    int index = 0;
+    for (ExecutionStatistics statistic : statistics) {
+      dbClient.ceTaskStepDao().insert(dbSession, new CeTaskStepDto()
+        .setUuid(uuidFactory.create())
+        .setTaskUuid(taskUuid)
+        .setStepType(type)
+        .setName(statistic.getName())
+        .setStepIndex(index)
+        .setDurationMs(statistic.getDurationMs())
+        .setCpuTimeMs(statistic.getCpuTimeMs())
+        .setAllocatedBytes(statistic.getAllocatedBytes())
+        .setProcessedCount(statistic.getProcessedCount())
+        .setCreatedAt(now));
+      index++;
+    }
+  }
+
+  private synchronized void addDurations(List<ExecutionStatistics> statistics) {
+    for (ExecutionStatistics statistic : statistics) {
+      durationsByName.computeIfAbsent(statistic.getName(), name -> new DurationWindow()).add(statistic.getDurationMs());
+    }
+  }
+
+  /**
+   * 50th, 90th and 99th percentiles of the durations of the latest {@link DurationWindow#WINDOW_SIZE} executions of each
+   * step and visitor, sorted by name.
+   */
+  public synchronized Map<String, String> getDurationPercentiles() {
+    Map<String, String> res = new TreeMap<>();
+    durationsByName.forEach((name, window) -> res.put(name, window.formatPercentiles("executions")));
+    return res;
+  }
+}
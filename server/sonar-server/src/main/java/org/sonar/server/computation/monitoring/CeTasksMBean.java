@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.Map;
+
 public interface CeTasksMBean {
 
   String OBJECT_NAME = "SonarQube:name=ComputeEngineTasks";
@@ -52,4 +54,15 @@ public interface CeTasksMBean {
    * Configured number of Workers.
    */
   int getWorkerCount();
+
+  /**
+   * Percentiles of the durations of the latest executions of each computation step and component visitor.
+   */
+  Map<String, String> getStepDurationPercentiles();
+
+  /**
+   * Percentiles of the time the latest tasks waited in the queue before being processed, by bucket of the queue
+   * peek policy.
+   */
+  Map<String, String> getQueueWaitPercentiles();
 }
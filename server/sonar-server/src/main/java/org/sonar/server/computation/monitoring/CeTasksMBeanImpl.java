@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.Map;
 import org.picocontainer.Startable;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.process.Jmx;
@@ -29,10 +30,12 @@ import org.sonar.server.computation.configuration.CeConfiguration;
 public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSection {
   private final CEQueueStatus queueStatus;
   private final CeConfiguration ceConfiguration;
+  private final CeTaskStepsRecorder stepsRecorder;
 
-  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration) {
+  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeTaskStepsRecorder stepsRecorder) {
     this.queueStatus = queueStatus;
     this.ceConfiguration = ceConfiguration;
+    this.stepsRecorder = stepsRecorder;
   }
 
   @Override
@@ -78,6 +81,16 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return ceConfiguration.getWorkerCount();
   }
 
+  @Override
+  public Map<String, String> getStepDurationPercentiles() {
+    return stepsRecorder.getDurationPercentiles();
+  }
+
+  @Override
+  public Map<String, String> getQueueWaitPercentiles() {
+    return queueStatus.getQueueWaitPercentiles();
+  }
+
   @Override
   public ProtobufSystemInfo.Section toProtobuf() {
     ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps the latest {@link #WINDOW_SIZE} durations added to it. Not thread-safe.
+ */
+final class DurationWindow {
+
+  static final int WINDOW_SIZE = 100;
+
+  private final long[] durations = new long[WINDOW_SIZE];
+  private int next = 0;
+  private boolean full = false;
+
+  void add(long duration) {
+    durations[next] = duration;
+    next = (next + 1) % WINDOW_SIZE;
+    full |= next == 0;
+  }
+
+  long[] sorted() {
+    long[] res = Arrays.copyOf(durations, full ? WINDOW_SIZE : next);
+    Arrays.sort(res);
+    return res;
+  }
+
+  /**
+   * 50th, 90th and 99th percentiles of the durations, for example "p50=12ms p90=30ms p99=52ms (100 executions)".
+   * Must not be called on an empty window.
+   */
+  String formatPercentiles(String countLabel) {
+    long[] sortedDurations = sorted();
+    return format("p50=%dms p90=%dms p99=%dms (%d %s)",
+      percentile(sortedDurations, 50), percentile(sortedDurations, 90), percentile(sortedDurations, 99), sortedDurations.length, countLabel);
+  }
+
+  /**
+   * Nearest-rank percentile of a non-empty sorted array
+   */
+  static long percentile(long[] sortedValues, int percentile) {
+    int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+    return sortedValues[Math.max(0, rank - 1)];
+  }
+}
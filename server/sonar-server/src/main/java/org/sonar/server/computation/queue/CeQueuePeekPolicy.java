@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.util.List;
+import org.sonar.db.ce.CeQueueDto;
+
+/**
+ * Decides which of the tasks eligible for peek is processed first by {@link InternalCeQueueImpl#peek()}.
+ * Implementations are called concurrently by the workers and must be thread-safe.
+ */
+public interface CeQueuePeekPolicy {
+
+  /**
+   * @param eligibleTasks the pending tasks which can be peeked, oldest first. There is at most one task per component.
+   * @param inProgressTasks the tasks currently processed
+   * @return the tasks to try to peek, in order. Tasks which are not returned are not peeked.
+   */
+  List<CeQueueDto> sort(List<CeQueueDto> eligibleTasks, List<CeQueueDto> inProgressTasks);
+
+  /**
+   * Whether {@link #sort(List, List)} returns all the eligible tasks in the same order. In this case the oldest
+   * eligible task is peeked, without loading the other eligible tasks nor the tasks in progress.
+   */
+  boolean isSubmissionOrder();
+
+  /**
+   * Called once the specified task has been peeked.
+   */
+  void onPeek(CeQueueDto task);
+
+  /**
+   * The bucket the task belongs to, used to compute the statistics of time spent in queue.
+   * The number of buckets must be small.
+   */
+  String getBucket(CeQueueDto task);
+
+}
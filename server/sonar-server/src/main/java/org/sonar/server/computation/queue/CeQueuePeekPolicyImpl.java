@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.lang.String.format;
+
+/**
+ * {@link CeQueuePeekPolicy} configured by the following properties:
+ * <ul>
+ *   <li>{@link #TASK_TYPE_PRIORITIES_PROPERTY}: comma-separated list of {@code <task type>=<priority>}. Tasks with
+ *   the highest priority are peeked first. Default priority is 0.</li>
+ *   <li>{@link #FAIR_SHARE_PROPERTY}: {@code none} (default), {@code project} or {@code submitter}. Among tasks of
+ *   same priority, the tasks of the projects (or submitters) which have the fewest tasks in progress and peeked among
+ *   the latest {@link #HISTORY_SIZE} ones are peeked first.</li>
+ *   <li>{@link #MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY}: the maximum number of tasks of a given submitter which can be
+ *   processed concurrently. Default is 0, ie. no limit.</li>
+ * </ul>
+ * Otherwise, the oldest task is peeked first. With default values, tasks are peeked by order of submission.
+ */
+@ComputeEngineSide
+public class CeQueuePeekPolicyImpl implements CeQueuePeekPolicy {
+  public static final String TASK_TYPE_PRIORITIES_PROPERTY = "sonar.ce.queue.taskTypePriorities";
+  public static final String FAIR_SHARE_PROPERTY = "sonar.ce.queue.fairShare";
+  public static final String MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY = "sonar.ce.queue.maxInProgressPerSubmitter";
+
+  @VisibleForTesting
+  static final int HISTORY_SIZE = 100;
+  private static final String NO_SHARE_KEY = "";
+
+  enum FairShare {
+    NONE(task -> NO_SHARE_KEY),
+    PROJECT(CeQueueDto::getComponentUuid),
+    SUBMITTER(CeQueueDto::getSubmitterLogin);
+
+    private final Function<CeQueueDto, String> shareKey;
+
+    FairShare(Function<CeQueueDto, String> shareKey) {
+      this.shareKey = shareKey;
+    }
+
+    String shareKeyOf(CeQueueDto task) {
+      return Objects.toString(shareKey.apply(task), NO_SHARE_KEY);
+    }
+  }
+
+  private final Map<String, Integer> priorityByTaskType;
+  private final FairShare fairShare;
+  private final int maxInProgressPerSubmitter;
+
+  // share keys of the latest peeked tasks, oldest first
+  private final Deque<String> history = new ArrayDeque<>(HISTORY_SIZE);
+  private final Map<String, Integer> historyCountByShareKey = new HashMap<>();
+
+  public CeQueuePeekPolicyImpl(Settings settings) {
+    this.priorityByTaskType = parsePriorities(settings.getStringArray(TASK_TYPE_PRIORITIES_PROPERTY));
+    this.fairShare = parseFairShare(settings.getString(FAIR_SHARE_PROPERTY));
+    this.maxInProgressPerSubmitter = parseMaxInProgressPerSubmitter(settings.getString(MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY));
+  }
+
+  private static Map<String, Integer> parsePriorities(String[] values) {
+    Map<String, Integer> res = new HashMap<>();
+    for (String value : values) {
+      String[] typeAndPriority = value.split("=");
+      if (typeAndPriority.length != 2 || typeAndPriority[0].trim().isEmpty()) {
+        throw invalidValue(TASK_TYPE_PRIORITIES_PROPERTY, value, "It must be a comma-separated list of <task type>=<integer>");
+      }
+      try {
+        res.put(typeAndPriority[0].trim(), Integer.parseInt(typeAndPriority[1].trim()));
+      } catch (NumberFormatException e) {
+        throw invalidValue(TASK_TYPE_PRIORITIES_PROPERTY, value, "It must be a comma-separated list of <task type>=<integer>");
+      }
+    }
+    return res;
+  }
+
+  private static FairShare parseFairShare(@Nullable String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return FairShare.NONE;
+    }
+    try {
+      return FairShare.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw invalidValue(FAIR_SHARE_PROPERTY, value, "It must be one of none, project or submitter");
+    }
+  }
+
+  private static int parseMaxInProgressPerSubmitter(@Nullable String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return 0;
+    }
+    try {
+      int res = Integer.parseInt(value.trim());
+      if (res >= 0) {
+        return res;
+      }
+    } catch (NumberFormatException e) {
+      // error raised below
+    }
+    throw invalidValue(MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY, value, "It must be a positive integer or 0");
+  }
+
+  private static MessageException invalidValue(String property, String value, String expected) {
+    return MessageException.of(format("value '%s' of property %s is invalid. %s.", value, property, expected));
+  }
+
+  @Override
+  public synchronized List<CeQueueDto> sort(List<CeQueueDto> eligibleTasks, List<CeQueueDto> inProgressTasks) {
+    Map<String, Integer> usageByShareKey = new HashMap<>(historyCountByShareKey);
+    Map<String, Integer> inProgressCountBySubmitter = new HashMap<>();
+    for (CeQueueDto inProgressTask : inProgressTasks) {
+      usageByShareKey.merge(fairShare.shareKeyOf(inProgressTask), 1, Integer::sum);
+      if (inProgressTask.getSubmitterLogin() != null) {
+        inProgressCountBySubmitter.merge(inProgressTask.getSubmitterLogin(), 1, Integer::sum);
+      }
+    }
+
+    List<CeQueueDto> res = new ArrayList<>(eligibleTasks.size());
+    for (CeQueueDto eligibleTask : eligibleTasks) {
+      if (!isSubmitterAtCapacity(eligibleTask, inProgressCountBySubmitter)) {
+        res.add(eligibleTask);
+      }
+    }
+    // sort is stable: among tasks of same priority and usage, the oldest remains first
+    res.sort(Comparator.<CeQueueDto>comparingInt(task -> -priorityOf(task))
+      .thenComparingInt(task -> usageByShareKey.getOrDefault(fairShare.shareKeyOf(task), 0)));
+    return res;
+  }
+
+  @Override
+  public boolean isSubmissionOrder() {
+    return priorityByTaskType.isEmpty() && fairShare == FairShare.NONE && maxInProgressPerSubmitter == 0;
+  }
+
+  private boolean isSubmitterAtCapacity(CeQueueDto task, Map<String, Integer> inProgressCountBySubmitter) {
+    String submitter = task.getSubmitterLogin();
+    return maxInProgressPerSubmitter > 0
+      && submitter != null
+      && inProgressCountBySubmitter.getOrDefault(submitter, 0) >= maxInProgressPerSubmitter;
+  }
+
+  private int priorityOf(CeQueueDto task) {
+    return priorityByTaskType.getOrDefault(task.getTaskType(), 0);
+  }
+
+  @Override
+  public synchronized void onPeek(CeQueueDto task) {
+    if (fairShare == FairShare.NONE) {
+      return;
+    }
+    String shareKey = fairShare.shareKeyOf(task);
+    history.addLast(shareKey);
+    historyCountByShareKey.merge(shareKey, 1, Integer::sum);
+    if (history.size() > HISTORY_SIZE) {
+      String evicted = history.removeFirst();
+      historyCountByShareKey.computeIfPresent(evicted, (key, count) -> count == 1 ? null : (count - 1));
+    }
+  }
+
+  @Override
+  public String getBucket(CeQueueDto task) {
+    return task.getTaskType();
+  }
+}
@@ -24,6 +24,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -46,18 +50,25 @@ import static com.google.common.base.Preconditions.checkState;
 @ComputeEngineSide
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
 
+  /**
+   * Maximum number of eligible tasks submitted to the {@link CeQueuePeekPolicy}
+   */
+  private static final int MAX_ELIGIBLE_TASKS = 1_000;
+
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final CeQueuePeekPolicy peekPolicy;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
-  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus) {
+  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus, CeQueuePeekPolicy peekPolicy) {
     super(dbClient, uuidFactory);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.peekPolicy = peekPolicy;
   }
 
   @Override
@@ -67,19 +78,59 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
     DbSession dbSession = dbClient.openSession(false);
     try {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
-      CeTask task = null;
+      Optional<CeQueueDto> dto = peekPolicy.isSubmissionOrder() ? dbClient.ceQueueDao().peek(dbSession) : peekByPolicy(dbSession);
       if (dto.isPresent()) {
-        task = loadTask(dbSession, dto.get());
+        CeTask task = loadTask(dbSession, dto.get());
         queueStatus.addInProgress();
+        recordPeek(dto.get());
+        return Optional.of(task);
       }
-      return Optional.fromNullable(task);
+      return Optional.absent();
 
     } finally {
       dbClient.closeSession(dbSession);
     }
   }
 
+  private Optional<CeQueueDto> peekByPolicy(DbSession dbSession) {
+    List<CeQueueDto> eligibleTasks = dbClient.ceQueueDao().selectEligibleForPeek(dbSession, MAX_ELIGIBLE_TASKS);
+    if (eligibleTasks.isEmpty()) {
+      return Optional.absent();
+    }
+    List<CeQueueDto> inProgressTasks = dbClient.ceQueueDao().selectByStatus(dbSession, CeQueueDto.Status.IN_PROGRESS);
+    for (CeQueueDto candidate : peekPolicy.sort(oldestOfEachComponent(eligibleTasks), inProgressTasks)) {
+      // candidate may have been peeked concurrently by another worker
+      Optional<CeQueueDto> dto = dbClient.ceQueueDao().tryToPeek(dbSession, candidate.getUuid());
+      if (dto.isPresent()) {
+        return dto;
+      }
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Tasks of a given component must be processed in order of submission
+   */
+  private static List<CeQueueDto> oldestOfEachComponent(List<CeQueueDto> tasks) {
+    Set<String> componentUuids = new HashSet<>();
+    List<CeQueueDto> res = new ArrayList<>(tasks.size());
+    for (CeQueueDto task : tasks) {
+      if (task.getComponentUuid() == null || componentUuids.add(task.getComponentUuid())) {
+        res.add(task);
+      }
+    }
+    return res;
+  }
+
+  private void recordPeek(CeQueueDto dto) {
+    peekPolicy.onPeek(dto);
+    Long startedAt = dto.getStartedAt();
+    if (startedAt != null) {
+      // clocks of Web Server and Compute Engine may differ
+      queueStatus.addQueueWait(peekPolicy.getBucket(dto), Math.max(0L, startedAt - dto.getCreatedAt()));
+    }
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
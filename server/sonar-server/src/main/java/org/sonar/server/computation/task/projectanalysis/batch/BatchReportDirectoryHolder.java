@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
+import java.util.Optional;
 import org.sonar.ce.queue.CeTask;
 
 public interface BatchReportDirectoryHolder {
@@ -30,4 +31,11 @@ public interface BatchReportDirectoryHolder {
    */
   File getDirectory();
 
+  /**
+   * The zip file of the Batch report for the current {@link CeTask}, when report files are read directly from
+   * the zip instead of being extracted to {@link #getDirectory()}. In this case the directory is only used
+   * to extract the few entries which must be available as files.
+   */
+  Optional<File> getZipFile();
+
 }
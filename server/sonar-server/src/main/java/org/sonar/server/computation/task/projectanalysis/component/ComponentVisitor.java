@@ -25,6 +25,19 @@ public interface ComponentVisitor {
 
   CrawlerDepthLimit getMaxDepth();
 
+  /**
+   * Whether components of distinct sub-trees can be visited concurrently by this visitor,
+   * when the {@link VisitorsCrawler} is given a {@link java.util.concurrent.ForkJoinPool}.
+   * A component is still visited by all the visitors in sequence, and is visited in post-order
+   * only once all its children have been visited.
+   * <p/>
+   * A {@link PathAwareVisitor} is given a copy of the path of the parent component. Elements of the path are
+   * shared by the children, so aggregating values into {@link PathAwareVisitor.Path#parent()} must be thread-safe.
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
+
   enum Order {
     /**
      * Each component is visited BEFORE its children. Top-down traversal of
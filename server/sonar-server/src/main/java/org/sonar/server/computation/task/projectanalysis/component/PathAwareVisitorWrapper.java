@@ -25,7 +25,11 @@ public class PathAwareVisitorWrapper<T> implements VisitorWrapper {
 
   private final PathAwareVisitor<T> delegate;
 
-  private final DequeBasedPath<T> stack = new DequeBasedPath<>();
+  /**
+   * Path of the component being visited by the current thread. Sub-trees visited concurrently are
+   * given a copy of the path of their parent (see {@link #copyPath()} and {@link #setPath(DequeBasedPath)}).
+   */
+  private final ThreadLocal<DequeBasedPath<T>> stack = ThreadLocal.withInitial(DequeBasedPath::new);
 
   public PathAwareVisitorWrapper(PathAwareVisitor<T> delegate) {
     this.delegate = delegate;
@@ -38,52 +42,70 @@ public class PathAwareVisitorWrapper<T> implements VisitorWrapper {
 
   @Override
   public void beforeComponent(Component component){
-    stack.add(new PathElementImpl<>(component, createForComponent(component)));
+    stack.get().add(new PathElementImpl<>(component, createForComponent(component)));
   }
 
   @Override
   public void afterComponent(Component component){
-    stack.pop();
+    stack.get().pop();
   }
 
   @Override
   public void visitProject(Component tree) {
-    delegate.visitProject(tree, stack);
+    delegate.visitProject(tree, stack.get());
   }
 
   @Override
   public void visitModule(Component tree) {
-    delegate.visitModule(tree, stack);
+    delegate.visitModule(tree, stack.get());
   }
 
   @Override
   public void visitDirectory(Component tree) {
-    delegate.visitDirectory(tree, stack);
+    delegate.visitDirectory(tree, stack.get());
   }
 
   @Override
   public void visitFile(Component tree) {
-    delegate.visitFile(tree, stack);
+    delegate.visitFile(tree, stack.get());
   }
 
   @Override
   public void visitView(Component view) {
-    delegate.visitView(view, stack);
+    delegate.visitView(view, stack.get());
   }
 
   @Override
   public void visitSubView(Component subView) {
-    delegate.visitSubView(subView, stack);
+    delegate.visitSubView(subView, stack.get());
   }
 
   @Override
   public void visitProjectView(Component projectView) {
-    delegate.visitProjectView(projectView, stack);
+    delegate.visitProjectView(projectView, stack.get());
   }
 
   @Override
   public void visitAny(Component component) {
-    delegate.visitAny(component, stack);
+    delegate.visitAny(component, stack.get());
+  }
+
+  /**
+   * Copy of the path of the current thread, to be given to the visit of a child of the current component in another thread.
+   */
+  DequeBasedPath<T> copyPath() {
+    return new DequeBasedPath<>(stack.get());
+  }
+
+  /**
+   * Replaces the path of the current thread.
+   *
+   * @return the replaced path
+   */
+  DequeBasedPath<T> setPath(DequeBasedPath<T> path) {
+    DequeBasedPath<T> previous = stack.get();
+    stack.set(path);
+    return previous;
   }
 
   @Override
@@ -23,9 +23,15 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Loggers;
@@ -37,6 +43,11 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p/>
+ * When a {@link ForkJoinPool} is provided, the children of a component are visited concurrently if all the
+ * visitors which visit them are thread-safe (see {@link ComponentVisitor#isThreadSafe()}). Post-order visit of
+ * the component is executed once all its children have been visited. The children visited in other threads are given
+ * a copy of the path of their parent for each {@link PathAwareVisitor}.
  */
 public class VisitorsCrawler implements ComponentCrawler {
 
@@ -44,17 +55,33 @@ public class VisitorsCrawler implements ComponentCrawler {
   private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
   private final List<VisitorWrapper> preOrderVisitorWrappers;
   private final List<VisitorWrapper> postOrderVisitorWrappers;
+  private final List<PathAwareVisitorWrapper<?>> pathAwareVisitorWrappers;
+  @Nullable
+  private final ForkJoinPool pool;
+  private final Map<Component.Type, Boolean> concurrentVisitByType = new EnumMap<>(Component.Type.class);
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
     this(visitors, false);
   }
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
+    this(visitors, computeDuration, null);
+  }
+
+  /**
+   * @param pool if not null, sub-trees are visited concurrently in this pool when visitors are thread-safe
+   */
+  public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration, @Nullable ForkJoinPool pool) {
     List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
     this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
     this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
+    this.pathAwareVisitorWrappers = from(visitorWrappers).filter(PathAwareVisitorWrapper.class).<PathAwareVisitorWrapper<?>>transform(w -> w).toList();
     this.computeDuration = computeDuration;
     this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
+    this.pool = pool;
+    for (Component.Type type : Component.Type.values()) {
+      concurrentVisitByType.put(type, from(visitorWrappers).filter(MatchVisitorMaxDepth.forType(type)).allMatch(IsThreadSafe.INSTANCE));
+    }
   }
 
   public Map<ComponentVisitor, Long> getCumulativeDurations() {
@@ -66,6 +93,18 @@ public class VisitorsCrawler implements ComponentCrawler {
     return Collections.emptyMap();
   }
 
+  /**
+   * Number of components visited by each visitor. Empty if durations are not computed.
+   */
+  public Map<ComponentVisitor, Long> getVisitCounts() {
+    if (computeDuration) {
+      return ImmutableMap.copyOf(
+        Maps.transformValues(this.visitorCumulativeDurations, VisitorDurationToVisitCount.INSTANCE)
+      );
+    }
+    return Collections.emptyMap();
+  }
+
   @Override
   public void visit(final Component component) {
     try {
@@ -86,7 +125,7 @@ public class VisitorsCrawler implements ComponentCrawler {
       return;
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappers, postOrderVisitorWrappers)) {
+    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappersToExecute, postOrderVisitorWrappersToExecute)) {
       visitorWrapper.beforeComponent(component);
     }
 
@@ -106,8 +145,85 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private void visitChildren(Component component) {
-    for (Component child : component.getChildren()) {
-      visit(child);
+    List<Component> children = component.getChildren();
+    if (pool != null && children.size() > 1 && from(children).allMatch(this::canBeVisitedConcurrently)) {
+      visitConcurrently(children);
+    } else {
+      for (Component child : children) {
+        visit(child);
+      }
+    }
+  }
+
+  private boolean canBeVisitedConcurrently(Component component) {
+    return concurrentVisitByType.get(component.getType());
+  }
+
+  private void visitConcurrently(List<Component> children) {
+    List<ForkJoinTask<Void>> tasks = new ArrayList<>(children.size());
+    for (Component child : children) {
+      tasks.add(new VisitTask(child));
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      ForkJoinTask.invokeAll(tasks);
+    } else {
+      requireNonNull(pool).invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    }
+  }
+
+  private class VisitTask extends RecursiveAction {
+    private final Component component;
+    private final List<InheritedPath<?>> inheritedPaths;
+
+    private VisitTask(Component component) {
+      this.component = component;
+      this.inheritedPaths = from(pathAwareVisitorWrappers).<InheritedPath<?>>transform(InheritedPath::of).toList();
+    }
+
+    @Override
+    protected void compute() {
+      // the thread may be running the visit of another sub-tree, while waiting for its children
+      for (InheritedPath<?> inheritedPath : inheritedPaths) {
+        inheritedPath.install();
+      }
+      try {
+        visit(component);
+      } finally {
+        for (InheritedPath<?> inheritedPath : inheritedPaths) {
+          inheritedPath.restore();
+        }
+      }
+    }
+  }
+
+  /**
+   * Path of the parent of a component which is visited in another thread
+   */
+  private static final class InheritedPath<T> {
+    private final PathAwareVisitorWrapper<T> wrapper;
+    private final DequeBasedPath<T> path;
+    private DequeBasedPath<T> replacedPath;
+
+    private InheritedPath(PathAwareVisitorWrapper<T> wrapper) {
+      this.wrapper = wrapper;
+      this.path = wrapper.copyPath();
+    }
+
+    private static <T> InheritedPath<T> of(PathAwareVisitorWrapper<T> wrapper) {
+      return new InheritedPath<>(wrapper);
+    }
+
+    private void install() {
+      replacedPath = wrapper.setPath(path);
+    }
+
+    private void restore() {
+      wrapper.setPath(replacedPath);
     }
   }
 
@@ -182,7 +298,11 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
 
     public static MatchVisitorMaxDepth forComponent(Component component) {
-      return INSTANCES.get(component.getType());
+      return forType(component.getType());
+    }
+
+    public static MatchVisitorMaxDepth forType(Component.Type type) {
+      return INSTANCES.get(type);
     }
 
     @Override
@@ -192,6 +312,15 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
+  private enum IsThreadSafe implements Predicate<VisitorWrapper> {
+    INSTANCE;
+
+    @Override
+    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
+      return visitorWrapper.getWrappedVisitor().isThreadSafe();
+    }
+  }
+
   private enum MathPreOrderVisitor implements Predicate<VisitorWrapper> {
     INSTANCE;
 
@@ -211,14 +340,20 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private static final class VisitorDuration {
-    private long duration = 0;
+    private final AtomicLong duration = new AtomicLong(0L);
+    private final AtomicLong visitCount = new AtomicLong(0L);
 
     public void increment(long duration) {
-      this.duration += duration;
+      this.duration.addAndGet(duration);
+      this.visitCount.incrementAndGet();
     }
 
     public long getDuration() {
-      return duration;
+      return duration.get();
+    }
+
+    public long getVisitCount() {
+      return visitCount.get();
     }
   }
 
@@ -241,4 +376,14 @@ public class VisitorsCrawler implements ComponentCrawler {
       return input.getDuration();
     }
   }
+
+  private enum VisitorDurationToVisitCount implements Function<VisitorDuration, Long> {
+    INSTANCE;
+
+    @Nullable
+    @Override
+    public Long apply(VisitorDuration input) {
+      return input.getVisitCount();
+    }
+  }
 }
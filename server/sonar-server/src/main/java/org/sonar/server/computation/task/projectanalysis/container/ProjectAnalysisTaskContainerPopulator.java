@@ -84,6 +84,7 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureComputer
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureComputersVisitor;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureToMeasureDto;
+import org.sonar.server.computation.task.projectanalysis.measure.PastMeasureRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricModule;
 import org.sonar.server.computation.task.projectanalysis.period.PeriodsHolderImpl;
 import org.sonar.server.computation.task.projectanalysis.qualitygate.EvaluationResultTextConverterImpl;
@@ -103,6 +104,7 @@ import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepos
 import org.sonar.server.computation.task.projectanalysis.step.ReportComputationSteps;
 import org.sonar.server.computation.task.projectanalysis.webhook.WebhookModule;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
+import org.sonar.server.computation.task.step.ExecutionStatisticsHolder;
 import org.sonar.server.computation.task.step.ComputationSteps;
 import org.sonar.server.computation.taskprocessor.MutableTaskResultHolderImpl;
 import org.sonar.server.view.index.ViewIndex;
@@ -140,6 +142,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
     return Arrays.asList(
       PostProjectAnalysisTasksExecutor.class,
       ComputationStepExecutor.class,
+      ExecutionStatisticsHolder.class,
 
       // File System
       new ComputationTempFolderProvider(),
@@ -164,6 +167,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       // repositories
       LanguageRepositoryImpl.class,
       MeasureRepositoryImpl.class,
+      PastMeasureRepositoryImpl.class,
       EventRepositoryImpl.class,
       SettingsRepositoryImpl.class,
       DbIdsRepositoryImpl.class,
@@ -21,8 +21,10 @@ package org.sonar.server.computation.task.projectanalysis.filemove;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
@@ -31,6 +33,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -60,6 +63,7 @@ import org.sonar.server.computation.task.step.ComputationStep;
 import static com.google.common.base.Splitter.on;
 import static com.google.common.collect.FluentIterable.from;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
 public class FileMoveDetectionStep implements ComputationStep {
@@ -67,6 +71,10 @@ public class FileMoveDetectionStep implements ComputationStep {
   private static final Logger LOG = Loggers.get(FileMoveDetectionStep.class);
   private static final List<String> FILE_QUALIFIERS = asList(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
   private static final Splitter LINES_HASHES_SPLITTER = on('\n');
+  /**
+   * Number of removed files loaded from DB at once, then scored concurrently
+   */
+  private static final int SCORING_BATCH_SIZE = 200;
 
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final TreeRootHolder rootHolder;
@@ -198,33 +206,58 @@ public class FileMoveDetectionStep implements ComputationStep {
     return builder.build();
   }
 
+  /**
+   * Only the pairs of files which have enough lines in common to reach {@link #MIN_REQUIRED_SCORE} are scored. Removed
+   * files are loaded from DB by batches, the files of a batch being scored concurrently.
+   */
   private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
-    int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
-    int maxScore = 0;
+    List<String> removedFileKeys = ImmutableList.copyOf(dbFileKeys);
+    List<String> addedFileKeys = ImmutableList.copyOf(reportFileSourcesByKey.keySet());
+    List<File> addedFiles = ImmutableList.copyOf(reportFileSourcesByKey.values());
+    LineHashesIndex addedFilesIndex = new LineHashesIndex(addedFiles);
+    ScoreMatrix scoreMatrix = new ScoreMatrix(removedFileKeys, addedFileKeys);
 
     try (DbSession dbSession = dbClient.openSession(false)) {
-      int dbFileIndex = 0;
-      for (String removedFileKey : dbFileKeys) {
-        File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
-        if (fileInDb == null) {
-          continue;
+      int batchOffset = 0;
+      for (List<String> batch : Lists.partition(removedFileKeys, SCORING_BATCH_SIZE)) {
+        List<File> filesInDb = new ArrayList<>(batch.size());
+        for (String removedFileKey : batch) {
+          filesInDb.add(getFile(dbSession, dtosByKey.get(removedFileKey)));
         }
-
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
-          if (score > maxScore) {
-            maxScore = score;
-          }
-          reportFileIndex++;
+        List<int[]> scores = IntStream.range(0, filesInDb.size())
+          .parallel()
+          .mapToObj(i -> score(filesInDb.get(i), addedFilesIndex, addedFiles))
+          .collect(toList());
+        for (int i = 0; i < scores.size(); i++) {
+          addScores(scoreMatrix, batchOffset + i, scores.get(i));
         }
-        dbFileIndex++;
+        batchOffset += batch.size();
       }
     }
 
-    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
+    return scoreMatrix;
+  }
+
+  /**
+   * @return pairs of (index of the added file, score)
+   */
+  private int[] score(@Nullable File fileInDb, LineHashesIndex addedFilesIndex, List<File> addedFiles) {
+    if (fileInDb == null) {
+      return new int[0];
+    }
+    int[] candidates = addedFilesIndex.findCandidates(fileInDb.getLineHashes(), MIN_REQUIRED_SCORE);
+    int[] res = new int[candidates.length * 2];
+    for (int i = 0; i < candidates.length; i++) {
+      res[2 * i] = candidates[i];
+      res[2 * i + 1] = fileSimilarity.score(fileInDb, addedFiles.get(candidates[i]));
+    }
+    return res;
+  }
+
+  private static void addScores(ScoreMatrix scoreMatrix, int dbFileIndex, int[] scores) {
+    for (int i = 0; i < scores.length; i += 2) {
+      scoreMatrix.add(dbFileIndex, scores[i], scores[i + 1]);
+    }
   }
 
   @CheckForNull
@@ -53,5 +53,8 @@ public interface FileSimilarity {
     }
   }
 
+  /**
+   * Must be thread-safe, as files are scored concurrently.
+   */
   int score(File file1, File file2);
 }
@@ -0,0 +1,119 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Inverted index of the line hashes of a list of files, used to find the files which may be similar enough to another
+ * file before computing their actual score.
+ * <p>
+ * The Levenshtein distance between two lists of line hashes is at least the length of the longest list minus the number
+ * of line hashes they have in common. A score of {@code minScore} is therefore reachable only if the files have at
+ * least {@code minScore}% of the lines of the longest of them in common. This number is computed exactly from the
+ * index, so no file which could reach the score is left out.
+ * </p>
+ */
+final class LineHashesIndex {
+  private final int[] lineCounts;
+  /**
+   * For each line hash, pairs of (index of the file, number of occurrences of the line hash in the file)
+   */
+  private final Map<String, int[]> postingsByLineHash;
+
+  LineHashesIndex(List<FileSimilarity.File> files) {
+    this.lineCounts = new int[files.size()];
+    Map<String, IntList> postings = new HashMap<>();
+    for (int fileIndex = 0; fileIndex < files.size(); fileIndex++) {
+      List<String> lineHashes = files.get(fileIndex).getLineHashes();
+      if (lineHashes == null) {
+        continue;
+      }
+      lineCounts[fileIndex] = lineHashes.size();
+      for (Map.Entry<String, Integer> entry : countOccurrences(lineHashes).entrySet()) {
+        IntList posting = postings.computeIfAbsent(entry.getKey(), k -> new IntList());
+        posting.add(fileIndex);
+        posting.add(entry.getValue());
+      }
+    }
+    this.postingsByLineHash = new HashMap<>(postings.size() * 2);
+    postings.forEach((lineHash, posting) -> postingsByLineHash.put(lineHash, posting.toArray()));
+  }
+
+  /**
+   * Indexes of the files which have enough line hashes in common with the specified ones to reach the specified score,
+   * in increasing order.
+   */
+  int[] findCandidates(@Nullable List<String> lineHashes, int minScore) {
+    if (lineHashes == null || lineHashes.isEmpty()) {
+      return new int[0];
+    }
+    int[] commonLines = new int[lineCounts.length];
+    for (Map.Entry<String, Integer> entry : countOccurrences(lineHashes).entrySet()) {
+      int[] posting = postingsByLineHash.get(entry.getKey());
+      if (posting != null) {
+        int occurrences = entry.getValue();
+        for (int i = 0; i < posting.length; i += 2) {
+          commonLines[posting[i]] += min(occurrences, posting[i + 1]);
+        }
+      }
+    }
+    IntList res = new IntList();
+    for (int fileIndex = 0; fileIndex < commonLines.length; fileIndex++) {
+      int longest = max(lineHashes.size(), lineCounts[fileIndex]);
+      if (commonLines[fileIndex] > 0 && 100L * commonLines[fileIndex] >= (long) minScore * longest) {
+        res.add(fileIndex);
+      }
+    }
+    return res.toArray();
+  }
+
+  private static Map<String, Integer> countOccurrences(List<String> lineHashes) {
+    Map<String, Integer> res = new HashMap<>();
+    for (String lineHash : lineHashes) {
+      res.merge(lineHash, 1, Integer::sum);
+    }
+    return res;
+  }
+
+  private static final class IntList {
+    private int[] values = new int[4];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size] = value;
+      size++;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
@@ -19,56 +19,71 @@
  */
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.List;
 
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+/**
+ * Sparse matrix of the scores of pairs of a removed file (ie. a file in DB) and an added file (ie. a file in the report).
+ * <p>
+ * Only scores greater than or equal to {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE} are stored, any other pair being
+ * considered as not matching. Scores are visited in the order they were added.
+ * </p>
+ */
 final class ScoreMatrix {
-  private final Set<String> dbFileKeys;
-  private final Map<String, FileSimilarity.File> reportFileSourcesByKey;
-  private final int[][] scores;
-  private final int maxScore;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final List<String> dbFileKeys;
+  private final List<String> reportFileKeys;
+  private int[] dbFileIndexes = new int[INITIAL_CAPACITY];
+  private int[] reportFileIndexes = new int[INITIAL_CAPACITY];
+  private byte[] scores = new byte[INITIAL_CAPACITY];
+  private int size = 0;
+  private int maxScore = 0;
 
-  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, int[][] scores, int maxScore) {
+  ScoreMatrix(List<String> dbFileKeys, List<String> reportFileKeys) {
     this.dbFileKeys = dbFileKeys;
-    this.reportFileSourcesByKey = reportFileSourcesByKey;
-    this.scores = scores;
-    this.maxScore = maxScore;
+    this.reportFileKeys = reportFileKeys;
+  }
+
+  /**
+   * @param dbFileIndex index of the file in the list of db file keys
+   * @param reportFileIndex index of the file in the list of report file keys
+   * @param score a score between 0 and 100
+   */
+  public void add(int dbFileIndex, int reportFileIndex, int score) {
+    if (score > maxScore) {
+      maxScore = score;
+    }
+    if (score < MIN_REQUIRED_SCORE) {
+      return;
+    }
+    if (size == scores.length) {
+      int newCapacity = size * 2;
+      dbFileIndexes = Arrays.copyOf(dbFileIndexes, newCapacity);
+      reportFileIndexes = Arrays.copyOf(reportFileIndexes, newCapacity);
+      scores = Arrays.copyOf(scores, newCapacity);
+    }
+    dbFileIndexes[size] = dbFileIndex;
+    reportFileIndexes[size] = reportFileIndex;
+    scores[size] = (byte) score;
+    size++;
   }
 
   public void accept(ScoreMatrixVisitor visitor) {
-    int dbFileIndex = 0;
-    for (String dbFileKey : dbFileKeys) {
-      int reportFileIndex = 0;
-      for (Map.Entry<String, FileSimilarity.File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-        int score = scores[dbFileIndex][reportFileIndex];
-        visitor.visit(dbFileKey, reportFileSourceAndKey.getKey(), score);
-        reportFileIndex++;
-      }
-      dbFileIndex++;
+    for (int i = 0; i < size; i++) {
+      visitor.visit(dbFileKeys.get(dbFileIndexes[i]), reportFileKeys.get(reportFileIndexes[i]), scores[i]);
     }
   }
 
   public String toCsv(char separator) {
     StringBuilder res = new StringBuilder();
-    // first row: empty column, then one column for each report file (its key)
-    res.append(separator);
-    for (Map.Entry<String, FileSimilarity.File> reportEntry : reportFileSourcesByKey.entrySet()) {
-      res.append(reportEntry.getKey()).append(separator);
-    }
-    // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private String previousDbFileKey = null;
-
-      @Override
-      public void visit(String dbFileKey, String reportFileKey, int score) {
-        if (!Objects.equals(previousDbFileKey, dbFileKey)) {
-          res.append('\n').append(dbFileKey).append(separator);
-          previousDbFileKey = dbFileKey;
-        }
-        res.append(score).append(separator);
-      }
-    });
+    res.append("dbFileKey").append(separator).append("reportFileKey").append(separator).append("score");
+    accept((dbFileKey, reportFileKey, score) -> res.append('\n')
+      .append(dbFileKey).append(separator)
+      .append(reportFileKey).append(separator)
+      .append(score));
     return res.toString();
   }
 
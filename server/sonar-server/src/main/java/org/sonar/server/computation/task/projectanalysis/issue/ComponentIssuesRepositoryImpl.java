@@ -20,7 +20,6 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import java.util.List;
-import javax.annotation.CheckForNull;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
@@ -28,26 +27,40 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Issues are kept per thread, as the components of distinct sub-trees can be visited concurrently (see
+ * {@link org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor#isThreadSafe()}). A component is
+ * visited by all the visitors in the same thread, so issues set by {@link IntegrateIssuesVisitor} are still the ones
+ * of the visited component.
+ */
 public class ComponentIssuesRepositoryImpl implements MutableComponentIssuesRepository {
 
-  @CheckForNull
-  private List<DefaultIssue> issues;
-
-  @CheckForNull
-  private Component component;
+  private final ThreadLocal<ComponentIssues> componentIssues = new ThreadLocal<>();
 
   @Override
   public void setIssues(Component component, List<DefaultIssue> issues) {
-    this.issues = requireNonNull(issues, "issues cannot be null");
-    this.component = requireNonNull(component, "component cannot be null");
+    componentIssues.set(new ComponentIssues(
+      requireNonNull(component, "component cannot be null"),
+      requireNonNull(issues, "issues cannot be null")));
   }
 
   @Override
   public List<DefaultIssue> getIssues(Component component) {
-    checkState(this.component != null && this.issues != null, "Issues have not been initialized");
-    checkArgument(component.equals(this.component),
+    ComponentIssues current = componentIssues.get();
+    checkState(current != null, "Issues have not been initialized");
+    checkArgument(component.equals(current.component),
       String.format("Only issues from component '%s' are available, but wanted component is '%s'.",
-        this.component.getReportAttributes().getRef(), component.getReportAttributes().getRef()));
-    return issues;
+        current.component.getReportAttributes().getRef(), component.getReportAttributes().getRef()));
+    return current.issues;
+  }
+
+  private static final class ComponentIssues {
+    private final Component component;
+    private final List<DefaultIssue> issues;
+
+    private ComponentIssues(Component component, List<DefaultIssue> issues) {
+      this.component = component;
+      this.issues = issues;
+    }
   }
 }
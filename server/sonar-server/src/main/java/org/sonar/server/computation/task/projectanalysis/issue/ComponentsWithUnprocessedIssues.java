@@ -23,7 +23,7 @@ import java.util.Set;
 import javax.annotation.CheckForNull;
 
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.collect.Sets.newConcurrentHashSet;
 import static java.util.Objects.requireNonNull;
 
 public class ComponentsWithUnprocessedIssues {
@@ -34,7 +34,7 @@ public class ComponentsWithUnprocessedIssues {
   public void setUuids(Set<String> uuids) {
     requireNonNull(uuids, "Uuids cannot be null");
     checkState(this.uuids == null, "Uuids have already been initialized");
-    this.uuids = newHashSet(uuids);
+    this.uuids = newConcurrentHashSet(uuids);
   }
 
   public void remove(String uuid) {
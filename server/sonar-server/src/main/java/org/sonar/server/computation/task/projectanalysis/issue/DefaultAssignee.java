@@ -52,7 +52,7 @@ public class DefaultAssignee {
   }
 
   @CheckForNull
-  public String getLogin() {
+  public synchronized String getLogin() {
     if (!loaded) {
       String configuredLogin = settingsRepository.getSettings(treeRootHolder.getRoot()).getString(DEFAULT_ISSUE_ASSIGNEE);
       if (!Strings.isNullOrEmpty(configuredLogin) && isValidLogin(configuredLogin)) {
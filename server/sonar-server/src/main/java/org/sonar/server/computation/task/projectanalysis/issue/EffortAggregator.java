@@ -19,8 +19,8 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -47,8 +47,7 @@ public class EffortAggregator extends IssueVisitor {
   private final Metric reliabilityEffortMetric;
   private final Metric securityEffortMetric;
 
-  private final Map<Integer, EffortCounter> effortsByComponentRef = new HashMap<>();
-  private EffortCounter effortCounter;
+  private final Map<Integer, EffortCounter> effortsByComponentRef = new ConcurrentHashMap<>();
 
   public EffortAggregator(MetricRepository metricRepository, MeasureRepository measureRepository) {
     this.measureRepository = measureRepository;
@@ -57,9 +56,17 @@ public class EffortAggregator extends IssueVisitor {
     this.securityEffortMetric = metricRepository.getByKey(SECURITY_REMEDIATION_EFFORT_KEY);
   }
 
+  /**
+   * Counters are kept per component. The counters of children are read once they have all been visited.
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void beforeComponent(Component component) {
-    effortCounter = new EffortCounter();
+    EffortCounter effortCounter = new EffortCounter();
     effortsByComponentRef.put(component.getReportAttributes().getRef(), effortCounter);
 
     // aggregate children counters
@@ -75,28 +82,31 @@ public class EffortAggregator extends IssueVisitor {
   @Override
   public void onIssue(Component component, DefaultIssue issue) {
     if (issue.resolution() == null) {
-      effortCounter.add(issue);
+      counterOf(component).add(issue);
     }
   }
 
   @Override
   public void afterComponent(Component component) {
-    computeMaintainabilityEffortMeasure(component);
-    computeReliabilityEffortMeasure(component);
-    computeSecurityEffortMeasure(component);
+    EffortCounter effortCounter = counterOf(component);
+    computeMaintainabilityEffortMeasure(component, effortCounter);
+    computeReliabilityEffortMeasure(component, effortCounter);
+    computeSecurityEffortMeasure(component, effortCounter);
+  }
 
-    this.effortCounter = null;
+  private EffortCounter counterOf(Component component) {
+    return effortsByComponentRef.get(component.getReportAttributes().getRef());
   }
 
-  private void computeMaintainabilityEffortMeasure(Component component) {
+  private void computeMaintainabilityEffortMeasure(Component component, EffortCounter effortCounter) {
     measureRepository.add(component, maintainabilityEffortMetric, Measure.newMeasureBuilder().create(effortCounter.maintainabilityEffort));
   }
 
-  private void computeReliabilityEffortMeasure(Component component) {
+  private void computeReliabilityEffortMeasure(Component component, EffortCounter effortCounter) {
     measureRepository.add(component, reliabilityEffortMetric, Measure.newMeasureBuilder().create(effortCounter.reliabilityEffort));
   }
 
-  private void computeSecurityEffortMeasure(Component component) {
+  private void computeSecurityEffortMeasure(Component component, EffortCounter effortCounter) {
     measureRepository.add(component, securityEffortMetric, Measure.newMeasureBuilder().create(effortCounter.securityEffort));
   }
 
@@ -29,7 +29,6 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
-import org.sonar.server.util.cache.DiskCache;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
@@ -43,8 +42,6 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
   private final MovedFilesRepository movedFilesRepository;
 
-  private final List<DefaultIssue> componentIssues = new ArrayList<>();
-
   public IntegrateIssuesVisitor(TrackerExecution tracker, IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
     ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, MutableComponentIssuesRepository componentIssuesRepository, MovedFilesRepository movedFilesRepository) {
     super(CrawlerDepthLimit.FILE, POST_ORDER);
@@ -57,10 +54,19 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     this.movedFilesRepository = movedFilesRepository;
   }
 
+  /**
+   * Issues are tracked, written to the {@link IssueCache} and counted component per component, so components can be
+   * processed concurrently as long as the {@link IssueVisitor}s support it
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return issueVisitors.isThreadSafe();
+  }
+
   @Override
   public void visitAny(Component component) {
-    componentIssues.clear();
-    processIssues(component);
+    List<DefaultIssue> componentIssues = new ArrayList<>();
+    processIssues(component, componentIssues);
 
     componentsWithUnprocessedIssues.remove(component.getUuid());
     Optional<MovedFilesRepository.OriginalFile> originalFile = movedFilesRepository.getOriginalFile(component);
@@ -70,14 +76,14 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     componentIssuesRepository.setIssues(component, componentIssues);
   }
 
-  private void processIssues(Component component) {
-    DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender();
+  private void processIssues(Component component, List<DefaultIssue> componentIssues) {
+    IssueCache.CacheAppender cacheAppender = issueCache.newAppender();
     try {
       Tracking<DefaultIssue, DefaultIssue> tracking = tracker.track(component);
       issueVisitors.beforeComponent(component);
-      fillNewOpenIssues(component, tracking, cacheAppender);
-      fillExistingOpenIssues(component, tracking, cacheAppender);
-      closeUnmatchedBaseIssues(component, tracking, cacheAppender);
+      fillNewOpenIssues(component, tracking, cacheAppender, componentIssues);
+      fillExistingOpenIssues(component, tracking, cacheAppender, componentIssues);
+      closeUnmatchedBaseIssues(component, tracking, cacheAppender, componentIssues);
       issueVisitors.afterComponent(component);
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to process issues of component '%s'", component.getKey()), e);
@@ -86,32 +92,35 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
-  private void fillNewOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void fillNewOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, IssueCache.CacheAppender cacheAppender,
+    List<DefaultIssue> componentIssues) {
     for (DefaultIssue issue : tracking.getUnmatchedRaws()) {
       issueLifecycle.initNewOpenIssue(issue);
-      process(component, issue, cacheAppender);
+      process(component, issue, cacheAppender, componentIssues);
     }
   }
 
-  private void fillExistingOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void fillExistingOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, IssueCache.CacheAppender cacheAppender,
+    List<DefaultIssue> componentIssues) {
     for (Map.Entry<DefaultIssue, DefaultIssue> entry : tracking.getMatchedRaws().entrySet()) {
       DefaultIssue raw = entry.getKey();
       DefaultIssue base = entry.getValue();
       issueLifecycle.mergeExistingOpenIssue(raw, base);
-      process(component, raw, cacheAppender);
+      process(component, raw, cacheAppender, componentIssues);
     }
   }
 
-  private void closeUnmatchedBaseIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void closeUnmatchedBaseIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, IssueCache.CacheAppender cacheAppender,
+    List<DefaultIssue> componentIssues) {
     for (DefaultIssue issue : tracking.getUnmatchedBases()) {
       // TODO should replace flag "beingClosed" by express call to transition "automaticClose"
       issue.setBeingClosed(true);
       // TODO manual issues -> was updater.setResolution(newIssue, Issue.RESOLUTION_REMOVED, changeContext);. Is it a problem ?
-      process(component, issue, cacheAppender);
+      process(component, issue, cacheAppender, componentIssues);
     }
   }
 
-  private void process(Component component, DefaultIssue issue, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void process(Component component, DefaultIssue issue, IssueCache.CacheAppender cacheAppender, List<DefaultIssue> componentIssues) {
     issueLifecycle.doAutomaticTransition(issue);
     issueVisitors.onIssue(component, issue);
     cacheAppender.append(issue);
@@ -19,10 +19,10 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
-import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import java.util.Date;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -56,9 +56,6 @@ public class IssueAssigner extends IssueVisitor {
   private final ScmAccountToUser scmAccountToUser;
   private final IssueChangeContext changeContext;
 
-  private String lastCommitAuthor = null;
-  private ScmInfo scmChangesets = null;
-
   public IssueAssigner(AnalysisMetadataHolder analysisMetadataHolder, ScmInfoRepository scmInfoRepository, ScmAccountToUser scmAccountToUser, DefaultAssignee defaultAssignee,
     IssueFieldsSetter issueUpdater) {
     this.scmInfoRepository = scmInfoRepository;
@@ -68,12 +65,19 @@ public class IssueAssigner extends IssueVisitor {
     this.changeContext = createScan(new Date(analysisMetadataHolder.getAnalysisDate()));
   }
 
+  /**
+   * SCM information is loaded for each issue from {@link ScmInfoRepository}, which caches it per file
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void onIssue(Component component, DefaultIssue issue) {
     boolean authorWasSet = false;
     if (issue.authorLogin() == null) {
-      loadScmChangesets(component);
-      String scmAuthor = guessScmAuthor(issue);
+      String scmAuthor = guessScmAuthor(issue, scmInfoRepository.getScmInfo(component).orNull());
       if (!Strings.isNullOrEmpty(scmAuthor)) {
         issueUpdater.setNewAuthor(issue, scmAuthor, changeContext);
         authorWasSet = true;
@@ -85,37 +89,24 @@ public class IssueAssigner extends IssueVisitor {
     }
   }
 
-  private void loadScmChangesets(Component component) {
-    if (scmChangesets == null) {
-      Optional<ScmInfo> scmInfoOptional = scmInfoRepository.getScmInfo(component);
-      if (scmInfoOptional.isPresent()) {
-        scmChangesets = scmInfoOptional.get();
-        lastCommitAuthor = scmChangesets.getLatestChangeset().getAuthor();
-      }
-    }
-  }
-
-  @Override
-  public void afterComponent(Component component) {
-    lastCommitAuthor = null;
-    scmChangesets = null;
-  }
-
   /**
    * Get the SCM login of the last committer on the line. When line is zero,
    * then get the last committer on the file.
    */
   @CheckForNull
-  private String guessScmAuthor(DefaultIssue issue) {
+  private static String guessScmAuthor(DefaultIssue issue, @Nullable ScmInfo scmChangesets) {
+    if (scmChangesets == null) {
+      return null;
+    }
     Integer line = issue.line();
     String author = null;
-    if (line != null && scmChangesets != null) {
+    if (line != null) {
       if (scmChangesets.hasChangesetForLine(line)) {
         author = scmChangesets.getChangesetForLine(line).getAuthor();
       } else {
         LOGGER.warn("No SCM info has been found for issue {}", issue);
       }
     }
-    return defaultIfEmpty(author, lastCommitAuthor);
+    return defaultIfEmpty(author, scmChangesets.getLatestChangeset().getAuthor());
   }
 }
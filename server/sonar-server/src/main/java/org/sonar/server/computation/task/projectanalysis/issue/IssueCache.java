@@ -19,25 +19,234 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.core.issue.DefaultIssue;
-import org.sonar.server.util.cache.DiskCache;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.task.projectanalysis.issue.protobuf.CeIssueCache;
 
 /**
  * Cache of all the issues involved in the analysis. Their state is as it will be
  * persisted in database (after issue tracking, auto-assignment, ...)
+ * <p>
+ * Issues are stored on disk as protobuf records (see {@link IssueCacheCodec}), grouped in segments
+ * of consecutive issues of the same component. Segments are optionally compressed with LZ4. Their
+ * offsets are kept in memory, so that the issues of a single component can be traversed without
+ * reading the whole file.
+ * </p>
  */
-public class IssueCache extends DiskCache<DefaultIssue> {
+public class IssueCache {
+
+  /**
+   * Segments are flushed to disk when their size exceeds this threshold, in order to bound memory usage.
+   */
+  private static final int MAX_SEGMENT_SIZE = 1024 * 1024;
+
+  private final File file;
+  private final System2 system2;
+  private final boolean compressed;
+  private final List<Segment> segments = new ArrayList<>();
+  private final Map<String, List<Segment>> segmentsByComponentUuid = new HashMap<>();
+  private long fileSize = 0L;
 
   // this constructor is used by picocontainer
   public IssueCache(TempFolder tempFolder, System2 system2) throws IOException {
-    super(tempFolder.newFile("issues", ".dat"), system2);
+    this(tempFolder.newFile("issues", ".dat"), system2, true);
   }
 
   public IssueCache(File file, System2 system2) {
-    super(file, system2);
+    this(file, system2, true);
+  }
+
+  public IssueCache(File file, System2 system2, boolean compressed) {
+    this.file = file;
+    this.system2 = system2;
+    this.compressed = compressed;
+    OutputStream output = null;
+    try {
+      // truncates the file
+      output = new FileOutputStream(file);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write into file: " + file, e);
+    } finally {
+      IOUtils.closeQuietly(output);
+    }
+  }
+
+  public CacheAppender newAppender() {
+    return new CacheAppender();
+  }
+
+  /**
+   * Traverses all the issues, in the order they have been appended.
+   */
+  public CloseableIterator<DefaultIssue> traverse() {
+    return new SegmentsIterator(snapshot(segments));
+  }
+
+  /**
+   * Traverses the issues of the component, without reading the issues of other components.
+   */
+  public CloseableIterator<DefaultIssue> traverse(String componentUuid) {
+    synchronized (this) {
+      List<Segment> componentSegments = segmentsByComponentUuid.get(componentUuid);
+      if (componentSegments == null) {
+        return CloseableIterator.emptyCloseableIterator();
+      }
+      return new SegmentsIterator(snapshot(componentSegments));
+    }
+  }
+
+  private synchronized List<Segment> snapshot(List<Segment> list) {
+    return Collections.unmodifiableList(new ArrayList<>(list));
+  }
+
+  private synchronized void writeSegment(@Nullable String componentUuid, byte[] bytes) {
+    OutputStream output = null;
+    boolean threw = true;
+    try {
+      output = new FileOutputStream(file, true);
+      output.write(bytes);
+      threw = false;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write into file " + file, e);
+    } finally {
+      if (threw) {
+        // do not hide initial exception
+        IOUtils.closeQuietly(output);
+      } else {
+        // raise an exception if can't close
+        system2.close(output);
+      }
+    }
+    Segment segment = new Segment(fileSize, bytes.length);
+    fileSize += bytes.length;
+    segments.add(segment);
+    segmentsByComponentUuid.computeIfAbsent(componentUuid, k -> new ArrayList<>()).add(segment);
+  }
+
+  public class CacheAppender implements AutoCloseable {
+    private String componentUuid;
+    private ByteArrayOutputStream buffer;
+    private OutputStream output;
+
+    private CacheAppender() {
+      // use IssueCache#newAppender()
+    }
+
+    public CacheAppender append(DefaultIssue issue) {
+      try {
+        if (output != null && (!Objects.equals(componentUuid, issue.componentUuid()) || buffer.size() > MAX_SEGMENT_SIZE)) {
+          flush();
+        }
+        if (output == null) {
+          componentUuid = issue.componentUuid();
+          buffer = new ByteArrayOutputStream();
+          output = compressed ? new LZ4BlockOutputStream(buffer) : buffer;
+        }
+        IssueCacheCodec.toProtobuf(issue).writeDelimitedTo(output);
+        return this;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      }
+    }
+
+    private void flush() throws IOException {
+      output.close();
+      writeSegment(componentUuid, buffer.toByteArray());
+      output = null;
+      buffer = null;
+    }
+
+    @Override
+    public void close() {
+      if (output != null) {
+        try {
+          flush();
+        } catch (IOException e) {
+          throw new IllegalStateException("Fail to write into file " + file, e);
+        }
+      }
+    }
+  }
+
+  private static class Segment {
+    private final long offset;
+    private final int length;
+
+    private Segment(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private class SegmentsIterator extends CloseableIterator<DefaultIssue> {
+    private final Iterator<Segment> segmentIterator;
+    private RandomAccessFile randomAccessFile;
+    private InputStream segmentInput;
+
+    private SegmentsIterator(List<Segment> segments) {
+      this.segmentIterator = segments.iterator();
+    }
+
+    @Override
+    @CheckForNull
+    protected DefaultIssue doNext() {
+      try {
+        while (true) {
+          if (segmentInput != null) {
+            CeIssueCache.Issue issue = CeIssueCache.Issue.parseDelimitedFrom(segmentInput);
+            if (issue != null) {
+              return IssueCacheCodec.toDefaultIssue(issue);
+            }
+            segmentInput = null;
+          }
+          if (!segmentIterator.hasNext()) {
+            return null;
+          }
+          segmentInput = openSegment(segmentIterator.next());
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    private InputStream openSegment(Segment segment) throws IOException {
+      if (randomAccessFile == null) {
+        randomAccessFile = new RandomAccessFile(file, "r");
+      }
+      byte[] bytes = new byte[segment.length];
+      randomAccessFile.seek(segment.offset);
+      randomAccessFile.readFully(bytes);
+      InputStream input = new ByteArrayInputStream(bytes);
+      return compressed ? new LZ4BlockInputStream(input) : input;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+      if (randomAccessFile != null) {
+        randomAccessFile.close();
+      }
+    }
   }
 }
@@ -0,0 +1,328 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.computation.task.projectanalysis.issue.protobuf.CeIssueCache;
+
+import static org.sonar.core.util.Protobuf.setNullable;
+
+/**
+ * Converts {@link DefaultIssue} from and to the protobuf records of {@link IssueCache}. It replaces
+ * Java serialization, which is much slower and generates bigger records.
+ */
+final class IssueCacheCodec {
+
+  private IssueCacheCodec() {
+    // only static methods
+  }
+
+  static CeIssueCache.Issue toProtobuf(DefaultIssue issue) {
+    CeIssueCache.Issue.Builder builder = CeIssueCache.Issue.newBuilder();
+    if (issue.key() != null) {
+      builder.setKey(issue.key());
+    }
+    if (issue.type() != null) {
+      builder.setRuleType(issue.type().getDbConstant());
+    }
+    setNullable(issue.componentUuid(), builder::setComponentUuid);
+    setNullable(issue.componentKey(), builder::setComponentKey);
+    setNullable(issue.moduleUuid(), builder::setModuleUuid);
+    setNullable(issue.moduleUuidPath(), builder::setModuleUuidPath);
+    setNullable(issue.projectUuid(), builder::setProjectUuid);
+    setNullable(issue.projectKey(), builder::setProjectKey);
+    if (issue.ruleKey() != null) {
+      builder.setRuleKey(issue.ruleKey().toString());
+    }
+    setNullable(issue.language(), builder::setLanguage);
+    setNullable(issue.severity(), builder::setSeverity);
+    builder.setManualSeverity(issue.manualSeverity());
+    setNullable(issue.message(), builder::setMessage);
+    if (issue.line() != null) {
+      builder.setLine(issue.line());
+    }
+    if (issue.gap() != null) {
+      builder.setGap(issue.gap());
+    }
+    if (issue.effort() != null) {
+      builder.setEffort(issue.effort().toMinutes());
+    }
+    setNullable(issue.status(), builder::setStatus);
+    setNullable(issue.resolution(), builder::setResolution);
+    setNullable(issue.assignee(), builder::setAssignee);
+    setNullable(issue.checksum(), builder::setChecksum);
+    for (Map.Entry<String, String> attribute : issue.attributes().entrySet()) {
+      builder.addAttributes(CeIssueCache.Attribute.newBuilder().setKey(attribute.getKey()).setValue(attribute.getValue()));
+    }
+    setNullable(issue.authorLogin(), builder::setAuthorLogin);
+    for (IssueComment comment : issue.comments()) {
+      builder.addComments(toProtobuf((DefaultIssueComment) comment));
+    }
+    builder.addAllTags(issue.tags());
+    Object locations = issue.getLocations();
+    if (locations != null) {
+      if (!(locations instanceof DbIssues.Locations)) {
+        throw new IllegalArgumentException("Unsupported type of locations: " + locations.getClass());
+      }
+      builder.setLocations(((DbIssues.Locations) locations).toByteString());
+    }
+    setNullable(issue.creationDate(), d -> builder.setCreationDate(d.getTime()));
+    setNullable(issue.updateDate(), d -> builder.setUpdateDate(d.getTime()));
+    setNullable(issue.closeDate(), d -> builder.setCloseDate(d.getTime()));
+    setChanges(issue, builder);
+    builder.setIsNew(issue.isNew());
+    builder.setBeingClosed(issue.isBeingClosed());
+    builder.setOnDisabledRule(issue.isOnDisabledRule());
+    builder.setIsChanged(issue.isChanged());
+    builder.setSendNotifications(issue.mustSendNotifications());
+    if (issue.selectedAt() != null) {
+      builder.setSelectedAt(issue.selectedAt());
+    }
+    return builder.build();
+  }
+
+  static DefaultIssue toDefaultIssue(CeIssueCache.Issue proto) {
+    DefaultIssue issue = new DefaultIssue();
+    if (proto.hasKey()) {
+      issue.setKey(proto.getKey());
+    }
+    if (proto.hasRuleType()) {
+      issue.setType(RuleType.valueOf(proto.getRuleType()));
+    }
+    issue.setComponentUuid(proto.hasComponentUuid() ? proto.getComponentUuid() : null);
+    issue.setComponentKey(proto.hasComponentKey() ? proto.getComponentKey() : null);
+    issue.setModuleUuid(proto.hasModuleUuid() ? proto.getModuleUuid() : null);
+    issue.setModuleUuidPath(proto.hasModuleUuidPath() ? proto.getModuleUuidPath() : null);
+    issue.setProjectUuid(proto.hasProjectUuid() ? proto.getProjectUuid() : null);
+    issue.setProjectKey(proto.hasProjectKey() ? proto.getProjectKey() : null);
+    issue.setRuleKey(proto.hasRuleKey() ? RuleKey.parse(proto.getRuleKey()) : null);
+    issue.setLanguage(proto.hasLanguage() ? proto.getLanguage() : null);
+    issue.setSeverity(proto.hasSeverity() ? proto.getSeverity() : null);
+    issue.setManualSeverity(proto.getManualSeverity());
+    issue.setMessage(proto.hasMessage() ? proto.getMessage() : null);
+    issue.setLine(proto.hasLine() ? proto.getLine() : null);
+    issue.setGap(proto.hasGap() ? proto.getGap() : null);
+    issue.setEffort(proto.hasEffort() ? Duration.create(proto.getEffort()) : null);
+    if (proto.hasStatus()) {
+      issue.setStatus(proto.getStatus());
+    }
+    issue.setResolution(proto.hasResolution() ? proto.getResolution() : null);
+    issue.setAssignee(proto.hasAssignee() ? proto.getAssignee() : null);
+    issue.setChecksum(proto.hasChecksum() ? proto.getChecksum() : null);
+    for (CeIssueCache.Attribute attribute : proto.getAttributesList()) {
+      issue.setAttribute(attribute.getKey(), attribute.getValue());
+    }
+    issue.setAuthorLogin(proto.hasAuthorLogin() ? proto.getAuthorLogin() : null);
+    for (CeIssueCache.Comment comment : proto.getCommentsList()) {
+      issue.addComment(toComment(comment));
+    }
+    if (proto.getTagsCount() > 0) {
+      issue.setTags(proto.getTagsList());
+    }
+    if (proto.hasLocations()) {
+      try {
+        issue.setLocations(DbIssues.Locations.parseFrom(proto.getLocations()));
+      } catch (InvalidProtocolBufferException e) {
+        throw new IllegalStateException("Fail to read locations of issue " + proto.getKey(), e);
+      }
+    }
+    issue.setCreationDate(proto.hasCreationDate() ? new Date(proto.getCreationDate()) : null);
+    issue.setUpdateDate(proto.hasUpdateDate() ? new Date(proto.getUpdateDate()) : null);
+    issue.setCloseDate(proto.hasCloseDate() ? new Date(proto.getCloseDate()) : null);
+    readChanges(proto, issue);
+    issue.setNew(proto.getIsNew());
+    issue.setBeingClosed(proto.getBeingClosed());
+    issue.setOnDisabledRule(proto.getOnDisabledRule());
+    issue.setChanged(proto.getIsChanged());
+    issue.setSendNotifications(proto.getSendNotifications());
+    issue.setSelectedAt(proto.hasSelectedAt() ? proto.getSelectedAt() : null);
+    return issue;
+  }
+
+  private static void setChanges(DefaultIssue issue, CeIssueCache.Issue.Builder builder) {
+    // the same instance of FieldDiffs can be referenced many times, for example the current change
+    Map<FieldDiffs, Integer> indexes = new IdentityHashMap<>();
+    for (FieldDiffs change : issue.changes()) {
+      builder.addChangeIndexes(indexOf(change, indexes, builder));
+    }
+    FieldDiffs currentChange = issue.currentChange();
+    if (currentChange != null) {
+      builder.setCurrentChangeIndex(indexOf(currentChange, indexes, builder));
+    }
+  }
+
+  private static int indexOf(FieldDiffs change, Map<FieldDiffs, Integer> indexes, CeIssueCache.Issue.Builder builder) {
+    Integer index = indexes.get(change);
+    if (index == null) {
+      index = indexes.size();
+      indexes.put(change, index);
+      builder.addChanges(toProtobuf(change));
+    }
+    return index;
+  }
+
+  private static void readChanges(CeIssueCache.Issue proto, DefaultIssue issue) {
+    if (proto.getChangesCount() == 0) {
+      return;
+    }
+    List<FieldDiffs> distinctChanges = new ArrayList<>(proto.getChangesCount());
+    for (CeIssueCache.FieldDiffs change : proto.getChangesList()) {
+      distinctChanges.add(toFieldDiffs(change));
+    }
+    if (proto.hasCurrentChangeIndex()) {
+      issue.setCurrentChange(distinctChanges.get(proto.getCurrentChangeIndex()));
+    }
+    // replaces the list populated by setCurrentChange()
+    List<FieldDiffs> changes = new ArrayList<>(proto.getChangeIndexesCount());
+    for (int index : proto.getChangeIndexesList()) {
+      changes.add(distinctChanges.get(index));
+    }
+    issue.setChanges(changes);
+  }
+
+  private static CeIssueCache.Comment toProtobuf(DefaultIssueComment comment) {
+    CeIssueCache.Comment.Builder builder = CeIssueCache.Comment.newBuilder();
+    setNullable(comment.key(), builder::setKey);
+    setNullable(comment.issueKey(), builder::setIssueKey);
+    setNullable(comment.userLogin(), builder::setUserLogin);
+    setNullable(comment.createdAt(), d -> builder.setCreatedAt(d.getTime()));
+    setNullable(comment.updatedAt(), d -> builder.setUpdatedAt(d.getTime()));
+    setNullable(comment.markdownText(), builder::setMarkdownText);
+    builder.setIsNew(comment.isNew());
+    return builder.build();
+  }
+
+  private static DefaultIssueComment toComment(CeIssueCache.Comment proto) {
+    return new DefaultIssueComment()
+      .setKey(proto.hasKey() ? proto.getKey() : null)
+      .setIssueKey(proto.hasIssueKey() ? proto.getIssueKey() : null)
+      .setUserLogin(proto.hasUserLogin() ? proto.getUserLogin() : null)
+      .setCreatedAt(proto.hasCreatedAt() ? new Date(proto.getCreatedAt()) : null)
+      .setUpdatedAt(proto.hasUpdatedAt() ? new Date(proto.getUpdatedAt()) : null)
+      .setMarkdownText(proto.hasMarkdownText() ? proto.getMarkdownText() : null)
+      .setNew(proto.getIsNew());
+  }
+
+  private static CeIssueCache.FieldDiffs toProtobuf(FieldDiffs fieldDiffs) {
+    CeIssueCache.FieldDiffs.Builder builder = CeIssueCache.FieldDiffs.newBuilder();
+    setNullable(fieldDiffs.issueKey(), builder::setIssueKey);
+    setNullable(fieldDiffs.userLogin(), builder::setUserLogin);
+    setNullable(fieldDiffs.creationDate(), d -> builder.setCreationDate(d.getTime()));
+    for (Map.Entry<String, FieldDiffs.Diff> entry : fieldDiffs.diffs().entrySet()) {
+      CeIssueCache.Diff.Builder diff = CeIssueCache.Diff.newBuilder().setField(entry.getKey());
+      Serializable oldValue = entry.getValue().oldValue();
+      if (oldValue != null) {
+        diff.setOldValue(toProtobuf(oldValue));
+      }
+      Serializable newValue = entry.getValue().newValue();
+      if (newValue != null) {
+        diff.setNewValue(toProtobuf(newValue));
+      }
+      builder.addDiffs(diff);
+    }
+    return builder.build();
+  }
+
+  private static FieldDiffs toFieldDiffs(CeIssueCache.FieldDiffs proto) {
+    FieldDiffs fieldDiffs = new FieldDiffs()
+      .setIssueKey(proto.hasIssueKey() ? proto.getIssueKey() : null)
+      .setUserLogin(proto.hasUserLogin() ? proto.getUserLogin() : null)
+      .setCreationDate(proto.hasCreationDate() ? new Date(proto.getCreationDate()) : null);
+    for (CeIssueCache.Diff diff : proto.getDiffsList()) {
+      fieldDiffs.setDiff(diff.getField(),
+        diff.hasOldValue() ? toSerializable(diff.getOldValue()) : null,
+        diff.hasNewValue() ? toSerializable(diff.getNewValue()) : null);
+    }
+    return fieldDiffs;
+  }
+
+  private static CeIssueCache.DiffValue toProtobuf(Serializable value) {
+    CeIssueCache.DiffValue.Builder builder = CeIssueCache.DiffValue.newBuilder();
+    if (value instanceof String) {
+      builder.setStringValue((String) value);
+    } else if (value instanceof Long) {
+      builder.setLongValue((Long) value);
+    } else if (value instanceof Integer) {
+      builder.setIntValue((Integer) value);
+    } else if (value instanceof RuleType) {
+      builder.setRuleType(((RuleType) value).getDbConstant());
+    } else {
+      builder.setSerializedValue(ByteString.copyFrom(serialize(value)));
+    }
+    return builder.build();
+  }
+
+  @CheckForNull
+  private static Serializable toSerializable(CeIssueCache.DiffValue proto) {
+    switch (proto.getValueCase()) {
+      case STRING_VALUE:
+        return proto.getStringValue();
+      case LONG_VALUE:
+        return proto.getLongValue();
+      case INT_VALUE:
+        return proto.getIntValue();
+      case RULE_TYPE:
+        return RuleType.valueOf(proto.getRuleType());
+      case SERIALIZED_VALUE:
+        return deserialize(proto.getSerializedValue().toByteArray());
+      default:
+        return null;
+    }
+  }
+
+  private static byte[] serialize(Serializable value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(value);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize " + value, e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Serializable deserialize(byte[] bytes) {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return (Serializable) input.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to deserialize value of issue change", e);
+    }
+  }
+}
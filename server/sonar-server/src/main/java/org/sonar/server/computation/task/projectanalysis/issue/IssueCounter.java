@@ -23,8 +23,8 @@ import com.google.common.collect.EnumMultiset;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multiset;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.rules.RuleType;
@@ -109,8 +109,7 @@ public class IssueCounter extends IssueVisitor {
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
 
-  private final Map<Integer, Counters> countersByComponentRef = new HashMap<>();
-  private Counters currentCounters;
+  private final Map<Integer, Counters> countersByComponentRef = new ConcurrentHashMap<>();
 
   public IssueCounter(PeriodsHolder periodsHolder,
     MetricRepository metricRepository, MeasureRepository measureRepository) {
@@ -119,10 +118,18 @@ public class IssueCounter extends IssueVisitor {
     this.measureRepository = measureRepository;
   }
 
+  /**
+   * Counters are kept per component, children being aggregated into their parent once they have all been visited
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void beforeComponent(Component component) {
     // TODO optimization no need to instantiate counter if no open issues
-    currentCounters = new Counters();
+    Counters currentCounters = new Counters();
     countersByComponentRef.put(component.getReportAttributes().getRef(), currentCounters);
 
     // aggregate children counters
@@ -135,6 +142,7 @@ public class IssueCounter extends IssueVisitor {
 
   @Override
   public void onIssue(Component component, DefaultIssue issue) {
+    Counters currentCounters = countersByComponentRef.get(component.getReportAttributes().getRef());
     currentCounters.add(issue);
     for (Period period : periodsHolder.getPeriods()) {
       // Add one second to not take into account issues created during current analysis
@@ -146,14 +154,14 @@ public class IssueCounter extends IssueVisitor {
 
   @Override
   public void afterComponent(Component component) {
-    addMeasuresBySeverity(component);
-    addMeasuresByStatus(component);
-    addMeasuresByType(component);
-    addMeasuresByPeriod(component);
-    currentCounters = null;
+    Counters currentCounters = countersByComponentRef.get(component.getReportAttributes().getRef());
+    addMeasuresBySeverity(component, currentCounters);
+    addMeasuresByStatus(component, currentCounters);
+    addMeasuresByType(component, currentCounters);
+    addMeasuresByPeriod(component, currentCounters);
   }
 
-  private void addMeasuresBySeverity(Component component) {
+  private void addMeasuresBySeverity(Component component, Counters currentCounters) {
     for (Map.Entry<String, String> entry : SEVERITY_TO_METRIC_KEY.entrySet()) {
       String severity = entry.getKey();
       String metricKey = entry.getValue();
@@ -161,7 +169,7 @@ public class IssueCounter extends IssueVisitor {
     }
   }
 
-  private void addMeasuresByStatus(Component component) {
+  private void addMeasuresByStatus(Component component, Counters currentCounters) {
     addMeasure(component, VIOLATIONS_KEY, currentCounters.counter().unresolved);
     addMeasure(component, OPEN_ISSUES_KEY, currentCounters.counter().open);
     addMeasure(component, REOPENED_ISSUES_KEY, currentCounters.counter().reopened);
@@ -170,7 +178,7 @@ public class IssueCounter extends IssueVisitor {
     addMeasure(component, WONT_FIX_ISSUES_KEY, currentCounters.counter().wontFix);
   }
 
-  private void addMeasuresByType(Component component) {
+  private void addMeasuresByType(Component component, Counters currentCounters) {
     for (Map.Entry<RuleType, String> entry : TYPE_TO_METRIC_KEY.entrySet()) {
       addMeasure(component, entry.getValue(), currentCounters.counter().typeBag.count(entry.getKey()));
     }
@@ -181,7 +189,7 @@ public class IssueCounter extends IssueVisitor {
     measureRepository.add(component, metric, Measure.newMeasureBuilder().create(value));
   }
 
-  private void addMeasuresByPeriod(Component component) {
+  private void addMeasuresByPeriod(Component component, Counters currentCounters) {
     if (!periodsHolder.getPeriods().isEmpty()) {
       Double[] unresolvedVariations = new Double[PeriodsHolder.MAX_NUMBER_OF_PERIODS];
       for (Period period : periodsHolder.getPeriods()) {
@@ -44,4 +44,12 @@ public abstract class IssueVisitor {
   public void afterComponent(Component component) {
 
   }
+
+  /**
+   * Whether the issues of distinct components can be visited concurrently. Calls for a given component
+   * are still executed in sequence, by the same thread.
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
 }
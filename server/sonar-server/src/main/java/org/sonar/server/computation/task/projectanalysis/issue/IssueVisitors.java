@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.Arrays;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
@@ -30,6 +31,10 @@ public class IssueVisitors {
     this.visitors = visitors;
   }
 
+  public boolean isThreadSafe() {
+    return Arrays.stream(visitors).allMatch(IssueVisitor::isThreadSafe);
+  }
+
   public void beforeComponent(Component component) {
     for (IssueVisitor visitor : visitors) {
       visitor.beforeComponent(component);
@@ -42,6 +42,14 @@ public class MovedIssueVisitor extends IssueVisitor {
     this.issueUpdater = issueUpdater;
   }
 
+  /**
+   * Moved files are only read
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void onIssue(Component component, DefaultIssue issue) {
     if (component.getType() != Component.Type.FILE || component.getUuid().equals(issue.componentUuid())) {
@@ -22,9 +22,9 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
@@ -59,9 +59,8 @@ public class NewEffortAggregator extends IssueVisitor {
   private final Metric newReliabilityEffortMetric;
   private final Metric newSecurityEffortMetric;
 
-  private ListMultimap<String, IssueChangeDto> changesByIssueUuid = ArrayListMultimap.create();
-  private Map<Integer, NewEffortCounter> counterByComponentRef = new HashMap<>();
-  private NewEffortCounter counter = null;
+  private final Map<Integer, ListMultimap<String, IssueChangeDto>> changesByComponentRef = new ConcurrentHashMap<>();
+  private final Map<Integer, NewEffortCounter> counterByComponentRef = new ConcurrentHashMap<>();
 
   public NewEffortAggregator(NewEffortCalculator calculator, PeriodsHolder periodsHolder, DbClient dbClient,
     MetricRepository metricRepository, MeasureRepository measureRepository) {
@@ -75,14 +74,24 @@ public class NewEffortAggregator extends IssueVisitor {
     this.newSecurityEffortMetric = metricRepository.getByKey(NEW_SECURITY_REMEDIATION_EFFORT_KEY);
   }
 
+  /**
+   * Changelogs and counters are kept per component, until the component and its parent are visited
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void beforeComponent(Component component) {
     List<IssueChangeDto> changes = dbClient.issueChangeDao().selectChangelogOfNonClosedIssuesByComponent(component.getUuid());
+    ListMultimap<String, IssueChangeDto> changesByIssueUuid = ArrayListMultimap.create();
     for (IssueChangeDto change : changes) {
       changesByIssueUuid.put(change.getIssueKey(), change);
     }
+    changesByComponentRef.put(component.getReportAttributes().getRef(), changesByIssueUuid);
 
-    counter = new NewEffortCounter(calculator);
+    NewEffortCounter counter = new NewEffortCounter(calculator);
     counterByComponentRef.put(component.getReportAttributes().getRef(), counter);
     for (Component child : component.getChildren()) {
       NewEffortCounter childSum = counterByComponentRef.remove(child.getReportAttributes().getRef());
@@ -95,7 +104,9 @@ public class NewEffortAggregator extends IssueVisitor {
   @Override
   public void onIssue(Component component, DefaultIssue issue) {
     if (issue.resolution() == null && issue.effortInMinutes() != null && !periodsHolder.getPeriods().isEmpty()) {
-      List<IssueChangeDto> changelog = changesByIssueUuid.get(issue.key());
+      int ref = component.getReportAttributes().getRef();
+      List<IssueChangeDto> changelog = changesByComponentRef.get(ref).get(issue.key());
+      NewEffortCounter counter = counterByComponentRef.get(ref);
       for (Period period : periodsHolder.getPeriods()) {
         counter.add(issue, period, changelog);
       }
@@ -104,11 +115,12 @@ public class NewEffortAggregator extends IssueVisitor {
 
   @Override
   public void afterComponent(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    NewEffortCounter counter = counterByComponentRef.get(ref);
     computeMeasure(component, newMaintainabilityEffortMetric, counter.maintainabilitySum);
     computeMeasure(component, newReliabilityEffortMetric, counter.reliabilitySum);
     computeMeasure(component, newSecurityEffortMetric, counter.securitySum);
-    changesByIssueUuid.clear();
-    counter = null;
+    changesByComponentRef.remove(ref);
   }
 
   private void computeMeasure(Component component, Metric metric, EffortSum effortSum) {
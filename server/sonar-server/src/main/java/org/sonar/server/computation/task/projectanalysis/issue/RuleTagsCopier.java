@@ -32,6 +32,14 @@ public class RuleTagsCopier extends IssueVisitor {
     this.ruleRepository = ruleRepository;
   }
 
+  /**
+   * The rule repository is read-only once loaded
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void onIssue(Component component, DefaultIssue issue) {
     if (issue.isNew()) {
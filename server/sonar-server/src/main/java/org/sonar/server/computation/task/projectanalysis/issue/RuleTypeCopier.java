@@ -30,6 +30,14 @@ public class RuleTypeCopier extends IssueVisitor {
     this.ruleRepository = ruleRepository;
   }
 
+  /**
+   * Rules are only read
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void onIssue(Component component, DefaultIssue issue) {
     if (issue.type() == null) {
@@ -0,0 +1,295 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.config.Settings;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureQuery;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
+
+/**
+ * Measures of the last analysis of the components of the tree, loaded from DB the first time one of them is requested.
+ * <p>
+ * Measures are streamed by chunks of components, in the order of the component tree, and are stored by component in
+ * columns sorted by metric id: primitive arrays for the values and the variations, and a text column which is allocated
+ * only when one of the measures of the component has a data, an alert status or an alert text. The {@link MeasureDto}
+ * returned by {@link #get(Component, Metric)} is rebuilt from these columns.
+ * </p>
+ * <p>
+ * When the tree holds more measures than allowed by property {@link #MAX_SIZE_PROPERTY}, bulk loading is abandoned
+ * and measures are loaded component per component: only the measures of the last requested component are kept in memory.
+ * </p>
+ * <p>
+ * This class is thread-safe, as base measures are read by computation steps which may be executed concurrently.
+ * </p>
+ */
+class BaseMeasureCache {
+  static final String MAX_SIZE_PROPERTY = "sonar.ce.baseMeasures.maxSize";
+  static final int DEFAULT_MAX_SIZE = 500_000;
+
+  private static final Comparator<MeasureDto> BY_METRIC_ID = Comparator.comparingInt(MeasureDto::getMetricId);
+
+  private final DbClient dbClient;
+  private final TreeRootHolder treeRootHolder;
+  private final Settings settings;
+
+  @CheckForNull
+  private volatile Tree tree;
+
+  // used when bulk loading has been abandoned, guarded by "this"
+  private String lastComponentUuid;
+  private ComponentMeasures lastComponentMeasures;
+
+  BaseMeasureCache(DbClient dbClient, TreeRootHolder treeRootHolder, Settings settings) {
+    this.dbClient = dbClient;
+    this.treeRootHolder = treeRootHolder;
+    this.settings = settings;
+  }
+
+  Optional<MeasureDto> get(Component component, Metric metric) {
+    Tree loadedTree = ensureInitialized();
+    Integer index = loadedTree.indexByUuid.get(component.getUuid());
+    if (index == null) {
+      return selectSingle(component, metric);
+    }
+    if (loadedTree.measuresByIndex != null) {
+      return loadedTree.measuresByIndex[index].find(component.getUuid(), metric.getId());
+    }
+    synchronized (this) {
+      if (!component.getUuid().equals(lastComponentUuid)) {
+        lastComponentMeasures = selectAll(component.getUuid());
+        lastComponentUuid = component.getUuid();
+      }
+      return lastComponentMeasures.find(component.getUuid(), metric.getId());
+    }
+  }
+
+  private Tree ensureInitialized() {
+    Tree res = this.tree;
+    if (res != null) {
+      return res;
+    }
+    synchronized (this) {
+      if (this.tree == null) {
+        List<String> uuids = new ArrayList<>();
+        collectUuids(treeRootHolder.getRoot(), uuids);
+        Map<String, Integer> index = new HashMap<>(uuids.size() * 2);
+        for (int i = 0; i < uuids.size(); i++) {
+          index.put(uuids.get(i), i);
+        }
+        this.tree = new Tree(index, loadAll(treeRootHolder.getRoot().getUuid(), uuids, index));
+      }
+      return this.tree;
+    }
+  }
+
+  private static void collectUuids(Component component, List<String> uuids) {
+    uuids.add(component.getUuid());
+    for (Component child : component.getChildren()) {
+      collectUuids(child, uuids);
+    }
+  }
+
+  /**
+   * @return {@code null} if the measures of the tree exceed the configured maximum size
+   */
+  @CheckForNull
+  private ComponentMeasures[] loadAll(String rootUuid, List<String> uuids, Map<String, Integer> indexByUuid) {
+    int maxSize = getMaxSize();
+    ComponentMeasures[] res = new ComponentMeasures[uuids.size()];
+    List<MeasureDto> chunkMeasures = new ArrayList<>();
+    int loaded = 0;
+    int offset = 0;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      for (List<String> chunk : Lists.partition(uuids, PARTITION_SIZE_FOR_ORACLE)) {
+        MeasureQuery query = MeasureQuery.builder().setComponentUuids(rootUuid, chunk).build();
+        dbClient.measureDao().selectByQuery(dbSession, query, context -> chunkMeasures.add((MeasureDto) context.getResultObject()));
+        loaded += chunkMeasures.size();
+        if (loaded > maxSize) {
+          return null;
+        }
+        dispatch(chunkMeasures, offset, chunk.size(), indexByUuid, res);
+        offset += chunk.size();
+        chunkMeasures.clear();
+      }
+    }
+    return res;
+  }
+
+  private static void dispatch(List<MeasureDto> measures, int offset, int chunkSize, Map<String, Integer> indexByUuid, ComponentMeasures[] res) {
+    Map<String, List<MeasureDto>> measuresByUuid = new HashMap<>();
+    for (MeasureDto measure : measures) {
+      measuresByUuid.computeIfAbsent(measure.getComponentUuid(), uuid -> new ArrayList<>()).add(measure);
+    }
+    for (int i = offset; i < offset + chunkSize; i++) {
+      res[i] = ComponentMeasures.EMPTY;
+    }
+    for (Map.Entry<String, List<MeasureDto>> entry : measuresByUuid.entrySet()) {
+      res[indexByUuid.get(entry.getKey())] = ComponentMeasures.of(entry.getValue());
+    }
+  }
+
+  private int getMaxSize() {
+    return settings.hasKey(MAX_SIZE_PROPERTY) ? settings.getInt(MAX_SIZE_PROPERTY) : DEFAULT_MAX_SIZE;
+  }
+
+  private ComponentMeasures selectAll(String componentUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      MeasureQuery query = MeasureQuery.builder().setComponentUuid(componentUuid).build();
+      return ComponentMeasures.of(dbClient.measureDao().selectByQuery(dbSession, query));
+    }
+  }
+
+  private Optional<MeasureDto> selectSingle(Component component, Metric metric) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      MeasureQuery query = MeasureQuery.builder().setComponentUuid(component.getUuid()).setMetricKey(metric.getKey()).build();
+      return dbClient.measureDao().selectSingle(dbSession, query);
+    }
+  }
+
+  @Immutable
+  private static final class Tree {
+    private final Map<String, Integer> indexByUuid;
+    @CheckForNull
+    private final ComponentMeasures[] measuresByIndex;
+
+    private Tree(Map<String, Integer> indexByUuid, @Nullable ComponentMeasures[] measuresByIndex) {
+      this.indexByUuid = indexByUuid;
+      this.measuresByIndex = measuresByIndex;
+    }
+  }
+
+  /**
+   * Measures of a component, stored in columns indexed by the position of the metric id in {@link #metricIds}.
+   * A {@code null} value or variation is stored as {@link Double#NaN}.
+   */
+  @Immutable
+  static final class ComponentMeasures {
+    private static final int VARIATIONS = 5;
+    private static final int DATA = 0;
+    private static final int ALERT_STATUS = 1;
+    private static final int ALERT_TEXT = 2;
+    private static final int TEXTS = 3;
+
+    static final ComponentMeasures EMPTY = new ComponentMeasures(new int[0], new double[0], null, null);
+
+    private final int[] metricIds;
+    private final double[] values;
+    // VARIATIONS columns per metric, null if none of the measures has a variation
+    @CheckForNull
+    private final double[] variations;
+    // TEXTS columns per metric, null if none of the measures has a data, an alert status or an alert text
+    @CheckForNull
+    private final String[] texts;
+
+    private ComponentMeasures(int[] metricIds, double[] values, @Nullable double[] variations, @Nullable String[] texts) {
+      this.metricIds = metricIds;
+      this.values = values;
+      this.variations = variations;
+      this.texts = texts;
+    }
+
+    static ComponentMeasures of(List<MeasureDto> measures) {
+      if (measures.isEmpty()) {
+        return EMPTY;
+      }
+      MeasureDto[] sorted = measures.toArray(new MeasureDto[measures.size()]);
+      Arrays.sort(sorted, BY_METRIC_ID);
+      int size = sorted.length;
+      int[] metricIds = new int[size];
+      double[] values = new double[size];
+      double[] variations = null;
+      String[] texts = null;
+      for (int i = 0; i < size; i++) {
+        MeasureDto dto = sorted[i];
+        metricIds[i] = dto.getMetricId();
+        values[i] = toPrimitive(dto.getValue());
+        for (int v = 0; v < VARIATIONS; v++) {
+          Double variation = dto.getVariation(v + 1);
+          if (variation != null) {
+            if (variations == null) {
+              variations = new double[size * VARIATIONS];
+              Arrays.fill(variations, Double.NaN);
+            }
+            variations[i * VARIATIONS + v] = variation;
+          }
+        }
+        String data = dto.getData();
+        if (data != null || dto.getAlertStatus() != null || dto.getAlertText() != null) {
+          if (texts == null) {
+            texts = new String[size * TEXTS];
+          }
+          texts[i * TEXTS + DATA] = data;
+          texts[i * TEXTS + ALERT_STATUS] = dto.getAlertStatus();
+          texts[i * TEXTS + ALERT_TEXT] = dto.getAlertText();
+        }
+      }
+      return new ComponentMeasures(metricIds, values, variations, texts);
+    }
+
+    Optional<MeasureDto> find(String componentUuid, int metricId) {
+      int i = Arrays.binarySearch(metricIds, metricId);
+      if (i < 0) {
+        return Optional.empty();
+      }
+      MeasureDto dto = new MeasureDto()
+        .setComponentUuid(componentUuid)
+        .setMetricId(metricId)
+        .setValue(toObject(values[i]));
+      if (variations != null) {
+        for (int v = 0; v < VARIATIONS; v++) {
+          dto.setVariation(v + 1, toObject(variations[i * VARIATIONS + v]));
+        }
+      }
+      if (texts != null) {
+        dto.setData(texts[i * TEXTS + DATA]);
+        dto.setAlertStatus(texts[i * TEXTS + ALERT_STATUS]);
+        dto.setAlertText(texts[i * TEXTS + ALERT_TEXT]);
+      }
+      return Optional.of(dto);
+    }
+
+    private static double toPrimitive(@Nullable Double d) {
+      return d == null ? Double.NaN : d;
+    }
+
+    @CheckForNull
+    private static Double toObject(double d) {
+      return Double.isNaN(d) ? null : d;
+    }
+  }
+}
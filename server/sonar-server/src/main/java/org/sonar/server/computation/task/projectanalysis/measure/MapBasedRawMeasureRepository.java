@@ -25,9 +25,9 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.SetMultimap;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -42,10 +42,12 @@ import static java.util.Objects.requireNonNull;
  * Map based implementation of MeasureRepository which supports only raw measures.
  *
  * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ *
+ * Measures of distinct components can be added and read concurrently.
  */
 public final class MapBasedRawMeasureRepository<T> implements MeasureRepository {
   private final Function<Component, T> componentToKey;
-  private final Map<T, Map<MeasureKey, Measure>> measures = new HashMap<>();
+  private final Map<T, Map<MeasureKey, Measure>> measures = new ConcurrentHashMap<>();
 
   public MapBasedRawMeasureRepository(Function<Component, T> componentToKey) {
     this.componentToKey = requireNonNull(componentToKey);
@@ -160,14 +162,12 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     requireNonNull(overridePolicy);
 
     T componentKey = componentToKey.apply(component);
-    Map<MeasureKey, Measure> measuresPerMetric = measures.get(componentKey);
-    if (measuresPerMetric == null) {
-      measuresPerMetric = new HashMap<>();
-      measures.put(componentKey, measuresPerMetric);
-    }
+    Map<MeasureKey, Measure> measuresPerMetric = measures.computeIfAbsent(componentKey, k -> new ConcurrentHashMap<>());
     MeasureKey key = new MeasureKey(metric.getKey(), measure.getDeveloper());
-    if (!measuresPerMetric.containsKey(key) || overridePolicy == OverridePolicy.OVERRIDE) {
+    if (overridePolicy == OverridePolicy.OVERRIDE) {
       measuresPerMetric.put(key, measure);
+    } else {
+      measuresPerMetric.putIfAbsent(key, measure);
     }
   }
 
@@ -55,6 +55,15 @@ public class MeasureComputersVisitor extends TypeAwareVisitorAdapter {
     this.componentIssuesRepository = componentIssuesRepository;
   }
 
+  /**
+   * Each component is given its own {@link MeasureComputerContextImpl}. Measure computers are expected to keep no state
+   * between calls, as required by the API.
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void visitAny(org.sonar.server.computation.task.projectanalysis.component.Component component) {
     MeasureComputerContextImpl context = new MeasureComputerContextImpl(component, settings, measureRepository, metricRepository, componentIssuesRepository);
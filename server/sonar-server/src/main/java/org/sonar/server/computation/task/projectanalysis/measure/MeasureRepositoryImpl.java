@@ -21,16 +21,16 @@ package org.sonar.server.computation.task.projectanalysis.measure;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.SetMultimap;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.sonar.api.config.Settings;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
 import org.sonar.db.measure.MeasureDto;
-import org.sonar.db.measure.MeasureQuery;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
@@ -39,19 +39,24 @@ import org.sonar.server.computation.task.projectanalysis.metric.ReportMetricVali
 import static java.util.Objects.requireNonNull;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
 
+/**
+ * Thread-safe: measures of distinct components can be read and added concurrently, for example by
+ * visitors of sub-trees of components (see {@link org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor#isThreadSafe()}).
+ */
 public class MeasureRepositoryImpl implements MeasureRepository {
   private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
-  private final DbClient dbClient;
+  private final BaseMeasureCache baseMeasureCache;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
   private final MetricRepository metricRepository;
   private final ReportMetricValidator reportMetricValidator;
 
   private MeasureDtoToMeasure underTest = new MeasureDtoToMeasure();
-  private final Set<Integer> loadedComponents = new HashSet<>();
+  private final Set<Integer> loadedComponents = ConcurrentHashMap.newKeySet();
 
-  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator) {
-    this.dbClient = dbClient;
+  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator,
+    TreeRootHolder treeRootHolder, Settings settings) {
+    this.baseMeasureCache = new BaseMeasureCache(dbClient, treeRootHolder, settings);
     this.reportReader = reportReader;
     this.reportMetricValidator = reportMetricValidator;
     this.batchMeasureToMeasure = new BatchMeasureToMeasure();
@@ -64,14 +69,11 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     requireNonNull(component);
     requireNonNull(metric);
 
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      MeasureQuery query = MeasureQuery.builder().setComponentUuid(component.getUuid()).setMetricKey(metric.getKey()).build();
-      java.util.Optional<MeasureDto> measureDto = dbClient.measureDao().selectSingle(dbSession, query);
-      if (measureDto.isPresent()) {
-        return underTest.toMeasure(measureDto.get(), metric);
-      }
-      return Optional.absent();
+    java.util.Optional<MeasureDto> measureDto = baseMeasureCache.get(component, metric);
+    if (measureDto.isPresent()) {
+      return underTest.toMeasure(measureDto.get(), metric);
     }
+    return Optional.absent();
   }
 
   @Override
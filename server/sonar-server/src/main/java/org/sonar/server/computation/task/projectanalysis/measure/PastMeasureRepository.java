@@ -0,0 +1,44 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import javax.annotation.CheckForNull;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+/**
+ * Numeric values of the measures of past analyses of the project, for instance the analyses of the periods.
+ * <p>
+ * Measures of files are not available as they are purged from past analyses, nor are measures associated to a developer.
+ * </p>
+ */
+public interface PastMeasureRepository {
+
+  /**
+   * Retrieves the value of the measure of the specified {@link Metric} on the specified {@link Component} in the
+   * analysis with the specified uuid.
+   *
+   * @return {@code null} if there is no such measure or if it has no numeric value
+   * @throws NullPointerException if any argument is {@code null}
+   */
+  @CheckForNull
+  Double getValue(String analysisUuid, Component component, Metric metric);
+
+}
@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.measure.PastMeasureDto;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The measures of an analysis are streamed from DB, ordered by component and metric, the first time one of them is
+ * requested. They are kept in memory, as arrays of metric ids and values per component, until the end of the task.
+ */
+public class PastMeasureRepositoryImpl implements PastMeasureRepository {
+
+  private final DbClient dbClient;
+  private final Map<String, Map<String, PastValues>> valuesByAnalysisUuid = new HashMap<>();
+
+  public PastMeasureRepositoryImpl(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  @Override
+  @CheckForNull
+  public Double getValue(String analysisUuid, Component component, Metric metric) {
+    requireNonNull(analysisUuid);
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    PastValues pastValues = valuesByAnalysisUuid.computeIfAbsent(analysisUuid, this::load).get(component.getUuid());
+    return pastValues == null ? null : pastValues.get(metric.getId());
+  }
+
+  private Map<String, PastValues> load(String analysisUuid) {
+    PastValuesCollector collector = new PastValuesCollector();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.measureDao().selectPastMeasuresOfAnalysis(dbSession, analysisUuid, collector);
+    }
+    return collector.finish();
+  }
+
+  /**
+   * Groups the streamed measures, which are expected to be ordered by component then by metric id.
+   */
+  private static final class PastValuesCollector implements ResultHandler {
+    private final Map<String, PastValues> valuesByComponentUuid = new HashMap<>();
+    private String componentUuid;
+    private int size = 0;
+    private int[] metricIds = new int[16];
+    private double[] values = new double[16];
+
+    @Override
+    public void handleResult(ResultContext context) {
+      PastMeasureDto dto = (PastMeasureDto) context.getResultObject();
+      if (!dto.getComponentUuid().equals(componentUuid)) {
+        flush();
+        componentUuid = dto.getComponentUuid();
+      }
+      if (size == metricIds.length) {
+        metricIds = Arrays.copyOf(metricIds, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      metricIds[size] = dto.getMetricId();
+      values[size] = dto.getValue();
+      size++;
+    }
+
+    private void flush() {
+      if (componentUuid != null) {
+        valuesByComponentUuid.put(componentUuid, new PastValues(Arrays.copyOf(metricIds, size), Arrays.copyOf(values, size)));
+      }
+      size = 0;
+    }
+
+    Map<String, PastValues> finish() {
+      flush();
+      return valuesByComponentUuid;
+    }
+  }
+
+  private static final class PastValues {
+    private final int[] metricIds;
+    private final double[] values;
+
+    private PastValues(int[] sortedMetricIds, double[] values) {
+      this.metricIds = sortedMetricIds;
+      this.values = values;
+    }
+
+    @CheckForNull
+    Double get(int metricId) {
+      int index = Arrays.binarySearch(metricIds, metricId);
+      return index < 0 ? null : values[index];
+    }
+  }
+}
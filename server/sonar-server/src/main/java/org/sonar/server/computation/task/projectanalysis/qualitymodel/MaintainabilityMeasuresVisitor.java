@@ -77,6 +77,14 @@ public class MaintainabilityMeasuresVisitor extends PathAwareVisitorAdapter<Main
     this.effortToMaintainabilityRatingAMetric = metricRepository.getByKey(EFFORT_TO_REACH_MAINTAINABILITY_RATING_A_KEY);
   }
 
+  /**
+   * Counters of sibling files and directories are aggregated into the counter of their parent, which is synchronized
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void visitProject(Component project, Path<Counter> path) {
     computeAndSaveMeasures(project, path);
@@ -162,7 +170,7 @@ public class MaintainabilityMeasuresVisitor extends PathAwareVisitorAdapter<Main
       // prevents instantiation
     }
 
-    void add(Counter otherCounter) {
+    synchronized void add(Counter otherCounter) {
       addDevCosts(otherCounter.devCosts);
       reliabilityRating.increment(otherCounter.reliabilityRating);
       securityRating.increment(otherCounter.securityRating);
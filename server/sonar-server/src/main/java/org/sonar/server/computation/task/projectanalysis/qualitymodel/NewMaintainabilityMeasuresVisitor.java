@@ -93,6 +93,14 @@ public class NewMaintainabilityMeasuresVisitor extends PathAwareVisitorAdapter<N
     this.newMaintainabilityRatingMetric = metricRepository.getByKey(NEW_MAINTAINABILITY_RATING_KEY);
   }
 
+  /**
+   * The SCM information is loaded per file and children are added to the counter of their parent under its lock
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void visitProject(Component project, Path<Counter> path) {
     computeAndSaveNewDebtRatioMeasure(project, path);
@@ -230,7 +238,7 @@ public class NewMaintainabilityMeasuresVisitor extends PathAwareVisitorAdapter<N
     private final LongVariationValue.Array newDebt = LongVariationValue.newArray();
     private final LongVariationValue.Array devCost = LongVariationValue.newArray();
 
-    public void add(Counter counter) {
+    public synchronized void add(Counter counter) {
       this.newDebt.incrementAll(counter.newDebt);
       this.devCost.incrementAll(counter.devCost);
     }
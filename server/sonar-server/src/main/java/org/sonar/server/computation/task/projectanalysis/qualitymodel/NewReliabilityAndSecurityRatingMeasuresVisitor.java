@@ -94,6 +94,14 @@ public class NewReliabilityAndSecurityRatingMeasuresVisitor extends PathAwareVis
       NEW_SECURITY_RATING_KEY, newSecurityRatingMetric);
   }
 
+  /**
+   * Same as {@link ReliabilityAndSecurityRatingMeasuresVisitor#isThreadSafe()}, on the leak periods
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void visitProject(Component project, Path<Counter> path) {
     computeAndSaveMeasures(project, path);
@@ -154,7 +162,7 @@ public class NewReliabilityAndSecurityRatingMeasuresVisitor extends PathAwareVis
       // prevents instantiation
     }
 
-    void add(Counter otherCounter) {
+    synchronized void add(Counter otherCounter) {
       newRatingValueByMetric.entrySet().forEach(e -> e.getValue().incrementAll(otherCounter.newRatingValueByMetric.get(e.getKey())));
     }
 
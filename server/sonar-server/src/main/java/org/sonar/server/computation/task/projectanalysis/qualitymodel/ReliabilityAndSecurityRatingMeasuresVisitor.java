@@ -89,6 +89,14 @@ public class ReliabilityAndSecurityRatingMeasuresVisitor extends PathAwareVisito
       SECURITY_RATING_KEY, securityRatingMetric);
   }
 
+  /**
+   * Issues are read for the visited component only. Ratings of children are aggregated into their parent under its lock.
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void visitProject(Component project, Path<Counter> path) {
     computeAndSaveMeasures(project, path);
@@ -143,7 +151,7 @@ public class ReliabilityAndSecurityRatingMeasuresVisitor extends PathAwareVisito
       // prevents instantiation
     }
 
-    void add(Counter otherCounter) {
+    synchronized void add(Counter otherCounter) {
       ratingValueByMetric.entrySet().forEach(e -> e.getValue().increment(otherCounter.ratingValueByMetric.get(e.getKey())));
     }
 
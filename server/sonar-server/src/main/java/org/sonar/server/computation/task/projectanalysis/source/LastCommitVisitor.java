@@ -57,6 +57,14 @@ public class LastCommitVisitor extends PathAwareVisitorAdapter<LastCommitVisitor
     this.lastCommitDateMetric = metricRepository.getByKey(CoreMetrics.LAST_COMMIT_DATE_KEY);
   }
 
+  /**
+   * Children may concurrently add their date to the {@link LastCommit} of their parent
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void visitProject(Component project, Path<LastCommit> path) {
     saveAndAggregate(project, path);
@@ -119,11 +127,11 @@ public class LastCommitVisitor extends PathAwareVisitorAdapter<LastCommitVisitor
   public static final class LastCommit {
     private long date = 0;
 
-    public void addDate(long l) {
+    public synchronized void addDate(long l) {
       this.date = Math.max(this.date, l);
     }
 
-    public long getDate() {
+    public synchronized long getDate() {
       return date;
     }
   }
@@ -0,0 +1,54 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
+
+/**
+ * Names of the resources declared by the {@link ConcurrentComputationStep}s of the project analysis.
+ */
+final class ComputationStepResources {
+
+  static final String TREE_ROOT_HOLDER = "treeRootHolder";
+  static final String ANALYSIS_METADATA_HOLDER = "analysisMetadataHolder";
+  static final String CROSS_PROJECT_DUPLICATION_STATUS_HOLDER = "crossProjectDuplicationStatusHolder";
+  static final String REPORT = "report";
+  static final String SOURCE_LINES_REPOSITORY = "sourceLinesRepository";
+  static final String SCM_INFO_REPOSITORY = "scmInfoRepository";
+  static final String DUPLICATION_REPOSITORY = "duplicationRepository";
+  static final String METRIC_REPOSITORY = "metricRepository";
+  static final String MEASURE_REPOSITORY = "measureRepository";
+
+  static final String DB_PROJECTS = "db.projects";
+  static final String DB_ISSUES = "db.issues";
+  static final String DB_SOURCE_FILE_SOURCES = "db.file_sources.source";
+  static final String DB_TEST_FILE_SOURCES = "db.file_sources.test";
+  static final String DB_DUPLICATIONS_INDEX = "db.duplications_index";
+  static final String DB_RESOURCE_INDEX = "db.resource_index";
+  static final String DB_RULES_PROFILES = "db.rules_profiles";
+
+  static final String ES_ISSUES = "es.issues";
+  static final String ES_TESTS = "es.tests";
+  static final String ES_PROJECT_MEASURES = "es.projectmeasures";
+
+  private ComputationStepResources() {
+    // prevents instantiation
+  }
+}
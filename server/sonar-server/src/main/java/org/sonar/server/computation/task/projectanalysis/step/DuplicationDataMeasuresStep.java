@@ -19,12 +19,16 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.commons.lang.StringEscapeUtils;
+import org.sonar.api.config.Settings;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
-import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicate;
 import org.sonar.server.computation.task.projectanalysis.duplication.Duplicate;
 import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
@@ -44,27 +48,38 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 /**
  * Compute duplication data measures on files, based on the {@link DuplicationRepository}
+ * <p/>
+ * Files are visited concurrently when property {@link ExecuteVisitorsStep#THREADS_PROPERTY} is greater than 1.
  */
 public class DuplicationDataMeasuresStep implements ComputationStep {
 
   private final MeasureRepository measureRepository;
   private final TreeRootHolder treeRootHolder;
   private final DuplicationRepository duplicationRepository;
+  private final Settings settings;
 
   private final Metric duplicationDataMetric;
 
   public DuplicationDataMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository,
-    DuplicationRepository duplicationRepository) {
+    DuplicationRepository duplicationRepository, Settings settings) {
     this.measureRepository = measureRepository;
     this.treeRootHolder = treeRootHolder;
     this.duplicationRepository = duplicationRepository;
+    this.settings = settings;
     this.duplicationDataMetric = metricRepository.getByKey(DUPLICATIONS_DATA_KEY);
   }
 
   @Override
   public void execute() {
-    new DepthTraversalTypeAwareCrawler(new DuplicationVisitor())
-      .visit(treeRootHolder.getRoot());
+    ForkJoinPool pool = ExecuteVisitorsStep.newPool(settings);
+    try {
+      new VisitorsCrawler(Collections.<ComponentVisitor>singletonList(new DuplicationVisitor()), false, pool)
+        .visit(treeRootHolder.getRoot());
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
+      }
+    }
   }
 
   private class DuplicationVisitor extends TypeAwareVisitorAdapter {
@@ -73,6 +88,15 @@ public class DuplicationDataMeasuresStep implements ComputationStep {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
     }
 
+    /**
+     * The {@link DuplicationRepository} is only read and the {@link MeasureRepository} supports concurrent additions
+     * of measures of distinct files
+     */
+    @Override
+    public boolean isThreadSafe() {
+      return true;
+    }
+
     @Override
     public void visitFile(Component file) {
       Iterable<Duplication> duplications = duplicationRepository.getDuplications(file);
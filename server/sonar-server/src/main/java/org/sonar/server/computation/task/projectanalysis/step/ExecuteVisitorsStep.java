@@ -19,25 +19,41 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.annotations.VisibleForTesting;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ExecutionStatistics;
+import org.sonar.server.computation.task.step.ExecutionStatisticsHolder;
 
 public class ExecuteVisitorsStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(ExecuteVisitorsStep.class);
 
+  /**
+   * Number of threads used to visit the component tree. Sub-trees are visited concurrently
+   * only when visitors are thread-safe. Default is 1, which disables concurrent visits.
+   */
+  static final String THREADS_PROPERTY = "sonar.ce.visitors.threads";
+
   private final TreeRootHolder treeRootHolder;
   private final List<ComponentVisitor> visitors;
+  private final Settings settings;
+  private final ExecutionStatisticsHolder statisticsHolder;
 
-  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, List<ComponentVisitor> visitors) {
+  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, List<ComponentVisitor> visitors, Settings settings, ExecutionStatisticsHolder statisticsHolder) {
     this.treeRootHolder = treeRootHolder;
     this.visitors = visitors;
+    this.settings = settings;
+    this.statisticsHolder = statisticsHolder;
   }
 
   @Override
@@ -47,9 +63,47 @@ public class ExecuteVisitorsStep implements ComputationStep {
 
   @Override
   public void execute() {
-    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled());
-    visitorsCrawler.visit(treeRootHolder.getRoot());
-    logVisitorExecutionDurations(visitors, visitorsCrawler);
+    ForkJoinPool pool = newPool(settings);
+    try {
+      VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, true, pool);
+      visitorsCrawler.visit(treeRootHolder.getRoot());
+      logVisitorExecutionDurations(visitors, visitorsCrawler);
+      recordVisitorStatistics(visitorsCrawler);
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int getThreads() {
+    return getThreads(settings);
+  }
+
+  private static int getThreads(Settings settings) {
+    return settings.hasKey(THREADS_PROPERTY) ? Math.max(1, settings.getInt(THREADS_PROPERTY)) : 1;
+  }
+
+  /**
+   * Pool to be given to a {@link VisitorsCrawler}, according to property {@link #THREADS_PROPERTY}. It must be
+   * shut down by the caller.
+   *
+   * @return {@code null} if components must not be visited concurrently
+   */
+  @CheckForNull
+  static ForkJoinPool newPool(Settings settings) {
+    int threads = getThreads(settings);
+    return threads > 1 ? new ForkJoinPool(threads) : null;
+  }
+
+  private void recordVisitorStatistics(VisitorsCrawler visitorsCrawler) {
+    Map<ComponentVisitor, Long> cumulativeDurations = visitorsCrawler.getCumulativeDurations();
+    Map<ComponentVisitor, Long> visitCounts = visitorsCrawler.getVisitCounts();
+    for (ComponentVisitor visitor : visitors) {
+      statisticsHolder.addVisitor(
+        new ExecutionStatistics(visitor.getClass().getSimpleName(), cumulativeDurations.get(visitor), null, null, visitCounts.get(visitor)));
+    }
   }
 
   private static void logVisitorExecutionDurations(List<ComponentVisitor> visitors, VisitorsCrawler visitorsCrawler) {
@@ -19,14 +19,20 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.db.component.ResourceIndexDao;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
+
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DB_PROJECTS;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DB_RESOURCE_INDEX;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.TREE_ROOT_HOLDER;
 
 /**
  * Components are currently indexed in db table RESOURCE_INDEX, not in Elasticsearch
  */
-public class IndexComponentsStep implements ComputationStep {
+public class IndexComponentsStep implements ConcurrentComputationStep {
 
   private final ResourceIndexDao resourceIndexDao;
   private final TreeRootHolder treeRootHolder;
@@ -41,6 +47,16 @@ public class IndexComponentsStep implements ComputationStep {
     resourceIndexDao.indexProject(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<String> getReadResources() {
+    return ImmutableSet.of(TREE_ROOT_HOLDER, DB_PROJECTS);
+  }
+
+  @Override
+  public Set<String> getWrittenResources() {
+    return ImmutableSet.of(DB_RESOURCE_INDEX);
+  }
+
   @Override
   public String getDescription() {
     return "Index components";
@@ -19,11 +19,17 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 import org.sonar.server.issue.index.IssueIndexer;
 
-public class IndexIssuesStep implements ComputationStep {
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DB_ISSUES;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.ES_ISSUES;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.TREE_ROOT_HOLDER;
+
+public class IndexIssuesStep implements ConcurrentComputationStep {
 
   private final IssueIndexer indexer;
   private final TreeRootHolder treeRootHolder;
@@ -38,6 +44,16 @@ public class IndexIssuesStep implements ComputationStep {
     indexer.index(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<String> getReadResources() {
+    return ImmutableSet.of(TREE_ROOT_HOLDER, DB_ISSUES);
+  }
+
+  @Override
+  public Set<String> getWrittenResources() {
+    return ImmutableSet.of(ES_ISSUES);
+  }
+
   @Override
   public String getDescription() {
     return "Index issues";
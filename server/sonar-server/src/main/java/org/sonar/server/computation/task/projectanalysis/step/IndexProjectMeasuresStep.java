@@ -19,23 +19,124 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
-import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.server.component.es.ProjectMeasuresDoc;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.measure.Measure;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
+
+import static org.sonar.api.measures.CoreMetrics.ALERT_STATUS_KEY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.ANALYSIS_METADATA_HOLDER;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.ES_PROJECT_MEASURES;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.MEASURE_REPOSITORY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.METRIC_REPOSITORY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.TREE_ROOT_HOLDER;
+
+/**
+ * Indexes the measures of the project. The document is built from the measures computed by
+ * this analysis, so it does not read the measures that have just been persisted.
+ */
+public class IndexProjectMeasuresStep implements ConcurrentComputationStep {
 
-public class IndexProjectMeasuresStep implements ComputationStep {
+  /**
+   * Types of the metrics which are indexed, same as in {@link org.sonar.db.measure.ProjectMeasuresIndexerIterator}
+   */
+  private static final Set<Metric.MetricType> METRIC_TYPES = ImmutableSet.of(Metric.MetricType.INT, Metric.MetricType.FLOAT,
+    Metric.MetricType.PERCENT, Metric.MetricType.BOOL, Metric.MetricType.MILLISEC, Metric.MetricType.LEVEL, Metric.MetricType.RATING,
+    Metric.MetricType.WORK_DUR);
 
   private final ProjectMeasuresIndexer indexer;
   private final TreeRootHolder treeRootHolder;
+  private final MetricRepository metricRepository;
+  private final MeasureRepository measureRepository;
+  private final AnalysisMetadataHolder analysisMetadataHolder;
 
-  public IndexProjectMeasuresStep(ProjectMeasuresIndexer indexer, TreeRootHolder treeRootHolder) {
+  public IndexProjectMeasuresStep(ProjectMeasuresIndexer indexer, TreeRootHolder treeRootHolder, MetricRepository metricRepository,
+    MeasureRepository measureRepository, AnalysisMetadataHolder analysisMetadataHolder) {
     this.indexer = indexer;
     this.treeRootHolder = treeRootHolder;
+    this.metricRepository = metricRepository;
+    this.measureRepository = measureRepository;
+    this.analysisMetadataHolder = analysisMetadataHolder;
   }
 
   @Override
   public void execute() {
-    indexer.index(treeRootHolder.getRoot().getUuid());
+    Component project = treeRootHolder.getRoot();
+    ProjectMeasuresDoc doc = new ProjectMeasuresDoc()
+      .setId(project.getUuid())
+      .setKey(project.getKey())
+      .setName(project.getName())
+      .setAnalysedAt(new Date(analysisMetadataHolder.getAnalysisDate()));
+
+    Map<String, Double> numericMeasures = new HashMap<>();
+    for (Metric metric : metricRepository.getAll()) {
+      if (!METRIC_TYPES.contains(metric.getType())) {
+        continue;
+      }
+      Optional<Measure> measure = measureRepository.getRawMeasure(project, metric);
+      if (!measure.isPresent()) {
+        continue;
+      }
+      Double value = metric.getKey().startsWith("new_") ? variation1(measure.get()) : valueAsDouble(measure.get());
+      if (value != null) {
+        numericMeasures.put(metric.getKey(), value);
+      } else if (ALERT_STATUS_KEY.equals(metric.getKey()) && measure.get().getValueType() == Measure.ValueType.LEVEL) {
+        doc.setQualityGate(measure.get().getLevelValue().name());
+      }
+    }
+    doc.setMeasuresFromMap(numericMeasures);
+
+    indexer.index(doc);
+  }
+
+  @CheckForNull
+  private static Double variation1(Measure measure) {
+    if (measure.hasVariations() && measure.getVariations().hasVariation1()) {
+      return measure.getVariations().getVariation1();
+    }
+    return null;
+  }
+
+  /**
+   * Same numerical value as the one persisted in db
+   */
+  @CheckForNull
+  private static Double valueAsDouble(Measure measure) {
+    switch (measure.getValueType()) {
+      case BOOLEAN:
+        return measure.getBooleanValue() ? 1.0d : 0.0d;
+      case INT:
+        return (double) measure.getIntValue();
+      case LONG:
+        return (double) measure.getLongValue();
+      case DOUBLE:
+        return measure.getDoubleValue();
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public Set<String> getReadResources() {
+    return ImmutableSet.of(TREE_ROOT_HOLDER, ANALYSIS_METADATA_HOLDER, METRIC_REPOSITORY, MEASURE_REPOSITORY);
+  }
+
+  @Override
+  public Set<String> getWrittenResources() {
+    return ImmutableSet.of(ES_PROJECT_MEASURES);
   }
 
   @Override
@@ -19,11 +19,17 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 import org.sonar.server.test.index.TestIndexer;
 
-public class IndexTestsStep implements ComputationStep {
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DB_TEST_FILE_SOURCES;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.ES_TESTS;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.TREE_ROOT_HOLDER;
+
+public class IndexTestsStep implements ConcurrentComputationStep {
 
   private final TestIndexer indexer;
   private final TreeRootHolder treeRootHolder;
@@ -38,6 +44,16 @@ public class IndexTestsStep implements ComputationStep {
     indexer.index(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<String> getReadResources() {
+    return ImmutableSet.of(TREE_ROOT_HOLDER, DB_TEST_FILE_SOURCES);
+  }
+
+  @Override
+  public Set<String> getWrittenResources() {
+    return ImmutableSet.of(ES_TESTS);
+  }
+
   @Override
   public String getDescription() {
     return "Index tests";
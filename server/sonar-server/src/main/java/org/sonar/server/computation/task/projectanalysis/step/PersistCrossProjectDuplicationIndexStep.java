@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -32,14 +34,19 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.ANALYSIS_METADATA_HOLDER;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.CROSS_PROJECT_DUPLICATION_STATUS_HOLDER;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DB_DUPLICATIONS_INDEX;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.REPORT;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.TREE_ROOT_HOLDER;
 
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
-public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
+public class PersistCrossProjectDuplicationIndexStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
@@ -112,6 +119,16 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
     }
   }
 
+  @Override
+  public Set<String> getReadResources() {
+    return ImmutableSet.of(TREE_ROOT_HOLDER, ANALYSIS_METADATA_HOLDER, CROSS_PROJECT_DUPLICATION_STATUS_HOLDER, REPORT);
+  }
+
+  @Override
+  public Set<String> getWrittenResources() {
+    return ImmutableSet.of(DB_DUPLICATIONS_INDEX);
+  }
+
   @Override
   public String getDescription() {
     return "Persist cross project duplications index";
@@ -21,10 +21,12 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -57,11 +59,17 @@ import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConve
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DB_SOURCE_FILE_SOURCES;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DUPLICATION_REPOSITORY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.REPORT;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.SCM_INFO_REPOSITORY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.SOURCE_LINES_REPOSITORY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.TREE_ROOT_HOLDER;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -237,6 +245,16 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<String> getReadResources() {
+    return ImmutableSet.of(TREE_ROOT_HOLDER, REPORT, SOURCE_LINES_REPOSITORY, SCM_INFO_REPOSITORY, DUPLICATION_REPOSITORY);
+  }
+
+  @Override
+  public Set<String> getWrittenResources() {
+    return ImmutableSet.of(DB_SOURCE_FILE_SOURCES);
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
@@ -19,8 +19,12 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import org.sonar.ce.queue.CeQueue;
+import org.sonar.ce.queue.CeTaskSubmit;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.purge.IdUuidPair;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.DbIdsRepository;
@@ -37,19 +41,25 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 import static org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit.reportMaxDepth;
 
+/**
+ * Purges the data of the components disabled by the analysis. The purge of historical data, which can be long on big
+ * projects, is delegated to a {@link CeTaskTypes#PROJECT_PURGE} task processed after the analysis.
+ */
 public class PurgeDatastoresStep implements ComputationStep {
 
   private final ProjectCleaner projectCleaner;
   private final DbClient dbClient;
+  private final CeQueue ceQueue;
   private final DbIdsRepository dbIdsRepository;
   private final TreeRootHolder treeRootHolder;
   private final SettingsRepository settingsRepository;
   private final DisabledComponentsHolder disabledComponentsHolder;
 
-  public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
+  public PurgeDatastoresStep(DbClient dbClient, CeQueue ceQueue, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
     SettingsRepository settingsRepository, DisabledComponentsHolder disabledComponentsHolder) {
     this.projectCleaner = projectCleaner;
     this.dbClient = dbClient;
+    this.ceQueue = ceQueue;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
     this.settingsRepository = settingsRepository;
@@ -76,13 +86,26 @@ public class PurgeDatastoresStep implements ComputationStep {
     DbSession session = dbClient.openSession(true);
     try {
       IdUuidPair idUuidPair = new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid());
-      projectCleaner.purge(session, idUuidPair, settingsRepository.getSettings(root), disabledComponentsHolder.getUuids());
+      projectCleaner.purgeDisabledComponents(session, idUuidPair, settingsRepository.getSettings(root), disabledComponentsHolder.getUuids());
       session.commit();
+      submitPurgeOfHistory(session, root);
     } finally {
       dbClient.closeSession(session);
     }
   }
 
+  private void submitPurgeOfHistory(DbSession session, Component root) {
+    boolean alreadyPending = dbClient.ceQueueDao().selectByComponentUuid(session, root.getUuid()).stream()
+      .anyMatch(task -> CeTaskTypes.PROJECT_PURGE.equals(task.getTaskType()) && task.getStatus() == CeQueueDto.Status.PENDING);
+    if (alreadyPending) {
+      return;
+    }
+    CeTaskSubmit.Builder submit = ceQueue.prepareSubmit();
+    submit.setType(CeTaskTypes.PROJECT_PURGE);
+    submit.setComponentUuid(root.getUuid());
+    ceQueue.submit(submit.build());
+  }
+
   @Override
   public String getDescription() {
     return "Purge db";
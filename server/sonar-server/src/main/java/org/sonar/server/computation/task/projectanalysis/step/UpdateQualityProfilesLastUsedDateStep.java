@@ -21,6 +21,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -35,14 +36,19 @@ import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 import org.sonar.server.qualityprofile.QPMeasureData;
 import org.sonar.server.qualityprofile.QualityProfile;
 
 import static java.util.Collections.emptySet;
 import static org.sonar.api.measures.CoreMetrics.QUALITY_PROFILES_KEY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.ANALYSIS_METADATA_HOLDER;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.DB_RULES_PROFILES;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.MEASURE_REPOSITORY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.METRIC_REPOSITORY;
+import static org.sonar.server.computation.task.projectanalysis.step.ComputationStepResources.TREE_ROOT_HOLDER;
 
-public class UpdateQualityProfilesLastUsedDateStep implements ComputationStep {
+public class UpdateQualityProfilesLastUsedDateStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final AnalysisMetadataHolder analysisMetadataHolder;
@@ -99,6 +105,16 @@ public class UpdateQualityProfilesLastUsedDateStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<String> getReadResources() {
+    return ImmutableSet.of(TREE_ROOT_HOLDER, ANALYSIS_METADATA_HOLDER, METRIC_REPOSITORY, MEASURE_REPOSITORY);
+  }
+
+  @Override
+  public Set<String> getWrittenResources() {
+    return ImmutableSet.of(DB_RULES_PROFILES);
+  }
+
   @Override
   public String getDescription() {
     return "Update last usage date of quality profiles";
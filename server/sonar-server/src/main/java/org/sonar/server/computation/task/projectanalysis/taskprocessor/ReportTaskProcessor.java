@@ -22,6 +22,8 @@ package org.sonar.server.computation.task.projectanalysis.taskprocessor;
 import java.util.Collections;
 import java.util.Set;
 import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.settings.SettingsLoader;
@@ -29,36 +31,43 @@ import org.sonar.ce.taskprocessor.CeTaskProcessor;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.plugin.ce.ReportAnalysisComponentProvider;
+import org.sonar.server.computation.monitoring.CeTaskStepsRecorder;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.projectanalysis.container.ContainerFactory;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
+import org.sonar.server.computation.task.step.ExecutionStatisticsHolder;
 import org.sonar.server.computation.taskprocessor.TaskResultHolder;
 import org.sonar.server.setting.ThreadLocalSettings;
 
 public class ReportTaskProcessor implements CeTaskProcessor {
 
+  private static final Logger LOGGER = Loggers.get(ReportTaskProcessor.class);
   private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.REPORT);
 
   private final ContainerFactory containerFactory;
   private final ComponentContainer serverContainer;
+  private final CeTaskStepsRecorder stepsRecorder;
   @CheckForNull
   private final ReportAnalysisComponentProvider[] componentProviders;
 
   /**
    * Used when at least one Privileged plugin is installed
    */
-  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, ReportAnalysisComponentProvider[] componentProviders) {
+  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, CeTaskStepsRecorder stepsRecorder,
+    ReportAnalysisComponentProvider[] componentProviders) {
     this.containerFactory = containerFactory;
     this.serverContainer = serverContainer;
+    this.stepsRecorder = stepsRecorder;
     this.componentProviders = componentProviders;
   }
 
   /**
    * Used when no privileged plugin is installed
    */
-  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer) {
+  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, CeTaskStepsRecorder stepsRecorder) {
     this.containerFactory = containerFactory;
     this.serverContainer = serverContainer;
+    this.stepsRecorder = stepsRecorder;
     this.componentProviders = null;
   }
 
@@ -75,12 +84,22 @@ public class ReportTaskProcessor implements CeTaskProcessor {
       ceContainer.getComponentByType(ComputationStepExecutor.class).execute();
       return ceContainer.getComponentByType(TaskResultHolder.class).getResult();
     } finally {
+      recordStatistics(task, ceContainer);
       ensureThreadLocalIsClean(ceContainer);
 
       ceContainer.cleanup();
     }
   }
 
+  private void recordStatistics(CeTask task, TaskContainer ceContainer) {
+    try {
+      stepsRecorder.record(task.getUuid(), ceContainer.getComponentByType(ExecutionStatisticsHolder.class));
+    } catch (RuntimeException e) {
+      // failing to record statistics must neither fail the task nor hide the exception thrown by a step
+      LOGGER.error("Failed to record statistics of steps of task {}", task.getUuid(), e);
+    }
+  }
+
   /** safety call to clear ThreadLocal even if Pico container fails to call {@link SettingsLoader#stop()}) */
   private static void ensureThreadLocalIsClean(TaskContainer ceContainer) {
     ceContainer.getComponentByType(ThreadLocalSettings.class).unload();
@@ -19,16 +19,36 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
+import static com.google.common.collect.Lists.newArrayList;
+
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
 
+  /**
+   * Number of threads used to execute adjacent {@link ConcurrentComputationStep}s which do not conflict
+   * with each other. Default is 1, which executes all steps sequentially.
+   */
+  static final String THREADS_PROPERTY = "sonar.ce.steps.threads";
+
   private final ComputationSteps steps;
+  private final Settings settings;
+  private final ExecutionStatisticsHolder statisticsHolder;
   @CheckForNull
   private final Listener listener;
 
@@ -36,20 +56,21 @@ public final class ComputationStepExecutor {
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
    * container.
    */
-  public ComputationStepExecutor(ComputationSteps steps) {
-    this(steps, null);
+  public ComputationStepExecutor(ComputationSteps steps, Settings settings, ExecutionStatisticsHolder statisticsHolder) {
+    this(steps, settings, statisticsHolder, null);
   }
 
-  public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
+  public ComputationStepExecutor(ComputationSteps steps, Settings settings, ExecutionStatisticsHolder statisticsHolder, @Nullable Listener listener) {
     this.steps = steps;
+    this.settings = settings;
+    this.statisticsHolder = statisticsHolder;
     this.listener = listener;
   }
 
   public void execute() {
-    Profiler stepProfiler = Profiler.create(LOGGER);
     boolean allStepsExecuted = false;
     try {
-      executeSteps(stepProfiler);
+      executeSteps();
       allStepsExecuted = true;
     } finally {
       if (listener != null) {
@@ -58,11 +79,104 @@ public final class ComputationStepExecutor {
     }
   }
 
-  private void executeSteps(Profiler stepProfiler) {
-    for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
+  @VisibleForTesting
+  int getThreads() {
+    return settings.hasKey(THREADS_PROPERTY) ? Math.max(1, settings.getInt(THREADS_PROPERTY)) : 1;
+  }
+
+  private void executeSteps() {
+    int threads = getThreads();
+    if (threads == 1) {
+      for (ComputationStep step : steps.instances()) {
+        executeStep(step);
+      }
+      return;
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("CE_steps-%d")
+        .build());
+    try {
+      List<ComputationStep> instances = newArrayList(steps.instances());
+      int i = 0;
+      while (i < instances.size()) {
+        int end = i;
+        List<ConcurrentComputationStep> group = new ArrayList<>();
+        while (end < instances.size() && instances.get(end) instanceof ConcurrentComputationStep) {
+          group.add((ConcurrentComputationStep) instances.get(end));
+          end++;
+        }
+        if (group.isEmpty()) {
+          executeStep(instances.get(i));
+          i++;
+        } else {
+          executeConcurrently(group, executorService);
+          i = end;
+        }
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Each step of the group is executed as soon as all the preceding steps of the group it conflicts with are
+   * executed. The first exception, in step order, is re-thrown once all the steps are either executed or skipped.
+   */
+  private void executeConcurrently(List<ConcurrentComputationStep> group, ExecutorService executorService) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>(group.size());
+    for (int i = 0; i < group.size(); i++) {
+      ConcurrentComputationStep step = group.get(i);
+      List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+      for (int j = 0; j < i; j++) {
+        if (conflict(group.get(j), step)) {
+          dependencies.add(futures.get(j));
+        }
+      }
+      futures.add(CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[dependencies.size()]))
+        .thenRunAsync(() -> executeStep(step), executorService));
+    }
+
+    Throwable failure = null;
+    for (CompletableFuture<Void> future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure = e.getCause() == null ? e : e.getCause();
+        }
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  @VisibleForTesting
+  static boolean conflict(ConcurrentComputationStep first, ConcurrentComputationStep second) {
+    return !Sets.intersection(first.getWrittenResources(), second.getWrittenResources()).isEmpty()
+      || !Sets.intersection(first.getWrittenResources(), second.getReadResources()).isEmpty()
+      || !Sets.intersection(first.getReadResources(), second.getWrittenResources()).isEmpty();
+  }
+
+  private void executeStep(ComputationStep step) {
+    ThreadUsage start = ThreadUsage.current();
+    Profiler stepProfiler = Profiler.create(LOGGER).start();
+    try {
       step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+    } finally {
+      String description = step.getDescription();
+      long durationMs = stepProfiler.stopDebug(description);
+      ThreadUsage end = ThreadUsage.current();
+      statisticsHolder.addStep(new ExecutionStatistics(description, durationMs, end.cpuTimeMsSince(start), end.allocatedBytesSince(start), null));
     }
   }
 
@@ -0,0 +1,44 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the resources (holders, repositories, tables, indices...) it reads
+ * and writes. {@link ComputationStepExecutor} may execute such a step concurrently with the adjacent
+ * {@link ConcurrentComputationStep}s it does not conflict with.
+ * <p>
+ * Implementations must not share any state other than the declared resources with other steps. In particular,
+ * each implementation must use its own {@link org.sonar.db.DbSession}.
+ * </p>
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+
+  /**
+   * Resources read by this step.
+   */
+  Set<String> getReadResources();
+
+  /**
+   * Resources written by this step.
+   */
+  Set<String> getWrittenResources();
+}
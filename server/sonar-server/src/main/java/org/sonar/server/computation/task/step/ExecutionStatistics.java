@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resources used by the execution of a {@link ComputationStep} or of a component visitor.
+ */
+@Immutable
+public final class ExecutionStatistics {
+  private final String name;
+  private final long durationMs;
+  @CheckForNull
+  private final Long cpuTimeMs;
+  @CheckForNull
+  private final Long allocatedBytes;
+  @CheckForNull
+  private final Long processedCount;
+
+  public ExecutionStatistics(String name, long durationMs, @Nullable Long cpuTimeMs, @Nullable Long allocatedBytes, @Nullable Long processedCount) {
+    this.name = requireNonNull(name, "name can't be null");
+    this.durationMs = durationMs;
+    this.cpuTimeMs = cpuTimeMs;
+    this.allocatedBytes = allocatedBytes;
+    this.processedCount = processedCount;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  @CheckForNull
+  public Long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  @CheckForNull
+  public Long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  @CheckForNull
+  public Long getProcessedCount() {
+    return processedCount;
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutionStatistics{" +
+      "name='" + name + '\'' +
+      ", durationMs=" + durationMs +
+      ", cpuTimeMs=" + cpuTimeMs +
+      ", allocatedBytes=" + allocatedBytes +
+      ", processedCount=" + processedCount +
+      '}';
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Collects the {@link ExecutionStatistics} of the steps and of the component visitors of a task. Steps may be
+ * executed concurrently, so this class is thread-safe.
+ */
+public class ExecutionStatisticsHolder {
+  private final List<ExecutionStatistics> steps = new ArrayList<>();
+  private final List<ExecutionStatistics> visitors = new ArrayList<>();
+
+  public synchronized void addStep(ExecutionStatistics statistics) {
+    steps.add(statistics);
+  }
+
+  public synchronized void addVisitor(ExecutionStatistics statistics) {
+    visitors.add(statistics);
+  }
+
+  /**
+   * Statistics of the executed steps, in the order the steps ended.
+   */
+  public synchronized List<ExecutionStatistics> getSteps() {
+    return unmodifiableList(new ArrayList<>(steps));
+  }
+
+  /**
+   * Statistics of the component visitors, in the order of execution of the visitors.
+   */
+  public synchronized List<ExecutionStatistics> getVisitors() {
+    return unmodifiableList(new ArrayList<>(visitors));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Snapshot of the CPU time and of the heap allocations of the current thread, when supported by the JVM.
+ */
+final class ThreadUsage {
+  private static final long NANOS_IN_MILLI = 1_000_000L;
+
+  @CheckForNull
+  private final Long cpuTimeNanos;
+  @CheckForNull
+  private final Long allocatedBytes;
+
+  private ThreadUsage(@Nullable Long cpuTimeNanos, @Nullable Long allocatedBytes) {
+    this.cpuTimeNanos = cpuTimeNanos;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  static ThreadUsage current() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    Long cpuTimeNanos = null;
+    if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+      cpuTimeNanos = threadMXBean.getCurrentThreadCpuTime();
+    }
+    Long allocatedBytes = null;
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+      if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+        allocatedBytes = sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return new ThreadUsage(cpuTimeNanos, allocatedBytes);
+  }
+
+  /**
+   * CPU time, in milliseconds, used by the current thread since this snapshot.
+   */
+  @CheckForNull
+  Long cpuTimeMsSince(ThreadUsage start) {
+    if (cpuTimeNanos == null || start.cpuTimeNanos == null) {
+      return null;
+    }
+    return (cpuTimeNanos - start.cpuTimeNanos) / NANOS_IN_MILLI;
+  }
+
+  @CheckForNull
+  Long allocatedBytesSince(ThreadUsage start) {
+    if (allocatedBytes == null || start.allocatedBytes == null) {
+      return null;
+    }
+    return allocatedBytes - start.allocatedBytes;
+  }
+}
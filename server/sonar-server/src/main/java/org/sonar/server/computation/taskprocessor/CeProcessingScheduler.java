@@ -23,4 +23,10 @@ public interface CeProcessingScheduler {
 
   void startScheduling();
 
+  /**
+   * Makes idle workers poll the queue right away instead of waiting for their next scheduled poll.
+   * Called when a task has been submitted to the queue.
+   */
+  void wakeUpWorkers();
+
 }
@@ -19,12 +19,13 @@
  */
 package org.sonar.server.computation.taskprocessor;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.picocontainer.Startable;
@@ -32,7 +33,6 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.configuration.CeConfiguration;
 
-import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startable {
@@ -42,6 +42,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
   private final CeWorkerCallable workerRunnable;
 
   private final long delayBetweenTasks;
+  private final long maxDelayBetweenTasks;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
 
@@ -51,6 +52,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     this.workerRunnable = workerRunnable;
 
     this.delayBetweenTasks = ceConfiguration.getQueuePollingDelay();
+    this.maxDelayBetweenTasks = Math.max(delayBetweenTasks, ceConfiguration.getQueueMaxPollingDelay());
     this.timeUnit = MILLISECONDS;
 
     int workerCount = ceConfiguration.getWorkerCount();
@@ -68,8 +70,14 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
   @Override
   public void startScheduling() {
     for (ChainingCallback chainingCallback : chainingCallbacks) {
-      ListenableScheduledFuture<Boolean> future = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
-      addCallback(future, chainingCallback, executorService);
+      chainingCallback.chainWithDelay();
+    }
+  }
+
+  @Override
+  public void wakeUpWorkers() {
+    for (ChainingCallback chainingCallback : chainingCallbacks) {
+      chainingCallback.wakeUp();
     }
   }
 
@@ -82,12 +90,23 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
   private class ChainingCallback implements FutureCallback<Boolean> {
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
+    private final AtomicBoolean wakeUpRequested = new AtomicBoolean(false);
     @CheckForNull
     private ListenableFuture<Boolean> workerFuture;
+    /**
+     * The next poll when the worker is idle, {@code null} otherwise.
+     */
+    @CheckForNull
+    private volatile DelayedWorkerCallable delayedPoll;
+    /**
+     * Doubled each time the worker is idle, reset as soon as the worker has something to do or is woken up.
+     */
+    private long currentDelay = delayBetweenTasks;
 
     @Override
     public void onSuccess(@Nullable Boolean result) {
-      if (result != null && result) {
+      // a wake up requested while the worker was polling the queue must not be missed
+      if ((result != null && result) || wakeUpRequested.get()) {
         chainWithoutDelay();
       } else {
         chainWithDelay();
@@ -104,6 +123,9 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     }
 
     private void chainWithoutDelay() {
+      delayedPoll = null;
+      wakeUpRequested.set(false);
+      currentDelay = delayBetweenTasks;
       if (keepRunning()) {
         workerFuture = executorService.submit(workerRunnable);
       }
@@ -112,11 +134,37 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
     private void chainWithDelay() {
       if (keepRunning()) {
-        workerFuture = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
+        DelayedWorkerCallable callable = new DelayedWorkerCallable(workerRunnable);
+        ListenableScheduledFuture<Boolean> future = executorService.schedule(callable, currentDelay, timeUnit);
+        callable.setFuture(future);
+        workerFuture = future;
+        delayedPoll = callable;
+        currentDelay = Math.min(currentDelay * 2, maxDelayBetweenTasks);
+        if (wakeUpRequested.get()) {
+          // wake up requested while the poll was being scheduled
+          cancelDelayedPoll();
+        }
       }
       addCallback();
     }
 
+    /**
+     * Cancelling the delayed poll triggers {@link #onFailure(Throwable)} which chains without delay.
+     */
+    public void wakeUp() {
+      wakeUpRequested.set(true);
+      if (keepRunning()) {
+        cancelDelayedPoll();
+      }
+    }
+
+    private void cancelDelayedPoll() {
+      DelayedWorkerCallable callable = delayedPoll;
+      if (callable != null) {
+        callable.cancel();
+      }
+    }
+
     private void addCallback() {
       if (workerFuture != null && keepRunning()) {
         Futures.addCallback(workerFuture, this, executorService);
@@ -134,4 +182,60 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
       }
     }
   }
+
+  /**
+   * Wraps the {@link CeWorkerCallable} of a delayed poll so that it can be cancelled only as long as it has not
+   * started. This guarantees that a worker never runs twice concurrently when it is woken up.
+   */
+  @VisibleForTesting
+  static final class DelayedWorkerCallable implements Callable<Boolean> {
+    private final CeWorkerCallable delegate;
+    // state and future are guarded by this, so that a cancel requested before the future is known is not lost
+    private State state = State.PENDING;
+    @CheckForNull
+    private ListenableFuture<Boolean> future;
+
+    private enum State {
+      PENDING, STARTED, CANCELLED
+    }
+
+    @VisibleForTesting
+    DelayedWorkerCallable(CeWorkerCallable delegate) {
+      this.delegate = delegate;
+    }
+
+    CeWorkerCallable getDelegate() {
+      return delegate;
+    }
+
+    @VisibleForTesting
+    synchronized void setFuture(ListenableFuture<Boolean> future) {
+      this.future = future;
+      if (state == State.CANCELLED) {
+        future.cancel(false);
+      }
+    }
+
+    @VisibleForTesting
+    synchronized void cancel() {
+      if (state == State.PENDING) {
+        state = State.CANCELLED;
+        if (future != null) {
+          future.cancel(false);
+        }
+      }
+    }
+
+    @Override
+    public Boolean call() throws Exception {
+      synchronized (this) {
+        if (state != State.PENDING) {
+          // cancelled
+          return false;
+        }
+        state = State.STARTED;
+      }
+      return delegate.call();
+    }
+  }
 }
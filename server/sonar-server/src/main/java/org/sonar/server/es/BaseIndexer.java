@@ -73,8 +73,33 @@ public abstract class BaseIndexer implements Startable {
     index(this::doIndex);
   }
 
+  /**
+   * Indexes all the documents into the physical index {@code targetIndex} instead of the index used by
+   * requests. It's used to populate a new version of index, see {@link IndexRebuilds}.
+   */
+  public void indexAll(String targetIndex) {
+    index(lastUpdatedAt -> {
+      doIndex(new BulkIndexer(esClient, indexName).setTargetIndex(targetIndex).setLarge(true), 0L);
+      // documents of the index used by requests are unchanged
+      return 0L;
+    });
+  }
+
+  /**
+   * Indexes the documents updated since {@code date}, even if more recent documents are already indexed. It's used
+   * once a new version of index is switched, for the changes which were not copied to it during its population.
+   */
+  public void indexSince(long date) {
+    index(lastUpdatedAt -> Math.max(lastUpdatedAt, doIndex(Math.min(lastUpdatedAt, date))));
+  }
+
   protected abstract long doIndex(long lastUpdatedAt);
 
+  /**
+   * Indexes the documents updated after {@code lastUpdatedAt} with the given bulk indexer, which is not started yet
+   */
+  protected abstract long doIndex(BulkIndexer bulk, long lastUpdatedAt);
+
   @Override
   public void start() {
     // nothing to do at startup
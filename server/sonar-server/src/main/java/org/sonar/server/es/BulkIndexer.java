@@ -21,10 +21,14 @@ package org.sonar.server.es;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -32,13 +36,18 @@ import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -55,6 +64,10 @@ import static java.lang.String.format;
  *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  *   <li>index refresh is optional (enabled by default)</li>
+ *   <li>documents can be journaled in an {@link IndexingQueue} before being sent, so that they are recovered later
+ *   if they fail to be indexed or deleted, or if the process stops before the response</li>
+ *   <li>once started, requests can be added concurrently by several threads</li>
+ *   <li>requests can be redirected to another physical index, for example to populate a new version of index</li>
  * </ul>
  */
 public class BulkIndexer implements Startable {
@@ -66,6 +79,7 @@ public class BulkIndexer implements Startable {
 
   private final EsClient client;
   private final String indexName;
+  private String targetIndex;
   private boolean large = false;
   private long flushByteSize = FLUSH_BYTE_SIZE;
   private BulkRequestBuilder bulkRequest = null;
@@ -74,10 +88,12 @@ public class BulkIndexer implements Startable {
   private final int concurrentRequests;
   private final Semaphore semaphore;
   private final ProgressLogger progress;
+  private IndexingQueue recoveryQueue = null;
 
   public BulkIndexer(EsClient client, String indexName) {
     this.client = client;
     this.indexName = indexName;
+    this.targetIndex = indexName;
     this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s]]", indexName), counter, LOGGER)
       .setPluralLabel("requests");
 
@@ -101,23 +117,51 @@ public class BulkIndexer implements Startable {
     return this;
   }
 
+  /**
+   * Documents are journaled in this queue before each bulk request is sent and are removed
+   * once Elasticsearch acknowledges them. Documents of failed requests are kept, so that they
+   * are indexed again by {@link RecoveryIndexer}. By default failures are only logged.
+   */
+  public BulkIndexer setRecoveryQueue(@Nullable IndexingQueue queue) {
+    this.recoveryQueue = queue;
+    return this;
+  }
+
+  /**
+   * Requests on the index or alias {@code indexName} are sent to the physical index {@code targetIndex} instead.
+   * It's used to populate a new version of index while the previous one serves requests, see {@link IndexRebuilds}.
+   * Such requests are not copied to the mirrors of {@code indexName}. Documents which already exist in
+   * {@code targetIndex} are kept unchanged.
+   */
+  public BulkIndexer setTargetIndex(String targetIndex) {
+    Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
+    this.targetIndex = targetIndex;
+    return this;
+  }
+
   @Override
   public void start() {
     Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
+    if (large && client.writeMirrors().isMirrored(targetIndex)) {
+      // index is being rebuilt. Its settings are kept as it still serves search requests.
+      large = false;
+    }
     if (large) {
       largeInitialSettings = Maps.newHashMap();
       Map<String, Object> bulkSettings = Maps.newHashMap();
-      GetSettingsResponse settingsResp = client.nativeClient().admin().indices().prepareGetSettings(indexName).get();
+      GetSettingsResponse settingsResp = client.nativeClient().admin().indices().prepareGetSettings(targetIndex).get();
+      // response is keyed by the name of the physical index, which differs when indexName is an alias
+      Settings indexSettings = settingsResp.getIndexToSettings().valuesIt().next();
 
       // deactivate replicas
-      int initialReplicas = Integer.parseInt(settingsResp.getSetting(indexName, IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
+      int initialReplicas = Integer.parseInt(indexSettings.get(IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
       if (initialReplicas > 0) {
         largeInitialSettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, initialReplicas);
         bulkSettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0);
       }
 
       // deactivate periodical refresh
-      String refreshInterval = settingsResp.getSetting(indexName, REFRESH_INTERVAL_SETTING);
+      String refreshInterval = indexSettings.get(REFRESH_INTERVAL_SETTING);
       largeInitialSettings.put(REFRESH_INTERVAL_SETTING, refreshInterval);
       bulkSettings.put(REFRESH_INTERVAL_SETTING, "-1");
 
@@ -128,8 +172,8 @@ public class BulkIndexer implements Startable {
     progress.start();
   }
 
-  public void add(ActionRequest request) {
-    bulkRequest.request().add(request);
+  public synchronized void add(ActionRequest request) {
+    bulkRequest.request().add(redirect(request));
     if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize) {
       executeBulk();
     }
@@ -182,25 +226,38 @@ public class BulkIndexer implements Startable {
     bulk.stop();
   }
 
-  @Override
-  public void stop() {
+  /**
+   * Sends the pending requests and waits for the responses of all the requests sent so far. Documents
+   * are not searchable until the index is refreshed.
+   *
+   * @throws IllegalStateException if some responses are still missing after 10 minutes
+   */
+  public synchronized void flush() {
     if (bulkRequest.numberOfActions() > 0) {
       executeBulk();
     }
     try {
-      if (semaphore.tryAcquire(concurrentRequests, 10, TimeUnit.MINUTES)) {
-        semaphore.release(concurrentRequests);
+      if (!semaphore.tryAcquire(concurrentRequests, 10, TimeUnit.MINUTES)) {
+        // the caller must not consider the documents as indexed
+        throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes");
       }
+      semaphore.release(concurrentRequests);
     } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
       throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
     }
+  }
+
+  @Override
+  public void stop() {
+    flush();
     progress.stop();
-    client.prepareRefresh(indexName).get();
+    client.prepareRefresh(targetIndex).get();
     if (large) {
       // optimize lucene segments and revert index settings
       // Optimization must be done before re-applying replicas:
       // http://www.elasticsearch.org/blog/performance-considerations-elasticsearch-indexing/
-      client.prepareForceMerge(indexName).get();
+      client.prepareForceMerge(targetIndex).get();
 
       updateSettings(largeInitialSettings);
     }
@@ -208,16 +265,61 @@ public class BulkIndexer implements Startable {
   }
 
   private void updateSettings(Map<String, Object> settings) {
-    UpdateSettingsRequestBuilder req = client.nativeClient().admin().indices().prepareUpdateSettings(indexName);
+    UpdateSettingsRequestBuilder req = client.nativeClient().admin().indices().prepareUpdateSettings(targetIndex);
     req.setSettings(settings);
     req.get();
   }
 
+  /**
+   * Documents are only created in the target index. The documents it already contains are copies
+   * of more recent write requests, see {@link WriteMirrors}, and must not be overwritten.
+   */
+  private ActionRequest redirect(ActionRequest request) {
+    if (targetIndex.equals(indexName)) {
+      return request;
+    }
+    if (request instanceof IndexRequest && indexName.equals(((IndexRequest) request).index())) {
+      return ((IndexRequest) request).index(targetIndex).opType(IndexRequest.OpType.CREATE);
+    }
+    if (request instanceof DeleteRequest && indexName.equals(((DeleteRequest) request).index())) {
+      return ((DeleteRequest) request).index(targetIndex);
+    }
+    if (request instanceof UpdateRequest && indexName.equals(((UpdateRequest) request).index())) {
+      UpdateRequest updateRequest = (UpdateRequest) request;
+      IndexRequest upsert = updateRequest.upsertRequest();
+      if (upsert != null) {
+        // the upsert document is the whole document
+        return new IndexRequest(targetIndex, updateRequest.type(), updateRequest.id())
+          .routing(updateRequest.routing())
+          .parent(updateRequest.parent())
+          .source(upsert.source())
+          .opType(IndexRequest.OpType.CREATE);
+      }
+      return updateRequest.index(targetIndex);
+    }
+    return request;
+  }
+
+  private boolean isAlreadyCreated(BulkItemResponse item) {
+    return !targetIndex.equals(indexName) && item.getFailure().getStatus() == RestStatus.CONFLICT;
+  }
+
   private void executeBulk() {
     final BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
     semaphore.acquireUninterruptibly();
-    req.execute(new BulkResponseActionListener(req));
+    try {
+      if (recoveryQueue != null) {
+        // journaled before being sent, so that documents are not lost if process stops before the response
+        List<DocId> docs = new ArrayList<>();
+        req.request().requests().forEach(request -> addDoc(docs, request));
+        recoveryQueue.startIndexing(docs);
+      }
+      req.execute(new BulkResponseActionListener(req));
+    } catch (RuntimeException e) {
+      semaphore.release();
+      throw e;
+    }
   }
 
   private class BulkResponseActionListener implements ActionListener<BulkResponse> {
@@ -229,20 +331,53 @@ public class BulkIndexer implements Startable {
 
     @Override
     public void onResponse(BulkResponse response) {
-      semaphore.release();
-      counter.addAndGet(response.getItems().length);
+      try {
+        counter.addAndGet(response.getItems().length);
 
-      for (BulkItemResponse item : response.getItems()) {
-        if (item.isFailed()) {
-          LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+        List<ActionRequest> requests = req.request().requests();
+        List<DocId> indexedDocs = new ArrayList<>();
+        List<DocId> failedDocs = new ArrayList<>();
+        for (BulkItemResponse item : response.getItems()) {
+          if (item.isFailed() && isAlreadyCreated(item)) {
+            // the document has been written since it was loaded
+            addDoc(indexedDocs, requests.get(item.getItemId()));
+          } else if (item.isFailed()) {
+            LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+            addDoc(failedDocs, requests.get(item.getItemId()));
+          } else {
+            addDoc(indexedDocs, requests.get(item.getItemId()));
+          }
         }
+        stopIndexing(indexedDocs, failedDocs);
+      } finally {
+        // released once the queue is up-to-date, so that flush() waits for it
+        semaphore.release();
       }
     }
 
     @Override
     public void onFailure(Throwable e) {
-      semaphore.release();
-      LOGGER.error("Fail to execute bulk index request: " + req, e);
+      try {
+        LOGGER.error("Fail to execute bulk index request: " + req, e);
+        List<DocId> failedDocs = new ArrayList<>();
+        req.request().requests().forEach(request -> addDoc(failedDocs, request));
+        stopIndexing(Collections.emptyList(), failedDocs);
+      } finally {
+        semaphore.release();
+      }
+    }
+
+    private void stopIndexing(List<DocId> indexedDocs, List<DocId> failedDocs) {
+      if (recoveryQueue != null) {
+        recoveryQueue.stopIndexing(indexedDocs, failedDocs);
+      }
+    }
+  }
+
+  private static void addDoc(List<DocId> docs, ActionRequest request) {
+    DocId doc = DocId.of(request);
+    if (doc != null) {
+      docs.add(doc);
     }
   }
 }
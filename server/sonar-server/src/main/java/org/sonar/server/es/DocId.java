@@ -0,0 +1,102 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.Objects;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Identifier of an Elasticsearch document, as stored in {@link IndexingQueue}.
+ */
+public final class DocId {
+
+  private final String index;
+  private final String type;
+  private final String id;
+  private final String routing;
+
+  public DocId(String index, String type, String id, @Nullable String routing) {
+    this.index = requireNonNull(index, "Index can't be null");
+    this.type = requireNonNull(type, "Type can't be null");
+    this.id = requireNonNull(id, "Id can't be null");
+    this.routing = routing;
+  }
+
+  public String getIndex() {
+    return index;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  @CheckForNull
+  public String getRouting() {
+    return routing;
+  }
+
+  /**
+   * Document targeted by an index or delete request, {@code null} for any other kind of request.
+   */
+  @CheckForNull
+  static DocId of(ActionRequest request) {
+    if (request instanceof IndexRequest) {
+      IndexRequest indexRequest = (IndexRequest) request;
+      return indexRequest.id() == null ? null : new DocId(indexRequest.index(), indexRequest.type(), indexRequest.id(), indexRequest.routing());
+    }
+    if (request instanceof DeleteRequest) {
+      DeleteRequest deleteRequest = (DeleteRequest) request;
+      return new DocId(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), deleteRequest.routing());
+    }
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    DocId docId = (DocId) o;
+    return index.equals(docId.index) && type.equals(docId.type) && id.equals(docId.id) && Objects.equals(routing, docId.routing);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(index, type, id, routing);
+  }
+
+  @Override
+  public String toString() {
+    return "DocId{index='" + index + "', type='" + type + "', id='" + id + "', routing='" + routing + "'}";
+  }
+}
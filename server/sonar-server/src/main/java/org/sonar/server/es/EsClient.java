@@ -79,9 +79,26 @@ public class EsClient implements Closeable {
   public static final Logger LOGGER = Loggers.get("es");
 
   private final Client nativeClient;
+  private final WriteMirrors writeMirrors = new WriteMirrors();
+  private final RebuildDeletions rebuildDeletions;
 
   public EsClient(Client nativeClient) {
     this.nativeClient = requireNonNull(nativeClient);
+    this.rebuildDeletions = new RebuildDeletions(nativeClient);
+  }
+
+  /**
+   * Indices whose write requests are copied to another index
+   */
+  public WriteMirrors writeMirrors() {
+    return writeMirrors;
+  }
+
+  /**
+   * Deletions to be replayed on the indices which are being rebuilt
+   */
+  public RebuildDeletions rebuildDeletions() {
+    return rebuildDeletions;
   }
 
   public RefreshRequestBuilder prepareRefresh(String... indices) {
@@ -157,15 +174,15 @@ public class EsClient implements Closeable {
   }
 
   public BulkRequestBuilder prepareBulk() {
-    return new ProxyBulkRequestBuilder(nativeClient());
+    return new ProxyBulkRequestBuilder(nativeClient(), writeMirrors, rebuildDeletions);
   }
 
   public DeleteRequestBuilder prepareDelete(String index, String type, String id) {
-    return new ProxyDeleteRequestBuilder(nativeClient(), index).setType(type).setId(id);
+    return new ProxyDeleteRequestBuilder(nativeClient(), writeMirrors, rebuildDeletions, index).setType(type).setId(id);
   }
 
   public IndexRequestBuilder prepareIndex(String index, String type) {
-    return new ProxyIndexRequestBuilder(nativeClient()).setIndex(index).setType(type);
+    return new ProxyIndexRequestBuilder(nativeClient(), writeMirrors).setIndex(index).setType(type);
   }
 
   public ForceMergeRequestBuilder prepareForceMerge(String indexName) {
@@ -19,11 +19,17 @@
  */
 package org.sonar.server.es;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
 import org.elasticsearch.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.settings.Settings;
 import org.picocontainer.Startable;
 import org.sonar.api.server.ServerSide;
@@ -31,7 +37,10 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
 /**
- * Creates/deletes all indices in Elasticsearch during server startup.
+ * Creates all indices in Elasticsearch during server startup. An index is created under a name
+ * suffixed by the hash of its definition and is requested through an alias. When its definition
+ * changes, the new version is created besides the previous one, which is kept until the new version
+ * is populated. See {@link IndexRebuilds}.
  */
 @ServerSide
 public class IndexCreator implements Startable {
@@ -43,27 +52,32 @@ public class IndexCreator implements Startable {
    * when something changed between versions.
    */
   private static final String SETTING_HASH = "sonar_hash";
+  private static final int HASH_SUFFIX_LENGTH = 12;
 
   private final EsClient client;
   private final IndexDefinitions definitions;
+  private final IndexRebuilds rebuilds;
 
-  public IndexCreator(EsClient client, IndexDefinitions definitions) {
+  public IndexCreator(EsClient client, IndexDefinitions definitions, IndexRebuilds rebuilds) {
     this.client = client;
     this.definitions = definitions;
+    this.rebuilds = rebuilds;
   }
 
   @Override
   public void start() {
     // create indices that do not exist or that have a new definition (different mapping, cluster enabled, ...)
     for (IndexDefinitions.Index index : definitions.getIndices().values()) {
-      boolean exists = client.prepareIndicesExist(index.getName()).get().isExists();
-      if (exists && needsToDeleteIndex(index)) {
-        LOGGER.info(String.format("Delete index %s (settings changed)", index.getName()));
-        deleteIndex(index.getName());
-        exists = false;
-      }
-      if (!exists) {
-        createIndex(index);
+      String defHash = new IndexDefinitionHash().of(index);
+      Optional<String> currentIndex = getCurrentIndex(index.getName());
+      if (!currentIndex.isPresent()) {
+        String newIndex = createIndex(index, defHash);
+        client.nativeClient().admin().indices().prepareAliases().addAlias(newIndex, index.getName()).get();
+      } else if (needsToRebuildIndex(currentIndex.get(), defHash)) {
+        LOGGER.info(String.format("Rebuild index %s (settings changed). Index %s is used until rebuild is completed.", index.getName(),
+          currentIndex.get()));
+        String newIndex = createIndex(index, defHash);
+        rebuilds.start(index.getName(), currentIndex.get(), newIndex);
       }
     }
   }
@@ -73,24 +87,51 @@ public class IndexCreator implements Startable {
     // nothing to do
   }
 
-  private void createIndex(IndexDefinitions.Index index) {
-    LOGGER.info(String.format("Create index %s", index.getName()));
+  /**
+   * Physical index requested by the name of the index definition, if it exists. The name is an alias,
+   * excepted for indices created by versions which did not support aliases.
+   */
+  private Optional<String> getCurrentIndex(String name) {
+    if (!client.prepareIndicesExist(name).get().isExists()) {
+      return Optional.empty();
+    }
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases = client.nativeClient().admin().indices().prepareGetAliases(name).get().getAliases();
+    Iterator<String> indices = aliases.keysIt();
+    while (indices.hasNext()) {
+      String index = indices.next();
+      if (!aliases.get(index).isEmpty()) {
+        return Optional.of(index);
+      }
+    }
+    return Optional.of(name);
+  }
+
+  /**
+   * @return the name of the created index
+   */
+  private String createIndex(IndexDefinitions.Index index, String defHash) {
+    String indexName = index.getName() + "_" + defHash.substring(0, HASH_SUFFIX_LENGTH);
+    if (client.prepareIndicesExist(indexName).get().isExists()) {
+      // left by an interrupted rebuild
+      deleteIndex(indexName);
+    }
+    LOGGER.info(String.format("Create index %s", indexName));
     Settings.Builder settings = Settings.builder();
     settings.put(index.getSettings());
-    settings.put(SETTING_HASH, new IndexDefinitionHash().of(index));
+    settings.put(SETTING_HASH, defHash);
     CreateIndexResponse indexResponse = client
-      .prepareCreate(index.getName())
+      .prepareCreate(indexName)
       .setSettings(settings)
       .get();
     if (!indexResponse.isAcknowledged()) {
-      throw new IllegalStateException("Failed to create index " + index.getName());
+      throw new IllegalStateException("Failed to create index " + indexName);
     }
     client.waitForStatus(ClusterHealthStatus.YELLOW);
 
     // create types
     for (Map.Entry<String, IndexDefinitions.IndexType> entry : index.getTypes().entrySet()) {
-      LOGGER.info(String.format("Create type %s/%s", index.getName(), entry.getKey()));
-      PutMappingResponse mappingResponse = client.preparePutMapping(index.getName())
+      LOGGER.info(String.format("Create type %s/%s", indexName, entry.getKey()));
+      PutMappingResponse mappingResponse = client.preparePutMapping(indexName)
         .setType(entry.getKey())
         .setSource(entry.getValue().getAttributes())
         .get();
@@ -99,19 +140,20 @@ public class IndexCreator implements Startable {
       }
     }
     client.waitForStatus(ClusterHealthStatus.YELLOW);
+    return indexName;
   }
 
   private void deleteIndex(String indexName) {
     client.nativeClient().admin().indices().prepareDelete(indexName).get();
   }
 
-  private boolean needsToDeleteIndex(IndexDefinitions.Index index) {
-    boolean toBeDeleted = false;
-    String hash = client.nativeClient().admin().indices().prepareGetSettings(index.getName()).get().getSetting(index.getName(), "index." + SETTING_HASH);
-    if (hash != null) {
-      String defHash = new IndexDefinitionHash().of(index);
-      toBeDeleted = !StringUtils.equals(hash, defHash);
-    }
-    return toBeDeleted;
+  private boolean needsToRebuildIndex(String currentIndex, String defHash) {
+    String hash = getHash(currentIndex);
+    return hash != null && !StringUtils.equals(hash, defHash);
+  }
+
+  @CheckForNull
+  private String getHash(String indexName) {
+    return client.nativeClient().admin().indices().prepareGetSettings(indexName).get().getSetting(indexName, "index." + SETTING_HASH);
   }
 }
@@ -0,0 +1,160 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Settings;
+import org.sonar.api.platform.Server;
+import org.sonar.api.platform.ServerStartHandler;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
+import org.sonar.server.component.es.ProjectMeasuresIndexDefinition;
+import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
+import org.sonar.server.rule.index.RuleIndexDefinition;
+import org.sonar.server.rule.index.RuleIndexer;
+import org.sonar.server.test.index.TestIndexDefinition;
+import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.user.index.UserIndexDefinition;
+import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.view.index.ViewIndexDefinition;
+import org.sonar.server.view.index.ViewIndexer;
+
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Populates the new versions of the indices listed by {@link IndexRebuilds}, then switches their aliases. Population
+ * starts in background once the server is up, after the startup indexing, and is stopped when the server stops.
+ * Previous versions serve requests in the meantime. Once switched, each new version is caught up with the documents
+ * updated since the beginning of its population.
+ */
+public class IndexRebuilder implements ServerStartHandler, Startable {
+
+  private static final Logger LOG = Loggers.get(IndexRebuilder.class);
+
+  private final IndexRebuilds indexRebuilds;
+  private final PermissionIndexer permissionIndexer;
+  private final IssueIndexer issueIndexer;
+  private final ProjectMeasuresIndexer projectMeasuresIndexer;
+  private final TestIndexer testIndexer;
+  private final UserIndexer userIndexer;
+  private final ViewIndexer viewIndexer;
+  private final RuleIndexer ruleIndexer;
+  private final ActiveRuleIndexer activeRuleIndexer;
+  private final Settings settings;
+  private final System2 system2;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(
+    new ThreadFactoryBuilder().setNameFormat("Index rebuild").setDaemon(true).build());
+  private boolean started = false;
+
+  public IndexRebuilder(IndexRebuilds indexRebuilds, PermissionIndexer permissionIndexer, IssueIndexer issueIndexer,
+    ProjectMeasuresIndexer projectMeasuresIndexer, TestIndexer testIndexer, UserIndexer userIndexer, ViewIndexer viewIndexer,
+    RuleIndexer ruleIndexer, ActiveRuleIndexer activeRuleIndexer, Settings settings, System2 system2) {
+    this.indexRebuilds = indexRebuilds;
+    this.permissionIndexer = permissionIndexer;
+    this.issueIndexer = issueIndexer;
+    this.projectMeasuresIndexer = projectMeasuresIndexer;
+    this.testIndexer = testIndexer;
+    this.userIndexer = userIndexer;
+    this.viewIndexer = viewIndexer;
+    this.ruleIndexer = ruleIndexer;
+    this.activeRuleIndexer = activeRuleIndexer;
+    this.settings = settings;
+    this.system2 = system2;
+  }
+
+  @Override
+  public void start() {
+    // rebuild is triggered by onServerStart()
+  }
+
+  @Override
+  public synchronized void onServerStart(Server server) {
+    if (!started && !indexRebuilds.getAliases().isEmpty() && !settings.getBoolean("sonar.internal.es.disableIndexes")) {
+      executor.submit(this::rebuildIndices);
+      started = true;
+    }
+  }
+
+  @Override
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  private void rebuildIndices() {
+    Map<String, Consumer<String>> populations = new HashMap<>();
+    populations.put(IssueIndexDefinition.INDEX, newIndex -> {
+      permissionIndexer.indexAll(IssueIndexDefinition.INDEX, newIndex);
+      issueIndexer.indexAll(newIndex);
+    });
+    populations.put(ProjectMeasuresIndexDefinition.INDEX_PROJECT_MEASURES, newIndex -> {
+      permissionIndexer.indexAll(ProjectMeasuresIndexDefinition.INDEX_PROJECT_MEASURES, newIndex);
+      projectMeasuresIndexer.indexAll(newIndex);
+    });
+    populations.put(TestIndexDefinition.INDEX, testIndexer::indexAll);
+    populations.put(UserIndexDefinition.INDEX, userIndexer::indexAll);
+    populations.put(ViewIndexDefinition.INDEX, viewIndexer::indexAll);
+    populations.put(RuleIndexDefinition.INDEX, newIndex -> {
+      ruleIndexer.indexAll(newIndex);
+      activeRuleIndexer.indexAll(newIndex);
+    });
+
+    Map<String, List<BaseIndexer>> catchUps = new HashMap<>();
+    catchUps.put(IssueIndexDefinition.INDEX, singletonList(issueIndexer));
+    catchUps.put(ProjectMeasuresIndexDefinition.INDEX_PROJECT_MEASURES, singletonList(projectMeasuresIndexer));
+    catchUps.put(TestIndexDefinition.INDEX, singletonList(testIndexer));
+    catchUps.put(UserIndexDefinition.INDEX, singletonList(userIndexer));
+    catchUps.put(ViewIndexDefinition.INDEX, singletonList(viewIndexer));
+    catchUps.put(RuleIndexDefinition.INDEX, asList(ruleIndexer, activeRuleIndexer));
+
+    for (String alias : indexRebuilds.getAliases()) {
+      try {
+        Profiler profiler = Profiler.create(LOG).startInfo(format("Rebuild index %s", alias));
+        long populationStartedAt = system2.now();
+        Consumer<String> population = populations.get(alias);
+        if (population != null) {
+          population.accept(indexRebuilds.getNewIndex(alias));
+        }
+        indexRebuilds.complete(alias);
+        // documents indexed by other processes during the population, for example by the Compute Engine,
+        // were sent to the previous version only
+        catchUps.getOrDefault(alias, emptyList()).forEach(indexer -> indexer.indexSince(populationStartedAt));
+        profiler.stopInfo();
+      } catch (Exception e) {
+        LOG.error(format("Fail to rebuild index %s. Rebuild will be restarted at next startup.", alias), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Indices whose definition changed since previous startup. The new version of such an index is created by
+ * {@link IndexCreator} under another name, while the previous version keeps serving requests through the alias.
+ * Write requests are copied to the new version (see {@link WriteMirrors}) until it's populated, then
+ * the alias is switched. Deletions requested by any process in the meantime are replayed on the new
+ * version, see {@link RebuildDeletions}.
+ */
+@ServerSide
+public class IndexRebuilds {
+
+  private static final Logger LOGGER = Loggers.get(IndexRebuilds.class);
+
+  private final EsClient client;
+  private final Map<String, Rebuild> rebuildsByAlias = new ConcurrentHashMap<>();
+
+  public IndexRebuilds(EsClient client) {
+    this.client = client;
+  }
+
+  /**
+   * @param alias        name of index used by requests
+   * @param currentIndex physical index currently serving requests. It equals {@code alias} when the index
+   *                     was created by a version which did not support aliases.
+   * @param newIndex     physical index to be populated
+   */
+  void start(String alias, String currentIndex, String newIndex) {
+    rebuildsByAlias.put(alias, new Rebuild(currentIndex, newIndex));
+    client.rebuildDeletions().start(alias, currentIndex);
+    client.writeMirrors().add(alias, newIndex);
+    // physical name is used for example when deleting the documents returned by a search
+    client.writeMirrors().add(currentIndex, newIndex);
+  }
+
+  public Set<String> getAliases() {
+    return ImmutableSortedSet.copyOf(rebuildsByAlias.keySet());
+  }
+
+  public boolean isRebuilding(String alias) {
+    return rebuildsByAlias.containsKey(alias);
+  }
+
+  /**
+   * Physical index to be populated with all the documents of the alias
+   */
+  public String getNewIndex(String alias) {
+    Rebuild rebuild = rebuildsByAlias.get(alias);
+    checkState(rebuild != null, "Index %s is not being rebuilt", alias);
+    return rebuild.newIndex;
+  }
+
+  /**
+   * Switches the alias to the new version of index, which must be fully populated, then drops the
+   * previous version. The deletions requested during the population are applied to the new version.
+   */
+  public void complete(String alias) {
+    Rebuild rebuild = rebuildsByAlias.remove(alias);
+    checkState(rebuild != null, "Index %s is not being rebuilt", alias);
+
+    client.prepareRefresh(rebuild.newIndex).get();
+    IndicesAdminClient indices = client.nativeClient().admin().indices();
+    if (rebuild.currentIndex.equals(alias)) {
+      // an alias can't have the name of an existing index. Requests fail until the alias is created.
+      indices.prepareDelete(rebuild.currentIndex).get();
+      indices.prepareAliases().addAlias(rebuild.newIndex, alias).get();
+    } else {
+      // atomic switch
+      indices.prepareAliases().removeAlias(rebuild.currentIndex, alias).addAlias(rebuild.newIndex, alias).get();
+      indices.prepareDelete(rebuild.currentIndex).get();
+    }
+    client.writeMirrors().remove(alias);
+    client.writeMirrors().remove(rebuild.currentIndex);
+    LOGGER.info("Index {} is switched to its new version {}", alias, rebuild.newIndex);
+    client.rebuildDeletions().replay(alias);
+  }
+
+  private static class Rebuild {
+    private final String currentIndex;
+    private final String newIndex;
+
+    private Rebuild(String currentIndex, String newIndex) {
+      this.currentIndex = currentIndex;
+      this.newIndex = newIndex;
+    }
+  }
+}
@@ -19,18 +19,49 @@
  */
 package org.sonar.server.es;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.platform.ServerFileSystem;
 import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.view.index.ViewIndexer;
 
+import static java.lang.String.format;
+
 public class IndexerStartupTask {
 
+  /**
+   * Number of indexes which are populated concurrently
+   */
+  public static final String PROPERTY_CONCURRENT_INDEXES = "sonar.internal.es.startupIndexing.concurrentIndexes";
+  /**
+   * Number of projects which are loaded concurrently, each one by its own db connection, when issues
+   * are fully indexed
+   */
+  public static final String PROPERTY_CONCURRENT_PROJECTS = "sonar.internal.es.startupIndexing.concurrentProjects";
+  /**
+   * Maximum number of issues indexed per second during full indexing. Zero means no limit.
+   */
+  public static final String PROPERTY_MAX_ISSUES_PER_SECOND = "sonar.internal.es.startupIndexing.maxIssuesPerSecond";
+
+  private static final int DEFAULT_CONCURRENT_INDEXES = 3;
+  private static final int DEFAULT_CONCURRENT_PROJECTS = 4;
   private static final Logger LOG = Loggers.get(IndexerStartupTask.class);
 
   private final TestIndexer testIndexer;
@@ -40,6 +71,8 @@ public class IndexerStartupTask {
   private final ViewIndexer viewIndexer;
   private final ProjectMeasuresIndexer projectMeasuresIndexer;
   private final Settings settings;
+  private final ServerFileSystem fs;
+  private final System2 system2;
 
   /**
    * Limitation - {@link org.sonar.server.es.BaseIndexer} are not injected through an array or a collection
@@ -48,7 +81,7 @@ public class IndexerStartupTask {
    */
   public IndexerStartupTask(TestIndexer testIndexer, PermissionIndexer permissionIndexer, IssueIndexer issueIndexer,
                             UserIndexer userIndexer, ViewIndexer viewIndexer, ProjectMeasuresIndexer projectMeasuresIndexer,
-                            Settings settings) {
+                            Settings settings, ServerFileSystem fs, System2 system2) {
     this.testIndexer = testIndexer;
     this.permissionIndexer = permissionIndexer;
     this.issueIndexer = issueIndexer;
@@ -56,6 +89,8 @@ public class IndexerStartupTask {
     this.viewIndexer = viewIndexer;
     this.projectMeasuresIndexer = projectMeasuresIndexer;
     this.settings = settings;
+    this.fs = fs;
+    this.system2 = system2;
   }
 
   public void execute() {
@@ -64,21 +99,53 @@ public class IndexerStartupTask {
       LOG.info("Index authorization");
       permissionIndexer.indexAllIfEmpty();
 
-      LOG.info("Index issues");
-      issueIndexer.index();
-
-      LOG.info("Index tests");
-      testIndexer.index();
+      // other indexes are independent
+      Map<String, Runnable> tasks = new LinkedHashMap<>();
+      tasks.put("issues", () -> issueIndexer.indexOnStartup(newIssuesParallelIndexing()));
+      tasks.put("tests", testIndexer::index);
+      tasks.put("users", userIndexer::index);
+      tasks.put("views", viewIndexer::index);
+      tasks.put("project measures", projectMeasuresIndexer::index);
+      execute(tasks);
+    }
+  }
 
-      LOG.info("Index users");
-      userIndexer.index();
+  private void execute(Map<String, Runnable> tasks) {
+    ExecutorService executor = Executors.newFixedThreadPool(getPositiveInt(PROPERTY_CONCURRENT_INDEXES, DEFAULT_CONCURRENT_INDEXES),
+      new ThreadFactoryBuilder().setNameFormat("Startup indexing %d").setDaemon(true).build());
+    try {
+      Map<String, Future<?>> futures = new LinkedHashMap<>();
+      for (Map.Entry<String, Runnable> task : tasks.entrySet()) {
+        futures.put(task.getKey(), executor.submit(() -> {
+          Profiler profiler = Profiler.create(LOG).startInfo(format("Index %s", task.getKey()));
+          task.getValue().run();
+          profiler.stopInfo();
+        }));
+      }
+      for (Map.Entry<String, Future<?>> future : futures.entrySet()) {
+        try {
+          Uninterruptibles.getUninterruptibly(future.getValue());
+        } catch (ExecutionException e) {
+          throw new IllegalStateException(format("Fail to index %s", future.getKey()), e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 
-      LOG.info("Index views");
-      viewIndexer.index();
+  private ParallelIndexing newIssuesParallelIndexing() {
+    File checkpointFile = new File(fs.getDataDir(), "es-checkpoints/" + IssueIndexDefinition.INDEX);
+    return new ParallelIndexing("issues",
+      getPositiveInt(PROPERTY_CONCURRENT_PROJECTS, DEFAULT_CONCURRENT_PROJECTS),
+      Math.max(0, settings.getInt(PROPERTY_MAX_ISSUES_PER_SECOND)),
+      new IndexingCheckpoint(checkpointFile),
+      system2);
+  }
 
-      LOG.info("Index project measures");
-      projectMeasuresIndexer.index();
-    }
+  private int getPositiveInt(String key, int defaultValue) {
+    int value = settings.getInt(key);
+    return value > 0 ? value : defaultValue;
   }
 
 }
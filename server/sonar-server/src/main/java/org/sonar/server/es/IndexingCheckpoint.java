@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+
+import static java.lang.String.format;
+
+/**
+ * Partitions (for example projects) already indexed by a full indexing which has not completed yet. The
+ * file is kept when indexing is interrupted, so that next indexing resumes from where it stopped.
+ */
+public class IndexingCheckpoint {
+
+  private final File file;
+
+  public IndexingCheckpoint(File file) {
+    this.file = file;
+  }
+
+  public boolean exists() {
+    return file.exists();
+  }
+
+  public Set<String> readDone() {
+    if (!file.exists()) {
+      return new HashSet<>();
+    }
+    try {
+      Set<String> done = new HashSet<>(FileUtils.readLines(file, StandardCharsets.UTF_8));
+      done.remove("");
+      return done;
+    } catch (IOException e) {
+      throw new IllegalStateException(format("Fail to read indexing checkpoint %s", file), e);
+    }
+  }
+
+  /**
+   * Records that the documents of these partitions are indexed. The file is created if needed.
+   */
+  public synchronized void markDone(Collection<String> partitions) {
+    try {
+      FileUtils.writeLines(file, StandardCharsets.UTF_8.name(), partitions, true);
+    } catch (IOException e) {
+      throw new IllegalStateException(format("Fail to write indexing checkpoint %s", file), e);
+    }
+  }
+
+  public void delete() {
+    FileUtils.deleteQuietly(file);
+  }
+
+  @Override
+  public String toString() {
+    return file.getAbsolutePath();
+  }
+}
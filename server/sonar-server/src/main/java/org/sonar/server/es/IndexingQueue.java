@@ -0,0 +1,345 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.ProcessId;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang.StringUtils.defaultIfEmpty;
+import static org.apache.commons.lang.StringUtils.defaultString;
+import static org.sonar.process.ProcessEntryPoint.PROPERTY_PROCESS_KEY;
+
+/**
+ * Durable queue of the Elasticsearch documents that are being indexed or that must be indexed again,
+ * for example because a bulk request failed. Pending documents are journaled in the data directory
+ * and the journal is forced to disk before returning, so documents survive a crash of the server or
+ * of Elasticsearch. The queue is consumed by {@link RecoveryIndexer}.
+ * <p/>
+ * Documents are journaled before being sent to Elasticsearch with {@link #startIndexing(Collection)}.
+ * They are removed when Elasticsearch acknowledges them, see {@link #stopIndexing(Collection, Collection)}.
+ * If the process stops in the meantime, they are recovered at next startup.
+ * <p/>
+ * Each process (web server, compute engine) has its own journal. A line of the journal
+ * is either "+" (document added) or "-" (document removed) followed by the fields of {@link DocId}.
+ * The journal is compacted at startup, each time the queue becomes empty and when it contains
+ * too many removed documents.
+ */
+public class IndexingQueue implements Startable {
+
+  private static final Logger LOGGER = Loggers.get(IndexingQueue.class);
+  static final String DIR_NAME = "es-queue";
+  private static final char SEPARATOR = '\t';
+  private static final String ADDED = "+";
+  private static final String REMOVED = "-";
+  private static final Splitter LINE_SPLITTER = Splitter.on(SEPARATOR);
+  private static final int MIN_LINES_BEFORE_COMPACTION = 100_000;
+
+  private final File journal;
+  private final Map<DocId, Pending> pending = new LinkedHashMap<>();
+  private FileChannel channel;
+  private long journalLines = 0L;
+  private Runnable listener = null;
+
+  public IndexingQueue(ServerFileSystem fs, Settings settings) {
+    this(new File(new File(fs.getDataDir(), DIR_NAME),
+      defaultIfEmpty(settings.getString(PROPERTY_PROCESS_KEY), ProcessId.WEB_SERVER.getKey()) + ".journal"));
+  }
+
+  @VisibleForTesting
+  IndexingQueue(File journal) {
+    this.journal = journal;
+  }
+
+  @Override
+  public synchronized void start() {
+    try {
+      Files.createDirectories(journal.getParentFile().toPath());
+      if (journal.exists()) {
+        load();
+      }
+      compact();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open Elasticsearch indexing queue " + journal, e);
+    }
+    if (!pending.isEmpty()) {
+      LOGGER.info("{} documents are waiting to be indexed in Elasticsearch", pending.size());
+    }
+  }
+
+  @Override
+  public synchronized void stop() {
+    closeChannel();
+  }
+
+  /**
+   * Listener notified when documents can be given to the consumer. It must not block.
+   */
+  synchronized void setListener(@Nullable Runnable listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Adds documents to be indexed by the consumer of the queue. Documents already in the queue are ignored.
+   */
+  public void enqueue(Collection<DocId> docs) {
+    synchronized (this) {
+      StringBuilder lines = new StringBuilder();
+      for (DocId doc : docs) {
+        add(lines, doc).toRecover = true;
+      }
+      write(lines);
+    }
+    notifyListener(docs);
+  }
+
+  /**
+   * Journals documents that are about to be indexed by the caller, for example before sending a bulk
+   * request or before committing the db changes that they reflect. They are not given to the consumer
+   * until {@link #stopIndexing(Collection, Collection)} is called, unless the process stops before.
+   */
+  public synchronized void startIndexing(Collection<DocId> docs) {
+    StringBuilder lines = new StringBuilder();
+    for (DocId doc : docs) {
+      add(lines, doc).inProgress++;
+    }
+    write(lines);
+  }
+
+  /**
+   * Ends the indexing of documents started with {@link #startIndexing(Collection)}. Indexed documents are removed
+   * from the queue, unless they are being indexed again. The others are given to the consumer of the queue.
+   */
+  public void stopIndexing(Collection<DocId> indexed, Collection<DocId> notIndexed) {
+    synchronized (this) {
+      StringBuilder lines = new StringBuilder();
+      for (DocId doc : indexed) {
+        Pending p = pending.get(doc);
+        if (p != null) {
+          p.inProgress = Math.max(0, p.inProgress - 1);
+          removeIfDone(lines, doc, p);
+        }
+      }
+      for (DocId doc : notIndexed) {
+        Pending p = pending.get(doc);
+        if (p != null) {
+          p.inProgress = Math.max(0, p.inProgress - 1);
+          p.toRecover = true;
+        }
+      }
+      writeOrCompact(lines);
+    }
+    notifyListener(notIndexed);
+  }
+
+  /**
+   * The oldest documents to be indexed by the consumer, which are not removed
+   */
+  public synchronized List<DocId> peek(int max) {
+    List<DocId> result = new ArrayList<>(Math.min(max, pending.size()));
+    Iterator<Map.Entry<DocId, Pending>> it = pending.entrySet().iterator();
+    while (it.hasNext() && result.size() < max) {
+      Map.Entry<DocId, Pending> entry = it.next();
+      if (entry.getValue().toRecover) {
+        result.add(entry.getKey());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes documents, generally because they have been successfully indexed by the consumer. Documents which
+   * indexing is in progress are kept until it's stopped.
+   */
+  public synchronized void remove(Collection<DocId> docs) {
+    StringBuilder lines = new StringBuilder();
+    for (DocId doc : docs) {
+      Pending p = pending.get(doc);
+      if (p != null) {
+        p.toRecover = false;
+        removeIfDone(lines, doc, p);
+      }
+    }
+    writeOrCompact(lines);
+  }
+
+  /**
+   * Number of documents waiting to be indexed
+   */
+  public synchronized int size() {
+    return pending.size();
+  }
+
+  private Pending add(StringBuilder lines, DocId doc) {
+    return pending.computeIfAbsent(doc, d -> {
+      appendLine(lines, ADDED, d);
+      return new Pending();
+    });
+  }
+
+  private void removeIfDone(StringBuilder lines, DocId doc, Pending p) {
+    if (p.inProgress == 0 && !p.toRecover) {
+      pending.remove(doc);
+      appendLine(lines, REMOVED, doc);
+    }
+  }
+
+  private void notifyListener(Collection<DocId> docs) {
+    Runnable l;
+    synchronized (this) {
+      l = listener;
+    }
+    if (l != null && !docs.isEmpty()) {
+      l.run();
+    }
+  }
+
+  private void load() throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(journal.toPath(), UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        List<String> fields = LINE_SPLITTER.splitToList(line);
+        if (fields.size() != 5) {
+          // line partially written when process was killed
+          LOGGER.warn("Ignore corrupted line of Elasticsearch indexing queue: {}", line);
+          continue;
+        }
+        DocId doc = new DocId(fields.get(1), fields.get(2), fields.get(3), defaultIfEmpty(fields.get(4), null));
+        if (ADDED.equals(fields.get(0))) {
+          // indexing of the documents which were in progress has been interrupted
+          pending.computeIfAbsent(doc, d -> new Pending()).toRecover = true;
+        } else {
+          pending.remove(doc);
+        }
+      }
+    }
+  }
+
+  private void writeOrCompact(StringBuilder lines) {
+    if (pending.isEmpty() || journalLines > MIN_LINES_BEFORE_COMPACTION + 2L * pending.size()) {
+      try {
+        compact();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to compact Elasticsearch indexing queue " + journal, e);
+      }
+    } else {
+      write(lines);
+    }
+  }
+
+  /**
+   * Rewrites the journal with only the pending documents
+   */
+  private void compact() throws IOException {
+    closeChannel();
+    StringBuilder lines = new StringBuilder();
+    pending.keySet().forEach(doc -> appendLine(lines, ADDED, doc));
+    File tmp = new File(journal.getParentFile(), journal.getName() + ".tmp");
+    try (FileChannel tmpChannel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(tmpChannel, lines);
+    }
+    Files.move(tmp.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    channel = FileChannel.open(journal.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    journalLines = pending.size();
+  }
+
+  private void write(StringBuilder lines) {
+    if (lines.length() == 0) {
+      return;
+    }
+    try {
+      journalLines += writeFully(channel, lines);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write to Elasticsearch indexing queue " + journal, e);
+    }
+  }
+
+  /**
+   * Writes lines and forces them to disk.
+   *
+   * @return the number of written lines
+   */
+  private static int writeFully(FileChannel target, StringBuilder lines) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(UTF_8));
+    while (buffer.hasRemaining()) {
+      target.write(buffer);
+    }
+    target.force(false);
+    int count = 0;
+    for (int i = 0; i < lines.length(); i++) {
+      if (lines.charAt(i) == '\n') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void appendLine(StringBuilder lines, String operation, DocId doc) {
+    lines.append(operation)
+      .append(SEPARATOR).append(doc.getIndex())
+      .append(SEPARATOR).append(doc.getType())
+      .append(SEPARATOR).append(doc.getId())
+      .append(SEPARATOR).append(defaultString(doc.getRouting()))
+      .append('\n');
+  }
+
+  private void closeChannel() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOGGER.warn("Fail to close Elasticsearch indexing queue " + journal, e);
+      }
+      channel = null;
+    }
+  }
+
+  private static class Pending {
+    /**
+     * Number of indexing requests of the document which are not acknowledged yet
+     */
+    private int inProgress = 0;
+    /**
+     * Whether the document must be indexed by the consumer of the queue
+     */
+    private boolean toRecover = false;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.ActionRequest;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Full indexing of a large table, partitioned for example by project. Partitions are loaded
+ * concurrently, each one by its own db connection, and their documents are sent to a single
+ * {@link BulkIndexer}.
+ * <ul>
+ *   <li>number of concurrent partitions and number of documents per second can be limited</li>
+ *   <li>progress and estimated remaining time are logged periodically</li>
+ *   <li>indexed partitions are recorded in an {@link IndexingCheckpoint} once acknowledged by Elasticsearch,
+ *   so an interrupted indexing can be resumed</li>
+ * </ul>
+ */
+public class ParallelIndexing {
+
+  private static final Logger LOG = Loggers.get(ParallelIndexing.class);
+  private static final int CHECKPOINT_MAX_PARTITIONS = 100;
+  private static final long CHECKPOINT_PERIOD_MS = TimeUnit.MINUTES.toMillis(1);
+  private static final long PROGRESS_PERIOD_MS = TimeUnit.SECONDS.toMillis(30);
+
+  private final String label;
+  private final int threads;
+  @Nullable
+  private final RateLimiter rateLimiter;
+  private final IndexingCheckpoint checkpoint;
+  private final System2 system2;
+
+  /**
+   * @param label           used in logs, for example "issues"
+   * @param threads         number of partitions indexed concurrently
+   * @param maxDocsPerSecond throttling of indexing, or 0 if unlimited
+   */
+  public ParallelIndexing(String label, int threads, int maxDocsPerSecond, IndexingCheckpoint checkpoint, System2 system2) {
+    checkArgument(threads > 0, "Number of threads must be positive: %s", threads);
+    checkArgument(maxDocsPerSecond >= 0, "Maximum number of documents per second must be positive or zero: %s", maxDocsPerSecond);
+    this.label = label;
+    this.threads = threads;
+    this.rateLimiter = maxDocsPerSecond > 0 ? RateLimiter.create(maxDocsPerSecond) : null;
+    this.checkpoint = checkpoint;
+    this.system2 = system2;
+  }
+
+  /**
+   * Whether a previous indexing has been interrupted. In this case the index is incomplete.
+   */
+  public boolean isInterrupted() {
+    return checkpoint.exists();
+  }
+
+  /**
+   * Forgets the partitions indexed by a previous interrupted indexing, for example because the index is empty.
+   */
+  public void reset() {
+    checkpoint.delete();
+  }
+
+  /**
+   * Indexes the partitions which are not recorded in the checkpoint yet. The bulk indexer is started and stopped
+   * by this method. The checkpoint is deleted on success.
+   *
+   * @return the greatest date returned by the tasks
+   */
+  public long index(BulkIndexer bulk, Collection<String> partitions, PartitionTask task) {
+    Set<String> done = checkpoint.readDone();
+    List<String> todo = new ArrayList<>();
+    partitions.stream().filter(partition -> !done.contains(partition)).forEach(todo::add);
+    if (!done.isEmpty()) {
+      LOG.info("Resume indexing of {}: {} partitions already indexed, {} remaining", label, done.size(), todo.size());
+    }
+    // created before indexing, so that an interruption is detected
+    checkpoint.markDone(new ArrayList<>());
+
+    Progress progress = new Progress(bulk, todo.size());
+    Consumer<ActionRequest> sink = request -> {
+      if (rateLimiter != null) {
+        rateLimiter.acquire();
+      }
+      bulk.add(request);
+      progress.documents.incrementAndGet();
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("Index " + label + " %d").setDaemon(true).build());
+    bulk.start();
+    long maxDate = 0L;
+    try {
+      List<Future<Long>> futures = new ArrayList<>();
+      for (String partition : todo) {
+        futures.add(executor.submit(() -> {
+          long partitionMaxDate = task.index(partition, sink);
+          progress.onPartitionDone(partition);
+          return partitionMaxDate;
+        }));
+      }
+      for (Future<Long> future : futures) {
+        maxDate = Math.max(maxDate, Uninterruptibles.getUninterruptibly(future));
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(format("Fail to index %s. Indexing will be resumed at next startup.", label), e.getCause());
+    } finally {
+      shutdown(executor);
+      // restores index settings and acknowledges the partitions indexed so far
+      bulk.stop();
+      progress.checkpoint();
+    }
+    checkpoint.delete();
+    progress.logEnd();
+    return maxDate;
+  }
+
+  private static void shutdown(ExecutorService executor) {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @FunctionalInterface
+  public interface PartitionTask {
+    /**
+     * Sends the index requests of the documents of the partition to {@code sink}. This method is
+     * called concurrently.
+     *
+     * @return the greatest technical date of the documents, 0 if no documents
+     */
+    long index(String partition, Consumer<ActionRequest> sink);
+  }
+
+  private class Progress {
+    private final BulkIndexer bulk;
+    private final int total;
+    private final long startedAt;
+    private final AtomicLong documents = new AtomicLong();
+    private final List<String> notCheckpointed = new ArrayList<>();
+    private int done = 0;
+    private long lastCheckpointAt;
+    private long lastLogAt;
+
+    Progress(BulkIndexer bulk, int total) {
+      this.bulk = bulk;
+      this.total = total;
+      this.startedAt = system2.now();
+      this.lastCheckpointAt = startedAt;
+      this.lastLogAt = startedAt;
+    }
+
+    synchronized void onPartitionDone(String partition) {
+      done++;
+      notCheckpointed.add(partition);
+      long now = system2.now();
+      if (notCheckpointed.size() >= CHECKPOINT_MAX_PARTITIONS || now - lastCheckpointAt >= CHECKPOINT_PERIOD_MS) {
+        // partitions are recorded only when their documents are acknowledged
+        bulk.flush();
+        checkpoint();
+        lastCheckpointAt = now;
+      }
+      if (now - lastLogAt >= PROGRESS_PERIOD_MS) {
+        lastLogAt = now;
+        long elapsed = now - startedAt;
+        long remainingMs = elapsed * (total - done) / done;
+        LOG.info("Index {}: {}/{} partitions, {} documents, about {} min remaining", label, done, total, documents.get(),
+          TimeUnit.MILLISECONDS.toMinutes(remainingMs) + 1);
+      }
+    }
+
+    synchronized void checkpoint() {
+      checkpoint.markDone(notCheckpointed);
+      notCheckpointed.clear();
+    }
+
+    void logEnd() {
+      LOG.info("Index {}: {} partitions, {} documents indexed in {} s", label, total, documents.get(),
+        TimeUnit.MILLISECONDS.toSeconds(system2.now() - startedAt));
+    }
+  }
+}
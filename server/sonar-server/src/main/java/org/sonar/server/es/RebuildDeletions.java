@@ -0,0 +1,233 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+
+/**
+ * Deletions of documents of the indices being rebuilt, see {@link IndexRebuilds}. A deletion can't simply be copied
+ * to the new version of an index while it's populated, because the population may add the document again afterwards.
+ * Deletions are recorded instead, then replayed once the alias is switched to the new version.
+ * <p/>
+ * Records are stored in the Elasticsearch index {@link #INDEX}, so that the deletions requested by all the processes
+ * of all the nodes (web servers, compute engines) are recorded, and not only those of the process which rebuilds.
+ */
+public class RebuildDeletions {
+
+  private static final Logger LOGGER = Loggers.get(RebuildDeletions.class);
+
+  static final String INDEX = "rebuilds";
+  static final String TYPE_REBUILD = "rebuild";
+  static final String TYPE_DELETION = "deletion";
+  private static final String FIELD_ALIAS = "alias";
+  private static final String FIELD_CURRENT_INDEX = "currentIndex";
+  private static final String FIELD_TYPE = "type";
+  private static final String FIELD_ID = "id";
+  private static final String FIELD_ROUTING = "routing";
+  private static final Map<String, Object> KEYWORD = ImmutableMap.of("type", "string", "index", "not_analyzed");
+  /**
+   * Other processes discover a started rebuild within this delay. It's far shorter than the startup of
+   * the web server, after which the population of the new versions begins.
+   */
+  private static final long REBUILDS_CACHE_TTL_MS = 1_000L;
+
+  private final Client client;
+  // alias of each index being rebuilt, keyed by alias and by name of the physical index in use
+  private Map<String, String> aliasesByIndex = Collections.emptyMap();
+  private long loadedAt = -1L;
+
+  public RebuildDeletions(Client client) {
+    this.client = client;
+  }
+
+  /**
+   * Starts recording the deletions of documents of {@code alias}, which physical index is {@code currentIndex}.
+   * The deletions recorded by a previous interrupted rebuild are dropped.
+   */
+  void start(String alias, String currentIndex) {
+    createIndexIfMissing();
+    deleteRecords(termQuery(FIELD_ALIAS, alias));
+    client.prepareIndex(INDEX, TYPE_REBUILD, alias)
+      .setSource(ImmutableMap.of(FIELD_ALIAS, alias, FIELD_CURRENT_INDEX, currentIndex))
+      .setRefresh(true)
+      .get();
+    invalidateCache();
+  }
+
+  /**
+   * Records the given deletions which relate to an index being rebuilt. It must be called before the deletions are sent.
+   */
+  public void record(Collection<DeleteRequest> deletions) {
+    if (deletions.isEmpty()) {
+      return;
+    }
+    Map<String, String> aliases = getAliasesByIndex();
+    if (aliases.isEmpty()) {
+      return;
+    }
+    BulkRequestBuilder bulk = client.prepareBulk();
+    for (DeleteRequest deletion : deletions) {
+      String alias = aliases.get(deletion.index());
+      if (alias != null) {
+        Map<String, Object> source = new HashMap<>();
+        source.put(FIELD_ALIAS, alias);
+        source.put(FIELD_TYPE, deletion.type());
+        source.put(FIELD_ID, deletion.id());
+        if (deletion.routing() != null) {
+          source.put(FIELD_ROUTING, deletion.routing());
+        }
+        // same id for the deletions of the same document
+        bulk.add(client.prepareIndex(INDEX, TYPE_DELETION, alias + '/' + deletion.type() + '/' + deletion.id()).setSource(source));
+      }
+    }
+    if (bulk.numberOfActions() > 0) {
+      BulkResponse response = bulk.get();
+      if (response.hasFailures()) {
+        throw new IllegalStateException("Fail to record deletions of documents of rebuilt indices: " + response.buildFailureMessage());
+      }
+    }
+  }
+
+  /**
+   * Deletes from {@code alias} the documents recorded since the start of its rebuild, then stops recording. The alias
+   * must already be switched to the new version of index.
+   */
+  void replay(String alias) {
+    if (!indexExists()) {
+      return;
+    }
+    client.admin().indices().prepareRefresh(INDEX).get();
+    BulkRequestBuilder bulk = client.prepareBulk();
+    AtomicInteger replayed = new AtomicInteger();
+    scroll(termQuery(FIELD_ALIAS, alias), hit -> {
+      if (TYPE_DELETION.equals(hit.type())) {
+        replayed.incrementAndGet();
+        Map<String, Object> source = hit.getSource();
+        bulk.add(client.prepareDelete(alias, (String) source.get(FIELD_TYPE), (String) source.get(FIELD_ID))
+          .setRouting((String) source.get(FIELD_ROUTING)));
+      }
+      bulk.add(client.prepareDelete(INDEX, hit.type(), hit.getId()));
+    });
+    if (bulk.numberOfActions() > 0) {
+      BulkResponse response = bulk.setRefresh(true).get();
+      if (response.hasFailures()) {
+        throw new IllegalStateException("Fail to replay deletions of documents of index " + alias + ": " + response.buildFailureMessage());
+      }
+      LOGGER.info("Index {}: {} deletions requested during rebuild are replayed", alias, replayed.get());
+    }
+    invalidateCache();
+  }
+
+  private synchronized Map<String, String> getAliasesByIndex() {
+    long now = System.currentTimeMillis();
+    if (loadedAt < 0L || now - loadedAt >= REBUILDS_CACHE_TTL_MS) {
+      aliasesByIndex = loadAliasesByIndex();
+      loadedAt = now;
+    }
+    return aliasesByIndex;
+  }
+
+  private synchronized void invalidateCache() {
+    loadedAt = -1L;
+  }
+
+  private Map<String, String> loadAliasesByIndex() {
+    if (!indexExists()) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> result = new HashMap<>();
+    SearchResponse response = client.prepareSearch(INDEX).setTypes(TYPE_REBUILD).setSize(100).get();
+    for (SearchHit hit : response.getHits().getHits()) {
+      String alias = (String) hit.getSource().get(FIELD_ALIAS);
+      result.put(alias, alias);
+      // physical name is used for example when deleting the documents returned by a search
+      result.put((String) hit.getSource().get(FIELD_CURRENT_INDEX), alias);
+    }
+    return result;
+  }
+
+  private boolean indexExists() {
+    return client.admin().indices().prepareExists(INDEX).get().isExists();
+  }
+
+  private void createIndexIfMissing() {
+    if (indexExists()) {
+      return;
+    }
+    client.admin().indices().prepareCreate(INDEX)
+      .setSettings(Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1))
+      .addMapping(TYPE_REBUILD, ImmutableMap.of("dynamic", "strict", "properties",
+        ImmutableMap.of(FIELD_ALIAS, KEYWORD, FIELD_CURRENT_INDEX, KEYWORD)))
+      .addMapping(TYPE_DELETION, ImmutableMap.of("dynamic", "strict", "properties",
+        ImmutableMap.of(FIELD_ALIAS, KEYWORD, FIELD_TYPE, KEYWORD, FIELD_ID, KEYWORD, FIELD_ROUTING, KEYWORD)))
+      .get();
+    client.admin().cluster().prepareHealth(INDEX).setWaitForYellowStatus().get();
+  }
+
+  private void deleteRecords(QueryBuilder query) {
+    BulkRequestBuilder bulk = client.prepareBulk();
+    scroll(query, hit -> bulk.add(client.prepareDelete(INDEX, hit.type(), hit.getId())));
+    if (bulk.numberOfActions() > 0) {
+      bulk.setRefresh(true).get();
+    }
+  }
+
+  private void scroll(QueryBuilder query, Consumer<SearchHit> consumer) {
+    SearchResponse response = client.prepareSearch(INDEX)
+      .setQuery(query)
+      .addSort("_doc", SortOrder.ASC)
+      .setScroll(TimeValue.timeValueMinutes(5))
+      .setSize(100)
+      .get();
+    while (true) {
+      SearchHit[] hits = response.getHits().getHits();
+      for (SearchHit hit : hits) {
+        consumer.accept(hit);
+      }
+      String scrollId = response.getScrollId();
+      if (hits.length == 0) {
+        client.prepareClearScroll().addScrollId(scrollId).get();
+        break;
+      }
+      response = client.prepareSearchScroll(scrollId).setScroll(TimeValue.timeValueMinutes(5)).get();
+    }
+  }
+}
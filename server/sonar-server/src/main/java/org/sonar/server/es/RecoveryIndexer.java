@@ -0,0 +1,194 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Background consumer of {@link IndexingQueue}. Pending documents are given in batches
+ * to the {@link ResilientIndexer} of their index. Consumer is woken up as soon as documents
+ * are added to the queue. When some documents can't be indexed, for example because
+ * Elasticsearch is not reachable, the delay before next attempt is doubled, up to
+ * {@link #MAX_DELAY_PROPERTY}.
+ */
+public class RecoveryIndexer implements Startable {
+
+  private static final Logger LOGGER = Loggers.get(RecoveryIndexer.class);
+
+  static final String DELAY_PROPERTY = "sonar.search.recovery.delayInMs";
+  static final String MAX_DELAY_PROPERTY = "sonar.search.recovery.maxDelayInMs";
+  private static final long DEFAULT_DELAY_IN_MS = 5_000L;
+  private static final long DEFAULT_MAX_DELAY_IN_MS = 5L * 60 * 1_000;
+  private static final int BATCH_SIZE = 1_000;
+
+  private final IndexingQueue queue;
+  private final Map<String, ResilientIndexer> indexersByIndex = new HashMap<>();
+  private final long delayInMs;
+  private final long maxDelayInMs;
+  private final ScheduledExecutorService executor;
+  private volatile long currentDelayInMs;
+  // fields below are guarded by this
+  private ScheduledFuture<?> nextRun = null;
+  private boolean running = false;
+  private boolean wakeUpRequested = false;
+
+  public RecoveryIndexer(IndexingQueue queue, Settings settings, ResilientIndexer[] indexers) {
+    this.queue = queue;
+    for (ResilientIndexer indexer : indexers) {
+      indexersByIndex.put(indexer.getIndexName(), indexer);
+    }
+    this.delayInMs = settings.hasKey(DELAY_PROPERTY) ? settings.getLong(DELAY_PROPERTY) : DEFAULT_DELAY_IN_MS;
+    this.maxDelayInMs = Math.max(delayInMs, settings.hasKey(MAX_DELAY_PROPERTY) ? settings.getLong(MAX_DELAY_PROPERTY) : DEFAULT_MAX_DELAY_IN_MS);
+    this.currentDelayInMs = delayInMs;
+    this.executor = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat("es-recovery-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  public RecoveryIndexer(IndexingQueue queue, Settings settings) {
+    this(queue, settings, new ResilientIndexer[0]);
+  }
+
+  @Override
+  public void start() {
+    queue.setListener(this::wakeUp);
+    scheduleNext(currentDelayInMs);
+  }
+
+  @Override
+  public void stop() {
+    queue.setListener(null);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Processes the queue without waiting for the delay, unless previous attempt failed
+   */
+  private synchronized void wakeUp() {
+    if (currentDelayInMs > delayInMs) {
+      // back off, Elasticsearch is probably not available
+      return;
+    }
+    if (running) {
+      wakeUpRequested = true;
+    } else if (nextRun != null && nextRun.cancel(false)) {
+      scheduleNext(0L);
+    }
+  }
+
+  /**
+   * Number of documents waiting to be indexed
+   */
+  public int getBacklogSize() {
+    return queue.size();
+  }
+
+  @VisibleForTesting
+  long getCurrentDelayInMs() {
+    return currentDelayInMs;
+  }
+
+  private synchronized void scheduleNext(long delay) {
+    try {
+      nextRun = executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // executor is shut down
+    }
+  }
+
+  private void run() {
+    synchronized (this) {
+      running = true;
+      wakeUpRequested = false;
+    }
+    try {
+      recover();
+    } catch (Exception e) {
+      LOGGER.error("Fail to recover Elasticsearch documents", e);
+      backoff();
+    } finally {
+      synchronized (this) {
+        running = false;
+        if (!executor.isShutdown()) {
+          scheduleNext(wakeUpRequested && currentDelayInMs <= delayInMs ? 0L : currentDelayInMs);
+        }
+      }
+    }
+  }
+
+  /**
+   * Processes a batch of pending documents.
+   */
+  @VisibleForTesting
+  void recover() {
+    List<DocId> batch = queue.peek(BATCH_SIZE);
+    if (batch.isEmpty()) {
+      currentDelayInMs = delayInMs;
+      return;
+    }
+
+    Map<String, List<DocId>> docsByIndex = new LinkedHashMap<>();
+    batch.forEach(doc -> docsByIndex.computeIfAbsent(doc.getIndex(), i -> new ArrayList<>()).add(doc));
+    int failures = 0;
+    for (Map.Entry<String, List<DocId>> entry : docsByIndex.entrySet()) {
+      ResilientIndexer indexer = indexersByIndex.get(entry.getKey());
+      if (indexer == null) {
+        LOGGER.warn("Drop {} documents of index [{}] which does not support recovery", entry.getValue().size(), entry.getKey());
+        queue.remove(entry.getValue());
+        continue;
+      }
+      Set<DocId> failed = new HashSet<>(indexer.recover(entry.getValue()));
+      queue.remove(entry.getValue().stream().filter(doc -> !failed.contains(doc)).collect(toList()));
+      failures += failed.size();
+    }
+
+    LOGGER.info("Elasticsearch recovery - {} documents processed [{} failures], {} remaining", batch.size(), failures, queue.size());
+    if (failures == 0) {
+      currentDelayInMs = queue.peek(1).isEmpty() ? delayInMs : 0L;
+    } else {
+      backoff();
+    }
+  }
+
+  private void backoff() {
+    currentDelayInMs = Math.min(maxDelayInMs, Math.max(delayInMs, currentDelayInMs * 2));
+  }
+}
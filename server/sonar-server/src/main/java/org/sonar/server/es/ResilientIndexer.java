@@ -0,0 +1,41 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.Collection;
+
+/**
+ * Indexer able to rebuild from database the documents that could not be
+ * sent to Elasticsearch. See {@link RecoveryIndexer}.
+ */
+public interface ResilientIndexer {
+
+  /**
+   * Name of the index which documents are recovered by this indexer
+   */
+  String getIndexName();
+
+  /**
+   * Index again (or delete if they do not exist anymore in db) the given documents.
+   *
+   * @return the documents that still failed and must be retried later. Never null.
+   */
+  Collection<DocId> recover(Collection<DocId> docs);
+}
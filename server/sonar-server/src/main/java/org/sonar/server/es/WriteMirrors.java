@@ -0,0 +1,94 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+/**
+ * Indices whose write requests (index, update and delete) are also sent to another index. It's used to
+ * keep up-to-date an index which is being rebuilt while its previous version is still in use.
+ * See {@link IndexRebuilds}.
+ */
+public class WriteMirrors {
+
+  private final Map<String, String> mirrorsByIndex = new ConcurrentHashMap<>();
+
+  /**
+   * @param index       name of index or alias, as used in requests
+   * @param mirrorIndex name of the index receiving the copies of requests
+   */
+  public void add(String index, String mirrorIndex) {
+    mirrorsByIndex.put(index, mirrorIndex);
+  }
+
+  public void remove(String index) {
+    mirrorsByIndex.remove(index);
+  }
+
+  public boolean isMirrored(String index) {
+    return mirrorsByIndex.containsKey(index);
+  }
+
+  /**
+   * Copy of the request targeting the mirror of its index, if any.
+   */
+  public Optional<ActionRequest> mirror(ActionRequest request) {
+    if (request instanceof IndexRequest) {
+      IndexRequest indexRequest = (IndexRequest) request;
+      return getMirrorIndex(indexRequest.index()).map(mirrorIndex -> copy(indexRequest, new IndexRequest()).index(mirrorIndex));
+    }
+    if (request instanceof DeleteRequest) {
+      DeleteRequest deleteRequest = (DeleteRequest) request;
+      return getMirrorIndex(deleteRequest.index()).map(mirrorIndex -> copy(deleteRequest, new DeleteRequest()).index(mirrorIndex));
+    }
+    if (request instanceof UpdateRequest) {
+      UpdateRequest updateRequest = (UpdateRequest) request;
+      return getMirrorIndex(updateRequest.index()).map(mirrorIndex -> copy(updateRequest, new UpdateRequest()).index(mirrorIndex));
+    }
+    return Optional.empty();
+  }
+
+  private Optional<String> getMirrorIndex(@Nullable String index) {
+    if (index == null || mirrorsByIndex.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(mirrorsByIndex.get(index));
+  }
+
+  private static <R extends ActionRequest> R copy(R request, R copy) {
+    try (BytesStreamOutput output = new BytesStreamOutput()) {
+      request.writeTo(output);
+      copy.readFrom(StreamInput.wrap(output.bytes()));
+      return copy;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to copy request " + request, e);
+    }
+  }
+}
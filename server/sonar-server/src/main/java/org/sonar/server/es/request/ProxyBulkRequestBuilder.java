@@ -21,10 +21,13 @@ package org.sonar.server.es.request;
 
 import com.google.common.collect.LinkedHashMultiset;
 import com.google.common.collect.Multiset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.bulk.BulkAction;
+import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
@@ -34,11 +37,18 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.RebuildDeletions;
+import org.sonar.server.es.WriteMirrors;
 
 public class ProxyBulkRequestBuilder extends BulkRequestBuilder {
 
-  public ProxyBulkRequestBuilder(Client client) {
+  private final WriteMirrors writeMirrors;
+  private final RebuildDeletions rebuildDeletions;
+
+  public ProxyBulkRequestBuilder(Client client, WriteMirrors writeMirrors, RebuildDeletions rebuildDeletions) {
     super(client, BulkAction.INSTANCE);
+    this.writeMirrors = writeMirrors;
+    this.rebuildDeletions = rebuildDeletions;
   }
 
   @Override
@@ -55,6 +65,20 @@ public class ProxyBulkRequestBuilder extends BulkRequestBuilder {
     }
   }
 
+  @Override
+  protected BulkRequest beforeExecute(BulkRequest bulkRequest) {
+    // synchronous and asynchronous executions
+    List<DeleteRequest> deletions = new ArrayList<>();
+    for (ActionRequest<?> item : new ArrayList<>(bulkRequest.requests())) {
+      if (item instanceof DeleteRequest) {
+        deletions.add((DeleteRequest) item);
+      }
+      writeMirrors.mirror(item).ifPresent(bulkRequest::add);
+    }
+    rebuildDeletions.record(deletions);
+    return bulkRequest;
+  }
+
   @Override
   public BulkResponse get(TimeValue timeout) {
     throw unsupported();
@@ -19,26 +19,43 @@
  */
 package org.sonar.server.es.request;
 
+import java.util.Collections;
+import java.util.Optional;
+import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.delete.DeleteAction;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.RebuildDeletions;
+import org.sonar.server.es.WriteMirrors;
 
 public class ProxyDeleteRequestBuilder extends DeleteRequestBuilder {
 
-  public ProxyDeleteRequestBuilder(Client client, String index) {
+  private final WriteMirrors writeMirrors;
+  private final RebuildDeletions rebuildDeletions;
+
+  public ProxyDeleteRequestBuilder(Client client, WriteMirrors writeMirrors, RebuildDeletions rebuildDeletions, String index) {
     super(client, DeleteAction.INSTANCE, index);
+    this.writeMirrors = writeMirrors;
+    this.rebuildDeletions = rebuildDeletions;
   }
 
   @Override
   public DeleteResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
     try {
-      return super.execute().actionGet();
+      rebuildDeletions.record(Collections.singletonList(request));
+      DeleteResponse response = super.execute().actionGet();
+      Optional<ActionRequest> mirror = writeMirrors.mirror(request);
+      if (mirror.isPresent()) {
+        client.execute(DeleteAction.INSTANCE, (DeleteRequest) mirror.get()).actionGet();
+      }
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
@@ -19,26 +19,38 @@
  */
 package org.sonar.server.es.request;
 
+import java.util.Optional;
+import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.index.IndexAction;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.WriteMirrors;
 
 public class ProxyIndexRequestBuilder extends IndexRequestBuilder {
 
-  public ProxyIndexRequestBuilder(Client client) {
+  private final WriteMirrors writeMirrors;
+
+  public ProxyIndexRequestBuilder(Client client, WriteMirrors writeMirrors) {
     super(client, IndexAction.INSTANCE);
+    this.writeMirrors = writeMirrors;
   }
 
   @Override
   public IndexResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
     try {
-      return super.execute().actionGet();
+      IndexResponse response = super.execute().actionGet();
+      Optional<ActionRequest> mirror = writeMirrors.mirror(request);
+      if (mirror.isPresent()) {
+        client.execute(IndexAction.INSTANCE, (IndexRequest) mirror.get()).actionGet();
+      }
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
@@ -77,15 +77,35 @@ public abstract class IssueStorage {
   }
 
   private void doSave(DbSession session, Iterable<DefaultIssue> issues) {
-    // Batch session can not be used for updates. It does not return the number of updated rows,
-    // required for detecting conflicts.
-    long now = System.currentTimeMillis();
-    List<DefaultIssue> toBeUpdated = batchInsertAndReturnIssuesToUpdate(session, issues, now);
-    update(toBeUpdated, now);
-    doAfterSave();
+    List<DefaultIssue> changedIssues = newArrayList();
+    for (DefaultIssue issue : issues) {
+      if (issue.isNew() || issue.isChanged()) {
+        changedIssues.add(issue);
+      }
+    }
+    doBeforeSave(changedIssues);
+    try {
+      // Batch session can not be used for updates. It does not return the number of updated rows,
+      // required for detecting conflicts.
+      long now = System.currentTimeMillis();
+      List<DefaultIssue> toBeUpdated = batchInsertAndReturnIssuesToUpdate(session, changedIssues, now);
+      update(toBeUpdated, now);
+    } finally {
+      doAfterSave(changedIssues);
+    }
+  }
+
+  /**
+   * Called before the new and changed issues are committed
+   */
+  protected void doBeforeSave(List<DefaultIssue> changedIssues) {
+    // overridden on server-side to journal ES indexing
   }
 
-  protected void doAfterSave() {
+  /**
+   * Called after the new and changed issues are committed, even if commit failed
+   */
+  protected void doAfterSave(List<DefaultIssue> changedIssues) {
     // overridden on server-side to index ES
   }
 
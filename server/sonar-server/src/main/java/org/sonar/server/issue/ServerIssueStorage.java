@@ -19,6 +19,7 @@
  */
 package org.sonar.server.issue;
 
+import java.util.List;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.server.ServerSide;
 import org.sonar.core.issue.DefaultIssue;
@@ -59,8 +60,13 @@ public class ServerIssueStorage extends IssueStorage {
   }
 
   @Override
-  protected void doAfterSave() {
-    indexer.index();
+  protected void doBeforeSave(List<DefaultIssue> changedIssues) {
+    indexer.prepareIndexing(changedIssues);
+  }
+
+  @Override
+  protected void doAfterSave(List<DefaultIssue> changedIssues) {
+    indexer.indexInBackground(changedIssues);
   }
 
   protected ComponentDto component(DbSession session, DefaultIssue issue) {
@@ -0,0 +1,243 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.search.sort.SortOrder;
+import org.sonar.api.utils.System2;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.permission.index.PermissionIndexer;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_AUTHORIZATION_GROUPS;
+import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_AUTHORIZATION_UPDATED_AT;
+import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_AUTHORIZATION_USERS;
+import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX;
+import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_AUTHORIZATION;
+
+/**
+ * Uuids of the projects that a user, or the groups of a user, are allowed to browse.
+ * They are loaded from the documents of type {@link IssueIndexDefinition#TYPE_AUTHORIZATION}, so that
+ * issue searches are filtered with a terms filter instead of a parent/child join. Users allowed to browse
+ * more than {@link #MAX_TERMS} projects are not cached: the terms filter would cost more than the join.
+ * <p/>
+ * Cached values are stamped with:
+ * <ul>
+ *   <li>the number of changes made to authorizations by the {@link PermissionIndexer} of this process, which is free to read</li>
+ *   <li>the number of authorization documents and the statistics of their update dates, which also take into account
+ *   the changes made by the Compute Engine. They are loaded by an aggregation, at most once every
+ *   {@link #STAMP_CHECK_INTERVAL_MS} ms whatever the number of searches.</li>
+ * </ul>
+ */
+class AuthorizedProjectsCache {
+
+  static final int MAX_TERMS = 2_000;
+  static final long STAMP_CHECK_INTERVAL_MS = 1_000L;
+
+  private static final String STAMP_AGGREGATION = "stamp";
+  private static final int MAX_ENTRIES = 1_000;
+  private static final int SCROLL_SIZE = 1_000;
+
+  private final EsClient client;
+  private final System2 system2;
+  private final int maxTerms;
+  private final Cache<Key, Entry> cache = CacheBuilder.newBuilder()
+    .maximumSize(MAX_ENTRIES)
+    .expireAfterAccess(1, TimeUnit.HOURS)
+    .build();
+
+  // guarded by "this"
+  private Stamp stamp;
+  private long stampCheckedAt;
+
+  AuthorizedProjectsCache(EsClient client, System2 system2) {
+    this(client, system2, MAX_TERMS);
+  }
+
+  @VisibleForTesting
+  AuthorizedProjectsCache(EsClient client, System2 system2, int maxTerms) {
+    this.client = client;
+    this.system2 = system2;
+    this.maxTerms = maxTerms;
+  }
+
+  /**
+   * Uuids of the projects browsable by the given user or groups.
+   *
+   * @return {@code null} if too many projects are browsable to be filtered by a terms filter
+   */
+  @CheckForNull
+  List<String> getProjectUuids(@Nullable Integer userId, Set<String> userGroups) {
+    Key key = new Key(userId, userGroups);
+    Stamp currentStamp = getStamp();
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null || !entry.stamp.equals(currentStamp)) {
+      entry = new Entry(currentStamp, loadProjectUuids(userId, userGroups));
+      cache.put(key, entry);
+    }
+    return entry.projectUuids;
+  }
+
+  private synchronized Stamp getStamp() {
+    long changeCount = PermissionIndexer.getChangeCount();
+    long now = system2.now();
+    if (stamp == null || stamp.localChangeCount != changeCount || now - stampCheckedAt >= STAMP_CHECK_INTERVAL_MS) {
+      stamp = loadStamp(changeCount);
+      stampCheckedAt = now;
+    }
+    return stamp;
+  }
+
+  private Stamp loadStamp(long localChangeCount) {
+    SearchResponse response = client.prepareSearch(INDEX)
+      .setTypes(TYPE_AUTHORIZATION)
+      .setSize(0)
+      .addAggregation(AggregationBuilders.stats(STAMP_AGGREGATION).field(FIELD_AUTHORIZATION_UPDATED_AT))
+      .get();
+    Stats stats = response.getAggregations().get(STAMP_AGGREGATION);
+    return new Stamp(localChangeCount, response.getHits().getTotalHits(), stats.getCount() == 0 ? 0d : stats.getMax(), stats.getSum());
+  }
+
+  @CheckForNull
+  private List<String> loadProjectUuids(@Nullable Integer userId, Set<String> userGroups) {
+    BoolQueryBuilder groupsAndUser = boolQuery();
+    if (userId != null) {
+      groupsAndUser.should(termQuery(FIELD_AUTHORIZATION_USERS, userId.longValue()));
+    }
+    for (String group : userGroups) {
+      groupsAndUser.should(termQuery(FIELD_AUTHORIZATION_GROUPS, group));
+    }
+    SearchRequestBuilder request = client.prepareSearch(INDEX)
+      .setTypes(TYPE_AUTHORIZATION)
+      .setQuery(boolQuery().filter(groupsAndUser))
+      .addSort("_doc", SortOrder.ASC)
+      .setScroll(TimeValue.timeValueMinutes(1))
+      .setSize(SCROLL_SIZE)
+      // id of document is the project uuid, no need to load _source
+      .setFetchSource(false);
+    SearchResponse response = request.get();
+    if (response.getHits().getTotalHits() > maxTerms) {
+      client.nativeClient().prepareClearScroll().addScrollId(response.getScrollId()).get();
+      return null;
+    }
+    List<String> projectUuids = new ArrayList<>((int) response.getHits().getTotalHits());
+    while (true) {
+      SearchHit[] hits = response.getHits().getHits();
+      for (SearchHit hit : hits) {
+        projectUuids.add(hit.getId());
+      }
+      String scrollId = response.getScrollId();
+      if (hits.length == 0) {
+        client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
+        break;
+      }
+      response = client.prepareSearchScroll(scrollId).setScroll(TimeValue.timeValueMinutes(1)).get();
+    }
+    return projectUuids;
+  }
+
+  private static final class Key {
+    private final Integer userId;
+    private final Set<String> userGroups;
+
+    private Key(@Nullable Integer userId, Set<String> userGroups) {
+      this.userId = userId;
+      this.userGroups = new TreeSet<>(userGroups);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(userId, other.userId) && userGroups.equals(other.userGroups);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, userGroups);
+    }
+  }
+
+  private static final class Stamp {
+    private final long localChangeCount;
+    private final long count;
+    private final double maxUpdatedAt;
+    private final double sumUpdatedAt;
+
+    private Stamp(long localChangeCount, long count, double maxUpdatedAt, double sumUpdatedAt) {
+      this.localChangeCount = localChangeCount;
+      this.count = count;
+      this.maxUpdatedAt = maxUpdatedAt;
+      this.sumUpdatedAt = sumUpdatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Stamp other = (Stamp) o;
+      return localChangeCount == other.localChangeCount && count == other.count
+        && Double.compare(maxUpdatedAt, other.maxUpdatedAt) == 0 && Double.compare(sumUpdatedAt, other.sumUpdatedAt) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(localChangeCount, count, maxUpdatedAt, sumUpdatedAt);
+    }
+  }
+
+  private static final class Entry {
+    private final Stamp stamp;
+    @CheckForNull
+    private final List<String> projectUuids;
+
+    private Entry(Stamp stamp, @Nullable List<String> projectUuids) {
+      this.stamp = stamp;
+      this.projectUuids = projectUuids;
+    }
+  }
+}
@@ -58,6 +58,7 @@ import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInter
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms.Order;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
 import org.elasticsearch.search.aggregations.metrics.min.Min;
 import org.elasticsearch.search.aggregations.metrics.sum.SumBuilder;
 import org.joda.time.Duration;
@@ -164,12 +165,14 @@ public class IssueIndex extends BaseIndex {
   private final Sorting sorting;
   private final System2 system;
   private final UserSession userSession;
+  private final AuthorizedProjectsCache authorizedProjectsCache;
 
   public IssueIndex(EsClient client, System2 system, UserSession userSession) {
     super(client);
 
     this.system = system;
     this.userSession = userSession;
+    this.authorizedProjectsCache = new AuthorizedProjectsCache(client, system);
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
     this.sorting.add(IssueQuery.SORT_BY_STATUS, IssueIndexDefinition.FIELD_ISSUE_STATUS);
@@ -337,8 +340,13 @@ public class IssueIndex extends BaseIndex {
     return viewsFilter;
   }
 
-  private static QueryBuilder createAuthorizationFilter(boolean checkAuthorization, @Nullable Integer userId, Set<String> userGroups) {
+  private QueryBuilder createAuthorizationFilter(boolean checkAuthorization, @Nullable Integer userId, Set<String> userGroups) {
     if (checkAuthorization) {
+      List<String> projectUuids = authorizedProjectsCache.getProjectUuids(userId, userGroups);
+      if (projectUuids != null) {
+        return termsQuery(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, projectUuids);
+      }
+      // too many projects for a terms filter
       BoolQueryBuilder groupsAndUser = boolQuery();
       if (userId != null) {
         groupsAndUser.should(termQuery(IssueIndexDefinition.FIELD_AUTHORIZATION_USERS, userId.longValue()));
@@ -692,21 +700,6 @@ public class IssueIndex extends BaseIndex {
    * Only fields needed for the batch are returned.
    */
   public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component) {
-    BoolQueryBuilder filter = boolQuery()
-      .must(createAuthorizationFilter(true, userSession.getUserId(), userSession.getUserGroups()))
-      .mustNot(termsQuery(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
-
-    switch (component.scope()) {
-      case Scopes.PROJECT:
-        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_MODULE_PATH, component.uuid()));
-        break;
-      case Scopes.FILE:
-        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, component.uuid()));
-        break;
-      default:
-        throw new IllegalStateException(format("Component of scope '%s' is not allowed", component.scope()));
-    }
-
     SearchRequestBuilder requestBuilder = getClient()
       .prepareSearch(IssueIndexDefinition.INDEX)
       .setTypes(IssueIndexDefinition.TYPE_ISSUE)
@@ -720,9 +713,44 @@ public class IssueIndex extends BaseIndex {
           IssueIndexDefinition.FIELD_ISSUE_LINE, IssueIndexDefinition.FIELD_ISSUE_MESSAGE, IssueIndexDefinition.FIELD_ISSUE_CHECKSUM,
           IssueIndexDefinition.FIELD_ISSUE_FUNC_CREATED_AT},
         null)
-      .setQuery(boolQuery().must(matchAllQuery()).filter(filter));
+      .setQuery(boolQuery().must(matchAllQuery()).filter(createBatchFilter(component)));
     SearchResponse response = requestBuilder.get();
 
     return EsUtils.scroll(getClient(), response.getScrollId(), DOC_CONVERTER);
   }
+
+  /**
+   * Version of the issues returned by {@link #selectIssuesForBatch(ComponentDto)}: number of issues and date of the
+   * latest indexed change. Issues are not loaded.
+   */
+  public String selectIssuesForBatchVersion(ComponentDto component) {
+    SearchResponse response = getClient()
+      .prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_ISSUE)
+      .setSize(0)
+      .setQuery(boolQuery().must(matchAllQuery()).filter(createBatchFilter(component)))
+      .addAggregation(AggregationBuilders.max(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT).field(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT))
+      .get();
+    Max lastUpdate = response.getAggregations().get(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT);
+    long total = response.getHits().getTotalHits();
+    return total == 0 ? "0" : (total + ":" + (long) lastUpdate.getValue());
+  }
+
+  private BoolQueryBuilder createBatchFilter(ComponentDto component) {
+    BoolQueryBuilder filter = boolQuery()
+      .must(createAuthorizationFilter(true, userSession.getUserId(), userSession.getUserGroups()))
+      .mustNot(termsQuery(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
+
+    switch (component.scope()) {
+      case Scopes.PROJECT:
+        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_MODULE_PATH, component.uuid()));
+        break;
+      case Scopes.FILE:
+        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, component.uuid()));
+        break;
+      default:
+        throw new IllegalStateException(format("Component of scope '%s' is not allowed", component.scope()));
+    }
+    return filter;
+  }
 }
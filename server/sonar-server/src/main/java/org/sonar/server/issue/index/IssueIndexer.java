@@ -19,38 +19,62 @@
  */
 package org.sonar.server.issue.index;
 
+import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.DocId;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.IndexingQueue;
+import org.sonar.server.es.ParallelIndexing;
+import org.sonar.server.es.ResilientIndexer;
 
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT;
 import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX;
 import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_AUTHORIZATION;
 import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_ISSUE;
 
-public class IssueIndexer extends BaseIndexer {
+public class IssueIndexer extends BaseIndexer implements ResilientIndexer {
 
+  private static final Logger LOGGER = Loggers.get(IssueIndexer.class);
   private static final String DELETE_ERROR_MESSAGE = "Fail to delete some issues of project [%s]";
   private static final int MAX_BATCH_SIZE = 1000;
 
   private final DbClient dbClient;
+  private final IndexingQueue recoveryQueue;
 
-  public IssueIndexer(System2 system2, DbClient dbClient, EsClient esClient) {
+  public IssueIndexer(System2 system2, DbClient dbClient, EsClient esClient, IndexingQueue recoveryQueue) {
     super(system2, esClient, 300, INDEX, TYPE_ISSUE, FIELD_ISSUE_TECHNICAL_UPDATED_AT);
     this.dbClient = dbClient;
+    this.recoveryQueue = recoveryQueue;
   }
 
   @Override
@@ -58,6 +82,29 @@ public class IssueIndexer extends BaseIndexer {
     return doIndex(createBulkIndexer(false), lastUpdatedAt, null);
   }
 
+  @Override
+  protected long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+    return doIndex(bulk, lastUpdatedAt, null);
+  }
+
+  /**
+   * Indexing at server startup. When the index is empty, or when a previous startup indexing has been interrupted,
+   * all the issues are indexed project by project, concurrently. Otherwise only the issues updated since the
+   * latest indexed change are indexed.
+   */
+  public void indexOnStartup(ParallelIndexing parallelIndexing) {
+    super.index(lastUpdatedAt -> {
+      boolean emptyIndex = lastUpdatedAt <= 0L;
+      if (emptyIndex) {
+        // a checkpoint would relate to documents which are lost
+        parallelIndexing.reset();
+      } else if (!parallelIndexing.isInterrupted()) {
+        return doIndex(createBulkIndexer(false), lastUpdatedAt, null);
+      }
+      return parallelIndexing.index(createBulkIndexer(true), selectProjectUuids(), this::indexProject);
+    });
+  }
+
   public void indexAll() {
     doIndex(createBulkIndexer(true), 0L, null);
   }
@@ -66,6 +113,28 @@ public class IssueIndexer extends BaseIndexer {
     super.index(lastUpdatedAt -> doIndex(createBulkIndexer(false), lastUpdatedAt, projectUuid));
   }
 
+  /**
+   * Journals the issues which changes are about to be committed to db, so that they are indexed even if
+   * the process stops before {@link #indexInBackground(Collection)}.
+   */
+  public void prepareIndexing(Collection<DefaultIssue> issues) {
+    recoveryQueue.startIndexing(toDocIds(issues));
+  }
+
+  /**
+   * Issues are loaded from db and indexed by {@link org.sonar.server.es.RecoveryIndexer}, without waiting for
+   * Elasticsearch. Indexing must have been prepared by {@link #prepareIndexing(Collection)}.
+   */
+  public void indexInBackground(Collection<DefaultIssue> issues) {
+    recoveryQueue.stopIndexing(Collections.emptyList(), toDocIds(issues));
+  }
+
+  private static List<DocId> toDocIds(Collection<DefaultIssue> issues) {
+    return issues.stream()
+      .map(issue -> new DocId(INDEX, TYPE_ISSUE, issue.key(), issue.projectUuid()))
+      .collect(Collectors.toList());
+  }
+
   /**
    * For benchmarks
    */
@@ -82,6 +151,27 @@ public class IssueIndexer extends BaseIndexer {
     }
   }
 
+  private List<String> selectProjectUuids() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.componentDao().selectProjects(dbSession).stream()
+        .map(ComponentDto::uuid)
+        .collect(Collectors.toList());
+    }
+  }
+
+  private long indexProject(String projectUuid, Consumer<ActionRequest> sink) {
+    try (DbSession dbSession = dbClient.openSession(false);
+      IssueResultSetIterator rowIt = IssueResultSetIterator.create(dbClient, dbSession, 0L, projectUuid)) {
+      long maxDate = 0L;
+      while (rowIt.hasNext()) {
+        IssueDoc issue = rowIt.next();
+        sink.accept(newIndexRequest(issue));
+        maxDate = Math.max(maxDate, issue.getTechnicalUpdateDate().getTime());
+      }
+      return maxDate;
+    }
+  }
+
   private long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
     bulk.start();
     long maxDate = 0L;
@@ -129,9 +219,65 @@ public class IssueIndexer extends BaseIndexer {
     esClient.prepareRefresh(INDEX).get();
   }
 
+  @Override
+  public String getIndexName() {
+    return INDEX;
+  }
+
+  /**
+   * Issues that exist in db are indexed again, the others are deleted from index.
+   */
+  @Override
+  public Collection<DocId> recover(Collection<DocId> docs) {
+    Map<String, DocId> docsByKey = new LinkedHashMap<>();
+    docs.stream()
+      .filter(doc -> TYPE_ISSUE.equals(doc.getType()))
+      .forEach(doc -> docsByKey.put(doc.getId(), doc));
+    if (docsByKey.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    try {
+      BulkRequestBuilder bulk = esClient.prepareBulk().setRefresh(false);
+      Map<String, DocId> deletedDocsByKey = new LinkedHashMap<>(docsByKey);
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        for (List<String> keys : Iterables.partition(docsByKey.keySet(), PARTITION_SIZE_FOR_ORACLE)) {
+          try (IssueResultSetIterator rowIt = IssueResultSetIterator.createForKeys(dbClient, dbSession, keys)) {
+            while (rowIt.hasNext()) {
+              IssueDoc issue = rowIt.next();
+              bulk.add(newIndexRequest(issue));
+              deletedDocsByKey.remove(issue.key());
+            }
+          }
+        }
+      }
+      for (DocId doc : deletedDocsByKey.values()) {
+        DeleteRequestBuilder deletion = esClient.prepareDelete(INDEX, TYPE_ISSUE, doc.getId());
+        if (doc.getRouting() != null) {
+          deletion.setRouting(doc.getRouting());
+        }
+        bulk.add(deletion);
+      }
+
+      BulkResponse response = bulk.get();
+      List<DocId> failedDocs = new ArrayList<>();
+      for (BulkItemResponse item : response.getItems()) {
+        if (item.isFailed()) {
+          failedDocs.add(docsByKey.get(item.getId()));
+        }
+      }
+      esClient.prepareRefresh(INDEX).get();
+      return failedDocs;
+    } catch (RuntimeException e) {
+      LOGGER.warn("Fail to recover {} issues", docsByKey.size(), e);
+      return docsByKey.values();
+    }
+  }
+
   private BulkIndexer createBulkIndexer(boolean large) {
     BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
     bulk.setLarge(large);
+    bulk.setRecoveryQueue(recoveryQueue);
     return bulk;
   }
 
@@ -51,7 +51,9 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTreeQuery;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureQuery;
 import org.sonar.db.measure.MeasureTreeQuery;
+import org.sonar.db.measure.MeasureTreeSort;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.metric.MetricDtoFunctions;
 import org.sonar.server.component.ComponentFinder;
@@ -71,6 +73,8 @@ import static org.sonar.api.utils.Paging.offset;
 import static org.sonar.server.component.ComponentFinder.ParamNames.BASE_COMPONENT_ID_AND_KEY;
 import static org.sonar.server.component.ComponentFinder.ParamNames.DEVELOPER_ID_AND_KEY;
 import static org.sonar.server.measure.ws.ComponentTreeAction.LEAVES_STRATEGY;
+import static org.sonar.server.measure.ws.ComponentTreeAction.METRIC_PERIOD_SORT;
+import static org.sonar.server.measure.ws.ComponentTreeAction.METRIC_SORT;
 import static org.sonar.server.measure.ws.ComponentTreeAction.STRATEGIES;
 import static org.sonar.server.measure.ws.ComponentTreeAction.WITH_MEASURES_ONLY_METRIC_SORT_FILTER;
 import static org.sonar.server.measure.ws.SnapshotDtoToWsPeriods.snapshotToWsPeriods;
@@ -105,17 +109,32 @@ public class ComponentTreeDataLoader {
       Long developerId = searchDeveloperId(dbSession, wsRequest);
 
       ComponentTreeQuery componentTreeQuery = toComponentTreeQuery(wsRequest, baseComponent);
-      List<ComponentDto> components = searchComponents(dbSession, componentTreeQuery);
       List<MetricDto> metrics = searchMetrics(dbSession, wsRequest);
       List<WsMeasures.Period> periods = snapshotToWsPeriods(baseSnapshot.get());
-      Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent, componentTreeQuery, components,
-        metrics, periods, developerId);
 
-      components = filterComponents(components, measuresByComponentUuidAndMetric, metrics, wsRequest);
-      components = sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
+      List<MetricDto> sortMetrics = searchSortMetrics(metrics, wsRequest);
+      MeasureTreeSort measureTreeSort = ComponentTreeSort.toMeasureTreeSort(wsRequest, sortMetrics.isEmpty() ? null : sortMetrics.get(0), periods,
+        componentWithMeasuresOnly(wsRequest));
+      List<ComponentDto> components;
+      int componentCount;
+      if (measureTreeSort != null) {
+        // components are sorted, filtered and paginated by the database. Only the components of the requested page are loaded.
+        MeasureTreeQuery measureTreeQuery = toMeasureTreeQuery(componentTreeQuery, Collections.emptyList(), developerId);
+        componentCount = dbClient.measureDao().countTreeComponents(dbSession, baseComponent, measureTreeQuery, measureTreeSort);
+        components = searchComponentsOfPage(dbSession, baseComponent, measureTreeQuery, measureTreeSort, wsRequest);
+      } else {
+        // only measures of the metric to sort on are loaded for the whole tree. Other measures are loaded for the requested page only.
+        components = searchComponents(dbSession, componentTreeQuery);
+        Table<String, MetricDto, MeasureDto> sortMeasuresByComponentUuidAndMetric = searchMeasuresOfTree(dbSession, baseComponent, componentTreeQuery, components,
+          sortMetrics, periods, developerId);
+
+        components = filterComponents(components, sortMeasuresByComponentUuidAndMetric, metrics, wsRequest);
+        componentCount = components.size();
+        components = sortAndPaginateComponents(components, wsRequest, metrics, sortMeasuresByComponentUuidAndMetric);
+      }
 
-      int componentCount = components.size();
-      components = paginateComponents(components, wsRequest);
+      Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric = searchMeasuresOfComponents(dbSession, baseComponent, components, metrics, periods,
+        developerId);
 
       return ComponentTreeData.builder()
         .setBaseComponent(baseComponent)
@@ -176,20 +195,71 @@ public class ComponentTreeDataLoader {
     return metrics;
   }
 
-  private Table<String, MetricDto, MeasureDto> searchMeasuresByComponentUuidAndMetric(DbSession dbSession, ComponentDto baseComponent, ComponentTreeQuery componentTreeQuery,
+  /**
+   * The metric to sort on is needed on the whole tree only when components are sorted or filtered by measure
+   */
+  private static List<MetricDto> searchSortMetrics(List<MetricDto> metrics, ComponentTreeWsRequest wsRequest) {
+    String metricKeyToSort = wsRequest.getMetricSort();
+    List<String> sortParameters = wsRequest.getSort();
+    boolean sortOnMetric = sortParameters != null && (sortParameters.contains(METRIC_SORT) || sortParameters.contains(METRIC_PERIOD_SORT));
+    if (metricKeyToSort == null || !(sortOnMetric || componentWithMeasuresOnly(wsRequest))) {
+      return Collections.emptyList();
+    }
+    return from(metrics).filter(new MatchMetricKey(metricKeyToSort)).toList();
+  }
+
+  private Table<String, MetricDto, MeasureDto> searchMeasuresOfTree(DbSession dbSession, ComponentDto baseComponent, ComponentTreeQuery componentTreeQuery,
     List<ComponentDto> components, List<MetricDto> metrics, List<WsMeasures.Period> periods, @Nullable Long developerId) {
+    if (metrics.isEmpty() || components.isEmpty()) {
+      return HashBasedTable.create();
+    }
 
-    Map<Integer, MetricDto> metricsById = Maps.uniqueIndex(metrics, MetricDtoFunctions.toId());
-    MeasureTreeQuery measureQuery = MeasureTreeQuery.builder()
+    MeasureTreeQuery measureQuery = toMeasureTreeQuery(componentTreeQuery, metrics, developerId);
+    List<MeasureDto> measureDtos = dbClient.measureDao().selectTreeByQuery(dbSession, baseComponent, measureQuery);
+
+    return toMeasuresByComponentUuidAndMetric(measureDtos, components, metrics, periods);
+  }
+
+  private static MeasureTreeQuery toMeasureTreeQuery(ComponentTreeQuery componentTreeQuery, List<MetricDto> metrics, @Nullable Long developerId) {
+    return MeasureTreeQuery.builder()
       .setStrategy(MeasureTreeQuery.Strategy.valueOf(componentTreeQuery.getStrategy().name()))
       .setNameOrKeyQuery(componentTreeQuery.getNameOrKeyQuery())
       .setQualifiers(componentTreeQuery.getQualifiers())
       .setPersonId(developerId)
-      .setMetricIds(new ArrayList<>(metricsById.keySet()))
+      .setMetricIds(Lists.transform(metrics, MetricDtoFunctions.toId()))
       .build();
-    List<MeasureDto> measureDtos = dbClient.measureDao().selectTreeByQuery(dbSession, baseComponent, measureQuery);
+  }
 
-    Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric = HashBasedTable.create(components.size(), metrics.size());
+  private List<ComponentDto> searchComponentsOfPage(DbSession dbSession, ComponentDto baseComponent, MeasureTreeQuery measureTreeQuery, MeasureTreeSort measureTreeSort,
+    ComponentTreeWsRequest wsRequest) {
+    List<String> componentUuids = dbClient.measureDao().selectTreeComponentUuids(dbSession, baseComponent, measureTreeQuery, measureTreeSort,
+      offset(wsRequest.getPage(), wsRequest.getPageSize()), wsRequest.getPageSize());
+    Map<String, ComponentDto> componentsByUuid = Maps.uniqueIndex(dbClient.componentDao().selectByUuids(dbSession, componentUuids), ComponentDto::uuid);
+    return from(componentUuids)
+      .transform(componentsByUuid::get)
+      .filter(Predicates.<ComponentDto>notNull())
+      .toList();
+  }
+
+  private Table<String, MetricDto, MeasureDto> searchMeasuresOfComponents(DbSession dbSession, ComponentDto baseComponent, List<ComponentDto> components,
+    List<MetricDto> metrics, List<WsMeasures.Period> periods, @Nullable Long developerId) {
+    List<String> componentUuids = new ArrayList<>(components.size() + 1);
+    componentUuids.add(baseComponent.uuid());
+    components.forEach(component -> componentUuids.add(component.uuid()));
+    MeasureQuery measureQuery = MeasureQuery.builder()
+      .setComponentUuids(baseComponent.projectUuid(), componentUuids)
+      .setMetricIds(Lists.transform(metrics, MetricDtoFunctions.toId()))
+      .setPersonId(developerId)
+      .build();
+    List<MeasureDto> measureDtos = dbClient.measureDao().selectByQuery(dbSession, measureQuery);
+
+    return toMeasuresByComponentUuidAndMetric(measureDtos, components, metrics, periods);
+  }
+
+  private static Table<String, MetricDto, MeasureDto> toMeasuresByComponentUuidAndMetric(List<MeasureDto> measureDtos, List<ComponentDto> components,
+    List<MetricDto> metrics, List<WsMeasures.Period> periods) {
+    Map<Integer, MetricDto> metricsById = Maps.uniqueIndex(metrics, MetricDtoFunctions.toId());
+    Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric = HashBasedTable.create(components.size() + 1, metrics.size());
     for (MeasureDto measureDto : measureDtos) {
       measuresByComponentUuidAndMetric.put(
         measureDto.getComponentUuid(),
@@ -249,15 +319,16 @@ public class ComponentTreeDataLoader {
     return WITH_MEASURES_ONLY_METRIC_SORT_FILTER.equals(wsRequest.getMetricSortFilter());
   }
 
-  private static List<ComponentDto> sortComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest, List<MetricDto> metrics,
+  /**
+   * Only the components up to the requested page are selected, instead of sorting the whole tree
+   */
+  private static List<ComponentDto> sortAndPaginateComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest, List<MetricDto> metrics,
     Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric) {
-    return ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
-  }
-
-  private static List<ComponentDto> paginateComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest) {
-    return from(components)
-      .skip(offset(wsRequest.getPage(), wsRequest.getPageSize()))
-      .limit(wsRequest.getPageSize())
+    int offset = offset(wsRequest.getPage(), wsRequest.getPageSize());
+    List<ComponentDto> firstComponents = ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric,
+      offset + wsRequest.getPageSize());
+    return from(firstComponents)
+      .skip(offset)
       .toList();
   }
 
@@ -21,22 +21,29 @@ package org.sonar.server.measure.ws;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Table;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.Metric.ValueType;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureTreeSort;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.metric.MetricDtoFunctions;
 import org.sonar.server.exceptions.BadRequestException;
+import org.sonarqube.ws.WsMeasures;
 import org.sonarqube.ws.client.measure.ComponentTreeWsRequest;
 
 import static java.lang.String.CASE_INSENSITIVE_ORDER;
@@ -67,10 +74,94 @@ public class ComponentTreeSort {
   }
 
   public static List<ComponentDto> sortComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest, List<MetricDto> metrics,
+    Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric) {
+    Ordering<ComponentDto> ordering = componentOrdering(wsRequest, metrics, measuresByComponentUuidAndMetric);
+    if (ordering == null) {
+      return components;
+    }
+
+    return ordering.immutableSortedCopy(components);
+  }
+
+  /**
+   * Returns the {@code maxResults} first components according to the requested sort, without sorting the whole list.
+   * Components which are equal according to the requested sort keep their relative order, so that successive pages are consistent.
+   */
+  public static List<ComponentDto> sortComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest, List<MetricDto> metrics,
+    Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric, int maxResults) {
+    Ordering<ComponentDto> ordering = componentOrdering(wsRequest, metrics, measuresByComponentUuidAndMetric);
+    if (ordering == null) {
+      return components.subList(0, Math.min(maxResults, components.size()));
+    }
+
+    Map<ComponentDto, Integer> positions = new IdentityHashMap<>(components.size());
+    for (int i = 0; i < components.size(); i++) {
+      positions.put(components.get(i), i);
+    }
+    Ordering<ComponentDto> inputOrdering = Ordering.<Integer>natural().onResultOf(positions::get);
+    return ordering.compound(inputOrdering).leastOf(components, maxResults);
+  }
+
+  /**
+   * Translates the requested sort to be executed by the database, so that only the requested page of components is loaded.
+   * The sort on a metric is supported only for the numerical metrics. {@code null} is returned otherwise, the components
+   * then have to be sorted by {@link #sortComponents(List, ComponentTreeWsRequest, List, Table, int)}.
+   *
+   * @param metric the metric to sort on or to filter on, if any
+   */
+  @CheckForNull
+  static MeasureTreeSort toMeasureTreeSort(ComponentTreeWsRequest wsRequest, @Nullable MetricDto metric, List<WsMeasures.Period> periods,
+    boolean withMeasuresOnly) {
+    List<String> sortParameters = wsRequest.getSort();
+    List<MeasureTreeSort.Field> fields = new ArrayList<>();
+    boolean isNumericMetric = metric != null && NUMERIC_VALUE_TYPES.contains(ValueType.valueOf(metric.getValueType()));
+    for (String sortParameter : sortParameters == null ? Collections.<String>emptyList() : sortParameters) {
+      MeasureTreeSort.Field field = toMeasureTreeSortField(wsRequest, sortParameter);
+      if ((field == MeasureTreeSort.Field.VALUE || field == MeasureTreeSort.Field.VARIATION) && !isNumericMetric) {
+        return null;
+      }
+      fields.add(field);
+    }
+
+    Integer periodIndex = wsRequest.getMetricPeriodSort();
+    MeasureTreeSort.Builder sort = MeasureTreeSort.builder()
+      .setFields(fields)
+      .setAsc(wsRequest.getAsc())
+      .setMetricId(metric == null ? null : metric.getId())
+      .setPeriodIndex(periodIndex)
+      .setWithMeasuresOnly(withMeasuresOnly);
+    if (metric != null && MetricDtoFunctions.isOptimizedForBestValue().apply(metric)) {
+      List<Integer> periodIndexes = Lists.transform(periods, WsMeasures.Period::getIndex);
+      MeasureDto bestMeasure = new MetricDtoWithBestValue(metric, periodIndexes).getBestValue();
+      sort.setBestValue(bestMeasure.getValue(), periodIndex == null ? null : bestMeasure.getVariation(periodIndex),
+        MetricDtoWithBestValue.QUALIFIERS_ELIGIBLE_FOR_BEST_VALUE);
+    }
+    return sort.build();
+  }
+
+  private static MeasureTreeSort.Field toMeasureTreeSortField(ComponentTreeWsRequest wsRequest, String sortParameter) {
+    switch (sortParameter) {
+      case NAME_SORT:
+        return MeasureTreeSort.Field.NAME;
+      case QUALIFIER_SORT:
+        return MeasureTreeSort.Field.QUALIFIER;
+      case PATH_SORT:
+        return MeasureTreeSort.Field.PATH;
+      case METRIC_SORT:
+        return wsRequest.getMetricSort() == null ? MeasureTreeSort.Field.NAME : MeasureTreeSort.Field.VALUE;
+      case METRIC_PERIOD_SORT:
+        return wsRequest.getMetricSort() == null || wsRequest.getMetricPeriodSort() == null ? MeasureTreeSort.Field.NAME : MeasureTreeSort.Field.VARIATION;
+      default:
+        throw new IllegalArgumentException("Unknown sort: " + sortParameter);
+    }
+  }
+
+  @CheckForNull
+  private static Ordering<ComponentDto> componentOrdering(ComponentTreeWsRequest wsRequest, List<MetricDto> metrics,
     Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric) {
     List<String> sortParameters = wsRequest.getSort();
     if (sortParameters == null || sortParameters.isEmpty()) {
-      return components;
+      return null;
     }
     boolean isAscending = wsRequest.getAsc();
     Map<String, Ordering<ComponentDto>> orderingsBySortField = ImmutableMap.<String, Ordering<ComponentDto>>builder()
@@ -91,7 +182,7 @@ public class ComponentTreeSort {
       }
     }
 
-    return primaryOrdering.immutableSortedCopy(components);
+    return primaryOrdering;
   }
 
   private static Ordering<ComponentDto> componentNameOrdering(boolean isAscending) {
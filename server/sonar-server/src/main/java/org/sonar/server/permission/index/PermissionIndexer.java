@@ -32,6 +32,8 @@ import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchResponse;
@@ -61,6 +63,8 @@ public class PermissionIndexer implements Startable {
 
   private static final String BULK_ERROR_MESSAGE = "Fail to index authorization";
 
+  private static final AtomicLong CHANGE_COUNT = new AtomicLong();
+
   private final ThreadPoolExecutor executor;
   private final DbClient dbClient;
   private final EsClient esClient;
@@ -75,16 +79,47 @@ public class PermissionIndexer implements Startable {
    * Index issues authorization and project measures authorization indexes only when they are empty
    */
   public void indexAllIfEmpty() {
-    Future submit = executor.submit(() -> {
+    execute(() -> {
       if (isIndexEmpty(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION) ||
         isIndexEmpty(ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES, ProjectMeasuresIndexDefinition.TYPE_AUTHORIZATION)) {
         truncate(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION);
         truncate(ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES, ProjectMeasuresIndexDefinition.TYPE_AUTHORIZATION);
-        try (DbSession dbSession = dbClient.openSession(false)) {
-          index(new PermissionIndexerDao().selectAll(dbClient, dbSession));
-        }
+        indexAllFromDb();
       }
     });
+  }
+
+  /**
+   * Indexes the authorization of all projects into the physical index {@code targetIndex} instead of {@code index},
+   * which is the issues or the project measures index. It's used to populate a new version of index, see
+   * {@link org.sonar.server.es.IndexRebuilds}.
+   */
+  public void indexAll(String index, String targetIndex) {
+    Function<PermissionIndexerDao.Dto, IndexRequest> newRequest;
+    if (IssueIndexDefinition.INDEX.equals(index)) {
+      newRequest = PermissionIndexer::newIssuesAuthorizationIndexRequest;
+    } else {
+      checkArgument(ProjectMeasuresIndexDefinition.INDEX_PROJECT_MEASURES.equals(index), "Index %s has no authorization", index);
+      newRequest = PermissionIndexer::newProjectMeasuresAuthorizationIndexRequest;
+    }
+    execute(() -> {
+      BulkIndexer bulk = new BulkIndexer(esClient, index).setTargetIndex(targetIndex);
+      bulk.start();
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        new PermissionIndexerDao().selectAll(dbClient, dbSession).forEach(dto -> bulk.add(newRequest.apply(dto)));
+      }
+      bulk.stop();
+    });
+  }
+
+  private void indexAllFromDb() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      index(new PermissionIndexerDao().selectAll(dbClient, dbSession));
+    }
+  }
+
+  private void execute(Runnable task) {
+    Future submit = executor.submit(task);
     try {
       Uninterruptibles.getUninterruptibly(submit);
     } catch (ExecutionException e) {
@@ -98,6 +133,7 @@ public class PermissionIndexer implements Startable {
   }
 
   private void truncate(String index, String type) {
+    CHANGE_COUNT.incrementAndGet();
     BulkIndexer.delete(esClient, index, esClient.prepareSearch(index).setTypes(type).setQuery(matchAllQuery()));
   }
 
@@ -126,6 +162,7 @@ public class PermissionIndexer implements Startable {
     EsUtils.executeBulkRequest(bulkRequest, BULK_ERROR_MESSAGE);
     esClient.prepareRefresh(IssueIndexDefinition.INDEX).get();
     esClient.prepareRefresh(ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES).get();
+    CHANGE_COUNT.incrementAndGet();
   }
 
   public void index(DbSession dbSession, String projectUuid) {
@@ -140,6 +177,15 @@ public class PermissionIndexer implements Startable {
   void index(PermissionIndexerDao.Dto dto) {
     index(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION, newIssuesAuthorizationIndexRequest(dto));
     index(ProjectMeasuresIndexDefinition.INDEX_PROJECT_MEASURES, ProjectMeasuresIndexDefinition.TYPE_AUTHORIZATION, newProjectMeasuresAuthorizationIndexRequest(dto));
+    CHANGE_COUNT.incrementAndGet();
+  }
+
+  /**
+   * Number of changes made to the authorization documents by the indexers of this process. It does not
+   * take into account the changes made by the other processes, for example by the Compute Engine.
+   */
+  public static long getChangeCount() {
+    return CHANGE_COUNT.get();
   }
 
   private void index(String index, String type, IndexRequest indexRequest) {
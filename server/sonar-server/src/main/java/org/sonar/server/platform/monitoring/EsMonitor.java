@@ -32,15 +32,18 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.IndexingQueue;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 
 public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
 
   private final EsClient esClient;
+  private final IndexingQueue indexingQueue;
 
-  public EsMonitor(EsClient esClient) {
+  public EsMonitor(EsClient esClient, IndexingQueue indexingQueue) {
     this.esClient = esClient;
+    this.indexingQueue = indexingQueue;
   }
 
   @Override
@@ -66,6 +69,11 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     return clusterStats().getNodesStats().getCounts().getTotal();
   }
 
+  @Override
+  public int getIndexingQueueBacklog() {
+    return indexingQueue.size();
+  }
+
   @Override
   public Map<String, Object> attributes() {
     try {
@@ -74,6 +82,7 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
       attributes.put("Indices", indexAttributes());
       attributes.put("Number of Nodes", getNumberOfNodes());
       attributes.put("Nodes", nodeAttributes());
+      attributes.put("Indexing Queue Backlog", getIndexingQueueBacklog());
       return attributes;
     } catch (Exception es) {
       Loggers.get(EsMonitor.class).warn("Failed to retrieve ES attributes. There will be only a single \"state\" attribute.", es);
@@ -26,4 +26,9 @@ package org.sonar.server.platform.monitoring;
 public interface EsMonitorMBean {
   String getState();
   int getNumberOfNodes();
+
+  /**
+   * Number of documents waiting in {@link org.sonar.server.es.IndexingQueue} to be indexed again
+   */
+  int getIndexingQueueBacklog();
 }
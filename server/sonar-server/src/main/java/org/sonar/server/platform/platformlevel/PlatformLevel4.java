@@ -56,6 +56,10 @@ import org.sonar.server.duplication.ws.DuplicationsWs;
 import org.sonar.server.email.ws.EmailsWsModule;
 import org.sonar.server.es.IndexCreator;
 import org.sonar.server.es.IndexDefinitions;
+import org.sonar.server.es.IndexRebuilder;
+import org.sonar.server.es.IndexRebuilds;
+import org.sonar.server.es.IndexingQueue;
+import org.sonar.server.es.RecoveryIndexer;
 import org.sonar.server.event.NewAlerts;
 import org.sonar.server.issue.AddTagsAction;
 import org.sonar.server.issue.AssignAction;
@@ -234,7 +238,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
   @Override
   protected void configureLevel() {
-    addIfStartupLeader(IndexCreator.class);
+    addIfStartupLeader(IndexCreator.class, IndexRebuilds.class, IndexRebuilder.class);
 
     add(
       PluginDownloader.class,
@@ -383,6 +387,8 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // issues
       IssueIndexDefinition.class,
+      IndexingQueue.class,
+      RecoveryIndexer.class,
       IssueIndexer.class,
       PermissionIndexer.class,
       IssueWsModule.class,
@@ -62,7 +62,8 @@ public class ActiveRuleIndexer extends BaseIndexer {
     doIndex(createBulkIndexer(false), rules);
   }
 
-  private long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+  @Override
+  protected long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
     DbSession dbSession = dbClient.openSession(false);
     long maxDate;
     try {
@@ -50,7 +50,8 @@ public class RuleIndexer extends BaseIndexer {
     doIndex(createBulkIndexer(false), rules);
   }
 
-  private long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+  @Override
+  protected long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
     DbSession dbSession = dbClient.openSession(false);
     long maxDate;
     try {
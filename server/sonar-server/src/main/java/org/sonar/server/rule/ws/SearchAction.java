@@ -39,6 +39,7 @@ import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.sonar.api.platform.Server;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
 import org.sonar.api.rule.Severity;
@@ -48,6 +49,7 @@ import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.qualityprofile.QualityProfileDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleParamDto;
 import org.sonar.server.es.Facets;
@@ -57,6 +59,7 @@ import org.sonar.server.qualityprofile.ActiveRule;
 import org.sonar.server.rule.index.RuleIndex;
 import org.sonar.server.rule.index.RuleIndexDefinition;
 import org.sonar.server.rule.index.RuleQuery;
+import org.sonar.server.ws.ETags;
 import org.sonarqube.ws.Common;
 import org.sonarqube.ws.Rules.SearchResponse;
 import org.sonarqube.ws.client.rule.SearchWsRequest;
@@ -104,18 +107,25 @@ public class SearchAction implements RulesWsAction {
 
   private static final Collection<String> DEFAULT_FACETS = ImmutableSet.of(PARAM_LANGUAGES, PARAM_REPOSITORIES, "tags");
 
+  private static final List<String> SEARCH_PARAMS = Arrays.asList(PAGE, PAGE_SIZE, FACETS, FIELDS, TEXT_QUERY, PARAM_RULE_KEY, PARAM_REPOSITORIES,
+    PARAM_SEVERITIES, PARAM_LANGUAGES, PARAM_STATUSES, PARAM_AVAILABLE_SINCE, PARAM_TAGS, PARAM_TYPES, PARAM_ACTIVATION, PARAM_QPROFILE,
+    PARAM_INHERITANCE, PARAM_ACTIVE_SEVERITIES, PARAM_IS_TEMPLATE, PARAM_TEMPLATE_KEY, SORT, ASCENDING);
+
   private final RuleQueryFactory ruleQueryFactory;
   private final DbClient dbClient;
   private final RuleIndex ruleIndex;
   private final ActiveRuleCompleter activeRuleCompleter;
   private final RuleMapper mapper;
+  private final Server server;
 
-  public SearchAction(RuleIndex ruleIndex, ActiveRuleCompleter activeRuleCompleter, RuleQueryFactory ruleQueryFactory, DbClient dbClient, RuleMapper mapper) {
+  public SearchAction(RuleIndex ruleIndex, ActiveRuleCompleter activeRuleCompleter, RuleQueryFactory ruleQueryFactory, DbClient dbClient, RuleMapper mapper,
+    Server server) {
     this.ruleIndex = ruleIndex;
     this.activeRuleCompleter = activeRuleCompleter;
     this.ruleQueryFactory = ruleQueryFactory;
     this.dbClient = dbClient;
     this.mapper = mapper;
+    this.server = server;
   }
 
   @Override
@@ -154,6 +164,9 @@ public class SearchAction implements RulesWsAction {
     DbSession dbSession = dbClient.openSession(false);
     try {
       SearchWsRequest searchWsRequest = toSearchWsRequest(request);
+      if (isActivationOfProfile(searchWsRequest) && isNotModified(dbSession, searchWsRequest.getQProfile(), request, response)) {
+        return;
+      }
       SearchOptions context = getQueryContext(searchWsRequest);
       RuleQuery query = ruleQueryFactory.createRuleQuery(request);
       SearchResult searchResult = doSearch(dbSession, query, context);
@@ -164,6 +177,32 @@ public class SearchAction implements RulesWsAction {
     }
   }
 
+  private static boolean isActivationOfProfile(SearchWsRequest request) {
+    return request.getQProfile() != null && Boolean.TRUE.equals(request.getActivation());
+  }
+
+  /**
+   * Rules activated in a quality profile are requested page by page by each analysis. As the result changes only
+   * when the profile, the rules or the server change, it is tagged with the version of these data, so that scanners
+   * can reuse their previous download.
+   */
+  private boolean isNotModified(DbSession dbSession, String profileKey, Request request, Response response) {
+    QualityProfileDto profile = dbClient.qualityProfileDao().selectByKey(dbSession, profileKey);
+    if (profile == null) {
+      return false;
+    }
+    List<Object> versionParts = new ArrayList<>();
+    versionParts.add(server.getStartedAt().getTime());
+    versionParts.add(profile.getRulesUpdatedAt());
+    versionParts.add(dbClient.qProfileChangeDao().countForProfileKey(dbSession, profileKey));
+    versionParts.add(dbClient.ruleDao().selectLastUpdateDate(dbSession));
+    versionParts.add(request.getMediaType());
+    for (String key : SEARCH_PARAMS) {
+      versionParts.add(request.param(key));
+    }
+    return ETags.isNotModified(request, response, ETags.of(versionParts.toArray()));
+  }
+
   private SearchResponse buildResponse(DbSession dbSession, SearchWsRequest request, SearchOptions context, SearchResult result, RuleQuery query) {
     SearchResponse.Builder responseBuilder = SearchResponse.newBuilder();
     writeStatistics(responseBuilder, result, context);
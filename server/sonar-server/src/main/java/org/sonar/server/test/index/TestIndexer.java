@@ -64,10 +64,18 @@ public class TestIndexer extends BaseIndexer {
     return doIndex(lastUpdatedAt, null);
   }
 
+  @Override
+  protected long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+    return doIndex(bulk, lastUpdatedAt, null);
+  }
+
   private long doIndex(long lastUpdatedAt, @Nullable String projectUuid) {
     final BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
     bulk.setLarge(lastUpdatedAt == 0L);
+    return doIndex(bulk, lastUpdatedAt, projectUuid);
+  }
 
+  private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid) {
     DbSession dbSession = dbClient.openSession(false);
     try {
       TestResultSetIterator rowIt = TestResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, projectUuid);
@@ -41,7 +41,11 @@ public class UserIndexer extends BaseIndexer {
   protected long doIndex(long lastUpdatedAt) {
     final BulkIndexer bulk = new BulkIndexer(esClient, UserIndexDefinition.INDEX);
     bulk.setLarge(lastUpdatedAt == 0L);
+    return doIndex(bulk, lastUpdatedAt);
+  }
 
+  @Override
+  protected long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
     DbSession dbSession = dbClient.openSession(false);
     try {
       UserResultSetIterator rowIt = UserResultSetIterator.create(dbClient, dbSession, lastUpdatedAt);
@@ -30,6 +30,7 @@ import org.sonar.server.exceptions.NotFoundException;
  * This in-memory cache relies on {@link org.sonar.server.util.cache.CacheLoader} to
  * load missing elements.
  * Warning - all searches are kept in memory, even when elements are not found.
+ * Methods are synchronized, elements being loaded while holding the lock.
  */
 public class MemoryCache<K, V> {
 
@@ -41,7 +42,7 @@ public class MemoryCache<K, V> {
   }
 
   @CheckForNull
-  public V getNullable(K key) {
+  public synchronized V getNullable(K key) {
     V value = map.get(key);
     if (value == null && !map.containsKey(key)) {
       value = loader.load(key);
@@ -62,7 +63,7 @@ public class MemoryCache<K, V> {
    * Get values associated with keys. All the requested keys are included
    * in the Map result. Value is null if the key is not found in cache.
    */
-  public Map<K, V> getAll(Iterable<K> keys) {
+  public synchronized Map<K, V> getAll(Iterable<K> keys) {
     List<K> missingKeys = new ArrayList<>();
     Map<K, V> result = new HashMap<>();
     for (K key : keys) {
@@ -87,7 +88,7 @@ public class MemoryCache<K, V> {
     return result;
   }
 
-  public void clear() {
+  public synchronized void clear() {
     map.clear();
   }
 }
@@ -54,16 +54,25 @@ public class ViewIndexer extends BaseIndexer {
   protected long doIndex(long lastUpdatedAt) {
     long count = esClient.prepareCount(ViewIndexDefinition.INDEX).setTypes(ViewIndexDefinition.TYPE_VIEW).get().getCount();
     if (count == 0) {
-      DbSession dbSession = dbClient.openSession(false);
-      try {
-        Map<String, String> viewAndProjectViewUuidMap = newHashMap();
-        for (UuidWithProjectUuidDto uuidWithProjectUuidDto : dbClient.componentDao().selectAllViewsAndSubViews(dbSession)) {
-          viewAndProjectViewUuidMap.put(uuidWithProjectUuidDto.getUuid(), uuidWithProjectUuidDto.getProjectUuid());
-        }
-        index(dbSession, viewAndProjectViewUuidMap, false);
-      } finally {
-        dbSession.close();
+      doIndex(new BulkIndexer(esClient, ViewIndexDefinition.INDEX), lastUpdatedAt);
+    }
+    return 0L;
+  }
+
+  /**
+   * Index all views, whatever the date
+   */
+  @Override
+  protected long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      Map<String, String> viewAndProjectViewUuidMap = newHashMap();
+      for (UuidWithProjectUuidDto uuidWithProjectUuidDto : dbClient.componentDao().selectAllViewsAndSubViews(dbSession)) {
+        viewAndProjectViewUuidMap.put(uuidWithProjectUuidDto.getUuid(), uuidWithProjectUuidDto.getProjectUuid());
       }
+      index(bulk, dbSession, viewAndProjectViewUuidMap, false);
+    } finally {
+      dbSession.close();
     }
     return 0L;
   }
@@ -81,7 +90,7 @@ public class ViewIndexer extends BaseIndexer {
       for (ComponentDto viewOrSubView : dbClient.componentDao().selectEnabledDescendantModules(dbSession, rootViewUuid)) {
         viewAndProjectViewUuidMap.put(viewOrSubView.uuid(), viewOrSubView.projectUuid());
       }
-      index(dbSession, viewAndProjectViewUuidMap, true);
+      index(new BulkIndexer(esClient, ViewIndexDefinition.INDEX), dbSession, viewAndProjectViewUuidMap, true);
     } finally {
       dbSession.close();
     }
@@ -99,8 +108,7 @@ public class ViewIndexer extends BaseIndexer {
     bulk.stop();
   }
 
-  private void index(DbSession dbSession, Map<String, String> viewAndProjectViewUuidMap, boolean needClearCache) {
-    final BulkIndexer bulk = new BulkIndexer(esClient, ViewIndexDefinition.INDEX);
+  private void index(BulkIndexer bulk, DbSession dbSession, Map<String, String> viewAndProjectViewUuidMap, boolean needClearCache) {
     bulk.start();
     for (Map.Entry<String, String> entry : viewAndProjectViewUuidMap.entrySet()) {
       String viewUuid = entry.getKey();
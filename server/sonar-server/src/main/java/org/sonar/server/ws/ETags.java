@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.util.Optional;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
+/**
+ * Conditional requests: responses are tagged with the version of their content, so that
+ * clients which already know this version are answered with 304 Not Modified instead of the
+ * content, which is then neither loaded nor written.
+ */
+public class ETags {
+
+  private static final Splitter TAG_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+  private ETags() {
+    // only static methods
+  }
+
+  /**
+   * Strong entity tag of a content which depends only on the given values
+   */
+  public static String of(Object... versionParts) {
+    return '"' + DigestUtils.sha1Hex(Joiner.on('|').useForNull("").join(versionParts)) + '"';
+  }
+
+  /**
+   * Sets the header "ETag" of the response. When the request header "If-None-Match" matches the tag, the response
+   * is completed with the status 304 and {@code true} is returned, in which case the content must not be written.
+   */
+  public static boolean isNotModified(Request request, Response response, String etag) {
+    response.setHeader(ETAG, etag);
+    Optional<String> ifNoneMatch = request.header(IF_NONE_MATCH);
+    if (ifNoneMatch.isPresent() && matches(ifNoneMatch.get(), etag)) {
+      response.stream().setStatus(HTTP_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    for (String tag : TAG_SPLITTER.split(ifNoneMatch)) {
+      if ("*".equals(tag) || etag.equals(tag) || etag.equals(removeWeakPrefix(tag))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String removeWeakPrefix(String tag) {
+    return tag.startsWith("W/") ? tag.substring(2) : tag;
+  }
+}
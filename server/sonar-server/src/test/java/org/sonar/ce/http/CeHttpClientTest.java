@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.util.Optional;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
 import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
@@ -134,6 +136,50 @@ public class CeHttpClientTest {
     underTest.changeLogLevel(LoggerLevel.INFO);
   }
 
+  @Test
+  public void wakeUpWorkers_posts_to_wakeUpWorkers_path() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    underTest.wakeUpWorkers();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/wakeUpWorkers");
+  }
+
+  @Test
+  public void wakeUpWorkers_does_not_fail_if_http_error() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    underTest.wakeUpWorkers();
+
+    assertThat(server.takeRequest().getPath()).isEqualTo("/wakeUpWorkers");
+  }
+
+  @Test
+  public void wakeUpWorkers_does_not_wait_for_the_response() throws Exception {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    long start = System.currentTimeMillis();
+    underTest.wakeUpWorkers();
+
+    assertThat(System.currentTimeMillis() - start).isLessThan(1_000L);
+    assertThat(server.takeRequest().getPath()).isEqualTo("/wakeUpWorkers");
+  }
+
+  @Test
+  public void wakeUpWorkers_does_not_fail_if_process_is_down() {
+    underTest.wakeUpWorkers();
+
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
   private void setUpWithHttpUrl(ProcessId processId) {
     try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(ipcSharedDir, processId.getIpcIndex())) {
       processCommands.setUp();
@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.http;
+
+import java.util.Collections;
+import org.junit.Test;
+import org.sonar.ce.queue.CeTask;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class WakeUpCeWorkersQueueListenerTest {
+  private CeHttpClient ceHttpClient = mock(CeHttpClient.class);
+  private WakeUpCeWorkersQueueListener underTest = new WakeUpCeWorkersQueueListener(ceHttpClient);
+
+  @Test
+  public void onSubmit_wakes_up_workers_of_Compute_Engine() {
+    underTest.onSubmit(Collections.singletonList(mock(CeTask.class)));
+
+    verify(ceHttpClient).wakeUpWorkers();
+  }
+
+  @Test
+  public void onSubmit_does_nothing_when_no_task_is_submitted() {
+    underTest.onSubmit(Collections.emptyList());
+
+    verifyZeroInteractions(ceHttpClient);
+  }
+
+  @Test
+  public void onSubmit_does_not_fail_when_Compute_Engine_can_not_be_called() {
+    doThrow(new IllegalStateException("Failed to call HTTP server of process COMPUTE_ENGINE")).when(ceHttpClient).wakeUpWorkers();
+
+    underTest.onSubmit(Collections.singletonList(mock(CeTask.class)));
+  }
+}
@@ -38,8 +38,13 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class CeQueueImplTest {
 
@@ -120,6 +125,31 @@ public class CeQueueImplTest {
     verifyCeTask(taskSubmit2, tasks.get(1), null);
   }
 
+  @Test
+  public void submit_and_massSubmit_notify_listeners_with_submitted_tasks() {
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, new CeQueueListener[] {listener});
+
+    CeTask task = underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", null));
+    verify(listener).onSubmit(singletonList(task));
+
+    List<CeTask> tasks = underTest.massSubmit(asList(createTaskSubmit("type1"), createTaskSubmit("type2")));
+    verify(listener).onSubmit(tasks);
+  }
+
+  @Test
+  public void submit_does_not_fail_when_listener_fails() {
+    CeQueueListener failingListener = mock(CeQueueListener.class);
+    doThrow(new IllegalStateException("Faking listener failure")).when(failingListener).onSubmit(anyCollectionOf(CeTask.class));
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, new CeQueueListener[] {failingListener, listener});
+
+    CeTask task = underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", null));
+
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(session, task.getUuid()).isPresent()).isTrue();
+    verify(listener).onSubmit(singletonList(task));
+  }
+
   @Test
   public void cancel_pending() throws Exception {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
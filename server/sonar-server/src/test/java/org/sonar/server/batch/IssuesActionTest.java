@@ -19,6 +19,7 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.net.HttpHeaders;
 import java.io.ByteArrayInputStream;
 import java.util.Arrays;
 import javax.annotation.Nullable;
@@ -28,6 +29,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.security.DefaultGroups;
+import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.db.DbTester;
@@ -37,6 +39,7 @@ import org.sonar.scanner.protocol.Constants.Severity;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.issue.IssueTesting;
 import org.sonar.server.issue.index.IssueDoc;
@@ -85,7 +88,7 @@ public class IssuesActionTest {
   @Before
   public void before() {
     issueIndex = new IssueIndex(es.client(), system2, userSessionRule);
-    issueIndexer = new IssueIndexer(system2, null, es.client());
+    issueIndexer = new IssueIndexer(system2, null, es.client(), mock(IndexingQueue.class));
     issuesAction = new IssuesAction(db.getDbClient(), issueIndex, userSessionRule, new ComponentFinder(db.getDbClient()));
 
     tester = new WsTester(new BatchWs(new BatchIndex(fs), issuesAction));
@@ -317,6 +320,32 @@ public class IssuesActionTest {
     tester.newGetRequest("batch", "issues").setParam("key", "Other component key").execute();
   }
 
+  @Test
+  public void return_not_modified_until_issues_change() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, null, FILE_UUID).setKey(FILE_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
+    db.getSession().commit();
+    indexIssues(IssueTesting.newDoc("EFGH", file).setStatus("OPEN"));
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+
+    WsTester.Result result = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY).execute();
+    String etag = result.header(HttpHeaders.ETAG);
+    assertThat(etag).isNotEmpty();
+    assertThat(result.output()).isNotEmpty();
+
+    WsTester.Result notModified = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY).setHeader(HttpHeaders.IF_NONE_MATCH, etag).execute();
+    notModified.assertNotModified();
+    assertThat(notModified.output()).isEmpty();
+
+    indexIssues(IssueTesting.newDoc("EFGH", file).setStatus("CONFIRMED").setTechnicalUpdateDate(DateUtils.parseDate("2016-12-25")));
+
+    WsTester.Result modified = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY).setHeader(HttpHeaders.IF_NONE_MATCH, etag).execute();
+    assertThat(modified.header(HttpHeaders.ETAG)).isNotEqualTo(etag);
+    assertThat(ServerIssue.parseDelimitedFrom(new ByteArrayInputStream(modified.output())).getStatus()).isEqualTo("CONFIRMED");
+  }
+
   private void indexIssues(IssueDoc... issues) {
     issueIndexer.index(Arrays.asList(issues).iterator());
     for (IssueDoc issue : issues) {
@@ -0,0 +1,171 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.scanner.protocol.input.ScannerInput.LineHashes;
+import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.platform.ServerFileSystem;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.WsTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+public class LineHashesActionTest {
+
+  private static final String PROJECT_KEY = "struts";
+  private static final String MODULE_KEY = "struts-core";
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  @Rule
+  public UserSessionRule userSessionRule = UserSessionRule.standalone();
+
+  private WsTester tester;
+
+  private ComponentDto project;
+  private ComponentDto module;
+  private ComponentDto projectFile;
+  private ComponentDto moduleFile;
+
+  @Before
+  public void before() {
+    tester = new WsTester(new BatchWs(new BatchIndex(mock(ServerFileSystem.class)),
+      new LineHashesAction(db.getDbClient(), userSessionRule, new ComponentFinder(db.getDbClient()))));
+
+    project = ComponentTesting.newProjectDto("ABCD").setKey(PROJECT_KEY);
+    module = ComponentTesting.newModuleDto("BCDE", project).setKey(MODULE_KEY);
+    projectFile = ComponentTesting.newFileDto(project, null, "CDEF").setPath("pom.xml").setKey(PROJECT_KEY + ":pom.xml");
+    moduleFile = ComponentTesting.newFileDto(module, null, "DEFG").setPath("src/Action.java").setKey(MODULE_KEY + ":src/Action.java");
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, projectFile, moduleFile);
+    insertLineHashes(projectFile, "ABC\nDEF");
+    insertLineHashes(moduleFile, "GHI");
+    db.getSession().commit();
+  }
+
+  @Test
+  public void return_line_hashes_of_all_files_of_project() throws Exception {
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+
+    List<LineHashes> result = call(tester.newGetRequest("batch", "line_hashes").setParam("key", PROJECT_KEY));
+
+    assertThat(result).extracting(LineHashes::getFileKey, LineHashes::getLineHashes).containsOnly(
+      tuple(PROJECT_KEY + ":pom.xml", "ABC\nDEF"),
+      tuple(MODULE_KEY + ":src/Action.java", "GHI"));
+  }
+
+  @Test
+  public void return_line_hashes_of_files_of_module_only() throws Exception {
+    addBrowsePermissionOnComponent(MODULE_KEY);
+
+    List<LineHashes> result = call(tester.newGetRequest("batch", "line_hashes").setParam("key", MODULE_KEY));
+
+    assertThat(result).extracting(LineHashes::getFileKey).containsOnly(MODULE_KEY + ":src/Action.java");
+  }
+
+  @Test
+  public void return_line_hashes_of_requested_files() throws Exception {
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+
+    List<LineHashes> result = call(tester.newGetRequest("batch", "line_hashes").setParam("key", PROJECT_KEY)
+      .setParam("files", MODULE_KEY + ":src/Action.java,unknown"));
+
+    assertThat(result).extracting(LineHashes::getFileKey, LineHashes::getLineHashes).containsOnly(tuple(MODULE_KEY + ":src/Action.java", "GHI"));
+  }
+
+  @Test
+  public void ignore_requested_files_outside_of_module() throws Exception {
+    ComponentDto otherProject = ComponentTesting.newProjectDto("EFGH").setKey("other");
+    ComponentDto otherFile = ComponentTesting.newFileDto(otherProject, null, "FGHI").setPath("Foo.java").setKey("other:Foo.java");
+    db.getDbClient().componentDao().insert(db.getSession(), otherProject, otherFile);
+    insertLineHashes(otherFile, "JKL");
+    db.getSession().commit();
+    addBrowsePermissionOnComponent(MODULE_KEY);
+
+    List<LineHashes> result = call(tester.newGetRequest("batch", "line_hashes").setParam("key", MODULE_KEY)
+      .setParam("files", "other:Foo.java," + PROJECT_KEY + ":pom.xml"));
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void fail_if_component_is_a_file() throws Exception {
+    addBrowsePermissionOnComponent(MODULE_KEY + ":src/Action.java");
+
+    thrown.expect(BadRequestException.class);
+    tester.newGetRequest("batch", "line_hashes").setParam("key", MODULE_KEY + ":src/Action.java").execute();
+  }
+
+  @Test
+  public void fail_without_browse_permission() throws Exception {
+    userSessionRule.login("john");
+
+    thrown.expect(ForbiddenException.class);
+    tester.newGetRequest("batch", "line_hashes").setParam("key", PROJECT_KEY).execute();
+  }
+
+  private static List<LineHashes> call(WsTester.TestRequest request) throws Exception {
+    InputStream input = new ByteArrayInputStream(request.execute().output());
+    List<LineHashes> result = new ArrayList<>();
+    LineHashes lineHashes;
+    while ((lineHashes = LineHashes.parseDelimitedFrom(input)) != null) {
+      result.add(lineHashes);
+    }
+    return result;
+  }
+
+  private void insertLineHashes(ComponentDto file, String lineHashes) {
+    db.getDbClient().fileSourceDao().insert(db.getSession(), new FileSourceDto()
+      .setProjectUuid(file.projectUuid())
+      .setFileUuid(file.uuid())
+      .setBinaryData(new byte[0])
+      .setDataHash("DATA_HASH")
+      .setLineHashes(lineHashes)
+      .setSrcHash("SRC_HASH")
+      .setDataType(FileSourceDto.Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L));
+  }
+
+  private void addBrowsePermissionOnComponent(String componentKey) {
+    userSessionRule.addComponentPermission(UserRole.USER, PROJECT_KEY, componentKey);
+  }
+}
@@ -19,6 +19,9 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.net.HttpHeaders;
+import java.net.HttpURLConnection;
+import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -32,6 +35,8 @@ import org.sonarqube.ws.WsBatch.WsProjectResponse;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.test.JsonAssert.assertJson;
 
@@ -87,4 +92,43 @@ public class ProjectActionTest {
     WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void return_not_modified_when_version_of_project_data_is_unchanged() throws Exception {
+    when(projectDataLoader.loadVersion(any(ProjectDataQuery.class))).thenReturn(Optional.of("v1"));
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(new ProjectRepositories());
+
+    TestResponse first = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .execute();
+    String etag = first.getHeader(HttpHeaders.ETAG);
+    assertThat(etag).isNotEmpty();
+
+    TestResponse second = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setHeader(HttpHeaders.IF_NONE_MATCH, etag)
+      .execute();
+
+    assertThat(second.getStatus()).isEqualTo(HttpURLConnection.HTTP_NOT_MODIFIED);
+    assertThat(second.getInput()).isEmpty();
+    verify(projectDataLoader, times(1)).load(any(ProjectDataQuery.class));
+  }
+
+  @Test
+  public void do_not_tag_response_without_version() throws Exception {
+    when(projectDataLoader.loadVersion(any(ProjectDataQuery.class))).thenReturn(Optional.empty());
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(new ProjectRepositories());
+
+    TestResponse result = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setHeader(HttpHeaders.IF_NONE_MATCH, "*")
+      .execute();
+
+    assertThat(result.getHeader(HttpHeaders.ETAG)).isNull();
+    assertThat(result.getStatus()).isEqualTo(HttpURLConnection.HTTP_OK);
+    verify(projectDataLoader).load(any(ProjectDataQuery.class));
+  }
 }
@@ -31,13 +31,18 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.property.PropertyDto;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
 
 import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.component.SnapshotTesting.newAnalysis;
 
 public class ProjectDataLoaderTest {
   @Rule
@@ -115,4 +120,39 @@ public class ProjectDataLoaderTest {
       }
     }
   }
+
+  @Test
+  public void loadVersion_changes_when_project_is_analyzed_or_settings_change() {
+    UserSession userSession = mock(UserSession.class);
+    when(userSession.hasComponentUuidPermission(anyString(), anyString())).thenReturn(true);
+    underTest = new ProjectDataLoader(dbClient, userSession);
+    ComponentDto project = dbTester.components().insertProject();
+    ProjectDataQuery query = ProjectDataQuery.create().setModuleKey(project.key());
+
+    String initial = underTest.loadVersion(query).get();
+    assertThat(underTest.loadVersion(query)).contains(initial);
+    assertThat(underTest.loadVersion(ProjectDataQuery.create().setModuleKey(project.key()).setIssuesMode(true)).get()).isNotEqualTo(initial);
+
+    dbClient.snapshotDao().insert(dbSession, newAnalysis(project));
+    dbSession.commit();
+    String analyzed = underTest.loadVersion(query).get();
+    assertThat(analyzed).isNotEqualTo(initial);
+
+    dbClient.propertiesDao().saveProperty(dbSession, new PropertyDto().setKey("sonar.exclusions").setValue("**/*.xml").setResourceId(project.getId()));
+    dbSession.commit();
+    assertThat(underTest.loadVersion(query).get()).isNotEqualTo(analyzed);
+  }
+
+  @Test
+  public void loadVersion_is_absent_when_data_contain_secured_settings() {
+    UserSession userSession = mock(UserSession.class);
+    when(userSession.hasComponentUuidPermission(anyString(), anyString())).thenReturn(true);
+    underTest = new ProjectDataLoader(dbClient, userSession);
+    ComponentDto project = dbTester.components().insertProject();
+    ProjectDataQuery query = ProjectDataQuery.create().setModuleKey(project.key());
+    dbClient.propertiesDao().saveProperty(dbSession, new PropertyDto().setKey("sonar.jira.password.secured").setValue("secret").setResourceId(project.getId()));
+    dbSession.commit();
+
+    assertThat(underTest.loadVersion(query)).isEmpty();
+  }
 }
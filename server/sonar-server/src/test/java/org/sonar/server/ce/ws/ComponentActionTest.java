@@ -101,6 +101,44 @@ public class ComponentActionTest {
     assertThat(response.getCurrent().getId()).isEqualTo("T3");
   }
 
+  @Test
+  public void project_purge_tasks_are_not_returned() {
+    componentDbTester.insertComponent(newProjectDto("PROJECT_1"));
+    userSession.addComponentUuidPermission(UserRole.USER, "PROJECT_1", "PROJECT_1");
+    insertActivity("T1", "PROJECT_1", CeTaskTypes.REPORT, CeActivityDto.Status.SUCCESS);
+    insertActivity("T2", "PROJECT_1", CeTaskTypes.PROJECT_PURGE, CeActivityDto.Status.FAILED);
+    insertQueue("T3", "PROJECT_1", CeTaskTypes.PROJECT_PURGE, CeQueueDto.Status.IN_PROGRESS);
+    insertQueue("T4", "PROJECT_1", CeTaskTypes.REPORT, CeQueueDto.Status.PENDING);
+
+    TestResponse wsResponse = ws.newRequest()
+      .setParam("componentId", "PROJECT_1")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .execute();
+
+    WsCe.ProjectResponse response = Protobuf.read(wsResponse.getInputStream(), WsCe.ProjectResponse.parser());
+    assertThat(response.getQueueCount()).isEqualTo(1);
+    assertThat(response.getQueue(0).getId()).isEqualTo("T4");
+    // T2 is the latest task executed on PROJECT_1, but it is not an analysis
+    assertThat(response.hasCurrent()).isTrue();
+    assertThat(response.getCurrent().getId()).isEqualTo("T1");
+  }
+
+  @Test
+  public void no_current_analysis_when_project_has_only_purge_tasks() {
+    componentDbTester.insertComponent(newProjectDto("PROJECT_1"));
+    userSession.addComponentUuidPermission(UserRole.USER, "PROJECT_1", "PROJECT_1");
+    insertActivity("T1", "PROJECT_1", CeTaskTypes.PROJECT_PURGE, CeActivityDto.Status.SUCCESS);
+
+    TestResponse wsResponse = ws.newRequest()
+      .setParam("componentId", "PROJECT_1")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .execute();
+
+    WsCe.ProjectResponse response = Protobuf.read(wsResponse.getInputStream(), WsCe.ProjectResponse.parser());
+    assertThat(response.getQueueCount()).isEqualTo(0);
+    assertThat(response.hasCurrent()).isFalse();
+  }
+
   @Test
   public void search_tasks_by_component_key() {
     ComponentDto project = componentDbTester.insertProject();
@@ -174,8 +212,12 @@ public class ComponentActionTest {
   }
 
   private CeQueueDto insertQueue(String taskUuid, String componentUuid, CeQueueDto.Status status) {
+    return insertQueue(taskUuid, componentUuid, CeTaskTypes.REPORT, status);
+  }
+
+  private CeQueueDto insertQueue(String taskUuid, String componentUuid, String taskType, CeQueueDto.Status status) {
     CeQueueDto queueDto = new CeQueueDto();
-    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setTaskType(taskType);
     queueDto.setComponentUuid(componentUuid);
     queueDto.setUuid(taskUuid);
     queueDto.setStatus(status);
@@ -185,8 +227,12 @@ public class ComponentActionTest {
   }
 
   private CeActivityDto insertActivity(String taskUuid, String componentUuid, CeActivityDto.Status status) {
+    return insertActivity(taskUuid, componentUuid, CeTaskTypes.REPORT, status);
+  }
+
+  private CeActivityDto insertActivity(String taskUuid, String componentUuid, String taskType, CeActivityDto.Status status) {
     CeQueueDto queueDto = new CeQueueDto();
-    queueDto.setTaskType(CeTaskTypes.REPORT);
+    queueDto.setTaskType(taskType);
     queueDto.setComponentUuid(componentUuid);
     queueDto.setUuid(taskUuid);
     CeActivityDto activityDto = new CeActivityDto(queueDto);
@@ -29,6 +29,7 @@ import org.sonar.core.util.Protobuf;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskStepDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
@@ -42,6 +43,7 @@ import org.sonarqube.ws.WsCe;
 
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
 import static org.sonar.core.permission.GlobalPermissions.PROVISIONING;
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
@@ -209,6 +211,46 @@ public class TaskActionTest {
     assertThat(task.hasScannerContext()).isFalse();
   }
 
+  @Test
+  public void return_steps_of_activity_when_additionalField_is_set() {
+    userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
+    persist(createActivityDto(SOME_TASK_UUID));
+    persistStep(new CeTaskStepDto().setUuid("S1").setTaskUuid(SOME_TASK_UUID).setStepType(CeTaskStepDto.Type.STEP).setName("Extract report")
+      .setStepIndex(0).setDurationMs(10L).setCpuTimeMs(5L).setAllocatedBytes(2_000L).setCreatedAt(1_000L));
+    persistStep(new CeTaskStepDto().setUuid("S2").setTaskUuid(SOME_TASK_UUID).setStepType(CeTaskStepDto.Type.VISITOR).setName("SizeVisitor")
+      .setStepIndex(0).setDurationMs(3L).setProcessedCount(42L).setCreatedAt(1_000L));
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .setParam("additionalFields", "steps")
+      .execute();
+
+    WsCe.Task task = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask();
+    assertThat(task.getStepsList())
+      .extracting(WsCe.TaskStep::getType, WsCe.TaskStep::getName, WsCe.TaskStep::getDurationMs, WsCe.TaskStep::hasCpuTimeMs, WsCe.TaskStep::getProcessedCount)
+      .containsExactly(
+        tuple("STEP", "Extract report", 10L, true, 0L),
+        tuple("VISITOR", "SizeVisitor", 3L, false, 42L));
+    assertThat(task.getSteps(0).getAllocatedBytes()).isEqualTo(2_000L);
+  }
+
+  @Test
+  public void do_not_return_steps_of_activity_when_additionalField_is_not_set() {
+    userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
+    persist(createActivityDto(SOME_TASK_UUID));
+    persistStep(new CeTaskStepDto().setUuid("S1").setTaskUuid(SOME_TASK_UUID).setStepType(CeTaskStepDto.Type.STEP).setName("Extract report")
+      .setStepIndex(0).setDurationMs(10L).setCreatedAt(1_000L));
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .execute();
+
+    WsCe.Task task = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask();
+    assertThat(task.getStepsCount()).isEqualTo(0);
+  }
+
   @Test
   public void do_not_return_stacktrace_of_failed_activity_without_stacktrace() {
     userSession.login("john").setGlobalPermissions(SYSTEM_ADMIN);
@@ -342,6 +384,11 @@ public class TaskActionTest {
     return activityDto;
   }
 
+  private void persistStep(CeTaskStepDto dto) {
+    dbTester.getDbClient().ceTaskStepDao().insert(dbTester.getSession(), dto);
+    dbTester.commit();
+  }
+
   private void persistScannerContext(String taskUuid, String scannerContext) {
     dbTester.getDbClient().ceScannerContextDao().insert(dbTester.getSession(), taskUuid, CloseableIterator.from(singleton(scannerContext).iterator()));
     dbTester.commit();
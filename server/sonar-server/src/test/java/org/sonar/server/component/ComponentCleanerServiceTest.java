@@ -41,6 +41,7 @@ import org.sonar.db.rule.RuleTesting;
 import org.sonar.server.component.es.ProjectMeasuresIndexDefinition;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.issue.IssueTesting;
 import org.sonar.server.issue.index.IssueIndexDefinition;
@@ -78,7 +79,7 @@ public class ComponentCleanerServiceTest {
   private DbClient dbClient = db.getDbClient();
   private DbSession dbSession = db.getSession();
   private PermissionIndexer permissionIndexer = new PermissionIndexer(dbClient, es.client());
-  private IssueIndexer issueIndexer = new IssueIndexer(system2, dbClient, es.client());
+  private IssueIndexer issueIndexer = new IssueIndexer(system2, dbClient, es.client(), mock(IndexingQueue.class));
   private TestIndexer testIndexer = new TestIndexer(system2, dbClient, es.client());
   private ProjectMeasuresIndexer projectMeasuresIndexer = new ProjectMeasuresIndexer(system2, dbClient, es.client());
   private ResourceTypes mockResourceTypes = mock(ResourceTypes.class);
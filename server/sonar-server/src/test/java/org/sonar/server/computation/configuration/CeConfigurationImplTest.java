@@ -103,6 +103,14 @@ public class CeConfigurationImplTest {
     new CeConfigurationImpl(settings);
   }
 
+  @Test
+  public void getQueueMaxPollingDelay_is_greater_than_getQueuePollingDelay() {
+    CeConfigurationImpl underTest = new CeConfigurationImpl(settings);
+
+    assertThat(underTest.getQueueMaxPollingDelay()).isEqualTo(30 * 1000L);
+    assertThat(underTest.getQueueMaxPollingDelay()).isGreaterThan(underTest.getQueuePollingDelay());
+  }
+
   private void expectMessageException(int value) {
     expectedException.expect(MessageException.class);
     expectedException.expectMessage("value '" + value + "' of property " + CE_WORKERS_COUNT_PROPERTY + " is invalid. " +
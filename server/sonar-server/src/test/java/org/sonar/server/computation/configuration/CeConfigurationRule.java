@@ -29,6 +29,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class CeConfigurationRule extends ExternalResource implements CeConfiguration {
   private int workerCount = CeConfigurationImpl.DEFAULT_WORKER_COUNT;
   private long queuePollingDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_DELAY;
+  // no backoff by default
+  private long queueMaxPollingDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_DELAY;
 
   @Override
   public int getWorkerCount() {
@@ -50,4 +52,14 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     checkArgument(queuePollingDelay > 0, "Queue polling delay must be >= 0");
     this.queuePollingDelay = queuePollingDelay;
   }
+
+  @Override
+  public long getQueueMaxPollingDelay() {
+    return queueMaxPollingDelay;
+  }
+
+  public void setQueueMaxPollingDelay(long queueMaxPollingDelay) {
+    checkArgument(queueMaxPollingDelay > 0, "Queue max polling delay must be >= 0");
+    this.queueMaxPollingDelay = queueMaxPollingDelay;
+  }
 }
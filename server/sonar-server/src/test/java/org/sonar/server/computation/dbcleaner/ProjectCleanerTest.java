@@ -21,6 +21,7 @@ package org.sonar.server.computation.dbcleaner;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.config.Settings;
 import org.sonar.api.config.MapSettings;
@@ -32,16 +33,21 @@ import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeListener;
 import org.sonar.db.purge.PurgeProfiler;
+import org.sonar.db.purge.PurgeThrottler;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class ProjectCleanerTest {
 
@@ -61,7 +67,7 @@ public class ProjectCleanerTest {
   public void no_profiling_when_property_is_false() {
     settings.setProperty(CoreProperties.PROFILING_LOG_PROPERTY, false);
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeHistory(mock(DbSession.class), mock(IdUuidPair.class), settings, PurgeThrottler.unlimited());
 
     verify(profiler, never()).dump(anyLong(), any(Logger.class));
   }
@@ -70,7 +76,7 @@ public class ProjectCleanerTest {
   public void profiling_when_property_is_true() {
     settings.setProperty(CoreProperties.PROFILING_LOG_PROPERTY, true);
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeHistory(mock(DbSession.class), mock(IdUuidPair.class), settings, PurgeThrottler.unlimited());
 
     verify(profiler).dump(anyLong(), any(Logger.class));
   }
@@ -79,27 +85,46 @@ public class ProjectCleanerTest {
   public void call_period_cleaner_index_client_and_purge_dao() {
     settings.setProperty(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES, 5);
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeHistory(mock(DbSession.class), mock(IdUuidPair.class), settings, PurgeThrottler.unlimited());
 
-    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class));
-    verify(dao).purge(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class));
+    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class), any(PurgeThrottler.class));
+    verify(dao).purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeThrottler.class));
   }
 
   @Test
   public void if_dao_purge_fails_it_should_not_interrupt_program_execution() {
-    doThrow(RuntimeException.class).when(dao).purge(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class));
+    doThrow(RuntimeException.class).when(dao).purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeThrottler.class));
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeHistory(mock(DbSession.class), mock(IdUuidPair.class), settings, PurgeThrottler.unlimited());
 
-    verify(dao).purge(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class));
+    verify(dao).purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeThrottler.class));
+  }
+
+  @Test
+  public void purge_disabled_components() {
+    underTest.purgeDisabledComponents(mock(DbSession.class), mock(IdUuidPair.class), settings, asList("FILE1", "FILE2"));
+
+    ArgumentCaptor<PurgeConfiguration> configuration = ArgumentCaptor.forClass(PurgeConfiguration.class);
+    verify(dao).purgeDisabledComponents(any(DbSession.class), configuration.capture(), eq(purgeListener));
+    assertThat(configuration.getValue().getDisabledComponentUuids()).containsOnly("FILE1", "FILE2");
+    verifyZeroInteractions(periodCleaner);
+  }
+
+  @Test
+  public void if_purge_of_disabled_components_fails_it_should_not_interrupt_program_execution() {
+    doThrow(RuntimeException.class).when(dao).purgeDisabledComponents(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class));
+
+    underTest.purgeDisabledComponents(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+
+    verify(dao).purgeDisabledComponents(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class));
   }
 
   @Test
   public void if_profiler_cleaning_fails_it_should_not_interrupt_program_execution() {
-    doThrow(RuntimeException.class).when(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class));
+    doThrow(RuntimeException.class).when(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class), any(PurgeThrottler.class));
 
-    underTest.purge(mock(DbSession.class), mock(IdUuidPair.class), settings, emptyList());
+    underTest.purgeHistory(mock(DbSession.class), mock(IdUuidPair.class), settings, PurgeThrottler.unlimited());
 
-    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class));
+    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class), any(PurgeThrottler.class));
   }
 }
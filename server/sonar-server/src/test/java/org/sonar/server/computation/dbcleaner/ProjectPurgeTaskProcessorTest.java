@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.settings.ProjectSettingsFactory;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeThrottler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ProjectPurgeTaskProcessorTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
+  private ProjectSettingsFactory projectSettingsFactory = mock(ProjectSettingsFactory.class);
+
+  private ProjectPurgeTaskProcessor underTest = new ProjectPurgeTaskProcessor(db.getDbClient(), projectCleaner, projectSettingsFactory, System2.INSTANCE);
+
+  @Test
+  public void getHandledCeTaskTypes_returns_PROJECT_PURGE() {
+    assertThat(underTest.getHandledCeTaskTypes()).containsOnly("PROJECT_PURGE");
+  }
+
+  @Test
+  public void purge_history_of_project_with_project_settings() {
+    ComponentDto project = db.components().insertProject();
+    Settings settings = new MapSettings();
+    when(projectSettingsFactory.newProjectSettings(project.key())).thenReturn(settings);
+
+    assertThat(underTest.process(newTask(project.uuid()))).isNull();
+
+    ArgumentCaptor<IdUuidPair> idUuidPair = ArgumentCaptor.forClass(IdUuidPair.class);
+    ArgumentCaptor<PurgeThrottler> throttler = ArgumentCaptor.forClass(PurgeThrottler.class);
+    verify(projectCleaner).purgeHistory(any(DbSession.class), idUuidPair.capture(), eq(settings), throttler.capture());
+    assertThat(idUuidPair.getValue().getId()).isEqualTo(project.getId());
+    assertThat(idUuidPair.getValue().getUuid()).isEqualTo(project.uuid());
+    assertThat(throttler.getValue().getChunkSize()).isEqualTo(ProjectPurgeTaskProcessor.CHUNK_SIZE);
+  }
+
+  @Test
+  public void do_nothing_if_project_does_not_exist_anymore() {
+    assertThat(underTest.process(newTask("DELETED_PROJECT"))).isNull();
+
+    verifyZeroInteractions(projectCleaner, projectSettingsFactory);
+  }
+
+  private static CeTask newTask(String componentUuid) {
+    return new CeTask.Builder()
+      .setUuid("TASK_1")
+      .setType(CeTaskTypes.PROJECT_PURGE)
+      .setComponentUuid(componentUuid)
+      .build();
+  }
+}
@@ -29,6 +29,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -139,4 +140,23 @@ public class CEQueueStatusImplTest {
 
     assertThat(underTest.getPendingCount()).isEqualTo(42);
   }
+
+  @Test
+  public void getQueueWaitPercentiles_is_computed_by_bucket() {
+    underTest.addQueueWait("REPORT", 10);
+    underTest.addQueueWait("REPORT", 30);
+    underTest.addQueueWait("DEV_REFRESH", 5);
+
+    assertThat(underTest.getQueueWaitPercentiles()).containsExactly(
+      entry("DEV_REFRESH", "p50=5ms p90=5ms p99=5ms (1 tasks)"),
+      entry("REPORT", "p50=10ms p90=30ms p99=30ms (2 tasks)"));
+  }
+
+  @Test
+  public void addQueueWait_fails_if_time_is_negative() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Queue wait time can not be < 0");
+
+    underTest.addQueueWait("REPORT", -1);
+  }
 }
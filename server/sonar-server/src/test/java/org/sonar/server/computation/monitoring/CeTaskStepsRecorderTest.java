@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.SequenceUuidFactory;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskStepDto;
+import org.sonar.server.computation.task.step.ExecutionStatistics;
+import org.sonar.server.computation.task.step.ExecutionStatisticsHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CeTaskStepsRecorderTest {
+
+  private static final long NOW = 1_500_000_000L;
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private System2 system = mock(System2.class);
+  private CeTaskStepsRecorder underTest = new CeTaskStepsRecorder(dbTester.getDbClient(), system, new SequenceUuidFactory());
+
+  @Test
+  public void record_persists_statistics_of_steps_and_visitors() {
+    when(system.now()).thenReturn(NOW);
+    ExecutionStatisticsHolder holder = new ExecutionStatisticsHolder();
+    holder.addStep(new ExecutionStatistics("Extract report", 10L, 8L, 1_000L, null));
+    holder.addStep(new ExecutionStatistics("Persist issues", 20L, null, null, 50L));
+    holder.addVisitor(new ExecutionStatistics("SizeVisitor", 5L, null, null, 12L));
+
+    underTest.record("TASK_1", holder);
+
+    List<CeTaskStepDto> dtos = dbTester.getDbClient().ceTaskStepDao().selectByTaskUuid(dbTester.getSession(), "TASK_1");
+    assertThat(dtos)
+      .extracting(CeTaskStepDto::getStepType, CeTaskStepDto::getName, CeTaskStepDto::getStepIndex, CeTaskStepDto::getDurationMs,
+        CeTaskStepDto::getCpuTimeMs, CeTaskStepDto::getAllocatedBytes, CeTaskStepDto::getProcessedCount, CeTaskStepDto::getCreatedAt)
+      .containsExactly(
+        tuple(CeTaskStepDto.Type.STEP, "Extract report", 0, 10L, 8L, 1_000L, null, NOW),
+        tuple(CeTaskStepDto.Type.STEP, "Persist issues", 1, 20L, null, null, 50L, NOW),
+        tuple(CeTaskStepDto.Type.VISITOR, "SizeVisitor", 0, 5L, null, null, 12L, NOW));
+  }
+
+  @Test
+  public void getDurationPercentiles_is_computed_on_latest_executions() {
+    for (long duration = 1; duration <= DurationWindow.WINDOW_SIZE + 50; duration++) {
+      ExecutionStatisticsHolder holder = new ExecutionStatisticsHolder();
+      holder.addStep(new ExecutionStatistics("Extract report", duration, null, null, null));
+      underTest.record("TASK_" + duration, holder);
+    }
+
+    // durations of the oldest 50 executions are dropped
+    assertThat(underTest.getDurationPercentiles())
+      .containsOnly(entry("Extract report", "p50=100ms p90=140ms p99=149ms (100 executions)"));
+  }
+
+  @Test
+  public void getDurationPercentiles_is_empty_if_no_task_has_been_recorded() {
+    assertThat(underTest.getDurationPercentiles()).isEmpty();
+  }
+}
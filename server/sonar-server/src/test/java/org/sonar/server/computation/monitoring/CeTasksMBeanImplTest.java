@@ -19,7 +19,9 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import com.google.common.collect.ImmutableMap;
 import java.lang.management.ManagementFactory;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.management.InstanceNotFoundException;
 import javax.management.ObjectInstance;
@@ -30,6 +32,9 @@ import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.computation.configuration.CeConfiguration;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class CeTasksMBeanImplTest {
   private static final long PENDING_COUNT = 2;
@@ -38,8 +43,10 @@ public class CeTasksMBeanImplTest {
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
   private static final int WORKER_COUNT = 56;
+  private static final String QUEUE_WAIT_PERCENTILES = "p50=10ms p90=20ms p99=30ms (4 tasks)";
 
-  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
+  private CeTaskStepsRecorder stepsRecorder = mock(CeTaskStepsRecorder.class);
+  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), stepsRecorder);
 
   @Test
   public void register_and_unregister() throws Exception {
@@ -66,6 +73,18 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getWorkerCount()).isEqualTo(WORKER_COUNT);
   }
 
+  @Test
+  public void getStepDurationPercentiles_delegates_to_the_CeTaskStepsRecorder_instance() {
+    when(stepsRecorder.getDurationPercentiles()).thenReturn(ImmutableMap.of("Extract report", "p50=1ms p90=2ms p99=3ms (3 executions)"));
+
+    assertThat(underTest.getStepDurationPercentiles()).containsOnly(entry("Extract report", "p50=1ms p90=2ms p99=3ms (3 executions)"));
+  }
+
+  @Test
+  public void getQueueWaitPercentiles_delegates_to_the_CEQueueStatus_instance() {
+    assertThat(underTest.getQueueWaitPercentiles()).containsOnly(entry("REPORT", QUEUE_WAIT_PERCENTILES));
+  }
+
   @Test
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
@@ -119,6 +138,16 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public void addQueueWait(String bucket, long queueWaitTime) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public Map<String, String> getQueueWaitPercentiles() {
+      return ImmutableMap.of("REPORT", QUEUE_WAIT_PERCENTILES);
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -134,6 +163,11 @@ public class CeTasksMBeanImplTest {
     public long getQueuePollingDelay() {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
+
+    @Override
+    public long getQueueMaxPollingDelay() {
+      throw new UnsupportedOperationException("getQueueMaxPollingDelay is not implemented");
+    }
   }
 
   @CheckForNull
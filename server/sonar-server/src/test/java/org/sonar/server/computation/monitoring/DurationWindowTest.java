@@ -0,0 +1,57 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DurationWindowTest {
+
+  private DurationWindow underTest = new DurationWindow();
+
+  @Test
+  public void keeps_latest_durations_only() {
+    for (long duration = 1; duration <= DurationWindow.WINDOW_SIZE + 3; duration++) {
+      underTest.add(duration);
+    }
+
+    long[] sorted = underTest.sorted();
+    assertThat(sorted).hasSize(DurationWindow.WINDOW_SIZE);
+    assertThat(sorted[0]).isEqualTo(4);
+    assertThat(sorted[DurationWindow.WINDOW_SIZE - 1]).isEqualTo(DurationWindow.WINDOW_SIZE + 3);
+  }
+
+  @Test
+  public void formatPercentiles() {
+    underTest.add(30);
+    underTest.add(10);
+    underTest.add(20);
+
+    assertThat(underTest.formatPercentiles("tasks")).isEqualTo("p50=20ms p90=30ms p99=30ms (3 tasks)");
+  }
+
+  @Test
+  public void percentile_uses_nearest_rank() {
+    assertThat(DurationWindow.percentile(new long[] {7}, 99)).isEqualTo(7);
+    assertThat(DurationWindow.percentile(new long[] {1, 2, 3, 4}, 50)).isEqualTo(2);
+    assertThat(DurationWindow.percentile(new long[] {1, 2, 3, 4}, 90)).isEqualTo(4);
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.queue.CeQueuePeekPolicyImpl.FAIR_SHARE_PROPERTY;
+import static org.sonar.server.computation.queue.CeQueuePeekPolicyImpl.MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY;
+import static org.sonar.server.computation.queue.CeQueuePeekPolicyImpl.TASK_TYPE_PRIORITIES_PROPERTY;
+
+public class CeQueuePeekPolicyImplTest {
+  private static final List<CeQueueDto> NO_TASK = Collections.emptyList();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MapSettings settings = new MapSettings();
+
+  @Test
+  public void sort_keeps_order_of_submission_by_default() {
+    CeQueueDto task1 = newTask("T1", CeTaskTypes.REPORT, "P1", "john");
+    CeQueueDto task2 = newTask("T2", "DEV_REFRESH", "P1", "john");
+    CeQueueDto task3 = newTask("T3", CeTaskTypes.REPORT, "P2", "jane");
+
+    CeQueuePeekPolicyImpl underTest = new CeQueuePeekPolicyImpl(settings);
+
+    assertThat(underTest.sort(asList(task1, task2, task3), asList(newTask("T0", CeTaskTypes.REPORT, "P1", "john"))))
+      .containsExactly(task1, task2, task3);
+  }
+
+  @Test
+  public void is_submission_order_only_with_default_settings() {
+    assertThat(new CeQueuePeekPolicyImpl(settings).isSubmissionOrder()).isTrue();
+
+    assertThat(new CeQueuePeekPolicyImpl(new MapSettings().setProperty(TASK_TYPE_PRIORITIES_PROPERTY, "DEV_REFRESH=10")).isSubmissionOrder()).isFalse();
+    assertThat(new CeQueuePeekPolicyImpl(new MapSettings().setProperty(FAIR_SHARE_PROPERTY, "project")).isSubmissionOrder()).isFalse();
+    assertThat(new CeQueuePeekPolicyImpl(new MapSettings().setProperty(MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY, "2")).isSubmissionOrder()).isFalse();
+    assertThat(new CeQueuePeekPolicyImpl(new MapSettings().setProperty(FAIR_SHARE_PROPERTY, "none")).isSubmissionOrder()).isTrue();
+  }
+
+  @Test
+  public void sort_peeks_tasks_with_highest_priority_first() {
+    settings.setProperty(TASK_TYPE_PRIORITIES_PROPERTY, "DEV_REFRESH=10,OTHER=-1");
+    CeQueueDto report = newTask("T1", CeTaskTypes.REPORT, "P1", null);
+    CeQueueDto other = newTask("T2", "OTHER", "P2", null);
+    CeQueueDto refresh = newTask("T3", "DEV_REFRESH", "P3", null);
+
+    CeQueuePeekPolicyImpl underTest = new CeQueuePeekPolicyImpl(settings);
+
+    assertThat(underTest.sort(asList(report, other, refresh), NO_TASK)).containsExactly(refresh, report, other);
+  }
+
+  @Test
+  public void sort_peeks_tasks_of_projects_with_fewest_recent_and_in_progress_tasks_first() {
+    settings.setProperty(FAIR_SHARE_PROPERTY, "project");
+    CeQueueDto busyProject = newTask("T1", CeTaskTypes.REPORT, "P1", null);
+    CeQueueDto recentProject = newTask("T2", CeTaskTypes.REPORT, "P2", null);
+    CeQueueDto idleProject = newTask("T3", CeTaskTypes.REPORT, "P3", null);
+
+    CeQueuePeekPolicyImpl underTest = new CeQueuePeekPolicyImpl(settings);
+    underTest.onPeek(newTask("T0", CeTaskTypes.REPORT, "P2", null));
+
+    assertThat(underTest.sort(asList(busyProject, recentProject, idleProject), asList(newTask("T0", CeTaskTypes.REPORT, "P1", null),
+      newTask("T4", CeTaskTypes.REPORT, "P1", null))))
+        .containsExactly(idleProject, recentProject, busyProject);
+  }
+
+  @Test
+  public void sort_shares_by_submitter() {
+    settings.setProperty(FAIR_SHARE_PROPERTY, "SUBMITTER");
+    CeQueueDto john1 = newTask("T1", CeTaskTypes.REPORT, "P1", "john");
+    CeQueueDto john2 = newTask("T2", CeTaskTypes.REPORT, "P2", "john");
+    CeQueueDto jane = newTask("T3", CeTaskTypes.REPORT, "P3", "jane");
+
+    CeQueuePeekPolicyImpl underTest = new CeQueuePeekPolicyImpl(settings);
+    underTest.onPeek(newTask("T0", CeTaskTypes.REPORT, "P4", "john"));
+
+    assertThat(underTest.sort(asList(john1, john2, jane), NO_TASK)).containsExactly(jane, john1, john2);
+  }
+
+  @Test
+  public void fair_share_only_takes_latest_peeked_tasks_into_account() {
+    settings.setProperty(FAIR_SHARE_PROPERTY, "project");
+    CeQueueDto task1 = newTask("T1", CeTaskTypes.REPORT, "P1", null);
+    CeQueueDto task2 = newTask("T2", CeTaskTypes.REPORT, "P2", null);
+
+    CeQueuePeekPolicyImpl underTest = new CeQueuePeekPolicyImpl(settings);
+    underTest.onPeek(newTask("T0", CeTaskTypes.REPORT, "P1", null));
+    assertThat(underTest.sort(asList(task1, task2), NO_TASK)).containsExactly(task2, task1);
+
+    for (int i = 0; i < CeQueuePeekPolicyImpl.HISTORY_SIZE; i++) {
+      underTest.onPeek(newTask("T" + i, CeTaskTypes.REPORT, "P" + (i + 10), null));
+    }
+    assertThat(underTest.sort(asList(task1, task2), NO_TASK)).containsExactly(task1, task2);
+  }
+
+  @Test
+  public void sort_excludes_tasks_of_submitters_with_max_tasks_in_progress() {
+    settings.setProperty(MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY, "1");
+    CeQueueDto john = newTask("T1", CeTaskTypes.REPORT, "P1", "john");
+    CeQueueDto jane = newTask("T2", CeTaskTypes.REPORT, "P2", "jane");
+    CeQueueDto anonymous = newTask("T3", CeTaskTypes.REPORT, "P3", null);
+
+    CeQueuePeekPolicyImpl underTest = new CeQueuePeekPolicyImpl(settings);
+
+    assertThat(underTest.sort(asList(john, jane, anonymous), asList(newTask("T0", CeTaskTypes.REPORT, "P4", "john"))))
+      .containsExactly(jane, anonymous);
+  }
+
+  @Test
+  public void getBucket_is_task_type() {
+    CeQueuePeekPolicyImpl underTest = new CeQueuePeekPolicyImpl(settings);
+
+    assertThat(underTest.getBucket(newTask("T1", CeTaskTypes.REPORT, "P1", null))).isEqualTo(CeTaskTypes.REPORT);
+  }
+
+  @Test
+  public void fail_if_priorities_are_invalid() {
+    settings.setProperty(TASK_TYPE_PRIORITIES_PROPERTY, "REPORT=high");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value 'REPORT=high' of property sonar.ce.queue.taskTypePriorities is invalid. " +
+      "It must be a comma-separated list of <task type>=<integer>.");
+
+    new CeQueuePeekPolicyImpl(settings);
+  }
+
+  @Test
+  public void fail_if_fair_share_is_invalid() {
+    settings.setProperty(FAIR_SHARE_PROPERTY, "organization");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value 'organization' of property sonar.ce.queue.fairShare is invalid. " +
+      "It must be one of none, project or submitter.");
+
+    new CeQueuePeekPolicyImpl(settings);
+  }
+
+  @Test
+  public void fail_if_max_in_progress_per_submitter_is_negative() {
+    settings.setProperty(MAX_IN_PROGRESS_PER_SUBMITTER_PROPERTY, "-1");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '-1' of property sonar.ce.queue.maxInProgressPerSubmitter is invalid. " +
+      "It must be a positive integer or 0.");
+
+    new CeQueuePeekPolicyImpl(settings);
+  }
+
+  private static CeQueueDto newTask(String uuid, String taskType, String componentUuid, @Nullable String submitterLogin) {
+    CeQueueDto dto = new CeQueueDto();
+    dto.setUuid(uuid);
+    dto.setTaskType(taskType);
+    dto.setComponentUuid(componentUuid);
+    dto.setSubmitterLogin(submitterLogin);
+    dto.setStatus(CeQueueDto.Status.PENDING);
+    return dto;
+  }
+}
@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.ce.monitoring.CEQueueStatus;
@@ -66,7 +67,7 @@ public class InternalCeQueueImplTest {
 
   UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
-  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus);
+  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, new CeQueuePeekPolicyImpl(new MapSettings()));
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -238,6 +239,36 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_tasks_in_order_of_peek_policy() {
+    InternalCeQueue underTest = newInternalCeQueueWithTaskTypePriorities("DEV_REFRESH=1");
+    CeTask reportTask = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask refreshTask = submit("DEV_REFRESH", "PROJECT_2");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(refreshTask.getUuid());
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(reportTask.getUuid());
+  }
+
+  @Test
+  public void peek_only_oldest_pending_task_of_a_component_whatever_the_peek_policy() {
+    InternalCeQueue underTest = newInternalCeQueueWithTaskTypePriorities("DEV_REFRESH=1");
+    CeTask reportTask = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    submit("DEV_REFRESH", "PROJECT_1");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(reportTask.getUuid());
+    // second task waits for the first one to be processed
+    assertThat(underTest.peek().isPresent()).isFalse();
+  }
+
+  @Test
+  public void peek_records_queue_wait_by_bucket_of_peek_policy() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    underTest.peek();
+
+    assertThat(queueStatus.getQueueWaitPercentiles()).containsOnlyKeys(CeTaskTypes.REPORT);
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -336,6 +367,12 @@ public class InternalCeQueueImplTest {
     return ComponentTesting.newProjectDto(uuid).setName("name_" + uuid).setKey("key_" + uuid);
   }
 
+  private InternalCeQueue newInternalCeQueueWithTaskTypePriorities(String priorities) {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(CeQueuePeekPolicyImpl.TASK_TYPE_PRIORITIES_PROPERTY, priorities);
+    return new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, new CeQueuePeekPolicyImpl(settings));
+  }
+
   private CeTask submit(String reportType, String componentUuid) {
     return underTest.submit(createTaskSubmit(reportType, componentUuid, null));
   }
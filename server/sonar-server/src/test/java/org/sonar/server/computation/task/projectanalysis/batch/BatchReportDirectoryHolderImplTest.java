@@ -39,4 +39,18 @@ public class BatchReportDirectoryHolderImplTest {
 
     assertThat(holder.getDirectory()).isSameAs(file);
   }
+
+  @Test
+  public void getZipFile_is_empty_by_default() {
+    assertThat(new BatchReportDirectoryHolderImpl().getZipFile()).isEmpty();
+  }
+
+  @Test
+  public void getZipFile_returns_File_set_with_setZipFile() {
+    File file = new File("report.zip");
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setZipFile(file);
+
+    assertThat(holder.getZipFile()).contains(file);
+  }
 }
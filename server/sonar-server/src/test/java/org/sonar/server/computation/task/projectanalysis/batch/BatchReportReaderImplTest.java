@@ -25,6 +25,7 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -315,4 +316,27 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void read_report_from_zip_file() throws IOException {
+    writer.writeComponent(COMPONENT);
+    writer.writeComponentIssues(COMPONENT_REF, of(ISSUE));
+    writer.writeTests(COMPONENT_REF, of(TEST_1, TEST_2));
+    File zip = tempFolder.newFile();
+    ZipUtils.zipDir(writer.getFileStructure().metadataFile().getParentFile(), zip);
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setDirectory(tempFolder.newDir());
+    holder.setZipFile(zip);
+    underTest = new BatchReportReaderImpl(holder);
+
+    assertThat(underTest.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).containsExactly(ISSUE);
+    try (CloseableIterator<ScannerReport.Test> res = underTest.readTests(COMPONENT_REF)) {
+      assertThat(res).containsExactly(TEST_1, TEST_2);
+    }
+    assertThat(underTest.readComponentMeasures(COMPONENT_REF)).isEmpty();
+    // entries are not extracted
+    assertThat(holder.getDirectory().listFiles()).isEmpty();
+    underTest.stop();
+  }
 }
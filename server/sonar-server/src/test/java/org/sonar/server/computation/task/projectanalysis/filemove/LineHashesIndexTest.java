@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineHashesIndexTest {
+
+  private static final int MIN_SCORE = 85;
+
+  @Test
+  public void findCandidates_returns_files_with_same_lines() {
+    LineHashesIndex underTest = new LineHashesIndex(asList(
+      fileOf("a", "b", "c"),
+      fileOf("d", "e", "f"),
+      fileOf("c", "b", "a")));
+
+    assertThat(underTest.findCandidates(asList("a", "b", "c"), MIN_SCORE)).containsExactly(0, 2);
+    assertThat(underTest.findCandidates(asList("d", "e", "f"), MIN_SCORE)).containsExactly(1);
+    assertThat(underTest.findCandidates(asList("x", "y", "z"), MIN_SCORE)).isEmpty();
+  }
+
+  @Test
+  public void findCandidates_requires_min_score_percent_of_lines_of_longest_file_in_common() {
+    List<String> twentyLines = lines(20);
+    LineHashesIndex underTest = new LineHashesIndex(asList(
+      fileOf(twentyLines.subList(0, 17)),
+      fileOf(twentyLines.subList(0, 16))));
+
+    // 17 lines of 20 in common is 85%, 16 lines of 20 is 80%
+    assertThat(underTest.findCandidates(twentyLines, MIN_SCORE)).containsExactly(0);
+  }
+
+  @Test
+  public void findCandidates_counts_duplicated_lines_only_once_per_occurrence() {
+    LineHashesIndex underTest = new LineHashesIndex(asList(
+      fileOf("}", "}", "}", "}", "}", "}", "}", "}", "}", "a"),
+      fileOf("}", "b", "c", "d", "e", "f", "g", "h", "i", "a")));
+
+    assertThat(underTest.findCandidates(asList("}", "}", "}", "}", "}", "}", "}", "}", "}", "a"), MIN_SCORE)).containsExactly(0);
+  }
+
+  @Test
+  public void findCandidates_never_returns_files_without_lines() {
+    LineHashesIndex underTest = new LineHashesIndex(asList(
+      new FileSimilarity.File("path", null, null),
+      fileOf()));
+
+    assertThat(underTest.findCandidates(asList("a"), MIN_SCORE)).isEmpty();
+    assertThat(underTest.findCandidates(Collections.emptyList(), MIN_SCORE)).isEmpty();
+    assertThat(underTest.findCandidates(null, MIN_SCORE)).isEmpty();
+  }
+
+  @Test
+  public void findCandidates_returns_all_pairs_which_may_reach_score() {
+    List<String> lines = lines(100);
+    List<String> modifiedLines = lines(100);
+    modifiedLines.set(10, "modified");
+    LineHashesIndex underTest = new LineHashesIndex(asList(fileOf(modifiedLines)));
+
+    assertThat(underTest.findCandidates(lines, MIN_SCORE)).containsExactly(0);
+    assertThat(new SourceSimilarityImpl().score(lines, modifiedLines)).isGreaterThanOrEqualTo(MIN_SCORE);
+  }
+
+  private static List<String> lines(int count) {
+    List<String> res = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      res.add("line " + i);
+    }
+    return res;
+  }
+
+  private static FileSimilarity.File fileOf(String... lineHashes) {
+    return fileOf(asList(lineHashes));
+  }
+
+  private static FileSimilarity.File fileOf(List<String> lineHashes) {
+    return new FileSimilarity.File("path", null, lineHashes);
+  }
+}
@@ -21,6 +21,8 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.core.issue.DefaultIssue;
@@ -55,6 +57,23 @@ public class ComponentIssuesRepositoryImplTest {
     assertThat(sut.getIssues(FILE_1)).isEmpty();
   }
 
+  @Test
+  public void issues_are_kept_per_thread() throws Exception {
+    DefaultIssue otherIssue = new DefaultIssue().setKey("OTHER");
+    sut.setIssues(FILE_1, Arrays.asList(DUMB_ISSUE));
+
+    AtomicReference<List<DefaultIssue>> issuesOfOtherThread = new AtomicReference<>();
+    Thread thread = new Thread(() -> {
+      sut.setIssues(FILE_2, Arrays.asList(otherIssue));
+      issuesOfOtherThread.set(sut.getIssues(FILE_2));
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(issuesOfOtherThread.get()).containsOnly(otherIssue);
+    assertThat(sut.getIssues(FILE_1)).containsOnly(DUMB_ISSUE);
+  }
+
   @Test
   public void fail_with_NPE_when_setting_issues_with_null_component() throws Exception {
     thrown.expect(NullPointerException.class);
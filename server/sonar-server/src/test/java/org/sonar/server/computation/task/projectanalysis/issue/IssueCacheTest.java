@@ -0,0 +1,259 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Date;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class IssueCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read_issues() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    try (CloseableIterator<DefaultIssue> traverse = underTest.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+
+    underTest.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE1").setComponentUuid("FILE1"))
+      .append(new DefaultIssue().setKey("ISSUE2").setComponentUuid("FILE1"))
+      .append(new DefaultIssue().setKey("ISSUE3").setComponentUuid("FILE2"))
+      .close();
+    underTest.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE4").setComponentUuid("FILE1"))
+      .close();
+
+    assertThat(keys(underTest.traverse())).containsExactly("ISSUE1", "ISSUE2", "ISSUE3", "ISSUE4");
+  }
+
+  @Test
+  public void traverse_issues_of_a_single_component() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    underTest.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE1").setComponentUuid("FILE1"))
+      .append(new DefaultIssue().setKey("ISSUE2").setComponentUuid("FILE2"))
+      .append(new DefaultIssue().setKey("ISSUE3").setComponentUuid("FILE1"))
+      .close();
+
+    assertThat(keys(underTest.traverse("FILE1"))).containsExactly("ISSUE1", "ISSUE3");
+    assertThat(keys(underTest.traverse("FILE2"))).containsExactly("ISSUE2");
+    assertThat(underTest.traverse("UNKNOWN")).isEmpty();
+  }
+
+  @Test
+  public void write_and_read_uncompressed_issues() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE, false);
+    underTest.newAppender()
+      .append(new DefaultIssue().setKey("ISSUE1").setComponentUuid("FILE1"))
+      .append(new DefaultIssue().setKey("ISSUE2").setComponentUuid("FILE2"))
+      .close();
+
+    assertThat(keys(underTest.traverse())).containsExactly("ISSUE1", "ISSUE2");
+    assertThat(keys(underTest.traverse("FILE2"))).containsExactly("ISSUE2");
+  }
+
+  @Test
+  public void issues_are_not_visible_before_appender_is_closed() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    IssueCache.CacheAppender appender = underTest.newAppender().append(new DefaultIssue().setKey("ISSUE1").setComponentUuid("FILE1"));
+
+    assertThat(underTest.traverse()).isEmpty();
+
+    appender.close();
+    assertThat(keys(underTest.traverse())).containsExactly("ISSUE1");
+  }
+
+  @Test
+  public void read_all_fields_of_issue() throws Exception {
+    Date date = new Date(1_500_000_000_000L);
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(1).setEndLine(2))
+      .build();
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE1")
+      .setType(RuleType.BUG)
+      .setComponentUuid("FILE1")
+      .setComponentKey("PROJECT:File1")
+      .setModuleUuid("MODULE1")
+      .setModuleUuidPath(".MODULE1.")
+      .setProjectUuid("PROJECT1")
+      .setProjectKey("PROJECT")
+      .setRuleKey(RuleKey.of("xoo", "x1"))
+      .setLanguage("xoo")
+      .setSeverity("MAJOR")
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(10)
+      .setGap(3.5)
+      .setEffort(Duration.create(20L))
+      .setStatus("RESOLVED")
+      .setResolution("FIXED")
+      .setAssignee("john")
+      .setChecksum("abc")
+      .setAttribute("jira", "SONAR-123")
+      .setAuthorLogin("jane")
+      .setTags(asList("tag1", "tag2"))
+      .setLocations(locations)
+      .setCreationDate(date)
+      .setUpdateDate(date)
+      .setCloseDate(date)
+      .setNew(false)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(1_000L);
+    issue.addComment(new DefaultIssueComment().setKey("COMMENT1").setIssueKey("ISSUE1").setUserLogin("john")
+      .setMarkdownText("a comment").setCreatedAt(date).setUpdatedAt(date).setNew(true));
+    IssueChangeContext context = IssueChangeContext.createUser(date, "john");
+    issue.setFieldChange(context, "severity", "MINOR", "MAJOR");
+    issue.setFieldChange(context, "type", RuleType.CODE_SMELL, RuleType.BUG);
+    issue.setFieldChange(context, "effort", 10L, 20L);
+    FieldDiffs pastChange = new FieldDiffs().setIssueKey("ISSUE1").setUserLogin("jane").setCreationDate(date).setDiff("status", "OPEN", "CONFIRMED");
+    issue.addChange(pastChange);
+
+    DefaultIssue read = writeAndRead(issue);
+
+    assertThat(read.key()).isEqualTo("ISSUE1");
+    assertThat(read.type()).isEqualTo(RuleType.BUG);
+    assertThat(read.componentUuid()).isEqualTo("FILE1");
+    assertThat(read.componentKey()).isEqualTo("PROJECT:File1");
+    assertThat(read.moduleUuid()).isEqualTo("MODULE1");
+    assertThat(read.moduleUuidPath()).isEqualTo(".MODULE1.");
+    assertThat(read.projectUuid()).isEqualTo("PROJECT1");
+    assertThat(read.projectKey()).isEqualTo("PROJECT");
+    assertThat(read.ruleKey()).isEqualTo(RuleKey.of("xoo", "x1"));
+    assertThat(read.language()).isEqualTo("xoo");
+    assertThat(read.severity()).isEqualTo("MAJOR");
+    assertThat(read.manualSeverity()).isTrue();
+    assertThat(read.message()).isEqualTo("the message");
+    assertThat(read.line()).isEqualTo(10);
+    assertThat(read.gap()).isEqualTo(3.5);
+    assertThat(read.effort()).isEqualTo(Duration.create(20L));
+    assertThat(read.status()).isEqualTo("RESOLVED");
+    assertThat(read.resolution()).isEqualTo("FIXED");
+    assertThat(read.assignee()).isEqualTo("john");
+    assertThat(read.checksum()).isEqualTo("abc");
+    assertThat(read.attributes()).containsOnly(entry("jira", "SONAR-123"));
+    assertThat(read.authorLogin()).isEqualTo("jane");
+    assertThat(read.tags()).containsExactly("tag1", "tag2");
+    assertThat((DbIssues.Locations) read.getLocations()).isEqualTo(locations);
+    assertThat(read.creationDate()).isEqualTo(date);
+    assertThat(read.updateDate()).isEqualTo(date);
+    assertThat(read.closeDate()).isEqualTo(date);
+    assertThat(read.isNew()).isFalse();
+    assertThat(read.isBeingClosed()).isTrue();
+    assertThat(read.isOnDisabledRule()).isTrue();
+    assertThat(read.isChanged()).isTrue();
+    assertThat(read.mustSendNotifications()).isTrue();
+    assertThat(read.selectedAt()).isEqualTo(1_000L);
+
+    assertThat(read.comments()).hasSize(1);
+    DefaultIssueComment comment = (DefaultIssueComment) read.comments().get(0);
+    assertThat(comment.key()).isEqualTo("COMMENT1");
+    assertThat(comment.issueKey()).isEqualTo("ISSUE1");
+    assertThat(comment.userLogin()).isEqualTo("john");
+    assertThat(comment.markdownText()).isEqualTo("a comment");
+    assertThat(comment.createdAt()).isEqualTo(date);
+    assertThat(comment.updatedAt()).isEqualTo(date);
+    assertThat(comment.isNew()).isTrue();
+
+    // the current change is referenced once per call to setFieldChange()
+    List<FieldDiffs> changes = read.changes();
+    assertThat(changes).hasSize(4);
+    assertThat(changes.get(0)).isSameAs(read.currentChange());
+    assertThat(changes.get(1)).isSameAs(read.currentChange());
+    assertThat(changes.get(2)).isSameAs(read.currentChange());
+    FieldDiffs currentChange = read.currentChange();
+    assertThat(currentChange.userLogin()).isEqualTo("john");
+    assertThat(currentChange.creationDate()).isEqualTo(date);
+    assertThat(currentChange.get("severity").oldValue()).isEqualTo("MINOR");
+    assertThat(currentChange.get("severity").newValue()).isEqualTo("MAJOR");
+    assertThat(currentChange.get("type").oldValue()).isEqualTo(RuleType.CODE_SMELL);
+    assertThat(currentChange.get("type").newValue()).isEqualTo(RuleType.BUG);
+    assertThat(currentChange.get("effort").oldValue()).isEqualTo(10L);
+    assertThat(currentChange.get("effort").newValue()).isEqualTo(20L);
+    FieldDiffs readPastChange = changes.get(3);
+    assertThat(readPastChange.issueKey()).isEqualTo("ISSUE1");
+    assertThat(readPastChange.userLogin()).isEqualTo("jane");
+    assertThat(readPastChange.toString()).isEqualTo("status=OPEN|CONFIRMED");
+  }
+
+  @Test
+  public void read_issue_with_default_fields() throws Exception {
+    DefaultIssue read = writeAndRead(new DefaultIssue());
+
+    assertThat(read.key()).isNull();
+    assertThat(read.type()).isNull();
+    assertThat(read.ruleKey()).isNull();
+    assertThat(read.line()).isNull();
+    assertThat(read.effort()).isNull();
+    assertThat(read.status()).isNull();
+    assertThat(read.tags()).isEmpty();
+    assertThat(read.attributes()).isEmpty();
+    assertThat((Object) read.getLocations()).isNull();
+    assertThat(read.creationDate()).isNull();
+    assertThat(read.currentChange()).isNull();
+    assertThat(read.changes()).isEmpty();
+    assertThat(read.comments()).isEmpty();
+    assertThat(read.isNew()).isTrue();
+    assertThat(read.selectedAt()).isNull();
+  }
+
+  private DefaultIssue writeAndRead(DefaultIssue issue) throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    underTest.newAppender().append(issue).close();
+    try (CloseableIterator<DefaultIssue> traverse = underTest.traverse()) {
+      return traverse.next();
+    }
+  }
+
+  private static List<String> keys(CloseableIterator<DefaultIssue> issues) {
+    List<String> keys = newArrayList();
+    try (CloseableIterator<DefaultIssue> it = issues) {
+      while (it.hasNext()) {
+        keys.add(it.next().key());
+      }
+    }
+    return keys;
+  }
+}
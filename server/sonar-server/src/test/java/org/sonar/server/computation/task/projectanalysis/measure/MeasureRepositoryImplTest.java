@@ -27,13 +27,18 @@ import com.google.common.collect.SetMultimap;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -45,6 +50,8 @@ import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
@@ -70,6 +77,8 @@ public class MeasureRepositoryImplTest {
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
 
   private static final String FILE_COMPONENT_KEY = "file cpt key";
   private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey(FILE_COMPONENT_KEY).build();
@@ -89,24 +98,30 @@ public class MeasureRepositoryImplTest {
 
   private DbClient dbClient = dbTester.getDbClient();
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator);
+  private MapSettings settings = new MapSettings();
+  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator, treeRootHolder, settings);
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator,
+    mock(TreeRootHolder.class), settings);
 
   private DbSession dbSession = dbTester.getSession();
 
   @Before
   public void setUp() {
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
     when(metric1.getKey()).thenReturn(METRIC_KEY_1);
     when(metric1.getType()).thenReturn(Metric.MetricType.STRING);
+    when(metric2.getId()).thenReturn(METRIC_ID_2);
     when(metric2.getKey()).thenReturn(METRIC_KEY_2);
     when(metric2.getType()).thenReturn(Metric.MetricType.STRING);
 
     // references to metrics are consistent with DB by design
     when(metricRepository.getByKey(METRIC_KEY_1)).thenReturn(metric1);
     when(metricRepository.getByKey(METRIC_KEY_2)).thenReturn(metric2);
+
+    treeRootHolder.setRoot(FILE_COMPONENT);
   }
 
   @Test
@@ -155,6 +170,94 @@ public class MeasureRepositoryImplTest {
     assertThat(res).isAbsent();
   }
 
+  @Test
+  public void getBaseMeasure_loads_measures_of_the_whole_tree_at_once() {
+    ReportComponent file = ReportComponent.builder(Component.Type.FILE, 2).build();
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).addChildren(file).build());
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, "uuid_1", LAST_ANALYSIS_UUID));
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_2, file.getUuid(), LAST_ANALYSIS_UUID));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(treeRootHolder.getRoot(), metric1)).isPresent();
+
+    // measures are not read from DB anymore
+    dbTester.executeUpdateSql("delete from project_measures");
+    assertThat(underTest.getBaseMeasure(file, metric2).get().getStringValue()).isEqualTo(SOME_DATA);
+    assertThat(underTest.getBaseMeasure(file, metric1)).isAbsent();
+    assertThat(underTest.getBaseMeasure(treeRootHolder.getRoot(), metric2)).isAbsent();
+  }
+
+  @Test
+  public void getBaseMeasure_loads_measures_per_component_when_tree_exceeds_max_size() {
+    settings.setProperty(BaseMeasureCache.MAX_SIZE_PROPERTY, 1);
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, FILE_COMPONENT.getUuid(), LAST_ANALYSIS_UUID));
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_2, FILE_COMPONENT.getUuid(), LAST_ANALYSIS_UUID));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metric1)).isPresent();
+
+    // measures of the last requested component are kept in memory
+    dbTester.executeUpdateSql("delete from project_measures");
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metric2).get().getStringValue()).isEqualTo(SOME_DATA);
+  }
+
+  @Test
+  public void getBaseMeasure_keeps_value_variations_and_quality_gate_status_of_measures_loaded_in_bulk() {
+    when(metric1.getType()).thenReturn(Metric.MetricType.FLOAT);
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, FILE_COMPONENT.getUuid(), LAST_ANALYSIS_UUID)
+      .setData(null)
+      .setValue(12.5d)
+      .setVariation(1, 1.5d)
+      .setVariation(3, -2d)
+      .setAlertStatus("WARN")
+      .setAlertText("some alert"));
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_2, FILE_COMPONENT.getUuid(), LAST_ANALYSIS_UUID));
+    dbSession.commit();
+
+    Measure measure = underTest.getBaseMeasure(FILE_COMPONENT, metric1).get();
+
+    assertThat(measure.getDoubleValue()).isEqualTo(12.5d);
+    assertThat(measure.getVariations().getVariation1()).isEqualTo(1.5d);
+    assertThat(measure.getVariations().hasVariation2()).isFalse();
+    assertThat(measure.getVariations().getVariation3()).isEqualTo(-2d);
+    assertThat(measure.getQualityGateStatus().getStatus()).isEqualTo(Measure.Level.WARN);
+    assertThat(measure.getQualityGateStatus().getText()).isEqualTo("some alert");
+    Measure other = underTest.getBaseMeasure(FILE_COMPONENT, metric2).get();
+    assertThat(other.getStringValue()).isEqualTo(SOME_DATA);
+    assertThat(other.hasVariations()).isFalse();
+    assertThat(other.hasQualityGateStatus()).isFalse();
+  }
+
+  @Test
+  public void getBaseMeasure_can_be_called_concurrently() throws Exception {
+    List<ReportComponent> files = new ArrayList<>();
+    for (int i = 2; i < 22; i++) {
+      files.add(ReportComponent.builder(Component.Type.FILE, i).build());
+    }
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).addChildren(files.toArray(new Component[files.size()])).build());
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    for (ReportComponent file : files) {
+      dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, file.getUuid(), LAST_ANALYSIS_UUID));
+    }
+    dbSession.commit();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Optional<Measure>>> futures = new ArrayList<>();
+      for (ReportComponent file : files) {
+        futures.add(executor.submit(() -> underTest.getBaseMeasure(file, metric1)));
+      }
+      for (Future<Optional<Measure>> future : futures) {
+        assertThat(future.get().get().getStringValue()).isEqualTo(SOME_DATA);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void add_throws_NPE_if_Component_argument_is_null() {
     expectedException.expect(NullPointerException.class);
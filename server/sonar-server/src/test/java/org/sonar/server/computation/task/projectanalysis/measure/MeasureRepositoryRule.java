@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -60,7 +61,8 @@ public class MeasureRepositoryRule extends ExternalResource implements MeasureRe
   @CheckForNull
   private final MetricRepositoryRule metricRepositoryRule;
   private final Map<InternalKey, Measure> baseMeasures = new HashMap<>();
-  private final Map<InternalKey, Measure> rawMeasures = new HashMap<>();
+  // concurrent, as measures may be added by thread-safe visitors
+  private final Map<InternalKey, Measure> rawMeasures = new ConcurrentHashMap<>();
   private final Map<InternalKey, Measure> initialRawMeasures = new HashMap<>();
   private final Predicate<Map.Entry<InternalKey, Measure>> isAddedMeasure = new Predicate<Map.Entry<InternalKey, Measure>>() {
     @Override
@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.measure.MeasureDto;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.component.SnapshotTesting.newAnalysis;
+
+public class PastMeasureRepositoryImplTest {
+
+  private static final Metric NCLOC_METRIC = new MetricImpl(1, "ncloc", "ncloc", Metric.MetricType.INT);
+  private static final Metric COVERAGE_METRIC = new MetricImpl(2, "coverage", "coverage", Metric.MetricType.PERCENT);
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private DbClient dbClient = dbTester.getDbClient();
+  private DbSession dbSession = dbTester.getSession();
+
+  private PastMeasureRepositoryImpl underTest = new PastMeasureRepositoryImpl(dbClient);
+
+  @Test
+  public void getValue_returns_values_of_measures_of_specified_analysis() {
+    ComponentDto projectDto = dbTester.components().insertProject();
+    ComponentDto directoryDto = dbTester.components().insertComponent(ComponentTesting.newDirectory(projectDto, "dir"));
+    SnapshotDto analysis1 = dbTester.components().insertSnapshot(newAnalysis(projectDto).setLast(false));
+    SnapshotDto analysis2 = dbTester.components().insertSnapshot(newAnalysis(projectDto));
+    insertMeasure(NCLOC_METRIC, projectDto, analysis1, 10d);
+    insertMeasure(COVERAGE_METRIC, projectDto, analysis1, 50.5d);
+    insertMeasure(NCLOC_METRIC, directoryDto, analysis1, 5d);
+    insertMeasure(NCLOC_METRIC, projectDto, analysis2, 20d);
+    dbTester.commit();
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(projectDto.uuid()).build();
+    Component directory = ReportComponent.builder(Component.Type.DIRECTORY, 2).setUuid(directoryDto.uuid()).build();
+
+    assertThat(underTest.getValue(analysis1.getUuid(), project, NCLOC_METRIC)).isEqualTo(10d);
+    assertThat(underTest.getValue(analysis1.getUuid(), project, COVERAGE_METRIC)).isEqualTo(50.5d);
+    assertThat(underTest.getValue(analysis1.getUuid(), directory, NCLOC_METRIC)).isEqualTo(5d);
+    assertThat(underTest.getValue(analysis1.getUuid(), directory, COVERAGE_METRIC)).isNull();
+    assertThat(underTest.getValue(analysis2.getUuid(), project, NCLOC_METRIC)).isEqualTo(20d);
+    assertThat(underTest.getValue(analysis2.getUuid(), directory, NCLOC_METRIC)).isNull();
+  }
+
+  @Test
+  public void measures_of_an_analysis_are_loaded_only_once() {
+    ComponentDto projectDto = dbTester.components().insertProject();
+    SnapshotDto analysis = dbTester.components().insertSnapshot(newAnalysis(projectDto));
+    insertMeasure(NCLOC_METRIC, projectDto, analysis, 10d);
+    dbTester.commit();
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(projectDto.uuid()).build();
+
+    assertThat(underTest.getValue(analysis.getUuid(), project, COVERAGE_METRIC)).isNull();
+
+    dbTester.executeUpdateSql("delete from project_measures");
+    assertThat(underTest.getValue(analysis.getUuid(), project, NCLOC_METRIC)).isEqualTo(10d);
+  }
+
+  @Test
+  public void getValue_returns_null_if_analysis_does_not_exist() {
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).build();
+
+    assertThat(underTest.getValue("unknown", project, NCLOC_METRIC)).isNull();
+  }
+
+  @Test
+  public void getValue_throws_NPE_if_analysis_uuid_is_null() {
+    expectedException.expect(NullPointerException.class);
+
+    underTest.getValue(null, ReportComponent.builder(Component.Type.PROJECT, 1).build(), NCLOC_METRIC);
+  }
+
+  private void insertMeasure(Metric metric, ComponentDto component, SnapshotDto analysis, double value) {
+    dbClient.measureDao().insert(dbSession, new MeasureDto()
+      .setMetricId(metric.getId())
+      .setComponentUuid(component.uuid())
+      .setAnalysisUuid(analysis.getUuid())
+      .setValue(value));
+  }
+}
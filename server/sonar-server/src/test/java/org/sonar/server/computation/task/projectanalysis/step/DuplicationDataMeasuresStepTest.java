@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.MapSettings;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
@@ -68,7 +69,9 @@ public class DuplicationDataMeasuresStepTest extends BaseStepTest {
   @Rule
   public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
 
-  DuplicationDataMeasuresStep underTest = new DuplicationDataMeasuresStep(treeRootHolder, metricRepository, measureRepository, duplicationRepository);
+  private MapSettings settings = new MapSettings();
+
+  DuplicationDataMeasuresStep underTest = new DuplicationDataMeasuresStep(treeRootHolder, metricRepository, measureRepository, duplicationRepository, settings);
 
   @Override
   protected ComputationStep step() {
@@ -123,4 +126,18 @@ public class DuplicationDataMeasuresStepTest extends BaseStepTest {
     assertThat(measureRepository.getAddedRawMeasure(FILE_2_REF, DUPLICATIONS_DATA_KEY)).isAbsent();
   }
 
+  @Test
+  public void compute_duplications_of_files_concurrently() {
+    settings.setProperty(ExecuteVisitorsStep.THREADS_PROPERTY, 4);
+    duplicationRepository.addDuplication(FILE_1_REF, new TextBlock(1, 5), new TextBlock(6, 10));
+    duplicationRepository.addDuplication(FILE_2_REF, new TextBlock(2, 3), FILE_1_REF, new TextBlock(7, 8));
+
+    underTest.execute();
+
+    assertThat(measureRepository.getAddedRawMeasure(FILE_1_REF, DUPLICATIONS_DATA_KEY).get().getData()).isEqualTo(
+      "<duplications><g><b s=\"1\" l=\"5\" r=\"" + FILE_1_KEY + "\"/><b s=\"6\" l=\"5\" r=\"" + FILE_1_KEY + "\"/></g></duplications>");
+    assertThat(measureRepository.getAddedRawMeasure(FILE_2_REF, DUPLICATIONS_DATA_KEY).get().getData()).isEqualTo(
+      "<duplications><g><b s=\"2\" l=\"2\" r=\"" + FILE_2_KEY + "\"/><b s=\"7\" l=\"2\" r=\"" + FILE_1_KEY + "\"/></g></duplications>");
+  }
+
 }
@@ -19,10 +19,17 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.server.computation.task.ChangeLogLevel;
@@ -36,10 +43,17 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureReposito
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.source.LastCommitVisitor;
+import org.sonar.server.computation.task.step.ExecutionStatistics;
+import org.sonar.server.computation.task.step.ExecutionStatisticsHolder;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.sonar.api.measures.CoreMetrics.LAST_COMMIT_DATE;
+import static org.sonar.api.measures.CoreMetrics.LAST_COMMIT_DATE_KEY;
 import static org.sonar.api.measures.CoreMetrics.NCLOC;
 import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
@@ -48,6 +62,7 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
 import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+import static org.sonar.server.computation.task.projectanalysis.scm.Changeset.newChangesetBuilder;
 
 public class ExecuteVisitorsStepTest {
 
@@ -64,12 +79,18 @@ public class ExecuteVisitorsStepTest {
   @Rule
   public MetricRepositoryRule metricRepository = new MetricRepositoryRule()
     .add(1, NCLOC)
-    .add(new MetricImpl(2, TEST_METRIC_KEY, "name", Metric.MetricType.INT));
+    .add(new MetricImpl(2, TEST_METRIC_KEY, "name", Metric.MetricType.INT))
+    .add(3, LAST_COMMIT_DATE);
   @Rule
   public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
   @Rule
+  public ScmInfoRepositoryRule scmInfoRepository = new ScmInfoRepositoryRule();
+  @Rule
   public LogTester logTester = new LogTester();
 
+  private MapSettings settings = new MapSettings();
+  private ExecutionStatisticsHolder statisticsHolder = new ExecutionStatisticsHolder();
+
   @Before
   public void setUp() throws Exception {
     treeRootHolder.setRoot(
@@ -88,7 +109,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_type_aware_visitor() throws Exception {
-    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestTypeAwareVisitor()));
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestTypeAwareVisitor()), settings, statisticsHolder);
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(2));
@@ -107,7 +128,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_path_aware_visitor() throws Exception {
-    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestPathAwareVisitor()));
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestPathAwareVisitor()), settings, statisticsHolder);
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(1));
@@ -121,6 +142,96 @@ public class ExecuteVisitorsStepTest {
     assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
   }
 
+  @Test
+  public void execute_thread_safe_visitor_concurrently_and_in_post_order() {
+    settings.setProperty(ExecuteVisitorsStep.THREADS_PROPERTY, 4);
+    treeRootHolder.setRoot(
+      builder(PROJECT, ROOT_REF).setKey("project")
+        .addChildren(
+          builder(DIRECTORY, DIRECTORY_REF).setKey("directory")
+            .addChildren(
+              builder(FILE, FILE_1_REF).setKey("file1").build(),
+              builder(FILE, FILE_2_REF).setKey("file2").build())
+            .build())
+        .build());
+    ThreadSafeVisitor visitor = new ThreadSafeVisitor();
+
+    new ExecuteVisitorsStep(treeRootHolder, singletonList(visitor), settings, statisticsHolder).execute();
+
+    assertThat(visitor.visitedKeys.subList(0, 2)).containsOnly("file1", "file2");
+    assertThat(visitor.visitedKeys.subList(2, 4)).containsExactly("directory", "project");
+  }
+
+  @Test
+  public void sibling_files_are_visited_at_the_same_time_by_thread_safe_visitor() {
+    settings.setProperty(ExecuteVisitorsStep.THREADS_PROPERTY, 4);
+    treeRootHolder.setRoot(
+      builder(PROJECT, ROOT_REF).setKey("project")
+        .addChildren(
+          builder(DIRECTORY, DIRECTORY_REF).setKey("directory")
+            .addChildren(
+              builder(FILE, FILE_1_REF).setKey("file1").build(),
+              builder(FILE, FILE_2_REF).setKey("file2").build())
+            .build())
+        .build());
+    BarrierVisitor visitor = new BarrierVisitor();
+
+    new ExecuteVisitorsStep(treeRootHolder, singletonList(visitor), settings, statisticsHolder).execute();
+
+    assertThat(visitor.threads).hasSize(2);
+  }
+
+  @Test
+  public void sibling_files_are_visited_concurrently_by_thread_safe_path_aware_visitor() {
+    settings.setProperty(ExecuteVisitorsStep.THREADS_PROPERTY, 4);
+    BarrierVisitor barrierVisitor = new BarrierVisitor();
+    TestPathAwareVisitor pathAwareVisitor = new TestPathAwareVisitor() {
+      @Override
+      public boolean isThreadSafe() {
+        return true;
+      }
+    };
+    measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
+    measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(1));
+
+    new ExecuteVisitorsStep(treeRootHolder, asList(barrierVisitor, pathAwareVisitor), settings, statisticsHolder).execute();
+
+    assertThat(barrierVisitor.threads).hasSize(2);
+    // files are given the path of their directory
+    assertThat(measureRepository.getAddedRawMeasure(FILE_1_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(1);
+    assertThat(measureRepository.getAddedRawMeasure(FILE_2_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(1);
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
+    assertThat(measureRepository.getAddedRawMeasure(MODULE_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
+  }
+
+  @Test
+  public void sibling_files_are_visited_concurrently_by_last_commit_visitor() {
+    settings.setProperty(ExecuteVisitorsStep.THREADS_PROPERTY, 4);
+    scmInfoRepository.setScmInfo(FILE_1_REF, newChangesetBuilder().setAuthor("john").setDate(1_500_000_000_000L).setRevision("rev-1").build());
+    scmInfoRepository.setScmInfo(FILE_2_REF, newChangesetBuilder().setAuthor("tom").setDate(1_600_000_000_000L).setRevision("rev-2").build());
+    BarrierVisitor barrierVisitor = new BarrierVisitor();
+    LastCommitVisitor lastCommitVisitor = new LastCommitVisitor(metricRepository, measureRepository, scmInfoRepository);
+
+    new ExecuteVisitorsStep(treeRootHolder, asList(barrierVisitor, lastCommitVisitor), settings, statisticsHolder).execute();
+
+    assertThat(barrierVisitor.threads).hasSize(2);
+    assertThat(measureRepository.getAddedRawMeasure(FILE_1_REF, LAST_COMMIT_DATE_KEY).get().getLongValue()).isEqualTo(1_500_000_000_000L);
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, LAST_COMMIT_DATE_KEY).get().getLongValue()).isEqualTo(1_600_000_000_000L);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, LAST_COMMIT_DATE_KEY).get().getLongValue()).isEqualTo(1_600_000_000_000L);
+  }
+
+  @Test
+  public void visitors_are_executed_by_a_single_thread_by_default() {
+    assertThat(new ExecuteVisitorsStep(treeRootHolder, singletonList(new VisitorA()), settings, statisticsHolder).getThreads()).isEqualTo(1);
+
+    settings.setProperty(ExecuteVisitorsStep.THREADS_PROPERTY, 8);
+    assertThat(new ExecuteVisitorsStep(treeRootHolder, singletonList(new VisitorA()), settings, statisticsHolder).getThreads()).isEqualTo(8);
+
+    settings.setProperty(ExecuteVisitorsStep.THREADS_PROPERTY, -2);
+    assertThat(new ExecuteVisitorsStep(treeRootHolder, singletonList(new VisitorA()), settings, statisticsHolder).getThreads()).isEqualTo(1);
+  }
+
   @Test
   public void execute_logs_at_info_level_all_execution_duration_of_all_visitors() {
     try (ChangeLogLevel executor = new ChangeLogLevel(ExecuteVisitorsStep.class, LoggerLevel.DEBUG);
@@ -129,7 +240,7 @@ public class ExecuteVisitorsStepTest {
       ChangeLogLevel step3 = new ChangeLogLevel(VisitorB.class, LoggerLevel.DEBUG)) {
       ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(
         treeRootHolder,
-        asList(new VisitorA(), new VisitorB(), new VisitorC()));
+        asList(new VisitorA(), new VisitorB(), new VisitorC()), settings, statisticsHolder);
 
       underStep.execute();
 
@@ -143,6 +254,62 @@ public class ExecuteVisitorsStepTest {
     }
   }
 
+  @Test
+  public void execute_records_statistics_of_all_visitors() {
+    new ExecuteVisitorsStep(treeRootHolder, asList(new VisitorA(), new ThreadSafeVisitor()), settings, statisticsHolder).execute();
+
+    assertThat(statisticsHolder.getSteps()).isEmpty();
+    assertThat(statisticsHolder.getVisitors())
+      .extracting(ExecutionStatistics::getName, ExecutionStatistics::getProcessedCount)
+      .containsExactly(tuple("VisitorA", 1L), tuple("ThreadSafeVisitor", 5L));
+    assertThat(statisticsHolder.getVisitors().get(0).getDurationMs()).isGreaterThanOrEqualTo(0L);
+  }
+
+  private static class ThreadSafeVisitor extends TypeAwareVisitorAdapter {
+    private final List<String> visitedKeys = Collections.synchronizedList(new ArrayList<>());
+
+    ThreadSafeVisitor() {
+      super(CrawlerDepthLimit.FILE, Order.POST_ORDER);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+      return true;
+    }
+
+    @Override
+    public void visitAny(Component component) {
+      visitedKeys.add(component.getKey());
+    }
+  }
+
+  /**
+   * Each file waits for its sibling to be visited, which fails if they are visited in sequence
+   */
+  private static class BarrierVisitor extends TypeAwareVisitorAdapter {
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+    private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+
+    BarrierVisitor() {
+      super(CrawlerDepthLimit.FILE, Order.PRE_ORDER);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+      return true;
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      threads.add(Thread.currentThread());
+      try {
+        barrier.await(10, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        throw new IllegalStateException("Files are not visited concurrently", e);
+      }
+    }
+  }
+
   private static class VisitorA extends TypeAwareVisitorAdapter {
     public VisitorA() {
       super(CrawlerDepthLimit.PROJECT, Order.PRE_ORDER);
@@ -222,11 +389,11 @@ public class ExecuteVisitorsStepTest {
   public class Counter {
     private int value = 0;
 
-    public void add(int value) {
+    public synchronized void add(int value) {
       this.value += value;
     }
 
-    public int getValue() {
+    public synchronized int getValue() {
       return value;
     }
   }
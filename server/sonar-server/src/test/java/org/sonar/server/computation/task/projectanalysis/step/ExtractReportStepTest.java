@@ -70,7 +70,7 @@ public class ExtractReportStepTest {
   }
 
   @Test
-  public void unzip_report() throws Exception {
+  public void copy_report_without_unzipping_it() throws Exception {
     File reportFile = generateReport();
     try (InputStream input = FileUtils.openInputStream(reportFile)) {
       dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
@@ -80,11 +80,12 @@ public class ExtractReportStepTest {
 
     underTest.execute();
 
-    // directory contains the uncompressed report (which contains only metadata.pb in this test)
-    File unzippedDir = reportDirectoryHolder.getDirectory();
-    assertThat(unzippedDir).isDirectory().exists();
-    assertThat(unzippedDir.listFiles()).hasSize(1);
-    assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
+    File zipFile = reportDirectoryHolder.getZipFile().get();
+    assertThat(FileUtils.contentEquals(zipFile, reportFile)).isTrue();
+    // directory is used only to extract entries on demand
+    File dir = reportDirectoryHolder.getDirectory();
+    assertThat(dir).isDirectory().exists();
+    assertThat(dir.listFiles()).isEmpty();
   }
 
   private File generateReport() throws IOException {
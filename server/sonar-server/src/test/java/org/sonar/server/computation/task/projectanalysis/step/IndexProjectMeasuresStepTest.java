@@ -20,32 +20,119 @@
 
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Rule;
 import org.junit.Test;
-import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.mockito.ArgumentCaptor;
+import org.sonar.server.component.es.ProjectMeasuresDoc;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.measure.Measure;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureVariations;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.sonar.api.measures.CoreMetrics.ALERT_STATUS;
+import static org.sonar.api.measures.CoreMetrics.ALERT_STATUS_KEY;
+import static org.sonar.api.measures.CoreMetrics.COVERAGE;
+import static org.sonar.api.measures.CoreMetrics.COVERAGE_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_VIOLATIONS;
+import static org.sonar.api.measures.CoreMetrics.NEW_VIOLATIONS_KEY;
+import static org.sonar.server.component.es.ProjectMeasuresIndexDefinition.FIELD_MEASURES_KEY;
+import static org.sonar.server.component.es.ProjectMeasuresIndexDefinition.FIELD_MEASURES_VALUE;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
 
 public class IndexProjectMeasuresStepTest {
 
-  static String PROJECT_UUID = "PROJECT_UUID";
+  static final String PROJECT_UUID = "PROJECT_UUID";
+  static final int PROJECT_REF = 1;
+  static final long ANALYSIS_DATE = 1_500_000_000_000L;
 
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule()
-    .setRoot(builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey("PROJECT_KEY").build());
+    .setRoot(builder(PROJECT, PROJECT_REF).setUuid(PROJECT_UUID).setKey("PROJECT_KEY").setName("Project").build());
+
+  @Rule
+  public MetricRepositoryRule metricRepository = new MetricRepositoryRule()
+    .add(NCLOC)
+    .add(COVERAGE)
+    .add(NEW_VIOLATIONS)
+    .add(ALERT_STATUS)
+    .add(NCLOC_LANGUAGE_DISTRIBUTION);
+
+  @Rule
+  public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+
+  @Rule
+  public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule().setAnalysisDate(ANALYSIS_DATE);
+
+  ProjectMeasuresIndexer indexer = mock(ProjectMeasuresIndexer.class);
+
+  IndexProjectMeasuresStep underTest = new IndexProjectMeasuresStep(indexer, treeRootHolder, metricRepository, measureRepository, analysisMetadataHolder);
+
+  @Test
+  public void index_project() {
+    ProjectMeasuresDoc doc = executeAndGetIndexedDoc();
+
+    assertThat(doc.getId()).isEqualTo(PROJECT_UUID);
+    assertThat(doc.getKey()).isEqualTo("PROJECT_KEY");
+    assertThat(doc.getName()).isEqualTo("Project");
+    assertThat(doc.getAnalysedAt().getTime()).isEqualTo(ANALYSIS_DATE);
+    assertThat(doc.getMeasures()).isEmpty();
+    assertThat(doc.getQualityGate()).isNull();
+  }
+
+  @Test
+  public void index_numeric_measures_computed_by_analysis() {
+    measureRepository.addRawMeasure(PROJECT_REF, NCLOC_KEY, newMeasureBuilder().create(10));
+    measureRepository.addRawMeasure(PROJECT_REF, COVERAGE_KEY, newMeasureBuilder().create(75.5d, 1));
+    measureRepository.addRawMeasure(PROJECT_REF, NEW_VIOLATIONS_KEY, newMeasureBuilder().setVariations(new MeasureVariations(3d)).createNoValue());
+
+    ProjectMeasuresDoc doc = executeAndGetIndexedDoc();
+
+    assertThat(measuresByKey(doc)).containsOnly(
+      entry(NCLOC_KEY, 10d),
+      entry(COVERAGE_KEY, 75.5d),
+      entry(NEW_VIOLATIONS_KEY, 3d));
+  }
 
   @Test
-  public void call_indexer() {
-    ProjectMeasuresIndexer indexer = mock(ProjectMeasuresIndexer.class);
-    IndexProjectMeasuresStep underTest = new IndexProjectMeasuresStep(indexer, treeRootHolder);
+  public void index_quality_gate_status_and_ignore_non_numeric_measures() {
+    measureRepository.addRawMeasure(PROJECT_REF, ALERT_STATUS_KEY, newMeasureBuilder().create(Measure.Level.ERROR));
+    measureRepository.addRawMeasure(PROJECT_REF, NCLOC_LANGUAGE_DISTRIBUTION_KEY, newMeasureBuilder().create("java=10"));
+
+    ProjectMeasuresDoc doc = executeAndGetIndexedDoc();
+
+    assertThat(doc.getQualityGate()).isEqualTo("ERROR");
+    assertThat(doc.getMeasures()).isEmpty();
+  }
 
+  private ProjectMeasuresDoc executeAndGetIndexedDoc() {
     underTest.execute();
 
-    verify(indexer).index(PROJECT_UUID);
+    ArgumentCaptor<ProjectMeasuresDoc> docCaptor = ArgumentCaptor.forClass(ProjectMeasuresDoc.class);
+    verify(indexer).index(docCaptor.capture());
+    return docCaptor.getValue();
+  }
+
+  private static Map<String, Double> measuresByKey(ProjectMeasuresDoc doc) {
+    Map<String, Double> measures = new HashMap<>();
+    for (Map<String, Object> measure : doc.getMeasures()) {
+      measures.put((String) measure.get(FIELD_MEASURES_KEY), (Double) measure.get(FIELD_MEASURES_VALUE));
+    }
+    return measures;
   }
 
 }
@@ -38,6 +38,7 @@ import org.sonar.server.computation.task.projectanalysis.component.ReportCompone
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureVariations;
+import org.sonar.server.computation.task.projectanalysis.measure.PastMeasureRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
@@ -89,7 +90,8 @@ public class ReportComputeMeasureVariationsStepTest {
     dbClient.componentDao().insert(session, PROJECT_DTO);
     session.commit();
 
-    underTest = new ComputeMeasureVariationsStep(dbClient, treeRootHolder, periodsHolder, metricRepository, measureRepository);
+    underTest = new ComputeMeasureVariationsStep(treeRootHolder, periodsHolder, metricRepository, measureRepository,
+      new PastMeasureRepositoryImpl(dbClient));
   }
 
   @Test
@@ -36,6 +36,7 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.measure.PastMeasureRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
@@ -87,7 +88,8 @@ public class ViewsComputeMeasureVariationsStepTest {
     dbClient.componentDao().insert(session, VIEW_DTO);
     session.commit();
 
-    underTest = new ComputeMeasureVariationsStep(dbClient, treeRootHolder, periodsHolder, metricRepository, measureRepository);
+    underTest = new ComputeMeasureVariationsStep(treeRootHolder, periodsHolder, metricRepository, measureRepository,
+      new PastMeasureRepositoryImpl(dbClient));
   }
 
   @Test
@@ -19,12 +19,19 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.server.computation.task.ChangeLogLevel;
@@ -45,6 +52,8 @@ public class ComputationStepExecutorTest {
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
+  private final Settings settings = new MapSettings();
+  private final ExecutionStatisticsHolder statisticsHolder = new ExecutionStatisticsHolder();
   private final ComputationStepExecutor.Listener listener = mock(ComputationStepExecutor.Listener.class);
   private final ComputationStep computationStep1 = mockComputationStep("step1");
   private final ComputationStep computationStep2 = mockComputationStep("step2");
@@ -52,7 +61,7 @@ public class ComputationStepExecutorTest {
 
   @Test
   public void execute_call_execute_on_each_ComputationStep_in_order_returned_by_instances_method() {
-    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3))
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3), settings, statisticsHolder)
       .execute();
 
     InOrder inOrder = inOrder(computationStep1, computationStep2, computationStep3);
@@ -74,7 +83,7 @@ public class ComputationStepExecutorTest {
       .when(computationStep)
       .execute();
 
-    ComputationStepExecutor computationStepExecutor = new ComputationStepExecutor(mockComputationSteps(computationStep));
+    ComputationStepExecutor computationStepExecutor = new ComputationStepExecutor(mockComputationSteps(computationStep), settings, statisticsHolder);
 
     expectedException.expect(RuntimeException.class);
     expectedException.expectMessage(message);
@@ -108,16 +117,33 @@ public class ComputationStepExecutorTest {
     try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, level);
       ChangeLogLevel step1 = new ChangeLogLevel(computationStep1.getClass(), level);
       ChangeLogLevel step2 = new ChangeLogLevel(computationStep2.getClass(), level)) {
-      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2))
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), settings, statisticsHolder)
         .execute();
 
       return logTester.logs(LoggerLevel.DEBUG);
     }
   }
 
+  @Test
+  public void execute_records_statistics_of_each_step_even_if_it_fails() {
+    doThrow(new IllegalStateException("simulating failing execute Step method"))
+      .when(computationStep2)
+      .execute();
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2, computationStep3), settings, statisticsHolder).execute();
+      fail("exception should have been raised");
+    } catch (IllegalStateException e) {
+      assertThat(statisticsHolder.getSteps()).extracting(ExecutionStatistics::getName).containsExactly("step1", "step2");
+      assertThat(statisticsHolder.getSteps().get(0).getDurationMs()).isGreaterThanOrEqualTo(0L);
+      assertThat(statisticsHolder.getSteps().get(0).getProcessedCount()).isNull();
+      assertThat(statisticsHolder.getVisitors()).isEmpty();
+    }
+  }
+
   @Test
   public void execute_calls_listener_finished_method_with_all_step_runs() {
-    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), listener)
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), settings, statisticsHolder, listener)
       .execute();
 
     verify(listener).finished(true);
@@ -132,7 +158,7 @@ public class ComputationStepExecutorTest {
       .execute();
 
     try {
-      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), listener)
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), settings, statisticsHolder, listener)
         .execute();
       fail("exception toBeThrown should have been raised");
     } catch (RuntimeException e) {
@@ -149,7 +175,78 @@ public class ComputationStepExecutorTest {
         .when(listener)
         .finished(anyBoolean());
 
-    new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
+    new ComputationStepExecutor(mockComputationSteps(computationStep1), settings, statisticsHolder, listener).execute();
+  }
+
+  @Test
+  public void getThreads_is_1_by_default() {
+    assertThat(new ComputationStepExecutor(mockComputationSteps(), settings, statisticsHolder).getThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void getThreads_is_read_from_settings_and_is_at_least_1() {
+    settings.setProperty(ComputationStepExecutor.THREADS_PROPERTY, 4);
+    assertThat(new ComputationStepExecutor(mockComputationSteps(), settings, statisticsHolder).getThreads()).isEqualTo(4);
+
+    settings.setProperty(ComputationStepExecutor.THREADS_PROPERTY, -2);
+    assertThat(new ComputationStepExecutor(mockComputationSteps(), settings, statisticsHolder).getThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void steps_conflict_when_one_writes_a_resource_used_by_the_other() {
+    FakeConcurrentStep writer = new FakeConcurrentStep("writer", ImmutableSet.of("a"), ImmutableSet.of("b"));
+
+    assertThat(ComputationStepExecutor.conflict(writer, new FakeConcurrentStep("reader", ImmutableSet.of("b"), ImmutableSet.of("c")))).isTrue();
+    assertThat(ComputationStepExecutor.conflict(writer, new FakeConcurrentStep("writer2", ImmutableSet.of("c"), ImmutableSet.of("b")))).isTrue();
+    assertThat(ComputationStepExecutor.conflict(writer, new FakeConcurrentStep("writer3", ImmutableSet.of("c"), ImmutableSet.of("a")))).isTrue();
+    assertThat(ComputationStepExecutor.conflict(writer, new FakeConcurrentStep("reader2", ImmutableSet.of("a"), ImmutableSet.of("c")))).isFalse();
+  }
+
+  @Test
+  public void execute_runs_non_conflicting_concurrent_steps_in_parallel() {
+    settings.setProperty(ComputationStepExecutor.THREADS_PROPERTY, 2);
+    CountDownLatch latch = new CountDownLatch(2);
+    FakeConcurrentStep step1 = new FakeConcurrentStep("step1", ImmutableSet.of("a"), ImmutableSet.of("b"), latch);
+    FakeConcurrentStep step2 = new FakeConcurrentStep("step2", ImmutableSet.of("a"), ImmutableSet.of("c"), latch);
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), settings, statisticsHolder).execute();
+
+    // each step waits for the other one to be started
+    assertThat(step1.concurrentlyExecuted).isTrue();
+    assertThat(step2.concurrentlyExecuted).isTrue();
+  }
+
+  @Test
+  public void execute_runs_conflicting_concurrent_steps_in_order() {
+    settings.setProperty(ComputationStepExecutor.THREADS_PROPERTY, 4);
+    List<String> executed = new CopyOnWriteArrayList<>();
+    FakeConcurrentStep writer = new FakeConcurrentStep("writer", ImmutableSet.of("a"), ImmutableSet.of("b"), executed);
+    FakeConcurrentStep reader = new FakeConcurrentStep("reader", ImmutableSet.of("b"), ImmutableSet.of("c"), executed);
+    ComputationStep barrier = mockComputationStep("barrier");
+    FakeConcurrentStep last = new FakeConcurrentStep("last", ImmutableSet.of("d"), ImmutableSet.of("e"), executed);
+
+    new ComputationStepExecutor(mockComputationSteps(writer, reader, barrier, last), settings, statisticsHolder).execute();
+
+    assertThat(executed).containsExactly("writer", "reader", "last");
+    verify(barrier).execute();
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_concurrent_step_go_up_as_is() {
+    settings.setProperty(ComputationStepExecutor.THREADS_PROPERTY, 2);
+    List<String> executed = new CopyOnWriteArrayList<>();
+    FakeConcurrentStep failing = new FakeConcurrentStep("failing", ImmutableSet.of("a"), ImmutableSet.of("b"), executed);
+    failing.failure = new IllegalStateException("Exception should go up");
+    FakeConcurrentStep dependent = new FakeConcurrentStep("dependent", ImmutableSet.of("b"), ImmutableSet.of("c"), executed);
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(failing, dependent), settings, statisticsHolder, listener).execute();
+      fail("exception should have been raised");
+    } catch (IllegalStateException e) {
+      assertThat(e).isSameAs(failing.failure);
+      assertThat(executed).containsExactly("failing");
+      verify(listener).finished(false);
+    }
   }
 
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
@@ -163,4 +260,65 @@ public class ComputationStepExecutorTest {
     when(mock.getDescription()).thenReturn(desc);
     return mock;
   }
+
+  private static class FakeConcurrentStep implements ConcurrentComputationStep {
+    private final String description;
+    private final Set<String> readResources;
+    private final Set<String> writtenResources;
+    private final CountDownLatch latch;
+    private final List<String> executed;
+    private RuntimeException failure;
+    private boolean concurrentlyExecuted = false;
+
+    private FakeConcurrentStep(String description, Set<String> readResources, Set<String> writtenResources) {
+      this(description, readResources, writtenResources, new CountDownLatch(0), new CopyOnWriteArrayList<>());
+    }
+
+    private FakeConcurrentStep(String description, Set<String> readResources, Set<String> writtenResources, CountDownLatch latch) {
+      this(description, readResources, writtenResources, latch, new CopyOnWriteArrayList<>());
+    }
+
+    private FakeConcurrentStep(String description, Set<String> readResources, Set<String> writtenResources, List<String> executed) {
+      this(description, readResources, writtenResources, new CountDownLatch(0), executed);
+    }
+
+    private FakeConcurrentStep(String description, Set<String> readResources, Set<String> writtenResources, CountDownLatch latch, List<String> executed) {
+      this.description = description;
+      this.readResources = readResources;
+      this.writtenResources = writtenResources;
+      this.latch = latch;
+      this.executed = executed;
+    }
+
+    @Override
+    public Set<String> getReadResources() {
+      return readResources;
+    }
+
+    @Override
+    public Set<String> getWrittenResources() {
+      return writtenResources;
+    }
+
+    @Override
+    public void execute() {
+      latch.countDown();
+      try {
+        concurrentlyExecuted = latch.await(10, TimeUnit.SECONDS);
+        // give a chance to conflicting steps to be wrongly executed before this one completes
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      executed.add(description);
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
 }
@@ -48,8 +48,10 @@ import org.sonar.server.computation.configuration.CeConfigurationRule;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -142,6 +144,69 @@ public class CeProcessingSchedulerImplTest {
       );
   }
 
+  @Test
+  public void polls_with_exponential_backoff_up_to_max_delay_while_CeWorkerCallable_returns_false() throws Exception {
+    ceConfiguration.setQueueMaxPollingDelay(8000L);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(true)
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      new SchedulerCall(ceWorkerRunnable, 4000L, TimeUnit.MILLISECONDS),
+      new SchedulerCall(ceWorkerRunnable, 8000L, TimeUnit.MILLISECONDS),
+      new SchedulerCall(ceWorkerRunnable, 8000L, TimeUnit.MILLISECONDS),
+      new SchedulerCall(ceWorkerRunnable, 8000L, TimeUnit.MILLISECONDS),
+      notDelayedPoll,
+      regularDelayedPoll
+      );
+  }
+
+  @Test
+  public void wakeUpWorkers_cancels_delayed_polling_and_polls_without_delay() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    underTest.wakeUpWorkers();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll
+      );
+  }
+
+  @Test
+  public void wakeUpWorkers_while_polling_makes_next_polling_without_delay() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenAnswer(invocation -> {
+        underTest.wakeUpWorkers();
+        return false;
+      })
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll
+      );
+  }
+
   @Test
   public void stop_cancels_next_polling_and_does_not_add_any_new_one() throws Exception {
     when(ceWorkerRunnable.call())
@@ -190,15 +255,41 @@ public class CeProcessingSchedulerImplTest {
     ListenableScheduledFuture listenableScheduledFuture = mock(ListenableScheduledFuture.class);
     CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
     CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
-    when(processingExecutorService.schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
+    when(processingExecutorService.schedule(any(CeProcessingSchedulerImpl.DelayedWorkerCallable.class), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS)))
         .thenReturn(listenableScheduledFuture);
 
     underTest.startScheduling();
 
-    verify(processingExecutorService, times(workerCount)).schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS);
+    verify(processingExecutorService, times(workerCount)).schedule(any(CeProcessingSchedulerImpl.DelayedWorkerCallable.class), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS));
     verify(listenableScheduledFuture, times(workerCount)).addListener(any(Runnable.class), eq(processingExecutorService));
   }
 
+  @Test
+  public void delayed_poll_cancelled_before_its_future_is_set_is_cancelled_once_set() throws Exception {
+    CeProcessingSchedulerImpl.DelayedWorkerCallable callable = new CeProcessingSchedulerImpl.DelayedWorkerCallable(ceWorkerRunnable);
+    ListenableFuture<Boolean> future = mock(ListenableFuture.class);
+
+    callable.cancel();
+    callable.setFuture(future);
+
+    verify(future).cancel(false);
+    assertThat(callable.call()).isFalse();
+    verify(ceWorkerRunnable, never()).call();
+  }
+
+  @Test
+  public void delayed_poll_can_not_be_cancelled_once_started() throws Exception {
+    CeProcessingSchedulerImpl.DelayedWorkerCallable callable = new CeProcessingSchedulerImpl.DelayedWorkerCallable(ceWorkerRunnable);
+    ListenableFuture<Boolean> future = mock(ListenableFuture.class);
+    when(ceWorkerRunnable.call()).thenReturn(true);
+
+    assertThat(callable.call()).isTrue();
+    callable.setFuture(future);
+    callable.cancel();
+
+    verify(future, never()).cancel(anyBoolean());
+  }
+
   private void startSchedulingAndRun() throws ExecutionException, InterruptedException {
     underTest.startScheduling();
 
@@ -234,7 +325,10 @@ public class CeProcessingSchedulerImplTest {
 
     @Override
     public <V> ListenableScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
-      this.schedulerCalls.add(new SchedulerCall(callable, delay, unit));
+      Callable<?> workerCallable = callable instanceof CeProcessingSchedulerImpl.DelayedWorkerCallable
+        ? ((CeProcessingSchedulerImpl.DelayedWorkerCallable) callable).getDelegate()
+        : callable;
+      this.schedulerCalls.add(new SchedulerCall(workerCallable, delay, unit));
       return delegate.schedule(callable, delay, unit);
     }
 
@@ -20,6 +20,12 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
@@ -27,8 +33,15 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class BulkIndexerTest {
 
@@ -83,6 +96,138 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void add_documents_concurrently_and_flush() throws Exception {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setFlushByteSize(500);
+    indexer.start();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < 4; thread++) {
+      int offset = thread * 100;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 100; i++) {
+          indexer.add(newIndexRequest(offset + i));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    indexer.flush();
+    esTester.client().prepareRefresh(FakeIndexDefinition.INDEX).get();
+    assertThat(count()).isEqualTo(400);
+
+    indexer.stop();
+    assertThat(count()).isEqualTo(400);
+  }
+
+  @Test
+  public void copy_requests_to_mirror_index() {
+    esTester.client().prepareCreate("fakes_mirror").get();
+    esTester.client().writeMirrors().add(FakeIndexDefinition.INDEX, "fakes_mirror");
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setLarge(true);
+    indexer.start();
+
+    // settings are not changed as the mirrored index is still in use
+    assertThat(replicas()).isEqualTo(1);
+
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(2);
+    esTester.client().prepareRefresh("fakes_mirror").get();
+    assertThat(esTester.countDocuments("fakes_mirror", FakeIndexDefinition.TYPE)).isEqualTo(2);
+  }
+
+  @Test
+  public void send_requests_to_target_index() {
+    esTester.client().prepareCreate("fakes_v2").get();
+    esTester.client().writeMirrors().add(FakeIndexDefinition.INDEX, "fakes_v2");
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setTargetIndex("fakes_v2")
+      .setLarge(true);
+    indexer.start();
+
+    // settings of the index which serves requests are not changed
+    assertThat(replicas()).isEqualTo(1);
+
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    indexer.stop();
+
+    // documents are written to the target index only
+    assertThat(count()).isEqualTo(0);
+    assertThat(esTester.countDocuments("fakes_v2", FakeIndexDefinition.TYPE)).isEqualTo(2);
+  }
+
+  @Test
+  public void do_not_overwrite_documents_of_target_index() {
+    esTester.client().prepareCreate("fakes_v2").get();
+    // written meanwhile through a mirror
+    esTester.client().nativeClient().prepareIndex("fakes_v2", FakeIndexDefinition.TYPE, "D1")
+      .setSource(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, 2)).get();
+    IndexingQueue queue = mock(IndexingQueue.class);
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setTargetIndex("fakes_v2")
+      .setRecoveryQueue(queue);
+    indexer.start();
+    indexer.add(newIndexRequest(1).id("D1"));
+    indexer.add(newIndexRequest(3).id("D2"));
+    indexer.stop();
+
+    assertThat(esTester.client().prepareGet("fakes_v2", FakeIndexDefinition.TYPE, "D1").get().getSource())
+      .containsEntry(FakeIndexDefinition.INT_FIELD, 2);
+    assertThat(esTester.countDocuments("fakes_v2", FakeIndexDefinition.TYPE)).isEqualTo(2);
+    // existing document is not an error
+    verify(queue).stopIndexing(asList(new DocId("fakes_v2", FakeIndexDefinition.TYPE, "D1", null),
+      new DocId("fakes_v2", FakeIndexDefinition.TYPE, "D2", null)), Collections.emptyList());
+  }
+
+  @Test
+  public void journal_documents_before_sending_them_and_remove_them_when_acknowledged() {
+    IndexingQueue queue = mock(IndexingQueue.class);
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setRecoveryQueue(queue);
+    indexer.start();
+    indexer.add(newIndexRequest(42).id("D1"));
+    indexer.add(newIndexRequest(78).id("D2"));
+    verifyZeroInteractions(queue);
+    indexer.stop();
+
+    List<DocId> docs = asList(new DocId(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, "D1", null),
+      new DocId(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, "D2", null));
+    InOrder inOrder = inOrder(queue);
+    inOrder.verify(queue).startIndexing(docs);
+    inOrder.verify(queue).stopIndexing(docs, Collections.emptyList());
+    assertThat(count()).isEqualTo(2);
+  }
+
+  @Test
+  public void keep_documents_of_failed_requests_in_journal() {
+    IndexingQueue queue = mock(IndexingQueue.class);
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setRecoveryQueue(queue);
+    indexer.start();
+    indexer.add(newIndexRequest(42).id("D1"));
+    // value is not an integer, document is rejected
+    indexer.add(new IndexRequest(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, "D2").source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, "not_an_int")));
+    indexer.stop();
+
+    DocId doc1 = new DocId(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, "D1", null);
+    DocId doc2 = new DocId(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, "D2", null);
+    verify(queue).startIndexing(asList(doc1, doc2));
+    verify(queue).stopIndexing(singletonList(doc1), singletonList(doc2));
+  }
+
   @Test
   public void bulk_delete() throws Exception {
     int max = 500;
@@ -109,7 +254,8 @@ public class BulkIndexerTest {
   private int replicas() {
     GetSettingsResponse settingsResp = esTester.client().nativeClient().admin().indices()
       .prepareGetSettings(FakeIndexDefinition.INDEX).get();
-    return Integer.parseInt(settingsResp.getSetting(FakeIndexDefinition.INDEX, IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
+    // index is requested through an alias
+    return Integer.parseInt(settingsResp.getIndexToSettings().valuesIt().next().get(IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
   }
 
   private IndexRequest newIndexRequest(int intField) {
@@ -72,6 +72,7 @@ public class EsTester extends ExternalResource {
       container.addSingletons(indexDefinitions);
       container.addSingleton(client);
       container.addSingleton(IndexDefinitions.class);
+      container.addSingleton(IndexRebuilds.class);
       container.addSingleton(IndexCreator.class);
       container.startComponents();
     }
@@ -20,11 +20,15 @@
 package org.sonar.server.es;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.settings.Settings;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.config.MapSettings;
@@ -36,24 +40,29 @@ public class IndexCreatorTest {
   @Rule
   public EsTester es = new EsTester();
 
+  private IndexRebuilds rebuilds = new IndexRebuilds(es.client());
+
   @Test
   public void create_index() throws Exception {
     assertThat(mappings()).isEmpty();
 
     IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new MapSettings());
     registry.start();
-    IndexCreator creator = new IndexCreator(es.client(), registry);
+    IndexCreator creator = new IndexCreator(es.client(), registry, rebuilds);
     creator.start();
 
-    // check that index is created with related mapping
+    // check that index is created with related mapping and is requested through alias
+    String indexName = physicalIndex("fakes");
+    assertThat(indexName).startsWith("fakes_");
     ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> mappings = mappings();
-    MappingMetaData mapping = mappings.get("fakes").get("fake");
+    MappingMetaData mapping = mappings.get(indexName).get("fake");
     assertThat(mapping.type()).isEqualTo("fake");
     assertThat(mapping.getSourceAsMap()).isNotEmpty();
     assertThat(countMappingFields(mapping)).isEqualTo(2);
     assertThat(field(mapping, "updatedAt").get("type")).isEqualTo("date");
 
-    assertThat(setting("fakes", "index.sonar_hash")).isNotEmpty();
+    assertThat(setting(indexName, "index.sonar_hash")).isNotEmpty();
+    assertThat(rebuilds.getAliases()).isEmpty();
 
     // of course do not delete indices on stop
     creator.stop();
@@ -61,33 +70,90 @@ public class IndexCreatorTest {
   }
 
   @Test
-  public void recreate_index_on_definition_changes() throws Exception {
+  public void do_not_recreate_index_if_definition_does_not_change() {
+    IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new MapSettings());
+    registry.start();
+    new IndexCreator(es.client(), registry, rebuilds).start();
+    String indexName = physicalIndex("fakes");
+
+    new IndexCreator(es.client(), registry, rebuilds).start();
+
+    assertThat(physicalIndex("fakes")).isEqualTo(indexName);
+    assertThat(rebuilds.getAliases()).isEmpty();
+  }
+
+  @Test
+  public void rebuild_index_on_definition_changes() throws Exception {
     assertThat(mappings()).isEmpty();
 
     // v1
     IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new MapSettings());
     registry.start();
-    IndexCreator creator = new IndexCreator(es.client(), registry);
+    IndexCreator creator = new IndexCreator(es.client(), registry, rebuilds);
     creator.start();
     creator.stop();
-    String hashV1 = setting("fakes", "index.sonar_hash");
+    String indexV1 = physicalIndex("fakes");
+    String hashV1 = setting(indexV1, "index.sonar_hash");
     assertThat(hashV1).isNotEmpty();
 
     // v2
     registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinitionV2()}, new MapSettings());
     registry.start();
-    creator = new IndexCreator(es.client(), registry);
+    creator = new IndexCreator(es.client(), registry, rebuilds);
     creator.start();
+
+    // v1 is still used until v2 is populated
+    assertThat(physicalIndex("fakes")).isEqualTo(indexV1);
+    assertThat(rebuilds.getAliases()).containsExactly("fakes");
+    assertThat(es.client().writeMirrors().isMirrored("fakes")).isTrue();
+
+    rebuilds.complete("fakes");
+
+    String indexV2 = physicalIndex("fakes");
+    assertThat(indexV2).isNotEqualTo(indexV1);
     ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> mappings = mappings();
-    MappingMetaData mapping = mappings.get("fakes").get("fake");
+    assertThat(mappings.containsKey(indexV1)).isFalse();
+    MappingMetaData mapping = mappings.get(indexV2).get("fake");
     assertThat(countMappingFields(mapping)).isEqualTo(3);
     assertThat(field(mapping, "updatedAt").get("type")).isEqualTo("date");
     assertThat(field(mapping, "newField").get("type")).isEqualTo("integer");
-    String hashV2 = setting("fakes", "index.sonar_hash");
+    String hashV2 = setting(indexV2, "index.sonar_hash");
     assertThat(hashV2).isNotEqualTo(hashV1);
+    assertThat(rebuilds.getAliases()).isEmpty();
+    assertThat(es.client().writeMirrors().isMirrored("fakes")).isFalse();
     creator.stop();
   }
 
+  @Test
+  public void rebuild_index_created_without_alias() throws Exception {
+    // index created by a previous version, without alias
+    es.client().prepareCreate("fakes").setSettings(Settings.builder().put("index.sonar_hash", "old")).get();
+
+    IndexDefinitions registry = new IndexDefinitions(new IndexDefinition[] {new FakeIndexDefinition()}, new MapSettings());
+    registry.start();
+    new IndexCreator(es.client(), registry, rebuilds).start();
+
+    assertThat(rebuilds.getAliases()).containsExactly("fakes");
+    assertThat(physicalIndex("fakes")).isEqualTo("fakes");
+
+    rebuilds.complete("fakes");
+
+    assertThat(physicalIndex("fakes")).startsWith("fakes_");
+    assertThat(mappings().containsKey("fakes")).isFalse();
+  }
+
+  private String physicalIndex(String alias) {
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases = es.client().nativeClient().admin().indices().prepareGetAliases(alias).get().getAliases();
+    Iterator<String> indices = aliases.keysIt();
+    while (indices.hasNext()) {
+      String index = indices.next();
+      if (!aliases.get(index).isEmpty()) {
+        return index;
+      }
+    }
+    return alias;
+  }
+
   private String setting(String indexName, String settingKey) {
     GetSettingsResponse indexSettings = es.client().nativeClient().admin().indices().prepareGetSettings(indexName).get();
     return indexSettings.getSetting(indexName, settingKey);
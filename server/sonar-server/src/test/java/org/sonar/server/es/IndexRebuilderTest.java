@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.concurrent.CountDownLatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.platform.Server;
+import org.sonar.api.utils.System2;
+import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.platform.ServerLifecycleNotifier;
+import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
+import org.sonar.server.rule.index.RuleIndexer;
+import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.view.index.ViewIndexer;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexRebuilderTest {
+
+  private IndexRebuilds indexRebuilds = mock(IndexRebuilds.class);
+  private PermissionIndexer permissionIndexer = mock(PermissionIndexer.class);
+  private IssueIndexer issueIndexer = mock(IssueIndexer.class);
+  private ProjectMeasuresIndexer projectMeasuresIndexer = mock(ProjectMeasuresIndexer.class);
+  private TestIndexer testIndexer = mock(TestIndexer.class);
+  private UserIndexer userIndexer = mock(UserIndexer.class);
+  private ViewIndexer viewIndexer = mock(ViewIndexer.class);
+  private RuleIndexer ruleIndexer = mock(RuleIndexer.class);
+  private ActiveRuleIndexer activeRuleIndexer = mock(ActiveRuleIndexer.class);
+  private MapSettings settings = new MapSettings();
+  private System2 system2 = mock(System2.class);
+  private ComponentContainer level4 = new ComponentContainer();
+
+  @Before
+  public void setUp() {
+    when(indexRebuilds.getNewIndex("issues")).thenReturn("issues_v2");
+    when(indexRebuilds.getNewIndex("rules")).thenReturn("rules_v2");
+    when(system2.now()).thenReturn(1_000L);
+    level4.add(indexRebuilds, permissionIndexer, issueIndexer, projectMeasuresIndexer, testIndexer, userIndexer, viewIndexer,
+      ruleIndexer, activeRuleIndexer, settings, system2, IndexRebuilder.class);
+  }
+
+  @After
+  public void tearDown() {
+    level4.stopComponents();
+  }
+
+  @Test
+  public void populate_new_indices_after_startup_tasks_are_stopped() throws Exception {
+    when(indexRebuilds.getAliases()).thenReturn(ImmutableSortedSet.of("issues", "rules"));
+    CountDownLatch startupTasksStopped = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      startupTasksStopped.await();
+      return null;
+    }).when(permissionIndexer).indexAll("issues", "issues_v2");
+    level4.startComponents();
+
+    executeStartupTasks();
+    startupTasksStopped.countDown();
+
+    verify(indexRebuilds, timeout(10_000)).complete("rules");
+    verify(permissionIndexer).indexAll("issues", "issues_v2");
+    verify(issueIndexer).indexAll("issues_v2");
+    verify(indexRebuilds).complete("issues");
+    verify(ruleIndexer).indexAll("rules_v2");
+    verify(activeRuleIndexer).indexAll("rules_v2");
+  }
+
+  @Test
+  public void catch_up_changes_made_during_population_once_new_indices_are_switched() {
+    when(indexRebuilds.getAliases()).thenReturn(ImmutableSortedSet.of("issues", "rules"));
+    level4.startComponents();
+
+    executeStartupTasks();
+
+    // last step of the rebuild
+    verify(activeRuleIndexer, timeout(10_000)).indexSince(1_000L);
+    InOrder issues = inOrder(issueIndexer, indexRebuilds);
+    issues.verify(issueIndexer).indexAll("issues_v2");
+    issues.verify(indexRebuilds).complete("issues");
+    issues.verify(issueIndexer).indexSince(1_000L);
+    InOrder rules = inOrder(ruleIndexer, activeRuleIndexer, indexRebuilds);
+    rules.verify(activeRuleIndexer).indexAll("rules_v2");
+    rules.verify(indexRebuilds).complete("rules");
+    rules.verify(ruleIndexer).indexSince(1_000L);
+    // other indices are not rebuilt
+    verify(userIndexer, never()).indexSince(anyLong());
+  }
+
+  @Test
+  public void do_nothing_if_no_index_is_rebuilt() {
+    when(indexRebuilds.getAliases()).thenReturn(ImmutableSortedSet.<String>of());
+    level4.startComponents();
+
+    executeStartupTasks();
+
+    verify(indexRebuilds, never()).getNewIndex(anyString());
+    verify(issueIndexer, never()).indexSince(anyLong());
+  }
+
+  @Test
+  public void do_nothing_if_indices_are_disabled() {
+    when(indexRebuilds.getAliases()).thenReturn(ImmutableSortedSet.of("issues"));
+    settings.setProperty("sonar.internal.es.disableIndexes", true);
+    level4.startComponents();
+
+    executeStartupTasks();
+
+    verify(indexRebuilds, never()).getNewIndex(anyString());
+    verify(issueIndexer, never()).indexSince(anyLong());
+  }
+
+  /**
+   * Same lifecycle as {@link org.sonar.server.platform.platformlevel.PlatformLevelStartup}: its container is stopped
+   * and removed right after the server start handlers are notified
+   */
+  private void executeStartupTasks() {
+    ComponentContainer startup = level4.createChild();
+    startup.add(mock(Server.class), ServerLifecycleNotifier.class);
+    startup.startComponents();
+    startup.getComponentByType(ServerLifecycleNotifier.class).notifyStart();
+    startup.stopComponents();
+    level4.removeChild(startup);
+  }
+}
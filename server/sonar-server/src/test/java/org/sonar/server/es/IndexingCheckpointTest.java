@@ -0,0 +1,60 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexingCheckpointTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void nothing_done_if_file_does_not_exist() throws Exception {
+    IndexingCheckpoint underTest = new IndexingCheckpoint(new File(temp.newFolder(), "checkpoints/issues"));
+
+    assertThat(underTest.exists()).isFalse();
+    assertThat(underTest.readDone()).isEmpty();
+  }
+
+  @Test
+  public void append_partitions_done() throws Exception {
+    IndexingCheckpoint underTest = new IndexingCheckpoint(new File(temp.newFolder(), "checkpoints/issues"));
+
+    underTest.markDone(Collections.emptyList());
+    assertThat(underTest.exists()).isTrue();
+    assertThat(underTest.readDone()).isEmpty();
+
+    underTest.markDone(Arrays.asList("P1", "P2"));
+    underTest.markDone(Arrays.asList("P3"));
+    assertThat(underTest.readDone()).containsOnly("P1", "P2", "P3");
+
+    underTest.delete();
+    assertThat(underTest.exists()).isFalse();
+    assertThat(underTest.readDone()).isEmpty();
+  }
+}
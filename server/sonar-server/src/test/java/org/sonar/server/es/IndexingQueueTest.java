@@ -0,0 +1,195 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.ProcessEntryPoint.PROPERTY_PROCESS_KEY;
+
+public class IndexingQueueTest {
+
+  private static final DocId DOC_1 = new DocId("issues", "issue", "I1", "P1");
+  private static final DocId DOC_2 = new DocId("issues", "issue", "I2", "P1");
+  private static final DocId DOC_3 = new DocId("issues", "issue", "I3", null);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File journal;
+  private IndexingQueue underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    journal = new File(temp.newFolder(), "web.journal");
+    underTest = new IndexingQueue(journal);
+    underTest.start();
+  }
+
+  @Test
+  public void journal_is_in_data_dir_and_depends_on_process() throws Exception {
+    File dataDir = temp.newFolder();
+    ServerFileSystem fs = mock(ServerFileSystem.class);
+    when(fs.getDataDir()).thenReturn(dataDir);
+
+    IndexingQueue queue = new IndexingQueue(fs, new MapSettings().setProperty(PROPERTY_PROCESS_KEY, "ce"));
+    queue.start();
+    queue.enqueue(singletonList(DOC_1));
+    queue.stop();
+
+    assertThat(new File(dataDir, "es-queue/ce.journal")).exists();
+  }
+
+  @Test
+  public void enqueue_ignores_documents_already_in_queue() {
+    underTest.enqueue(asList(DOC_1, DOC_2));
+    underTest.enqueue(asList(DOC_2, DOC_3));
+
+    assertThat(underTest.size()).isEqualTo(3);
+    assertThat(underTest.peek(10)).containsExactly(DOC_1, DOC_2, DOC_3);
+    assertThat(underTest.peek(2)).containsExactly(DOC_1, DOC_2);
+  }
+
+  @Test
+  public void remove_documents() {
+    underTest.enqueue(asList(DOC_1, DOC_2, DOC_3));
+
+    underTest.remove(asList(DOC_1, DOC_3));
+
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.peek(10)).containsExactly(DOC_2);
+  }
+
+  @Test
+  public void documents_being_indexed_are_not_given_to_consumer() {
+    underTest.startIndexing(asList(DOC_1, DOC_2));
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.peek(10)).isEmpty();
+
+    underTest.stopIndexing(singletonList(DOC_1), singletonList(DOC_2));
+
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.peek(10)).containsExactly(DOC_2);
+  }
+
+  @Test
+  public void indexed_document_is_kept_while_it_is_being_indexed_again() {
+    underTest.startIndexing(singletonList(DOC_1));
+    underTest.startIndexing(singletonList(DOC_1));
+
+    underTest.stopIndexing(singletonList(DOC_1), emptyList());
+    assertThat(underTest.size()).isEqualTo(1);
+
+    underTest.stopIndexing(singletonList(DOC_1), emptyList());
+    assertThat(underTest.size()).isZero();
+    assertThat(journal.length()).isZero();
+  }
+
+  @Test
+  public void recovered_document_is_kept_while_it_is_being_indexed() {
+    underTest.enqueue(singletonList(DOC_1));
+    underTest.startIndexing(singletonList(DOC_1));
+
+    underTest.remove(singletonList(DOC_1));
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.peek(10)).isEmpty();
+
+    underTest.stopIndexing(singletonList(DOC_1), emptyList());
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void documents_being_indexed_are_given_to_consumer_after_restart() {
+    underTest.startIndexing(asList(DOC_1, DOC_2));
+    underTest.stopIndexing(singletonList(DOC_2), emptyList());
+    underTest.stop();
+
+    IndexingQueue restarted = new IndexingQueue(journal);
+    restarted.start();
+
+    assertThat(restarted.peek(10)).containsExactly(DOC_1);
+  }
+
+  @Test
+  public void listener_is_notified_when_documents_are_given_to_consumer() {
+    AtomicInteger notifications = new AtomicInteger();
+    underTest.setListener(notifications::incrementAndGet);
+
+    underTest.startIndexing(asList(DOC_1, DOC_2));
+    underTest.stopIndexing(singletonList(DOC_1), emptyList());
+    assertThat(notifications.get()).isZero();
+
+    underTest.stopIndexing(emptyList(), singletonList(DOC_2));
+    assertThat(notifications.get()).isEqualTo(1);
+
+    underTest.enqueue(singletonList(DOC_3));
+    assertThat(notifications.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void pending_documents_are_reloaded_at_restart() {
+    underTest.enqueue(asList(DOC_1, DOC_2, DOC_3));
+    underTest.remove(singletonList(DOC_2));
+    underTest.stop();
+
+    IndexingQueue restarted = new IndexingQueue(journal);
+    restarted.start();
+
+    assertThat(restarted.peek(10)).containsExactly(DOC_1, DOC_3);
+    assertThat(restarted.peek(10).get(1).getRouting()).isNull();
+  }
+
+  @Test
+  public void journal_is_compacted_when_queue_is_empty() {
+    underTest.enqueue(asList(DOC_1, DOC_2));
+    underTest.remove(asList(DOC_1, DOC_2));
+
+    assertThat(underTest.size()).isZero();
+    assertThat(journal.length()).isZero();
+  }
+
+  @Test
+  public void corrupted_lines_are_ignored_at_restart() throws Exception {
+    underTest.enqueue(singletonList(DOC_1));
+    underTest.stop();
+    Files.write(journal.toPath(), "+\tissues\tiss".getBytes(UTF_8), StandardOpenOption.APPEND);
+
+    IndexingQueue restarted = new IndexingQueue(journal);
+    restarted.start();
+
+    assertThat(restarted.peek(10)).containsExactly(DOC_1);
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class ParallelIndexingTest {
+
+  private static final List<String> PARTITIONS = Arrays.asList("P1", "P2", "P3", "P4", "P5");
+
+  @Rule
+  public EsTester esTester = new EsTester(new FakeIndexDefinition());
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private IndexingCheckpoint checkpoint;
+  private Set<String> indexedPartitions = ConcurrentHashMap.newKeySet();
+
+  @Before
+  public void setUp() throws Exception {
+    checkpoint = new IndexingCheckpoint(new File(temp.newFolder(), "fakes"));
+  }
+
+  @Test
+  public void index_all_partitions() {
+    ParallelIndexing underTest = new ParallelIndexing("fakes", 3, 0, checkpoint, System2.INSTANCE);
+
+    long maxDate = underTest.index(newBulkIndexer(), PARTITIONS, this::indexPartition);
+
+    assertThat(maxDate).isEqualTo(5L);
+    assertThat(indexedPartitions).containsOnly("P1", "P2", "P3", "P4", "P5");
+    assertThat(count()).isEqualTo(10);
+    assertThat(underTest.isInterrupted()).isFalse();
+    assertThat(checkpoint.exists()).isFalse();
+  }
+
+  @Test
+  public void index_with_throttling() {
+    ParallelIndexing underTest = new ParallelIndexing("fakes", 2, 1_000, checkpoint, System2.INSTANCE);
+
+    underTest.index(newBulkIndexer(), PARTITIONS, this::indexPartition);
+
+    assertThat(count()).isEqualTo(10);
+  }
+
+  @Test
+  public void resume_interrupted_indexing() {
+    checkpoint.markDone(Arrays.asList("P1", "P3"));
+    ParallelIndexing underTest = new ParallelIndexing("fakes", 3, 0, checkpoint, System2.INSTANCE);
+    assertThat(underTest.isInterrupted()).isTrue();
+
+    underTest.index(newBulkIndexer(), PARTITIONS, this::indexPartition);
+
+    assertThat(indexedPartitions).containsOnly("P2", "P4", "P5");
+    assertThat(count()).isEqualTo(6);
+    assertThat(checkpoint.exists()).isFalse();
+  }
+
+  @Test
+  public void keep_checkpoint_if_indexing_fails() {
+    ParallelIndexing underTest = new ParallelIndexing("fakes", 1, 0, checkpoint, System2.INSTANCE);
+
+    try {
+      underTest.index(newBulkIndexer(), PARTITIONS, (partition, sink) -> {
+        if ("P3".equals(partition)) {
+          throw new IllegalStateException("BOOM");
+        }
+        return indexPartition(partition, sink);
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to index fakes. Indexing will be resumed at next startup.");
+      assertThat(e.getCause()).hasMessage("BOOM");
+    }
+
+    assertThat(underTest.isInterrupted()).isTrue();
+    assertThat(checkpoint.readDone()).containsOnly("P1", "P2");
+  }
+
+  @Test
+  public void do_not_checkpoint_partitions_if_flush_fails() {
+    System2 system2 = mock(System2.class);
+    // each partition is older than the checkpoint period
+    when(system2.now()).thenReturn(0L, TimeUnit.MINUTES.toMillis(2), TimeUnit.MINUTES.toMillis(4));
+    BulkIndexer bulk = spy(newBulkIndexer());
+    doThrow(new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes")).when(bulk).flush();
+    ParallelIndexing underTest = new ParallelIndexing("fakes", 1, 0, checkpoint, system2);
+
+    try {
+      underTest.index(bulk, PARTITIONS, this::indexPartition);
+      fail();
+    } catch (IllegalStateException e) {
+      // partitions are not acknowledged
+    }
+
+    assertThat(underTest.isInterrupted()).isTrue();
+    assertThat(checkpoint.readDone()).isEmpty();
+  }
+
+  @Test
+  public void reset_forgets_interrupted_indexing() {
+    checkpoint.markDone(Arrays.asList("P1"));
+    ParallelIndexing underTest = new ParallelIndexing("fakes", 1, 0, checkpoint, System2.INSTANCE);
+
+    underTest.reset();
+
+    assertThat(underTest.isInterrupted()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_threads_is_not_positive() {
+    new ParallelIndexing("fakes", 0, 0, checkpoint, System2.INSTANCE);
+  }
+
+  /**
+   * Each partition "Pn" has two documents. Returned date is n.
+   */
+  private long indexPartition(String partition, Consumer<ActionRequest> sink) {
+    indexedPartitions.add(partition);
+    int n = Integer.parseInt(partition.substring(1));
+    sink.accept(newIndexRequest(n * 10));
+    sink.accept(newIndexRequest(n * 10 + 1));
+    return n;
+  }
+
+  private BulkIndexer newBulkIndexer() {
+    return new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX).setLarge(true);
+  }
+
+  private long count() {
+    return esTester.countDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE);
+  }
+
+  private static IndexRequest newIndexRequest(int intField) {
+    return new IndexRequest(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE)
+      .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, intField));
+  }
+}
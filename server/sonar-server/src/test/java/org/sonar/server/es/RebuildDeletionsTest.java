@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Iterator;
+import java.util.List;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.es.FakeIndexDefinition.INDEX;
+import static org.sonar.server.es.FakeIndexDefinition.INT_FIELD;
+import static org.sonar.server.es.FakeIndexDefinition.TYPE;
+
+public class RebuildDeletionsTest {
+
+  private static final String NEW_INDEX = "fakes_v2";
+
+  @Rule
+  public EsTester esTester = new EsTester(new FakeIndexDefinition());
+
+  private RebuildDeletions underTest;
+  // for example the client of the Compute Engine
+  private EsClient otherProcess;
+  private String currentIndex;
+
+  @Before
+  public void setUp() {
+    underTest = esTester.client().rebuildDeletions();
+    otherProcess = new EsClient(esTester.client().nativeClient());
+    currentIndex = physicalIndex(INDEX);
+    esTester.client().prepareCreate(NEW_INDEX).get();
+    for (String id : new String[] {"D1", "D2", "D3"}) {
+      putDocument(currentIndex, id);
+      putDocument(NEW_INDEX, id);
+    }
+  }
+
+  @Test
+  public void replay_deletions_requested_by_any_process_during_rebuild() {
+    underTest.start(INDEX, currentIndex);
+
+    otherProcess.prepareDelete(INDEX, TYPE, "D1").get();
+    otherProcess.prepareBulk().add(new DeleteRequest(currentIndex, TYPE, "D2")).get();
+    switchAlias();
+    underTest.replay(INDEX);
+
+    assertThat(ids(NEW_INDEX)).containsOnly("D3");
+    assertThat(esTester.countDocuments(RebuildDeletions.INDEX, RebuildDeletions.TYPE_DELETION)).isEqualTo(0);
+    assertThat(esTester.countDocuments(RebuildDeletions.INDEX, RebuildDeletions.TYPE_REBUILD)).isEqualTo(0);
+  }
+
+  @Test
+  public void do_not_record_deletions_if_no_index_is_rebuilt() {
+    otherProcess.prepareDelete(INDEX, TYPE, "D1").get();
+
+    assertThat(esTester.client().prepareIndicesExist(RebuildDeletions.INDEX).get().isExists()).isFalse();
+  }
+
+  @Test
+  public void forget_deletions_of_interrupted_rebuild() {
+    underTest.start(INDEX, currentIndex);
+    otherProcess.prepareDelete(INDEX, TYPE, "D1").get();
+
+    // restart
+    underTest.start(INDEX, currentIndex);
+    switchAlias();
+    underTest.replay(INDEX);
+
+    assertThat(ids(NEW_INDEX)).containsOnly("D1", "D2", "D3");
+  }
+
+  private void putDocument(String index, String id) {
+    esTester.client().nativeClient().prepareIndex(index, TYPE, id).setSource(ImmutableMap.of(INT_FIELD, 1)).setRefresh(true).get();
+  }
+
+  private List<String> ids(String index) {
+    esTester.client().prepareRefresh(index).get();
+    return esTester.getIds(index, TYPE);
+  }
+
+  private void switchAlias() {
+    Client client = esTester.client().nativeClient();
+    client.admin().indices().prepareAliases().removeAlias(currentIndex, INDEX).addAlias(NEW_INDEX, INDEX).get();
+  }
+
+  private String physicalIndex(String alias) {
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases = esTester.client().nativeClient().admin().indices().prepareGetAliases(alias).get().getAliases();
+    Iterator<String> indices = aliases.keysIt();
+    while (indices.hasNext()) {
+      String index = indices.next();
+      if (!aliases.get(index).isEmpty()) {
+        return index;
+      }
+    }
+    return alias;
+  }
+}
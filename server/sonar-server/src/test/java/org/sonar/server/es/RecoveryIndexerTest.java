@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.log.LogTester;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecoveryIndexerTest {
+
+  private static final DocId DOC_1 = new DocId("issues", "issue", "I1", "P1");
+  private static final DocId DOC_2 = new DocId("issues", "issue", "I2", "P1");
+  private static final DocId UNSUPPORTED_DOC = new DocId("users", "user", "U1", null);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private IndexingQueue queue;
+  private ResilientIndexer indexer = mock(ResilientIndexer.class);
+  private MapSettings settings = new MapSettings()
+    .setProperty(RecoveryIndexer.DELAY_PROPERTY, 100L)
+    .setProperty(RecoveryIndexer.MAX_DELAY_PROPERTY, 350L);
+  private RecoveryIndexer underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    queue = new IndexingQueue(new File(temp.newFolder(), "web.journal"));
+    queue.start();
+    when(indexer.getIndexName()).thenReturn("issues");
+    underTest = new RecoveryIndexer(queue, settings, new ResilientIndexer[] {indexer});
+  }
+
+  @Test
+  public void recovered_documents_are_removed_from_queue() {
+    queue.enqueue(asList(DOC_1, DOC_2));
+    when(indexer.recover(anyCollectionOf(DocId.class))).thenReturn(Collections.emptyList());
+
+    underTest.recover();
+
+    assertThat(underTest.getBacklogSize()).isZero();
+    assertThat(underTest.getCurrentDelayInMs()).isEqualTo(100L);
+  }
+
+  @Test
+  public void failed_documents_are_kept_and_delay_is_increased() {
+    queue.enqueue(asList(DOC_1, DOC_2));
+    Collection<DocId> failures = singletonList(DOC_2);
+    when(indexer.recover(anyCollectionOf(DocId.class))).thenReturn(failures);
+
+    underTest.recover();
+    assertThat(queue.peek(10)).containsExactly(DOC_2);
+    assertThat(underTest.getCurrentDelayInMs()).isEqualTo(200L);
+
+    underTest.recover();
+    assertThat(underTest.getCurrentDelayInMs()).isEqualTo(350L);
+
+    when(indexer.recover(anyCollectionOf(DocId.class))).thenReturn(Collections.emptyList());
+    underTest.recover();
+    assertThat(underTest.getBacklogSize()).isZero();
+    assertThat(underTest.getCurrentDelayInMs()).isEqualTo(100L);
+  }
+
+  @Test
+  public void documents_of_index_without_recovery_are_dropped() {
+    queue.enqueue(singletonList(UNSUPPORTED_DOC));
+
+    underTest.recover();
+
+    assertThat(underTest.getBacklogSize()).isZero();
+    assertThat(logTester.logs()).contains("Drop 1 documents of index [users] which does not support recovery");
+  }
+
+  @Test
+  public void queue_is_consumed_in_background() throws Exception {
+    queue.enqueue(asList(DOC_1, DOC_2));
+    when(indexer.recover(anyCollectionOf(DocId.class))).thenReturn(Collections.emptyList());
+
+    underTest.start();
+    try {
+      long timeout = System.currentTimeMillis() + 10_000L;
+      while (queue.size() > 0 && System.currentTimeMillis() < timeout) {
+        Thread.sleep(10L);
+      }
+    } finally {
+      underTest.stop();
+    }
+
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  public void consumer_is_woken_up_when_documents_are_added() throws Exception {
+    RecoveryIndexer indexer = new RecoveryIndexer(queue, new MapSettings().setProperty(RecoveryIndexer.DELAY_PROPERTY, 60_000L),
+      new ResilientIndexer[] {this.indexer});
+    when(this.indexer.recover(anyCollectionOf(DocId.class))).thenReturn(Collections.emptyList());
+
+    indexer.start();
+    try {
+      queue.startIndexing(asList(DOC_1, DOC_2));
+      queue.stopIndexing(emptyList(), asList(DOC_1, DOC_2));
+
+      // much shorter than the delay between two attempts
+      long timeout = System.currentTimeMillis() + 10_000L;
+      while (queue.size() > 0 && System.currentTimeMillis() < timeout) {
+        Thread.sleep(10L);
+      }
+    } finally {
+      indexer.stop();
+    }
+
+    assertThat(queue.size()).isZero();
+  }
+}
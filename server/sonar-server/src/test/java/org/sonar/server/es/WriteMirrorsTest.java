@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Optional;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteMirrorsTest {
+
+  private WriteMirrors underTest = new WriteMirrors();
+
+  @Test
+  public void do_not_copy_requests_if_index_is_not_mirrored() {
+    underTest.add("rules", "rules_v2");
+
+    assertThat(underTest.isMirrored("issues")).isFalse();
+    assertThat(underTest.mirror(new IndexRequest("issues", "issue", "ISSUE1"))).isEmpty();
+    assertThat(underTest.mirror(new DeleteRequest("issues", "issue", "ISSUE1"))).isEmpty();
+  }
+
+  @Test
+  public void copy_index_request() {
+    underTest.add("issues", "issues_v2");
+    IndexRequest request = new IndexRequest("issues", "issue", "ISSUE1")
+      .routing("PROJECT1")
+      .source(ImmutableMap.of("key", "ISSUE1"));
+
+    Optional<ActionRequest> mirror = underTest.mirror(request);
+
+    assertThat(mirror).isPresent();
+    IndexRequest copy = (IndexRequest) mirror.get();
+    assertThat(copy).isNotSameAs(request);
+    assertThat(copy.index()).isEqualTo("issues_v2");
+    assertThat(copy.type()).isEqualTo("issue");
+    assertThat(copy.id()).isEqualTo("ISSUE1");
+    assertThat(copy.routing()).isEqualTo("PROJECT1");
+    assertThat(copy.sourceAsMap()).containsEntry("key", "ISSUE1");
+    // original request is not changed
+    assertThat(request.index()).isEqualTo("issues");
+  }
+
+  @Test
+  public void copy_delete_request() {
+    underTest.add("issues", "issues_v2");
+
+    DeleteRequest copy = (DeleteRequest) underTest.mirror(new DeleteRequest("issues", "issue", "ISSUE1")).get();
+
+    assertThat(copy.index()).isEqualTo("issues_v2");
+    assertThat(copy.type()).isEqualTo("issue");
+    assertThat(copy.id()).isEqualTo("ISSUE1");
+  }
+
+  @Test
+  public void copy_update_request() {
+    underTest.add("tests", "tests_v2");
+
+    UpdateRequest copy = (UpdateRequest) underTest.mirror(new UpdateRequest("tests", "test", "TEST1")
+      .doc(ImmutableMap.of("name", "foo"))).get();
+
+    assertThat(copy.index()).isEqualTo("tests_v2");
+    assertThat(copy.id()).isEqualTo("TEST1");
+  }
+
+  @Test
+  public void stop_copying_requests() {
+    underTest.add("issues", "issues_v2");
+    underTest.remove("issues");
+
+    assertThat(underTest.isMirrored("issues")).isFalse();
+    assertThat(underTest.mirror(new IndexRequest("issues", "issue", "ISSUE1"))).isEmpty();
+  }
+}
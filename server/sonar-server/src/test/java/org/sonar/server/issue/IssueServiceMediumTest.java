@@ -42,6 +42,7 @@ import org.sonar.db.rule.RuleDao;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexer;
@@ -92,6 +93,18 @@ public class IssueServiceMediumTest {
     tester.get(IssueIndexer.class).indexAll();
   }
 
+  /**
+   * Changes of issues are indexed in background
+   */
+  private void waitForIndexing() throws InterruptedException {
+    IndexingQueue queue = tester.get(IndexingQueue.class);
+    long timeout = System.currentTimeMillis() + 10_000L;
+    while (queue.size() > 0 && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10L);
+    }
+    assertThat(queue.size()).isZero();
+  }
+
   @Test
   public void get_by_key() {
     RuleDto rule = newRule();
@@ -103,7 +116,7 @@ public class IssueServiceMediumTest {
   }
 
   @Test
-  public void assign() {
+  public void assign() throws Exception {
     RuleDto rule = newRule();
     ComponentDto project = newProject();
     ComponentDto file = newFile(project);
@@ -119,12 +132,13 @@ public class IssueServiceMediumTest {
     assertThat(IssueIndex.getByKey(issue.getKey()).assignee()).isNull();
 
     service.assign(issue.getKey(), user.getLogin());
+    waitForIndexing();
 
     assertThat(IssueIndex.getByKey(issue.getKey()).assignee()).isEqualTo("perceval");
   }
 
   @Test
-  public void unassign() {
+  public void unassign() throws Exception {
     RuleDto rule = newRule();
     ComponentDto project = newProject();
     ComponentDto file = newFile(project);
@@ -140,6 +154,7 @@ public class IssueServiceMediumTest {
     assertThat(IssueIndex.getByKey(issue.getKey()).assignee()).isEqualTo("perceval");
 
     service.assign(issue.getKey(), "");
+    waitForIndexing();
 
     assertThat(IssueIndex.getByKey(issue.getKey()).assignee()).isNull();
   }
@@ -162,7 +177,7 @@ public class IssueServiceMediumTest {
   }
 
   @Test
-  public void set_severity() {
+  public void set_severity() throws Exception {
     RuleDto rule = newRule();
     ComponentDto project = newProject();
     ComponentDto file = newFile(project);
@@ -173,12 +188,13 @@ public class IssueServiceMediumTest {
     assertThat(IssueIndex.getByKey(issue.getKey()).severity()).isEqualTo(Severity.BLOCKER);
 
     service.setSeverity(issue.getKey(), Severity.MINOR);
+    waitForIndexing();
 
     assertThat(IssueIndex.getByKey(issue.getKey()).severity()).isEqualTo(Severity.MINOR);
   }
 
   @Test
-  public void set_type() {
+  public void set_type() throws Exception {
     RuleDto rule = newRule();
     ComponentDto project = newProject();
     ComponentDto file = newFile(project);
@@ -189,6 +205,7 @@ public class IssueServiceMediumTest {
     assertThat(IssueIndex.getByKey(issue.getKey()).type()).isEqualTo(RuleType.CODE_SMELL);
 
     service.setType(issue.getKey(), RuleType.BUG);
+    waitForIndexing();
 
     assertThat(IssueIndex.getByKey(issue.getKey()).type()).isEqualTo(RuleType.BUG);
   }
@@ -213,7 +230,7 @@ public class IssueServiceMediumTest {
   }
 
   @Test
-  public void set_tags() {
+  public void set_tags() throws Exception {
     RuleDto rule = newRule();
     ComponentDto project = newProject();
     ComponentDto file = newFile(project);
@@ -225,10 +242,12 @@ public class IssueServiceMediumTest {
 
     // Tags are lowercased
     service.setTags(issue.getKey(), ImmutableSet.of("bug", "Convention"));
+    waitForIndexing();
     assertThat(IssueIndex.getByKey(issue.getKey()).tags()).containsOnly("bug", "convention");
 
     // nulls and empty tags are ignored
     service.setTags(issue.getKey(), Sets.newHashSet("security", null, "", "convention"));
+    waitForIndexing();
     assertThat(IssueIndex.getByKey(issue.getKey()).tags()).containsOnly("security", "convention");
 
     // tag validation
@@ -241,9 +260,11 @@ public class IssueServiceMediumTest {
 
     // unchanged tags
     service.setTags(issue.getKey(), ImmutableSet.of("convention", "security"));
+    waitForIndexing();
     assertThat(IssueIndex.getByKey(issue.getKey()).tags()).containsOnly("security", "convention");
 
     service.setTags(issue.getKey(), ImmutableSet.<String>of());
+    waitForIndexing();
     assertThat(IssueIndex.getByKey(issue.getKey()).tags()).isEmpty();
   }
 
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Date;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
@@ -38,8 +39,12 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
 import org.sonar.server.issue.index.IssueIndexer;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -52,7 +57,9 @@ public class ServerIssueStorageTest {
 
   DbClient dbClient = dbTester.getDbClient();
 
-  ServerIssueStorage storage = new ServerIssueStorage(new FakeRuleFinder(), dbClient, mock(IssueIndexer.class));
+  IssueIndexer issueIndexer = mock(IssueIndexer.class);
+
+  ServerIssueStorage storage = new ServerIssueStorage(new FakeRuleFinder(), dbClient, issueIndexer);
 
   @Before
   public void setupDbClient() {
@@ -157,6 +164,31 @@ public class ServerIssueStorageTest {
       new String[]{"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues", "issue_changes");
   }
 
+  @Test
+  public void journal_issues_before_commit_and_index_them_in_background() {
+    dbTester.prepareDbUnit(getClass(), "should_update_issues.xml");
+    DefaultIssue changed = new DefaultIssue()
+      .setKey("ABCDE")
+      .setNew(false)
+      .setChanged(true)
+      .setProjectUuid("CDEF")
+      .setSeverity("BLOCKER")
+      .setRuleKey(RuleKey.of("xxx", "unknown"))
+      .setComponentKey("struts:Action")
+      .setProjectKey("struts");
+    DefaultIssue unchanged = new DefaultIssue()
+      .setKey("FGHIJ")
+      .setNew(false)
+      .setChanged(false);
+
+    storage.save(asList(changed, unchanged));
+
+    InOrder inOrder = inOrder(issueIndexer);
+    inOrder.verify(issueIndexer).prepareIndexing(singletonList(changed));
+    inOrder.verify(issueIndexer).indexInBackground(singletonList(changed));
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
   static class FakeRuleFinder implements RuleFinder {
 
     @Override
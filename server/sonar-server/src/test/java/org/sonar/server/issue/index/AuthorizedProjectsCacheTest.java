@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Date;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.server.component.es.ProjectMeasuresIndexDefinition;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.permission.index.PermissionIndexerTester;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuthorizedProjectsCacheTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  @Rule
+  public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings()), new ProjectMeasuresIndexDefinition(new MapSettings()));
+
+  private System2 system2 = mock(System2.class);
+  private PermissionIndexerTester permissionIndexerTester = new PermissionIndexerTester(esTester);
+  private AuthorizedProjectsCache underTest = new AuthorizedProjectsCache(esTester.client(), system2, 2);
+
+  @Before
+  public void setUp() {
+    when(system2.now()).thenReturn(NOW);
+  }
+
+  @Test
+  public void load_uuids_of_projects_browsable_by_user_or_groups() {
+    permissionIndexerTester.indexProjectPermission("P1", singletonList("sonar-users"), singletonList(10L));
+    permissionIndexerTester.indexProjectPermission("P2", singletonList("sonar-admins"), singletonList(11L));
+
+    assertThat(underTest.getProjectUuids(10, emptySet())).containsOnly("P1");
+    assertThat(underTest.getProjectUuids(null, singleton("sonar-admins"))).containsOnly("P2");
+    assertThat(underTest.getProjectUuids(10, singleton("sonar-admins"))).containsOnly("P1", "P2");
+    assertThat(underTest.getProjectUuids(12, emptySet())).isEmpty();
+  }
+
+  @Test
+  public void return_null_when_more_projects_than_max_terms_are_browsable() {
+    permissionIndexerTester.indexProjectPermission("P1", singletonList("sonar-users"), singletonList(10L));
+    permissionIndexerTester.indexProjectPermission("P2", singletonList("sonar-users"), singletonList(10L));
+    permissionIndexerTester.indexProjectPermission("P3", singletonList("sonar-users"), singletonList(10L));
+
+    assertThat(underTest.getProjectUuids(10, emptySet())).isNull();
+  }
+
+  @Test
+  public void reload_immediately_after_a_change_made_by_this_process() {
+    permissionIndexerTester.indexProjectPermission("P1", singletonList("sonar-users"), singletonList(10L));
+    assertThat(underTest.getProjectUuids(10, emptySet())).containsOnly("P1");
+
+    permissionIndexerTester.indexProjectPermission("P2", singletonList("sonar-users"), singletonList(10L));
+
+    assertThat(underTest.getProjectUuids(10, emptySet())).containsOnly("P1", "P2");
+  }
+
+  @Test
+  public void changes_made_by_another_process_are_verified_at_most_once_per_interval() {
+    permissionIndexerTester.indexProjectPermission("P1", singletonList("sonar-users"), singletonList(10L));
+    assertThat(underTest.getProjectUuids(10, emptySet())).containsOnly("P1");
+
+    // as indexed by the Compute Engine
+    indexAuthorizationWithoutIndexer("P2", 10L);
+
+    assertThat(underTest.getProjectUuids(10, emptySet())).containsOnly("P1");
+    when(system2.now()).thenReturn(NOW + AuthorizedProjectsCache.STAMP_CHECK_INTERVAL_MS);
+    assertThat(underTest.getProjectUuids(10, emptySet())).containsOnly("P1", "P2");
+  }
+
+  private void indexAuthorizationWithoutIndexer(String projectUuid, long userId) {
+    esTester.client().prepareIndex(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION)
+      .setId(projectUuid)
+      .setRouting(projectUuid)
+      .setSource(ImmutableMap.of(
+        IssueIndexDefinition.FIELD_AUTHORIZATION_PROJECT_UUID, projectUuid,
+        IssueIndexDefinition.FIELD_AUTHORIZATION_USERS, singletonList(userId),
+        IssueIndexDefinition.FIELD_AUTHORIZATION_UPDATED_AT, new Date()))
+      .setRefresh(true)
+      .get();
+  }
+}
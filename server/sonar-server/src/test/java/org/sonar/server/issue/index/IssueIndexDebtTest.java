@@ -35,6 +35,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.issue.IssueQuery;
@@ -72,7 +73,7 @@ public class IssueIndexDebtTest {
 
   @Before
   public void setUp() {
-    issueIndexer = new IssueIndexer(system2, null, tester.client());
+    issueIndexer = new IssueIndexer(system2, null, tester.client(), mock(IndexingQueue.class));
     viewIndexer = new ViewIndexer(system2, null, tester.client());
     System2 system = mock(System2.class);
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("+01:00"));
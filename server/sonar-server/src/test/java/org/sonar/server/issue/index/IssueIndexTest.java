@@ -45,6 +45,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.exceptions.NotFoundException;
@@ -86,7 +87,7 @@ public class IssueIndexTest {
 
   @Before
   public void setUp() {
-    issueIndexer = new IssueIndexer(system2, null, tester.client());
+    issueIndexer = new IssueIndexer(system2, null, tester.client(), mock(IndexingQueue.class));
     viewIndexer = new ViewIndexer(system2, null, tester.client());
     System2 system = mock(System2.class);
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("GMT-1:00"));
@@ -1175,6 +1176,24 @@ public class IssueIndexTest {
     assertThat(underTest.search(IssueQuery.builder(userSessionRule).projectUuids(newArrayList(project3.uuid())).build(), new SearchOptions()).getDocs()).isEmpty();
   }
 
+  @Test
+  public void authorized_issues_take_into_account_new_authorizations() {
+    ComponentDto project1 = ComponentTesting.newProjectDto().setKey("project1");
+    ComponentDto project2 = ComponentTesting.newProjectDto().setKey("project2");
+    ComponentDto file1 = ComponentTesting.newFileDto(project1, null).setKey("file1");
+    ComponentDto file2 = ComponentTesting.newFileDto(project2, null).setKey("file2");
+    indexIssue(IssueTesting.newDoc("ISSUE1", file1), "sonar-users", null);
+
+    userSessionRule.login().setUserGroups("sonar-users");
+    assertThat(underTest.search(IssueQuery.builder(userSessionRule).build(), new SearchOptions()).getDocs()).hasSize(1);
+
+    indexIssue(IssueTesting.newDoc("ISSUE2", file2), "sonar-users", null);
+    assertThat(underTest.search(IssueQuery.builder(userSessionRule).build(), new SearchOptions()).getDocs()).hasSize(2);
+
+    userSessionRule.login().setUserGroups("sonar-admins");
+    assertThat(underTest.search(IssueQuery.builder(userSessionRule).build(), new SearchOptions()).getDocs()).isEmpty();
+  }
+
   @Test
   public void authorized_issues_on_user() {
     ComponentDto project1 = ComponentTesting.newProjectDto().setKey("project1");
@@ -22,22 +22,30 @@ package org.sonar.server.issue.index;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterators;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nonnull;
 import org.elasticsearch.search.SearchHit;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
+import org.sonar.server.es.DocId;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingCheckpoint;
+import org.sonar.server.es.IndexingQueue;
+import org.sonar.server.es.ParallelIndexing;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.sonar.server.issue.IssueTesting.newDoc;
 
 public class IssueIndexerTest {
@@ -52,6 +60,9 @@ public class IssueIndexerTest {
   @Rule
   public DbTester dbTester = DbTester.create(system2);
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void index_nothing() {
     IssueIndexer indexer = createIndexer();
@@ -110,6 +121,30 @@ public class IssueIndexerTest {
     verifyIssueKeys("ABCDE");
   }
 
+  @Test
+  public void index_on_startup_by_project() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index_project.xml");
+    IndexingCheckpoint checkpoint = new IndexingCheckpoint(new File(temp.newFolder(), "issues"));
+
+    createIndexer().indexOnStartup(new ParallelIndexing("issues", 2, 0, checkpoint, system2));
+
+    verifyIssueKeys("ABCDE", "EDCBA");
+    assertThat(checkpoint.exists()).isFalse();
+  }
+
+  @Test
+  public void resume_interrupted_indexing_on_startup() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index_project.xml");
+    addIssue("THE_PROJECT_1", "ABCDE");
+    IndexingCheckpoint checkpoint = new IndexingCheckpoint(new File(temp.newFolder(), "issues"));
+    checkpoint.markDone(asList("THE_PROJECT_1"));
+
+    createIndexer().indexOnStartup(new ParallelIndexing("issues", 2, 0, checkpoint, system2));
+
+    verifyIssueKeys("ABCDE", "EDCBA");
+    assertThat(checkpoint.exists()).isFalse();
+  }
+
   @Test
   public void delete_issues_by_keys() throws Exception {
     addIssue("P1", "Issue1");
@@ -157,8 +192,33 @@ public class IssueIndexerTest {
     verifyIssueKeys("Issue1", "Issue2", "Issue3");
   }
 
+  @Test
+  public void recover_indexes_issues_existing_in_db_and_deletes_the_others() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+    addIssue("P1", "Issue1");
+
+    IssueIndexer indexer = createIndexer();
+    Collection<DocId> failures = indexer.recover(asList(
+      new DocId(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_ISSUE, "ABCDE", "THE_PROJECT"),
+      new DocId(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_ISSUE, "Issue1", "P1")));
+
+    assertThat(failures).isEmpty();
+    verifyIssueKeys("ABCDE");
+  }
+
+  @Test
+  public void recover_ignores_documents_of_other_types() {
+    IssueIndexer indexer = createIndexer();
+
+    Collection<DocId> failures = indexer.recover(asList(
+      new DocId(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION, "P1", "P1")));
+
+    assertThat(failures).isEmpty();
+    assertThat(indexer.getIndexName()).isEqualTo(IssueIndexDefinition.INDEX);
+  }
+
   private IssueIndexer createIndexer() {
-    return new IssueIndexer(system2, new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client());
+    return new IssueIndexer(system2, new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client(), mock(IndexingQueue.class));
   }
 
   private void addIssue(String projectUuid, String issueKey) throws Exception {
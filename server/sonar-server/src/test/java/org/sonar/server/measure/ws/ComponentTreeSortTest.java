@@ -31,10 +31,14 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.core.util.Uuids;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureTreeSort;
 import org.sonar.db.metric.MetricDto;
+import org.sonarqube.ws.WsMeasures;
 import org.sonarqube.ws.client.measure.ComponentTreeWsRequest;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.db.metric.MetricTesting.newMetricDto;
@@ -235,6 +239,83 @@ public class ComponentTreeSortTest {
       .containsExactly("path-1", "path-2", "path-3");
   }
 
+  @Test
+  public void select_first_components_by_numerical_metric_key() {
+    components.add(newComponentWithoutSnapshotId("name-without-measure", "qualifier-without-measure", "path-without-measure"));
+    ComponentTreeWsRequest wsRequest = newRequest(singletonList(METRIC_SORT), false, NUM_METRIC_KEY);
+
+    List<ComponentDto> result = ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric, 3);
+
+    assertThat(result).extracting("path")
+      .containsExactly("path-9", "path-8", "path-7");
+  }
+
+  @Test
+  public void select_first_components_keeps_order_of_equal_components() {
+    components = newArrayList(
+      newComponentWithoutSnapshotId("name-1", "qualifier-1", "path-3"),
+      newComponentWithoutSnapshotId("name-1", "qualifier-1", "path-1"),
+      newComponentWithoutSnapshotId("name-0", "qualifier-1", "path-4"),
+      newComponentWithoutSnapshotId("name-1", "qualifier-1", "path-2"));
+    ComponentTreeWsRequest wsRequest = newRequest(singletonList(NAME_SORT), true, null);
+
+    List<ComponentDto> result = ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric, 3);
+
+    assertThat(result).extracting("path")
+      .containsExactly("path-4", "path-3", "path-1");
+  }
+
+  @Test
+  public void select_first_components_without_sort() {
+    ComponentTreeWsRequest wsRequest = newRequest(null, true, null);
+
+    assertThat(ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric, 2)).containsExactly(components.get(0), components.get(1));
+    assertThat(ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric, 100)).containsExactlyElementsOf(components);
+  }
+
+  @Test
+  public void sort_by_numerical_metric_in_database() {
+    MetricDto metric = metrics.get(0).setOptimizedBestValue(false);
+    ComponentTreeWsRequest wsRequest = newRequest(asList(METRIC_SORT, NAME_SORT), false, NUM_METRIC_KEY);
+
+    MeasureTreeSort sort = ComponentTreeSort.toMeasureTreeSort(wsRequest, metric, emptyList(), true);
+
+    assertThat(sort.getFields()).containsExactly(MeasureTreeSort.Field.VALUE, MeasureTreeSort.Field.NAME);
+    assertThat(sort.isAsc()).isFalse();
+    assertThat(sort.getMetricId()).isEqualTo(metric.getId());
+    assertThat(sort.isWithMeasuresOnly()).isTrue();
+    assertThat(sort.getBestValue()).isNull();
+  }
+
+  @Test
+  public void sort_by_metric_period_in_database_with_best_value_of_new_metric() {
+    MetricDto metric = newMetricDto().setKey("new_violations").setValueType(ValueType.INT.name()).setOptimizedBestValue(true).setBestValue(0d);
+    ComponentTreeWsRequest wsRequest = newRequest(singletonList(METRIC_PERIOD_SORT), true, "new_violations").setMetricPeriodSort(2);
+
+    MeasureTreeSort sort = ComponentTreeSort.toMeasureTreeSort(wsRequest, metric, singletonList(WsMeasures.Period.newBuilder().setIndex(2).build()), false);
+
+    assertThat(sort.getFields()).containsExactly(MeasureTreeSort.Field.VARIATION);
+    assertThat(sort.getPeriodIndex()).isEqualTo(2);
+    assertThat(sort.getBestValue()).isNull();
+    assertThat(sort.getBestVariation()).isEqualTo(0d);
+    assertThat(sort.getBestValueQualifiers()).containsOnly(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
+  }
+
+  @Test
+  public void sort_by_name_in_database() {
+    MeasureTreeSort sort = ComponentTreeSort.toMeasureTreeSort(newRequest(singletonList(NAME_SORT), true, null), null, emptyList(), false);
+
+    assertThat(sort.getFields()).containsExactly(MeasureTreeSort.Field.NAME);
+    assertThat(sort.getMetricId()).isNull();
+  }
+
+  @Test
+  public void textual_metric_can_not_be_sorted_in_database() {
+    ComponentTreeWsRequest wsRequest = newRequest(singletonList(METRIC_SORT), true, TEXT_METRIC_KEY);
+
+    assertThat(ComponentTreeSort.toMeasureTreeSort(wsRequest, metrics.get(1), emptyList(), false)).isNull();
+  }
+
   private List<ComponentDto> sortComponents(ComponentTreeWsRequest wsRequest) {
     return ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
   }
@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.sonar.api.config.MapSettings;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,7 +39,8 @@ public class EsMonitorTest {
   @Rule
   public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings()));
 
-  private EsMonitor underTest = new EsMonitor(esTester.client());
+  private IndexingQueue indexingQueue = mock(IndexingQueue.class);
+  private EsMonitor underTest = new EsMonitor(esTester.client(), indexingQueue);
 
   @Test
   public void name() {
@@ -53,6 +55,14 @@ public class EsMonitorTest {
     assertThat(attributes.get("Number of Nodes")).isEqualTo(1);
   }
 
+  @Test
+  public void indexing_queue_backlog() {
+    when(indexingQueue.size()).thenReturn(3);
+
+    assertThat(underTest.getIndexingQueueBacklog()).isEqualTo(3);
+    assertThat(underTest.attributes().get("Indexing Queue Backlog")).isEqualTo(3);
+  }
+
   @Test
   public void node_attributes() {
     Map<String, Object> attributes = underTest.attributes();
@@ -81,7 +91,7 @@ public class EsMonitorTest {
   @Test
   public void attributes_displays_exception_message_when_cause_null_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, indexingQueue);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with no cause"));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -92,7 +102,7 @@ public class EsMonitorTest {
   @Test
   public void attributes_displays_exception_message_when_cause_is_not_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, indexingQueue);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with cause not ES", new IllegalArgumentException("some cause message")));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -103,7 +113,7 @@ public class EsMonitorTest {
   @Test
   public void attributes_displays_cause_message_when_cause_is_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, indexingQueue);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with ES cause", new ElasticsearchException("some cause message")));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -44,6 +44,7 @@ import org.sonar.server.component.ComponentCleanerService;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.issue.IssueTesting;
 import org.sonar.server.issue.index.IssueAuthorizationDoc;
@@ -98,7 +99,7 @@ public class DeleteActionTest {
       new DeleteAction(
         new ComponentCleanerService(
           dbClient,
-          new IssueIndexer(system2, dbClient, es.client()),
+          new IssueIndexer(system2, dbClient, es.client(), mock(IndexingQueue.class)),
           new TestIndexer(system2, dbClient, es.client()),
           new ProjectMeasuresIndexer(system2, dbClient, es.client()),
           mockResourceTypes,
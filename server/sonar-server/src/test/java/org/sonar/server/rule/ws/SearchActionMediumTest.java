@@ -20,6 +20,7 @@
 package org.sonar.server.rule.ws;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HttpHeaders;
 import java.util.Collections;
 import java.util.Date;
 import org.junit.After;
@@ -399,6 +400,46 @@ public class SearchActionMediumTest {
       .assertJson(this.getClass(), "search_no_rules.json");
   }
 
+  @Test
+  public void search_profile_active_rules_is_not_modified_until_profile_changes() throws Exception {
+    QualityProfileDto profile = QProfileTesting.newXooP1();
+    tester.get(QualityProfileDao.class).insert(dbSession, profile);
+    RuleDto rule = RuleTesting.newXooX1();
+    ruleDao.insert(dbSession, rule);
+    tester.get(ActiveRuleDao.class).insert(dbSession, newActiveRule(profile, rule));
+    dbSession.commit();
+    ruleIndexer.index();
+    activeRuleIndexer.index();
+
+    WsTester.Result result = newProfileActiveRulesRequest(profile).execute();
+    String etag = result.header(HttpHeaders.ETAG);
+    assertThat(etag).isNotEmpty();
+    assertThat(result.outputAsString()).contains(rule.getKey().toString());
+
+    WsTester.Result notModified = newProfileActiveRulesRequest(profile).setHeader(HttpHeaders.IF_NONE_MATCH, etag).execute();
+    notModified.assertNotModified();
+    assertThat(notModified.outputAsString()).isEmpty();
+
+    // another page is another content
+    WsTester.Result otherPage = newProfileActiveRulesRequest(profile).setParam(WebService.Param.PAGE, "2").setHeader(HttpHeaders.IF_NONE_MATCH, etag).execute();
+    assertThat(otherPage.header(HttpHeaders.ETAG)).isNotEqualTo(etag);
+    assertThat(otherPage.outputAsString()).isNotEmpty();
+
+    tester.get(QualityProfileDao.class).update(dbSession, profile.setRulesUpdatedAt("2016-12-25T10:00:00+0100"));
+    dbSession.commit();
+
+    WsTester.Result modified = newProfileActiveRulesRequest(profile).setHeader(HttpHeaders.IF_NONE_MATCH, etag).execute();
+    assertThat(modified.outputAsString()).contains(rule.getKey().toString());
+    assertThat(modified.header(HttpHeaders.ETAG)).isNotEqualTo(etag);
+  }
+
+  private WsTester.TestRequest newProfileActiveRulesRequest(QualityProfileDto profile) {
+    return tester.wsTester().newGetRequest(API_ENDPOINT, API_SEARCH_METHOD)
+      .setParam(PARAM_ACTIVATION, "true")
+      .setParam(PARAM_QPROFILE, profile.getKey())
+      .setParam(WebService.Param.FIELDS, "actives");
+  }
+
   @Test
   public void search_profile_active_rules_with_inheritance() throws Exception {
     QualityProfileDto profile = QProfileTesting.newXooP1();
@@ -36,6 +36,7 @@ import org.sonar.db.issue.IssueDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexingQueue;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.issue.IssueQuery;
@@ -49,6 +50,7 @@ import org.sonar.server.tester.UserSessionRule;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
 public class ViewIndexerTest {
 
@@ -133,7 +135,7 @@ public class ViewIndexerTest {
   @Test
   public void clear_views_lookup_cache_on_index_view_uuid() {
     IssueIndex issueIndex = new IssueIndex(esTester.client(), System2.INSTANCE, userSessionRule);
-    IssueIndexer issueIndexer = new IssueIndexer(system2, dbClient, esTester.client());
+    IssueIndexer issueIndexer = new IssueIndexer(system2, dbClient, esTester.client(), mock(IndexingQueue.class));
     PermissionIndexer permissionIndexer = new PermissionIndexer(dbClient, esTester.client());
 
     String viewUuid = "ABCD";
@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import org.junit.Test;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ETagsTest {
+
+  private static final String TAG = ETags.of("profile", 12L, null);
+
+  private TestRequest request = new TestRequest();
+  private DumbResponse response = new DumbResponse();
+
+  @Test
+  public void tag_depends_on_all_version_parts() {
+    assertThat(TAG).startsWith("\"").endsWith("\"").isEqualTo(ETags.of("profile", 12L, null));
+    assertThat(ETags.of("profile", 13L, null)).isNotEqualTo(TAG);
+    assertThat(ETags.of("profile", 12L)).isNotEqualTo(TAG);
+  }
+
+  @Test
+  public void modified_if_request_is_not_conditional() {
+    assertThat(ETags.isNotModified(request, response, TAG)).isFalse();
+
+    assertThat(response.getHeader("ETag")).isEqualTo(TAG);
+    assertThat(response.stream().status()).isNotEqualTo(HTTP_NOT_MODIFIED);
+  }
+
+  @Test
+  public void modified_if_tag_does_not_match() {
+    request.setHeader("If-None-Match", ETags.of("profile", 11L, null));
+
+    assertThat(ETags.isNotModified(request, response, TAG)).isFalse();
+    assertThat(response.stream().status()).isNotEqualTo(HTTP_NOT_MODIFIED);
+  }
+
+  @Test
+  public void not_modified_if_one_of_the_tags_matches() {
+    request.setHeader("if-none-match", "\"other\", W/" + TAG);
+
+    assertThat(ETags.isNotModified(request, response, TAG)).isTrue();
+
+    assertThat(response.getHeader("ETag")).isEqualTo(TAG);
+    assertThat(response.stream().status()).isEqualTo(HTTP_NOT_MODIFIED);
+  }
+
+  @Test
+  public void not_modified_if_any_tag_is_accepted() {
+    request.setHeader("If-None-Match", "*");
+
+    assertThat(ETags.isNotModified(request, response, TAG)).isTrue();
+  }
+}
@@ -30,6 +30,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -61,6 +63,7 @@ public class WsTester {
 
     private Map<String, String> params = Maps.newHashMap();
     private final Map<String, Part> parts = Maps.newHashMap();
+    private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
     private TestRequest(String method) {
       this.method = method;
@@ -86,6 +89,16 @@ public class WsTester {
       return params.keySet().contains(key);
     }
 
+    @Override
+    public Optional<String> header(String name) {
+      return Optional.ofNullable(headers.get(name));
+    }
+
+    public TestRequest setHeader(String name, String value) {
+      headers.put(name, value);
+      return this;
+    }
+
     @Override
     public String getPath() {
       return path;
@@ -248,6 +261,11 @@ public class WsTester {
       return response.output.toByteArray();
     }
 
+    @CheckForNull
+    public String header(String name) {
+      return response.getHeader(name);
+    }
+
     public Result assertJson(String expectedJson) throws Exception {
       String json = outputAsString();
       JsonAssert.assertJson(json).isSimilarTo(expectedJson);
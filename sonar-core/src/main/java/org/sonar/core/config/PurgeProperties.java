@@ -100,6 +100,17 @@ public final class PurgeProperties {
         .category(CoreProperties.CATEGORY_GENERAL)
         .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
         .index(6)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.MAX_ROWS_DELETED_PER_SECOND)
+        .defaultValue("0")
+        .name("Maximum number of rows deleted per second")
+        .description("Limits the load put on the database by the background purge of projects. "
+          + "Zero or a negative value means no limit.")
+        .type(PropertyType.INTEGER)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(7)
         .build()
       );
   }
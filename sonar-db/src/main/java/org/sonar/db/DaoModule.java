@@ -26,6 +26,7 @@ import org.sonar.db.ce.CeActivityDao;
 import org.sonar.db.ce.CeQueueDao;
 import org.sonar.db.ce.CeScannerContextDao;
 import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.db.ce.CeTaskStepDao;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentKeyUpdaterDao;
 import org.sonar.db.component.ComponentLinkDao;
@@ -75,6 +76,7 @@ public class DaoModule extends Module {
     CeActivityDao.class,
     CeQueueDao.class,
     CeTaskInputDao.class,
+    CeTaskStepDao.class,
     ComponentDao.class,
     ComponentLinkDao.class,
     CustomMeasureDao.class,
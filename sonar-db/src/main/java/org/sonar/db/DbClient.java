@@ -26,6 +26,7 @@ import org.sonar.db.ce.CeActivityDao;
 import org.sonar.db.ce.CeQueueDao;
 import org.sonar.db.ce.CeScannerContextDao;
 import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.db.ce.CeTaskStepDao;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentKeyUpdaterDao;
 import org.sonar.db.component.ComponentLinkDao;
@@ -97,6 +98,7 @@ public class DbClient {
   private final CeQueueDao ceQueueDao;
   private final CeTaskInputDao ceTaskInputDao;
   private final CeScannerContextDao ceScannerContextDao;
+  private final CeTaskStepDao ceTaskStepDao;
   private final FileSourceDao fileSourceDao;
   private final AuthorDao authorDao;
   private final ResourceIndexDao componentIndexDao;
@@ -151,6 +153,7 @@ public class DbClient {
     ceQueueDao = getDao(map, CeQueueDao.class);
     ceTaskInputDao = getDao(map, CeTaskInputDao.class);
     ceScannerContextDao = getDao(map, CeScannerContextDao.class);
+    ceTaskStepDao = getDao(map, CeTaskStepDao.class);
     fileSourceDao = getDao(map, FileSourceDao.class);
     authorDao = getDao(map, AuthorDao.class);
     componentIndexDao = getDao(map, ResourceIndexDao.class);
@@ -285,6 +288,10 @@ public class DbClient {
     return ceScannerContextDao;
   }
 
+  public CeTaskStepDao ceTaskStepDao() {
+    return ceTaskStepDao;
+  }
+
   public FileSourceDao fileSourceDao() {
     return fileSourceDao;
   }
@@ -108,17 +108,38 @@ public class CeQueueDao implements Dao {
     return mapper(dbSession).countByStatusAndComponentUuid(status, componentUuid);
   }
 
+  /**
+   * Ordered by ascending id: oldest to newest
+   */
+  public List<CeQueueDto> selectByStatus(DbSession session, CeQueueDto.Status status) {
+    return mapper(session).selectByStatus(status);
+  }
+
   public Optional<CeQueueDto> peek(DbSession session) {
-    List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
-    if (taskUuids.isEmpty()) {
+    List<CeQueueDto> eligibleTasks = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
+    if (eligibleTasks.isEmpty()) {
       return Optional.absent();
     }
 
-    String taskUuid = taskUuids.get(0);
+    String taskUuid = eligibleTasks.get(0).getUuid();
     return tryToPeek(session, taskUuid);
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
+  /**
+   * Pending tasks which component has no task in progress, ordered by ascending id: oldest to newest.
+   */
+  public List<CeQueueDto> selectEligibleForPeek(DbSession session, int maxResults) {
+    return mapper(session).selectEligibleForPeek(new RowBounds(0, maxResults));
+  }
+
+  /**
+   * Sets the status of the specified task to {@link CeQueueDto.Status#IN_PROGRESS} if it is still
+   * {@link CeQueueDto.Status#PENDING}.
+   *
+   * @return the updated task, or absent if the task does not exist or is not pending anymore, for example because it
+   *         has been peeked concurrently
+   */
+  public Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
     int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
     if (touchedRows != 1) {
       return Optional.absent();
@@ -35,7 +35,9 @@ public interface CeQueueMapper {
 
   int countByQuery(@Param("query") CeTaskQuery query);
 
-  List<String> selectEligibleForPeek(RowBounds rowBounds);
+  List<CeQueueDto> selectByStatus(@Param("status") CeQueueDto.Status status);
+
+  List<CeQueueDto> selectEligibleForPeek(RowBounds rowBounds);
 
   @CheckForNull
   CeQueueDto selectByUuid(@Param("uuid") String uuid);
@@ -0,0 +1,159 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Execution statistics of a step, or of a component visitor, of a Compute Engine task.
+ */
+public class CeTaskStepDto {
+
+  public enum Type {
+    STEP, VISITOR
+  }
+
+  private String uuid;
+  private String taskUuid;
+  private Type stepType;
+  private String name;
+  private int stepIndex;
+  private long durationMs;
+  private Long cpuTimeMs;
+  private Long allocatedBytes;
+  private Long processedCount;
+  private long createdAt;
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public CeTaskStepDto setUuid(String s) {
+    checkArgument(s.length() <= 40, "Value is too long for column CE_TASK_STEPS.UUID: %s", s);
+    this.uuid = s;
+    return this;
+  }
+
+  public String getTaskUuid() {
+    return taskUuid;
+  }
+
+  public CeTaskStepDto setTaskUuid(String s) {
+    checkArgument(s.length() <= 40, "Value is too long for column CE_TASK_STEPS.TASK_UUID: %s", s);
+    this.taskUuid = s;
+    return this;
+  }
+
+  public Type getStepType() {
+    return stepType;
+  }
+
+  public CeTaskStepDto setStepType(Type stepType) {
+    this.stepType = stepType;
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Name is truncated to the size of column CE_TASK_STEPS.NAME.
+   */
+  public CeTaskStepDto setName(String s) {
+    this.name = s.length() > 255 ? s.substring(0, 255) : s;
+    return this;
+  }
+
+  /**
+   * Execution order of the step among the steps of the same type
+   */
+  public int getStepIndex() {
+    return stepIndex;
+  }
+
+  public CeTaskStepDto setStepIndex(int stepIndex) {
+    this.stepIndex = stepIndex;
+    return this;
+  }
+
+  /**
+   * Wall-clock time, in milliseconds
+   */
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  public CeTaskStepDto setDurationMs(long durationMs) {
+    this.durationMs = durationMs;
+    return this;
+  }
+
+  /**
+   * CPU time, in milliseconds. Null if not supported by the JVM or not measured.
+   */
+  @CheckForNull
+  public Long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  public CeTaskStepDto setCpuTimeMs(@Nullable Long cpuTimeMs) {
+    this.cpuTimeMs = cpuTimeMs;
+    return this;
+  }
+
+  /**
+   * Bytes allocated in heap. Null if not supported by the JVM or not measured.
+   */
+  @CheckForNull
+  public Long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public CeTaskStepDto setAllocatedBytes(@Nullable Long allocatedBytes) {
+    this.allocatedBytes = allocatedBytes;
+    return this;
+  }
+
+  /**
+   * Number of rows, documents or components processed. Null if not measured.
+   */
+  @CheckForNull
+  public Long getProcessedCount() {
+    return processedCount;
+  }
+
+  public CeTaskStepDto setProcessedCount(@Nullable Long processedCount) {
+    this.processedCount = processedCount;
+    return this;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public CeTaskStepDto setCreatedAt(long createdAt) {
+    this.createdAt = createdAt;
+    return this;
+  }
+}
@@ -91,6 +91,7 @@ public class MeasureDao implements Dao {
           mapper(dbSession).selectByQueryOnComponents(pageQuery, resultHandler);
           return null;
         });
+      return;
     }
     if (query.isOnProjects()) {
       executeLargeInputsWithoutOutput(
@@ -100,6 +101,7 @@ public class MeasureDao implements Dao {
           mapper(dbSession).selectByQueryOnProjects(pageQuery, resultHandler);
           return null;
         });
+      return;
     }
     mapper(dbSession).selectByQueryOnSingleComponent(query, resultHandler);
   }
@@ -111,13 +113,37 @@ public class MeasureDao implements Dao {
     return mapper(dbSession).selectTreeByQuery(query, baseComponent.uuid(), query.getUuidPath(baseComponent));
   }
 
-  public List<PastMeasureDto> selectPastMeasures(DbSession dbSession,
-    String componentUuid,
-    String analysisUuid,
-    Collection<Integer> metricIds) {
-    return executeLargeInputs(
-      metricIds,
-      ids -> mapper(dbSession).selectPastMeasures(componentUuid, analysisUuid, ids));
+  /**
+   * Selects the UUIDs of a page of the components of the tree, ordered by {@code sort}. Only the measures of
+   * {@link MeasureTreeSort#getMetricId()} are read, the metrics of {@link MeasureTreeQuery#getMetricIds()} are ignored.
+   * The base component is not returned.
+   */
+  public List<String> selectTreeComponentUuids(DbSession dbSession, ComponentDto baseComponent, MeasureTreeQuery query, MeasureTreeSort sort,
+    int offset, int pageSize) {
+    if (query.getQualifiers() != null && query.getQualifiers().isEmpty()) {
+      return Collections.emptyList();
+    }
+    return mapper(dbSession).selectTreeComponentUuids(query, sort, baseComponent.uuid(), query.getUuidPath(baseComponent), baseComponent.projectUuid(),
+      offset, pageSize);
+  }
+
+  /**
+   * Number of components returned by all the pages of {@link #selectTreeComponentUuids(DbSession, ComponentDto, MeasureTreeQuery, MeasureTreeSort, int, int)}
+   */
+  public int countTreeComponents(DbSession dbSession, ComponentDto baseComponent, MeasureTreeQuery query, MeasureTreeSort sort) {
+    if (query.getQualifiers() != null && query.getQualifiers().isEmpty()) {
+      return 0;
+    }
+    return mapper(dbSession).countTreeComponents(query, sort, baseComponent.uuid(), query.getUuidPath(baseComponent), baseComponent.projectUuid());
+  }
+
+  /**
+   * Streams the measures of the specified analysis which have a numeric value, except those of files and those
+   * associated to a developer. Measures are ordered by component then by metric id, so that all the measures of a
+   * component are consecutive.
+   */
+  public void selectPastMeasuresOfAnalysis(DbSession dbSession, String analysisUuid, ResultHandler resultHandler) {
+    mapper(dbSession).selectPastMeasuresOfAnalysis(analysisUuid, resultHandler);
   }
 
   /**
@@ -40,7 +40,13 @@ public interface MeasureMapper {
 
   List<MeasureDto> selectTreeByQuery(@Param("query") MeasureTreeQuery measureQuery, @Param("baseUuid") String baseUuid, @Param("baseUuidPath") String baseUuidPath);
 
-  List<PastMeasureDto> selectPastMeasures(@Param("componentUuid") String componentUuid, @Param("analysisUuid") String analysisUuid, @Param("metricIds") List<Integer> metricIds);
+  List<String> selectTreeComponentUuids(@Param("query") MeasureTreeQuery measureQuery, @Param("sort") MeasureTreeSort sort, @Param("baseUuid") String baseUuid,
+    @Param("baseUuidPath") String baseUuidPath, @Param("projectUuid") String projectUuid, @Param("offset") int offset, @Param("pageSize") int pageSize);
+
+  int countTreeComponents(@Param("query") MeasureTreeQuery measureQuery, @Param("sort") MeasureTreeSort sort, @Param("baseUuid") String baseUuid,
+    @Param("baseUuidPath") String baseUuidPath, @Param("projectUuid") String projectUuid);
+
+  void selectPastMeasuresOfAnalysis(@Param("analysisUuid") String analysisUuid, ResultHandler resultHandler);
 
   List<MeasureDto> selectProjectMeasuresOfDeveloper(@Param("developerId") long developerId, @Param("metricIds") Collection<Integer> metricIds);
 
@@ -0,0 +1,194 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Order of the components returned by {@link MeasureDao#selectTreeComponentUuids(org.sonar.db.DbSession, org.sonar.db.component.ComponentDto, MeasureTreeQuery, MeasureTreeSort, int, int)}.
+ * Components are sorted by the given fields, null values being last whatever the direction, then by id.
+ */
+public class MeasureTreeSort {
+
+  public enum Field {
+    NAME, QUALIFIER, PATH,
+    /**
+     * numerical value of the measure of {@link #getMetricId()}
+     */
+    VALUE,
+    /**
+     * variation of the measure of {@link #getMetricId()} on period {@link #getPeriodIndex()}
+     */
+    VARIATION
+  }
+
+  private static final int MAX_PERIOD_INDEX = 5;
+
+  // SONAR-7681 a public implementation of List must be used in MyBatis - potential concurrency exceptions otherwise
+  private final List<Field> fields;
+  private final boolean asc;
+  @CheckForNull
+  private final Integer metricId;
+  @CheckForNull
+  private final Integer periodIndex;
+  private final boolean withMeasuresOnly;
+  @CheckForNull
+  private final Double bestValue;
+  @CheckForNull
+  private final Double bestVariation;
+  private final List<String> bestValueQualifiers;
+
+  private MeasureTreeSort(Builder builder) {
+    this.fields = new ArrayList<>(builder.fields);
+    this.asc = builder.asc;
+    this.metricId = builder.metricId;
+    this.periodIndex = builder.periodIndex;
+    this.withMeasuresOnly = builder.withMeasuresOnly;
+    this.bestValue = builder.bestValue;
+    this.bestVariation = builder.bestVariation;
+    this.bestValueQualifiers = new ArrayList<>(builder.bestValueQualifiers);
+  }
+
+  public List<Field> getFields() {
+    return fields;
+  }
+
+  public boolean isAsc() {
+    return asc;
+  }
+
+  public String getDirection() {
+    return asc ? "asc" : "desc";
+  }
+
+  @CheckForNull
+  public Integer getMetricId() {
+    return metricId;
+  }
+
+  @CheckForNull
+  public Integer getPeriodIndex() {
+    return periodIndex;
+  }
+
+  @CheckForNull
+  public String getVariationColumn() {
+    return periodIndex == null ? null : ("variation_value_" + periodIndex);
+  }
+
+  public boolean isWithMeasuresOnly() {
+    return withMeasuresOnly;
+  }
+
+  @CheckForNull
+  public Double getBestValue() {
+    return bestValue;
+  }
+
+  @CheckForNull
+  public Double getBestVariation() {
+    return bestVariation;
+  }
+
+  public List<String> getBestValueQualifiers() {
+    return bestValueQualifiers;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    private List<Field> fields = Collections.emptyList();
+    private boolean asc = true;
+    private Integer metricId;
+    private Integer periodIndex;
+    private boolean withMeasuresOnly = false;
+    private Double bestValue;
+    private Double bestVariation;
+    private Collection<String> bestValueQualifiers = Collections.emptyList();
+
+    private Builder() {
+    }
+
+    public Builder setFields(List<Field> fields) {
+      this.fields = requireNonNull(fields);
+      return this;
+    }
+
+    public Builder setAsc(boolean asc) {
+      this.asc = asc;
+      return this;
+    }
+
+    /**
+     * The metric which measures are used by {@link Field#VALUE}, {@link Field#VARIATION} and {@link #setWithMeasuresOnly(boolean)}
+     */
+    public Builder setMetricId(@Nullable Integer metricId) {
+      this.metricId = metricId;
+      return this;
+    }
+
+    /**
+     * Index of the period, from 1 to 5, used by {@link Field#VARIATION} and {@link #setWithMeasuresOnly(boolean)}
+     */
+    public Builder setPeriodIndex(@Nullable Integer periodIndex) {
+      this.periodIndex = periodIndex;
+      return this;
+    }
+
+    /**
+     * Only the components having a measure (a variation if {@link #setPeriodIndex(Integer)} is set) are returned
+     */
+    public Builder setWithMeasuresOnly(boolean withMeasuresOnly) {
+      this.withMeasuresOnly = withMeasuresOnly;
+      return this;
+    }
+
+    /**
+     * Value and variation considered for the components of the given qualifiers which have no measure, as
+     * the measures equal to the best value of the metric are not persisted on files.
+     */
+    public Builder setBestValue(@Nullable Double bestValue, @Nullable Double bestVariation, Collection<String> qualifiers) {
+      this.bestValue = bestValue;
+      this.bestVariation = bestVariation;
+      this.bestValueQualifiers = requireNonNull(qualifiers);
+      return this;
+    }
+
+    public MeasureTreeSort build() {
+      checkArgument(metricId != null || !(fields.contains(Field.VALUE) || fields.contains(Field.VARIATION) || withMeasuresOnly),
+        "Metric is required to sort or filter on measures");
+      checkArgument(periodIndex != null || !fields.contains(Field.VARIATION), "Period is required to sort on variations");
+      checkArgument(periodIndex == null || (periodIndex >= 1 && periodIndex <= MAX_PERIOD_INDEX), "Period index must be between 1 and %s", MAX_PERIOD_INDEX);
+      checkArgument(bestVariation == null || periodIndex != null, "Period is required to use best variation");
+      checkArgument((bestValue == null && bestVariation == null) || !bestValueQualifiers.isEmpty(), "Qualifiers are required to use best value");
+      return new MeasureTreeSort(this);
+    }
+  }
+}
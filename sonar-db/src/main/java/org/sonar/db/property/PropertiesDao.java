@@ -133,6 +133,24 @@ public class PropertiesDao implements Dao {
     return getMapper(session).selectDescendantModuleProperties(moduleUuid, Scopes.PROJECT, true);
   }
 
+  /**
+   * Returns a token which changes each time a setting of the project or of one of its modules is
+   * added, updated or removed. As updates are persisted as delete + insert, the number of settings and
+   * the greatest setting id are enough to detect any change.
+   */
+  public String selectProjectSettingsVersion(DbSession session, String projectUuid) {
+    PropertiesMapper mapper = getMapper(session);
+    Long maxId = mapper.selectProjectSettingsMaxId(projectUuid);
+    return mapper.countProjectSettings(projectUuid) + "-" + (maxId == null ? 0L : maxId);
+  }
+
+  /**
+   * Whether the project or one of its modules has a secured setting, which key contains ".secured"
+   */
+  public boolean hasProjectSecuredSettings(DbSession session, String projectUuid) {
+    return getMapper(session).countProjectSecuredSettings(projectUuid) > 0;
+  }
+
   @CheckForNull
   public PropertyDto selectProjectProperty(long componentId, String propertyKey) {
     try (DbSession session = mybatis.openSession(false)) {
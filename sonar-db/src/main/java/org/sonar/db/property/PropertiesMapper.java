@@ -20,6 +20,7 @@
 package org.sonar.db.property;
 
 import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
 
@@ -44,6 +45,13 @@ public interface PropertiesMapper {
   List<PropertyDto> selectDescendantModuleProperties(@Param("moduleUuid") String moduleUuid, @Param(value = "scope") String scope,
     @Param(value = "excludeDisabled") boolean excludeDisabled);
 
+  int countProjectSettings(@Param("projectUuid") String projectUuid);
+
+  @CheckForNull
+  Long selectProjectSettingsMaxId(@Param("projectUuid") String projectUuid);
+
+  int countProjectSecuredSettings(@Param("projectUuid") String projectUuid);
+
   void insertAsEmpty(@Param("key") String key, @Nullable @Param("userId") Long userId, @Nullable @Param("componentId") Long componentId,
     @Param("now") long now);
 
@@ -22,6 +22,7 @@ package org.sonar.db.purge;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import org.apache.ibatis.session.SqlSession;
 
@@ -30,22 +31,31 @@ import static java.util.Arrays.asList;
 
 class PurgeCommands {
 
-  private static final int MAX_SNAPSHOTS_PER_QUERY = 1000;
   private static final int MAX_RESOURCES_PER_QUERY = 1000;
 
   private final SqlSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
+  private final PurgeThrottler throttler;
 
-  PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler) {
+  PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, PurgeThrottler throttler) {
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
+    this.throttler = throttler;
+  }
+
+  PurgeCommands(SqlSession session, PurgeProfiler profiler, PurgeThrottler throttler) {
+    this(session, session.getMapper(PurgeMapper.class), profiler, throttler);
   }
 
   @VisibleForTesting
   PurgeCommands(SqlSession session, PurgeProfiler profiler) {
-    this(session, session.getMapper(PurgeMapper.class), profiler);
+    this(session, profiler, PurgeThrottler.unlimited());
+  }
+
+  int getChunkSize() {
+    return throttler.getChunkSize();
   }
 
   List<String> selectSnapshotUuids(PurgeSnapshotQuery query) {
@@ -130,16 +140,13 @@ class PurgeCommands {
       return;
     }
 
-    List<List<String>> analysisUuidsPartitions = Lists.partition(analysisUuids, MAX_SNAPSHOTS_PER_QUERY);
+    List<List<String>> analysisUuidsPartitions = Lists.partition(analysisUuids, throttler.getChunkSize());
     List<List<String>> componentUuidsPartitions = Lists.partition(componentUuids, MAX_RESOURCES_PER_QUERY);
 
     profiler.start("deleteComponentMeasures");
     for (List<String> analysisUuidsPartition : analysisUuidsPartitions) {
-      for (List<String> componentUuidsPartition : componentUuidsPartitions) {
-        purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition);
-      }
+      deleteByChunks(componentUuidsPartitions, componentUuidsPartition -> purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition));
     }
-    session.commit();
     profiler.stop();
   }
 
@@ -152,51 +159,69 @@ class PurgeCommands {
 
   @VisibleForTesting
   protected void deleteAnalyses(List<IdUuidPair> analysisIdUuids) {
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisIdUuids), MAX_SNAPSHOTS_PER_QUERY);
+    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisIdUuids), throttler.getChunkSize());
 
     deleteAnalysisDuplications(analysisUuidsPartitions);
 
     profiler.start("deleteAnalyses (events)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisEvents);
-    session.commit();
+    deleteByChunks(analysisUuidsPartitions, purgeMapper::deleteAnalysisEvents);
     profiler.stop();
 
     profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
+    deleteByChunks(analysisUuidsPartitions, purgeMapper::deleteAnalysisMeasures);
     profiler.stop();
 
     profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
-    session.commit();
+    deleteByChunks(analysisUuidsPartitions, purgeMapper::deleteAnalyses);
     profiler.stop();
   }
 
   public void purgeAnalyses(List<IdUuidPair> analysisUuids) {
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisUuids), MAX_SNAPSHOTS_PER_QUERY);
+    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisUuids), throttler.getChunkSize());
 
     deleteAnalysisDuplications(analysisUuidsPartitions);
 
     profiler.start("deleteSnapshotWastedMeasures (project_measures)");
     List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
-    analysisUuidsPartitions.stream()
-        .forEach(analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
-    session.commit();
+    deleteByChunks(analysisUuidsPartitions,
+      analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
     profiler.stop();
 
     profiler.start("updatePurgeStatusToOne (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::updatePurgeStatusToOne);
-    session.commit();
+    deleteByChunks(analysisUuidsPartitions, purgeMapper::updatePurgeStatusToOne);
+    profiler.stop();
+  }
+
+  void deleteIssues(List<String> issueKeys) {
+    List<List<String>> issueKeysPartitions = Lists.partition(issueKeys, throttler.getChunkSize());
+
+    profiler.start("deleteIssues (issue_changes)");
+    deleteByChunks(issueKeysPartitions, purgeMapper::deleteIssueChangesFromIssueKeys);
+    profiler.stop();
+
+    profiler.start("deleteIssues (issues)");
+    deleteByChunks(issueKeysPartitions, purgeMapper::deleteIssuesFromKeys);
     profiler.stop();
   }
 
   private void deleteAnalysisDuplications(List<List<String>> snapshotUuidsPartitions) {
     profiler.start("deleteAnalysisDuplications (duplications_index)");
-    snapshotUuidsPartitions.forEach(purgeMapper::deleteAnalysisDuplications);
-    session.commit();
+    deleteByChunks(snapshotUuidsPartitions, purgeMapper::deleteAnalysisDuplications);
     profiler.stop();
   }
 
+  /**
+   * Each chunk is committed separately, so that locks are released as soon as possible and that an interrupted
+   * purge does not have to start from scratch.
+   */
+  private <T> void deleteByChunks(List<List<T>> partitions, ToIntFunction<List<T>> deleteFunction) {
+    for (List<T> partition : partitions) {
+      int rows = deleteFunction.applyAsInt(partition);
+      session.commit();
+      throttler.onChunkCommitted(rows);
+    }
+  }
+
   public void deleteFileSources(String rootUuid) {
     profiler.start("deleteFileSources (file_sources)");
     purgeMapper.deleteFileSourcesByProjectUuid(rootUuid);
@@ -56,14 +56,30 @@ public class PurgeDao implements Dao {
   }
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
+    purgeDisabledComponents(session, conf, listener);
+    purgeHistory(session, conf, listener, profiler, PurgeThrottler.unlimited());
+  }
+
+  /**
+   * Deletes the data of the components disabled by the last analysis. Unlike {@link #purgeHistory}, this purge is
+   * cheap and must be done as soon as components are disabled.
+   */
+  public void purgeDisabledComponents(DbSession session, PurgeConfiguration conf, PurgeListener listener) {
+    purgeDisabledComponents(session, conf.getDisabledComponentUuids(), listener);
+  }
+
+  /**
+   * Deletes the historical data which is not kept anymore, by chunks committed separately. As each chunk is committed,
+   * an interrupted purge can be resumed by calling this method again.
+   */
+  public void purgeHistory(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler, PurgeThrottler throttler) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
-    PurgeCommands commands = new PurgeCommands(session, mapper, profiler);
+    PurgeCommands commands = new PurgeCommands(session, mapper, profiler, throttler);
     String rootUuid = conf.rootProjectIdUuid().getUuid();
     deleteAbortedAnalyses(rootUuid, commands);
     deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.scopesWithoutHistoricalData(), commands);
     purgeAnalyses(commands, rootUuid);
-    purgeDisabledComponents(session, conf.getDisabledComponentUuids(), listener);
-    deleteOldClosedIssues(conf, mapper, listener);
+    deleteOldClosedIssues(conf, mapper, commands, listener);
   }
 
   private static void purgeAnalyses(PurgeCommands commands, String rootUuid) {
@@ -75,19 +91,15 @@ public class PurgeDao implements Dao {
     commands.purgeAnalyses(analysisUuids);
   }
 
-  private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener) {
+  private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeCommands commands, PurgeListener listener) {
     Date toDate = conf.maxLiveDateOfClosedIssues();
     String rootUuid = conf.rootProjectIdUuid().getUuid();
     List<String> issueKeys = mapper.selectOldClosedIssueKeys(rootUuid, dateToLong(toDate));
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssueChangesFromIssueKeys(input);
-      return emptyList();
-    });
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssuesFromKeys(input);
-      return emptyList();
-    });
-    listener.onIssuesRemoval(rootUuid, issueKeys);
+    // issues are removed from index chunk by chunk, so that index is up-to-date even if the purge is interrupted
+    for (List<String> issueKeysChunk : Lists.partition(issueKeys, commands.getChunkSize())) {
+      commands.deleteIssues(issueKeysChunk);
+      listener.onIssuesRemoval(rootUuid, issueKeysChunk);
+    }
   }
 
   private static void deleteAbortedAnalyses(String rootUuid, PurgeCommands commands) {
@@ -166,7 +178,11 @@ public class PurgeDao implements Dao {
   }
 
   public void deleteAnalyses(DbSession session, PurgeProfiler profiler, List<IdUuidPair> analysisIdUuids) {
-    new PurgeCommands(session, profiler).deleteAnalyses(analysisIdUuids);
+    deleteAnalyses(session, profiler, PurgeThrottler.unlimited(), analysisIdUuids);
+  }
+
+  public void deleteAnalyses(DbSession session, PurgeProfiler profiler, PurgeThrottler throttler, List<IdUuidPair> analysisIdUuids) {
+    new PurgeCommands(session, profiler, throttler).deleteAnalyses(analysisIdUuids);
   }
 
   private static PurgeMapper mapper(DbSession session) {
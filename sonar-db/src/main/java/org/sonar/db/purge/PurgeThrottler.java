@@ -0,0 +1,98 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.utils.System2;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Splits the statements of the purge into chunks which are committed separately and limits the number of rows
+ * deleted per second, so that the purge of a big project neither holds locks for long nor competes too much
+ * with the other users of the database.
+ * <p>
+ * Deleted rows can only be counted when statements are not executed in batch mode.
+ * </p>
+ */
+public class PurgeThrottler {
+  /**
+   * Maximum number of values in the {@code IN} clause of a statement, for Oracle.
+   */
+  public static final int MAX_CHUNK_SIZE = 1000;
+
+  private final int chunkSize;
+  private final int maxRowsPerSecond;
+  private final System2 system2;
+  private final AtomicLong deletedRows = new AtomicLong();
+  private final long start;
+
+  public PurgeThrottler(int chunkSize, int maxRowsPerSecond, System2 system2) {
+    checkArgument(chunkSize > 0 && chunkSize <= MAX_CHUNK_SIZE, "Chunk size must be between 1 and %s, got %s", MAX_CHUNK_SIZE, chunkSize);
+    this.chunkSize = chunkSize;
+    this.maxRowsPerSecond = maxRowsPerSecond;
+    this.system2 = system2;
+    this.start = system2.now();
+  }
+
+  public static PurgeThrottler unlimited() {
+    return new PurgeThrottler(MAX_CHUNK_SIZE, 0, System2.INSTANCE);
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Number of rows deleted so far, to be used to report progress.
+   */
+  public AtomicLong getDeletedRows() {
+    return deletedRows;
+  }
+
+  /**
+   * Called once a chunk is committed. Blocks the current thread as long as the rate of deleted rows exceeds the limit.
+   */
+  void onChunkCommitted(int rows) {
+    // batch mode does not return the number of updated rows
+    if (rows <= 0) {
+      return;
+    }
+    long total = deletedRows.addAndGet(rows);
+    if (maxRowsPerSecond <= 0) {
+      return;
+    }
+    long expectedDurationMs = total * 1_000L / maxRowsPerSecond;
+    long durationMs = system2.now() - start;
+    if (durationMs < expectedDurationMs) {
+      sleep(expectedDurationMs - durationMs);
+    }
+  }
+
+  @VisibleForTesting
+  void sleep(long durationMs) {
+    try {
+      Thread.sleep(durationMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
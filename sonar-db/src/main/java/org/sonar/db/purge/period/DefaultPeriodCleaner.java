@@ -32,6 +32,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeProfiler;
+import org.sonar.db.purge.PurgeThrottler;
 import org.sonar.db.purge.PurgeableAnalysisDto;
 
 import static org.sonar.core.util.stream.Collectors.toList;
@@ -48,19 +49,27 @@ public class DefaultPeriodCleaner {
   }
 
   public void clean(DbSession session, String rootUuid, Settings settings) {
-    doClean(rootUuid, new Filters(settings).all(), session);
+    clean(session, rootUuid, settings, PurgeThrottler.unlimited());
+  }
+
+  public void clean(DbSession session, String rootUuid, Settings settings, PurgeThrottler throttler) {
+    doClean(rootUuid, new Filters(settings).all(), session, throttler);
   }
 
   @VisibleForTesting
   void doClean(String rootUuid, List<Filter> filters, DbSession session) {
+    doClean(rootUuid, filters, session, PurgeThrottler.unlimited());
+  }
+
+  private void doClean(String rootUuid, List<Filter> filters, DbSession session, PurgeThrottler throttler) {
     List<PurgeableAnalysisDto> history = new ArrayList<>(selectAnalysesOfComponent(rootUuid, session));
     for (Filter filter : filters) {
       filter.log();
-      history.removeAll(delete(rootUuid, filter.filter(history), session));
+      history.removeAll(delete(rootUuid, filter.filter(history), session, throttler));
     }
   }
 
-  private List<PurgeableAnalysisDto> delete(String rootUuid, List<PurgeableAnalysisDto> snapshots, DbSession session) {
+  private List<PurgeableAnalysisDto> delete(String rootUuid, List<PurgeableAnalysisDto> snapshots, DbSession session, PurgeThrottler throttler) {
     if (LOG.isDebugEnabled()) {
       LOG.debug("<- Delete analyses of component {}: {}",
         rootUuid,
@@ -70,7 +79,7 @@ public class DefaultPeriodCleaner {
             .collect(Collectors.toArrayList(snapshots.size()))));
     }
     purgeDao.deleteAnalyses(
-      session, profiler,
+      session, profiler, throttler,
       snapshots.stream().map(DefaultPeriodCleaner::toIdUuidPair).collect(Collectors.toList(snapshots.size())));
     return snapshots;
   }
@@ -74,6 +74,14 @@ public class RuleDao implements Dao {
     mapper(session).selectEnabled(resultHandler);
   }
 
+  /**
+   * Date of the most recent change of a rule, including removed rules. Null if there are no rules.
+   */
+  @CheckForNull
+  public Long selectLastUpdateDate(DbSession session) {
+    return mapper(session).selectLastUpdateDate();
+  }
+
   public List<RuleDto> selectAll(DbSession session) {
     return mapper(session).selectAll();
   }
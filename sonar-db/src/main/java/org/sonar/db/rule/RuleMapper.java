@@ -20,6 +20,7 @@
 package org.sonar.db.rule;
 
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.rule.RuleKey;
@@ -35,6 +36,9 @@ public interface RuleMapper {
 
   void selectEnabled(ResultHandler resultHandler);
 
+  @CheckForNull
+  Long selectLastUpdateDate();
+
   RuleDto selectById(long id);
 
   List<RuleDto> selectByIds(@Param("ids") List<Integer> ids);
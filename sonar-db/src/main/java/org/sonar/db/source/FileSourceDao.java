@@ -21,13 +21,16 @@ package org.sonar.db.source;
 
 import com.google.common.base.Function;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
 import java.io.Reader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.BiConsumer;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
@@ -36,6 +39,10 @@ import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
+import static org.sonar.db.DatabaseUtils.repeatCondition;
+import static org.sonar.db.DatabaseUtils.toUniqueAndSortedList;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -109,6 +116,49 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Streams the line hashes of many files, with one query per partition of 1000 files rather than one per file.
+   * The consumer is called with the file uuid and the reader of its line hashes, which is closed once the call
+   * returns. Files without sources or without line hashes are ignored.
+   * Contrary to {@link #readLineHashesStream(DbSession, String, Function)}, the connection of the session is not closed.
+   */
+  public void readLineHashesStream(DbSession dbSession, Collection<String> fileUuids, BiConsumer<String, Reader> consumer) {
+    Connection connection = dbSession.getConnection();
+    for (List<String> partition : Iterables.partition(toUniqueAndSortedList(fileUuids), PARTITION_SIZE_FOR_ORACLE)) {
+      PreparedStatement pstmt = null;
+      ResultSet rs = null;
+      try {
+        pstmt = connection.prepareStatement("SELECT file_uuid, line_hashes FROM file_sources WHERE data_type=? AND ("
+          + repeatCondition("file_uuid=?", partition.size(), "OR") + ")");
+        pstmt.setString(1, Type.SOURCE);
+        for (int i = 0; i < partition.size(); i++) {
+          pstmt.setString(i + 2, partition.get(i));
+        }
+        rs = pstmt.executeQuery();
+        while (rs.next()) {
+          readLineHashes(rs, consumer);
+        }
+      } catch (SQLException e) {
+        throw new IllegalStateException("Fail to read FILE_SOURCES.LINE_HASHES of " + partition.size() + " files", e);
+      } finally {
+        DbUtils.closeQuietly(rs);
+        DbUtils.closeQuietly(pstmt);
+      }
+    }
+  }
+
+  private static void readLineHashes(ResultSet rs, BiConsumer<String, Reader> consumer) throws SQLException {
+    String fileUuid = rs.getString(1);
+    Reader reader = rs.getCharacterStream(2);
+    if (reader != null) {
+      try {
+        consumer.accept(fileUuid, reader);
+      } finally {
+        IOUtils.closeQuietly(reader);
+      }
+    }
+  }
+
   public void insert(FileSourceDto dto) {
     DbSession session = mybatis.openSession(false);
     try {
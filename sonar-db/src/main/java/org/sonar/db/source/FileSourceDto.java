@@ -23,9 +23,12 @@ import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -41,6 +44,13 @@ public class FileSourceDto {
   private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
     "Use CodedInputStream.setSizeLimit() to increase the size limit.";
 
+  /**
+   * Header of source data stored in chunks of {@link #LINES_PER_CHUNK} lines. Data stored
+   * before this format is a single LZ4 stream, which header is "LZ4Block".
+   */
+  private static final byte[] CHUNKED_MAGIC = {'S', 'Q', 'C', '1'};
+  static final int LINES_PER_CHUNK = 500;
+
   private Long id;
   private String projectUuid;
   private String fileUuid;
@@ -95,6 +105,9 @@ public class FileSourceDto {
 
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
     try {
+      if (isChunked(binaryData)) {
+        return decodeChunkedSourceData(binaryData, 1, Integer.MAX_VALUE);
+      }
       return decodeRegularSourceData(binaryData);
     } catch (IOException e) {
       throw new IllegalStateException(
@@ -103,6 +116,57 @@ public class FileSourceDto {
     }
   }
 
+  /**
+   * Lines whose number is between {@code from} and {@code toInclusive}. When data is stored
+   * in chunks, only the chunks containing these lines are decompressed.
+   */
+  public List<DbFileSources.Line> decodeSourceLines(byte[] binaryData, int from, int toInclusive) {
+    try {
+      DbFileSources.Data data = isChunked(binaryData) ? decodeChunkedSourceData(binaryData, from, toInclusive) : decodeRegularSourceData(binaryData);
+      List<DbFileSources.Line> lines = new ArrayList<>();
+      for (DbFileSources.Line line : data.getLinesList()) {
+        if (line.hasLine() && line.getLine() >= from && line.getLine() <= toInclusive) {
+          lines.add(line);
+        }
+      }
+      return lines;
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+        e);
+    }
+  }
+
+  private static boolean isChunked(byte[] binaryData) {
+    return binaryData.length >= CHUNKED_MAGIC.length && Arrays.equals(CHUNKED_MAGIC, Arrays.copyOf(binaryData, CHUNKED_MAGIC.length));
+  }
+
+  /**
+   * Decodes the chunks which may contain lines between {@code from} and {@code toInclusive}.
+   * @see #encodeSourceData(DbFileSources.Data) for the format
+   */
+  private static DbFileSources.Data decodeChunkedSourceData(byte[] binaryData, int from, int toInclusive) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(binaryData, CHUNKED_MAGIC.length, binaryData.length - CHUNKED_MAGIC.length));
+    int chunkCount = input.readInt();
+    int[] firstLines = new int[chunkCount];
+    int[] lengths = new int[chunkCount];
+    for (int i = 0; i < chunkCount; i++) {
+      firstLines[i] = input.readInt();
+      lengths[i] = input.readInt();
+    }
+    DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+    int offset = CHUNKED_MAGIC.length + 4 + 8 * chunkCount;
+    for (int i = 0; i < chunkCount; i++) {
+      boolean startsBeforeEnd = firstLines[i] <= toInclusive;
+      boolean endsAfterStart = i == chunkCount - 1 || firstLines[i + 1] > from;
+      if (startsBeforeEnd && endsAfterStart) {
+        data.addAllLines(decodeRegularSourceData(Arrays.copyOfRange(binaryData, offset, offset + lengths[i])).getLinesList());
+      }
+      offset += lengths[i];
+    }
+    return data.build();
+  }
+
   private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
     try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
       return DbFileSources.Data.parseFrom(lz4Input);
@@ -125,19 +189,48 @@ public class FileSourceDto {
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    * in the column BINARY_DATA.
+   * <p/>
+   * Lines are split in chunks of {@link #LINES_PER_CHUNK} lines, which are compressed
+   * independently, so that a range of lines can be read without decompressing the whole file:
+   * <ul>
+   *   <li>header {@link #CHUNKED_MAGIC}</li>
+   *   <li>number of chunks (int)</li>
+   *   <li>for each chunk, number of its first line (int) and size in bytes (int)</li>
+   *   <li>chunks, each one being a compressed {@link org.sonar.db.protobuf.DbFileSources.Data}</li>
+   * </ul>
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    int chunkCount = (lines.size() + LINES_PER_CHUNK - 1) / LINES_PER_CHUNK;
+    List<byte[]> chunks = new ArrayList<>(chunkCount);
     ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-    LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
-    try {
-      data.writeTo(compressedOutput);
-      compressedOutput.close();
-      return byteOutput.toByteArray();
+    try (DataOutputStream output = new DataOutputStream(byteOutput)) {
+      output.write(CHUNKED_MAGIC);
+      output.writeInt(chunkCount);
+      for (int i = 0; i < chunkCount; i++) {
+        int start = i * LINES_PER_CHUNK;
+        List<DbFileSources.Line> chunkLines = lines.subList(start, Math.min(lines.size(), start + LINES_PER_CHUNK));
+        byte[] chunk = compress(DbFileSources.Data.newBuilder().addAllLines(chunkLines).build());
+        chunks.add(chunk);
+        DbFileSources.Line firstLine = chunkLines.get(0);
+        output.writeInt(firstLine.hasLine() ? firstLine.getLine() : (start + 1));
+        output.writeInt(chunk.length);
+      }
+      for (byte[] chunk : chunks) {
+        output.write(chunk);
+      }
     } catch (IOException e) {
       throw new IllegalStateException("Fail to serialize and compress source data", e);
-    } finally {
-      IOUtils.closeQuietly(compressedOutput);
     }
+    return byteOutput.toByteArray();
+  }
+
+  private static byte[] compress(DbFileSources.Data data) throws IOException {
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput)) {
+      data.writeTo(compressedOutput);
+    }
+    return byteOutput.toByteArray();
   }
 
   public static List<DbFileSources.Test> decodeTestData(byte[] binaryData) {
@@ -212,6 +305,13 @@ public class FileSourceDto {
     return decodeSourceData(binaryData);
   }
 
+  /**
+   * Lines whose number is between {@code from} and {@code toInclusive}, both starting from 1
+   */
+  public List<DbFileSources.Line> getSourceLines(int from, int toInclusive) {
+    return decodeSourceLines(binaryData, from, toInclusive);
+  }
+
   public FileSourceDto setSourceData(DbFileSources.Data data) {
     this.dataType = Type.SOURCE;
     this.binaryData = encodeSourceData(data);
@@ -30,7 +30,7 @@ import org.sonar.db.MyBatis;
 
 public class DatabaseVersion {
 
-  public static final int LAST_VERSION = 1_502;
+  public static final int LAST_VERSION = 1_503;
 
   /**
    * The minimum supported version which can be upgraded. Lower
@@ -70,6 +70,7 @@ public class DatabaseVersion {
     "ce_queue",
     "ce_task_input",
     "ce_scanner_context",
+    "ce_task_steps",
     "duplications_index",
     "events",
     "file_sources",
@@ -182,6 +182,45 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void selectEligibleForPeek_returns_pending_tasks_of_components_without_task_in_progress_oldest_first() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 2_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 3_000);
+    insert("TASK_4", COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_3, "TASK_4");
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 1)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_3);
+  }
+
+  @Test
+  public void tryToPeek_updates_status_of_pending_task_only() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, IN_PROGRESS);
+
+    Optional<CeQueueDto> peek = underTest.tryToPeek(db.getSession(), TASK_UUID_1);
+    assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
+    assertThat(peek.get().getStartedAt()).isEqualTo(INIT_TIME);
+
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_1).isPresent()).isFalse();
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_2).isPresent()).isFalse();
+    assertThat(underTest.tryToPeek(db.getSession(), "UNKNOWN").isPresent()).isFalse();
+  }
+
+  @Test
+  public void selectByStatus() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, IN_PROGRESS);
+
+    assertThat(underTest.selectByStatus(db.getSession(), IN_PROGRESS)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1, TASK_UUID_3);
+    assertThat(underTest.selectByStatus(db.getSession(), PENDING)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_2);
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
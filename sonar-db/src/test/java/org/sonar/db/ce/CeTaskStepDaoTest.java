@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+public class CeTaskStepDaoTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = dbTester.getSession();
+
+  private CeTaskStepDao underTest = new CeTaskStepDao();
+
+  @Test
+  public void selectByTaskUuid_returns_empty_if_no_statistics() {
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void insert_and_select_by_task_uuid() {
+    underTest.insert(dbSession, newDto("UUID_1", "TASK_1", CeTaskStepDto.Type.STEP, "Extract report", 0)
+      .setCpuTimeMs(15L)
+      .setAllocatedBytes(1_000L)
+      .setProcessedCount(12L));
+    underTest.insert(dbSession, newDto("UUID_2", "TASK_1", CeTaskStepDto.Type.VISITOR, "SizeVisitor", 0));
+    underTest.insert(dbSession, newDto("UUID_3", "TASK_1", CeTaskStepDto.Type.STEP, "Persist issues", 1));
+    underTest.insert(dbSession, newDto("UUID_4", "TASK_2", CeTaskStepDto.Type.STEP, "Extract report", 0));
+    dbSession.commit();
+
+    List<CeTaskStepDto> dtos = underTest.selectByTaskUuid(dbSession, "TASK_1");
+
+    assertThat(dtos).extracting(CeTaskStepDto::getUuid, CeTaskStepDto::getStepType, CeTaskStepDto::getName, CeTaskStepDto::getStepIndex)
+      .containsExactly(
+        tuple("UUID_1", CeTaskStepDto.Type.STEP, "Extract report", 0),
+        tuple("UUID_3", CeTaskStepDto.Type.STEP, "Persist issues", 1),
+        tuple("UUID_2", CeTaskStepDto.Type.VISITOR, "SizeVisitor", 0));
+    CeTaskStepDto dto = dtos.get(0);
+    assertThat(dto.getTaskUuid()).isEqualTo("TASK_1");
+    assertThat(dto.getDurationMs()).isEqualTo(100L);
+    assertThat(dto.getCpuTimeMs()).isEqualTo(15L);
+    assertThat(dto.getAllocatedBytes()).isEqualTo(1_000L);
+    assertThat(dto.getProcessedCount()).isEqualTo(12L);
+    assertThat(dto.getCreatedAt()).isEqualTo(1_500L);
+    assertThat(dtos.get(1).getCpuTimeMs()).isNull();
+    assertThat(dtos.get(1).getAllocatedBytes()).isNull();
+    assertThat(dtos.get(1).getProcessedCount()).isNull();
+  }
+
+  @Test
+  public void deleteByTaskUuids_deletes_statistics_of_specified_tasks() {
+    underTest.insert(dbSession, newDto("UUID_1", "TASK_1", CeTaskStepDto.Type.STEP, "Extract report", 0));
+    underTest.insert(dbSession, newDto("UUID_2", "TASK_2", CeTaskStepDto.Type.STEP, "Extract report", 0));
+    underTest.insert(dbSession, newDto("UUID_3", "TASK_3", CeTaskStepDto.Type.STEP, "Extract report", 0));
+    dbSession.commit();
+
+    underTest.deleteByTaskUuids(dbSession, ImmutableSet.of("TASK_1", "TASK_3", "TASK_4"));
+    dbSession.commit();
+
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_1")).isEmpty();
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_2")).hasSize(1);
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_3")).isEmpty();
+  }
+
+  @Test
+  public void setName_truncates_long_names() {
+    String name = new String(new char[300]).replace('\0', 'a');
+
+    assertThat(new CeTaskStepDto().setName(name).getName()).hasSize(255);
+  }
+
+  private static CeTaskStepDto newDto(String uuid, String taskUuid, CeTaskStepDto.Type type, String name, int index) {
+    return new CeTaskStepDto()
+      .setUuid(uuid)
+      .setTaskUuid(taskUuid)
+      .setStepType(type)
+      .setName(name)
+      .setStepIndex(index)
+      .setDurationMs(100L)
+      .setCreatedAt(1_500L);
+  }
+}
@@ -38,6 +38,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.api.resources.Qualifiers.FILE;
 import static org.sonar.api.resources.Qualifiers.PROJECT;
 import static org.sonar.api.resources.Qualifiers.UNIT_TEST_FILE;
@@ -447,6 +448,82 @@ public class MeasureDaoTest {
     verifyMeasures(file1, MeasureTreeQuery.builder().setStrategy(LEAVES), "M2", "M3");
   }
 
+  @Test
+  public void select_tree_component_uuids_sorted_by_measure() {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setName("File One"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setName("File Two"));
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project).setName("File Three"));
+    ComponentDto file4 = db.components().insertComponent(newFileDto(project).setName("File Four"));
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    insertAnalysis(OTHER_ANALYSIS_UUID, project.uuid(), false);
+    insertMeasureWithValue(LAST_ANALYSIS_UUID, file1.uuid(), NCLOC_METRIC_ID, 30d);
+    insertMeasureWithValue(LAST_ANALYSIS_UUID, file2.uuid(), NCLOC_METRIC_ID, 10d);
+    insertMeasureWithValue(LAST_ANALYSIS_UUID, file3.uuid(), NCLOC_METRIC_ID, 20d);
+    // measures of previous analysis and of other metrics are ignored
+    insertMeasureWithValue(OTHER_ANALYSIS_UUID, file4.uuid(), NCLOC_METRIC_ID, 5d);
+    insertMeasureWithValue(LAST_ANALYSIS_UUID, file4.uuid(), COVERAGE_METRIC_ID, 5d);
+    db.commit();
+    MeasureTreeQuery query = MeasureTreeQuery.builder().setStrategy(LEAVES).build();
+    MeasureTreeSort.Builder sort = MeasureTreeSort.builder().setFields(singletonList(MeasureTreeSort.Field.VALUE)).setMetricId(NCLOC_METRIC_ID);
+
+    // components without measure are last
+    assertThat(underTest.selectTreeComponentUuids(db.getSession(), project, query, sort.setAsc(true).build(), 0, 10))
+      .containsExactly(file2.uuid(), file3.uuid(), file1.uuid(), file4.uuid());
+    assertThat(underTest.selectTreeComponentUuids(db.getSession(), project, query, sort.setAsc(false).build(), 0, 10))
+      .containsExactly(file1.uuid(), file3.uuid(), file2.uuid(), file4.uuid());
+    assertThat(underTest.selectTreeComponentUuids(db.getSession(), project, query, sort.setAsc(false).build(), 1, 2))
+      .containsExactly(file3.uuid(), file2.uuid());
+    assertThat(underTest.countTreeComponents(db.getSession(), project, query, sort.build())).isEqualTo(4);
+
+    sort.setWithMeasuresOnly(true);
+    assertThat(underTest.selectTreeComponentUuids(db.getSession(), project, query, sort.setAsc(true).build(), 0, 10))
+      .containsExactly(file2.uuid(), file3.uuid(), file1.uuid());
+    assertThat(underTest.countTreeComponents(db.getSession(), project, query, sort.build())).isEqualTo(3);
+  }
+
+  @Test
+  public void select_tree_component_uuids_with_best_value_of_files_without_measure() {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setName("File One"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setName("File Two"));
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project).setName("File Three"));
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    insertMeasureWithValue(LAST_ANALYSIS_UUID, file1.uuid(), COVERAGE_METRIC_ID, 50d);
+    insertMeasureWithValue(LAST_ANALYSIS_UUID, file2.uuid(), COVERAGE_METRIC_ID, 80d);
+    db.commit();
+    MeasureTreeSort sort = MeasureTreeSort.builder()
+      .setFields(singletonList(MeasureTreeSort.Field.VALUE))
+      .setAsc(false)
+      .setMetricId(COVERAGE_METRIC_ID)
+      .setWithMeasuresOnly(true)
+      .setBestValue(100d, null, singletonList(FILE))
+      .build();
+
+    assertThat(underTest.selectTreeComponentUuids(db.getSession(), project, MeasureTreeQuery.builder().setStrategy(LEAVES).build(), sort, 0, 10))
+      .containsExactly(file3.uuid(), file2.uuid(), file1.uuid());
+  }
+
+  @Test
+  public void select_tree_component_uuids_sorted_by_name_then_by_variation() {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setName("Same"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setName("same"));
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project).setName("Another"));
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    db.getDbClient().measureDao().insert(db.getSession(), newMeasureWithValue(LAST_ANALYSIS_UUID, file1.uuid(), NCLOC_METRIC_ID, 1d).setVariation(2, 5d));
+    db.getDbClient().measureDao().insert(db.getSession(), newMeasureWithValue(LAST_ANALYSIS_UUID, file2.uuid(), NCLOC_METRIC_ID, 1d).setVariation(2, 3d));
+    db.commit();
+    MeasureTreeSort sort = MeasureTreeSort.builder()
+      .setFields(asList(MeasureTreeSort.Field.NAME, MeasureTreeSort.Field.VARIATION))
+      .setMetricId(NCLOC_METRIC_ID)
+      .setPeriodIndex(2)
+      .build();
+
+    assertThat(underTest.selectTreeComponentUuids(db.getSession(), project, MeasureTreeQuery.builder().setStrategy(CHILDREN).build(), sort, 0, 10))
+      .containsExactly(file3.uuid(), file2.uuid(), file1.uuid());
+  }
+
   private Optional<MeasureDto> selectSingle(MeasureQuery.Builder query) {
     return underTest.selectSingle(db.getSession(), query.build());
   }
@@ -502,6 +579,18 @@ public class MeasureDaoTest {
     db.getDbClient().measureDao().insert(db.getSession(), measure);
   }
 
+  private void insertMeasureWithValue(String analysisUuid, String componentUuid, int metricId, double value) {
+    db.getDbClient().measureDao().insert(db.getSession(), newMeasureWithValue(analysisUuid, componentUuid, metricId, value));
+  }
+
+  private static MeasureDto newMeasureWithValue(String analysisUuid, String componentUuid, int metricId, double value) {
+    return new MeasureDto()
+      .setAnalysisUuid(analysisUuid)
+      .setComponentUuid(componentUuid)
+      .setMetricId(metricId)
+      .setValue(value);
+  }
+
   private String insertComponent(String scope, String qualifier, boolean enabled) {
     String uuid = UuidFactoryImpl.INSTANCE.create();
     ComponentDto componentDto = new ComponentDto()
@@ -536,6 +625,35 @@ public class MeasureDaoTest {
       .setLast(isLast));
   }
 
-  // TODO test selectPastMeasures
+  @Test
+  public void selectPastMeasuresOfAnalysis_returns_numeric_measures_of_all_components_but_files_ordered_by_component() {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto file = db.components().insertComponent(newFileDto(module));
+    insertAnalysis(PREVIOUS_ANALYSIS_UUID, project.uuid(), false);
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    insertMeasure("M1", PREVIOUS_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("M2", PREVIOUS_ANALYSIS_UUID, module.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("M3", PREVIOUS_ANALYSIS_UUID, project.uuid(), COVERAGE_METRIC_ID);
+    // measure of file
+    insertMeasure("M4", PREVIOUS_ANALYSIS_UUID, file.uuid(), NCLOC_METRIC_ID);
+    // measure of other analysis
+    insertMeasure("M5", LAST_ANALYSIS_UUID, project.uuid(), COMPLEXITY_METRIC_ID);
+    // measure without value
+    db.getDbClient().measureDao().insert(db.getSession(), MeasureTesting.newMeasure()
+      .setAnalysisUuid(PREVIOUS_ANALYSIS_UUID).setComponentUuid(project.uuid()).setMetricId(COMPLEXITY_METRIC_ID).setValue(null));
+    // measure on developer
+    insertMeasureOnPerson("M6", PREVIOUS_ANALYSIS_UUID, project.uuid(), COMPLEXITY_METRIC_ID, A_PERSON_ID);
+    db.commit();
+
+    List<PastMeasureDto> measures = new ArrayList<>();
+    underTest.selectPastMeasuresOfAnalysis(db.getSession(), PREVIOUS_ANALYSIS_UUID, context -> measures.add((PastMeasureDto) context.getResultObject()));
+
+    assertThat(measures).extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId).containsOnly(
+      tuple(project.uuid(), NCLOC_METRIC_ID),
+      tuple(project.uuid(), COVERAGE_METRIC_ID),
+      tuple(module.uuid(), NCLOC_METRIC_ID));
+    assertThat(measures).extracting(PastMeasureDto::hasValue).containsOnly(true);
+  }
 
 }
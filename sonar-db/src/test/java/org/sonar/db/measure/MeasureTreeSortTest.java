@@ -0,0 +1,102 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.measure.MeasureTreeSort.Field.NAME;
+import static org.sonar.db.measure.MeasureTreeSort.Field.VALUE;
+import static org.sonar.db.measure.MeasureTreeSort.Field.VARIATION;
+
+public class MeasureTreeSortTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void create_sort() {
+    MeasureTreeSort sort = MeasureTreeSort.builder()
+      .setFields(asList(VARIATION, NAME))
+      .setAsc(false)
+      .setMetricId(10)
+      .setPeriodIndex(3)
+      .setWithMeasuresOnly(true)
+      .setBestValue(null, 0d, asList("FIL", "UTS"))
+      .build();
+
+    assertThat(sort.getFields()).containsExactly(VARIATION, NAME);
+    assertThat(sort.getDirection()).isEqualTo("desc");
+    assertThat(sort.getMetricId()).isEqualTo(10);
+    assertThat(sort.getVariationColumn()).isEqualTo("variation_value_3");
+    assertThat(sort.isWithMeasuresOnly()).isTrue();
+    assertThat(sort.getBestValue()).isNull();
+    assertThat(sort.getBestVariation()).isEqualTo(0d);
+    assertThat(sort.getBestValueQualifiers()).containsExactly("FIL", "UTS");
+  }
+
+  @Test
+  public void create_minimal_sort() {
+    MeasureTreeSort sort = MeasureTreeSort.builder().build();
+
+    assertThat(sort.getFields()).isEmpty();
+    assertThat(sort.getDirection()).isEqualTo("asc");
+    assertThat(sort.getMetricId()).isNull();
+    assertThat(sort.getVariationColumn()).isNull();
+    assertThat(sort.isWithMeasuresOnly()).isFalse();
+  }
+
+  @Test
+  public void fail_to_sort_on_value_without_metric() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Metric is required to sort or filter on measures");
+
+    MeasureTreeSort.builder().setFields(singletonList(VALUE)).build();
+  }
+
+  @Test
+  public void fail_to_sort_on_variation_without_period() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Period is required to sort on variations");
+
+    MeasureTreeSort.builder().setFields(singletonList(VARIATION)).setMetricId(10).build();
+  }
+
+  @Test
+  public void fail_if_period_index_is_out_of_range() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Period index must be between 1 and 5");
+
+    MeasureTreeSort.builder().setPeriodIndex(6).build();
+  }
+
+  @Test
+  public void fail_to_use_best_value_without_qualifiers() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Qualifiers are required to use best value");
+
+    MeasureTreeSort.builder().setMetricId(10).setBestValue(100d, null, emptyList()).build();
+  }
+}
@@ -203,6 +203,24 @@ public class PropertiesDaoTest {
       .hasValue("two");
   }
 
+  @Test
+  public void hasProjectSecuredSettings() throws SQLException {
+    ComponentDto project = insertProject("A");
+    ComponentDto module = ComponentTesting.newModuleDto(project);
+    dbClient.componentDao().insert(session, module);
+    ComponentDto otherProject = insertProject("B");
+    dbTester.commit();
+    insertProperty("project.one", "one", project.getId(), null);
+    insertProperty("global.secured", "one", null, null);
+    insertProperty("user.secured", "one", project.getId(), insertUser("john"));
+    insertProperty("other.secured", "one", otherProject.getId(), null);
+
+    assertThat(underTest.hasProjectSecuredSettings(session, project.uuid())).isFalse();
+
+    insertProperty("module.secured", "one", module.getId(), null);
+    assertThat(underTest.hasProjectSecuredSettings(session, project.uuid())).isTrue();
+  }
+
   @Test
   @UseDataProvider("allValuesForSelect")
   public void selectGlobalProperties_supports_all_values(String dbValue, String expected) throws SQLException {
@@ -331,6 +349,36 @@ public class PropertiesDaoTest {
     assertThat(underTest.selectEnabledDescendantModuleProperties("unknown-result.xml", dbTester.getSession()).size()).isEqualTo(0);
   }
 
+  @Test
+  public void selectProjectSettingsVersion_changes_when_settings_of_project_or_modules_change() throws SQLException {
+    ComponentDto project = insertProject("A");
+    ComponentDto module = ComponentTesting.newModuleDto(project);
+    dbClient.componentDao().insert(session, module);
+    ComponentDto otherProject = insertProject("B");
+    dbTester.commit();
+
+    String empty = underTest.selectProjectSettingsVersion(session, project.uuid());
+    assertThat(empty).isEqualTo("0-0");
+
+    insertProperty("project.one", "one", project.getId(), null);
+    String afterInsert = underTest.selectProjectSettingsVersion(session, project.uuid());
+    assertThat(afterInsert).isNotEqualTo(empty);
+
+    insertProperty("project.one", "changed", project.getId(), null);
+    String afterUpdate = underTest.selectProjectSettingsVersion(session, project.uuid());
+    assertThat(afterUpdate).isNotEqualTo(afterInsert);
+
+    insertProperty("module.one", "one", module.getId(), null);
+    String afterModuleInsert = underTest.selectProjectSettingsVersion(session, project.uuid());
+    assertThat(afterModuleInsert).isNotEqualTo(afterUpdate);
+
+    // global, user and other project settings are ignored
+    insertProperty("global.one", "one", null, null);
+    insertProperty("user.one", "one", project.getId(), insertUser("john"));
+    insertProperty("other.one", "one", otherProject.getId(), null);
+    assertThat(underTest.selectProjectSettingsVersion(session, project.uuid())).isEqualTo(afterModuleInsert);
+  }
+
   @Test
   @UseDataProvider("allValuesForSelect")
   public void selectEnabledDescendantModuleProperties_supports_all_values(String dbValue, String expected) throws SQLException {
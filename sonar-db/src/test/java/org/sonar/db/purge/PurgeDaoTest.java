@@ -38,6 +38,7 @@ import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -101,6 +102,41 @@ public class PurgeDaoTest {
       "projects", "snapshots", "issues");
   }
 
+  @Test
+  public void purgeDisabledComponents_closes_issues_of_disabled_components() {
+    dbTester.prepareDbUnit(getClass(), "close_issues_clean_index_and_files_sources_of_specified_components.xml");
+    when(system2.now()).thenReturn(1450000000000L);
+    underTest.purgeDisabledComponents(dbSession, newConfigurationWith30Days(system2, "P1", "EFGH", "GHIJ"), PurgeListener.EMPTY);
+    dbSession.commit();
+    dbTester.assertDbUnit(getClass(), "close_issues_clean_index_and_files_sources_of_specified_components-result.xml",
+      new String[] {"issue_close_date", "issue_update_date"},
+      "issues");
+  }
+
+  @Test
+  public void purgeHistory_does_not_close_issues_of_disabled_components() {
+    dbTester.prepareDbUnit(getClass(), "close_issues_clean_index_and_files_sources_of_specified_components.xml");
+    when(system2.now()).thenReturn(1450000000000L);
+    underTest.purgeHistory(dbSession, newConfigurationWith30Days(system2, "P1", "EFGH", "GHIJ"), PurgeListener.EMPTY, new PurgeProfiler(),
+      PurgeThrottler.unlimited());
+    dbSession.commit();
+    dbTester.assertDbUnit(getClass(), "close_issues_clean_index_and_files_sources_of_specified_components.xml", "issues");
+  }
+
+  @Test
+  public void purgeHistory_deletes_old_closed_issues_by_chunks() {
+    PurgeListener purgeListener = mock(PurgeListener.class);
+    dbTester.prepareDbUnit(getClass(), "should_delete_old_closed_issues.xml");
+    PurgeThrottler throttler = new PurgeThrottler(1, 0, System2.INSTANCE);
+
+    underTest.purgeHistory(dbSession, newConfigurationWith30Days(), purgeListener, new PurgeProfiler(), throttler);
+
+    dbTester.assertDbUnit(getClass(), "should_delete_old_closed_issues-result.xml", "issues", "issue_changes");
+    verify(purgeListener).onIssuesRemoval(THE_PROJECT_UUID, singletonList("ISSUE-1"));
+    verify(purgeListener).onIssuesRemoval(THE_PROJECT_UUID, singletonList("ISSUE-2"));
+    assertThat(throttler.getDeletedRows().get()).isGreaterThanOrEqualTo(2);
+  }
+
   @Test
   public void shouldDeleteAnalyses() {
     dbTester.prepareDbUnit(getClass(), "shouldDeleteAnalyses.xml");
@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PurgeThrottlerTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private System2 system2 = mock(System2.class);
+  private List<Long> sleeps = new ArrayList<>();
+
+  @Test
+  public void count_deleted_rows() {
+    PurgeThrottler underTest = newThrottler(10, 0);
+
+    underTest.onChunkCommitted(5);
+    underTest.onChunkCommitted(3);
+
+    assertThat(underTest.getDeletedRows().get()).isEqualTo(8);
+    assertThat(sleeps).isEmpty();
+  }
+
+  @Test
+  public void ignore_unknown_number_of_rows_of_batch_mode() {
+    PurgeThrottler underTest = newThrottler(10, 100);
+
+    underTest.onChunkCommitted(-2147482646);
+
+    assertThat(underTest.getDeletedRows().get()).isZero();
+    assertThat(sleeps).isEmpty();
+  }
+
+  @Test
+  public void sleep_when_rate_exceeds_limit() {
+    when(system2.now()).thenReturn(1_000L);
+    PurgeThrottler underTest = newThrottler(10, 100);
+
+    // 50 rows deleted in 100ms while 500ms are expected
+    when(system2.now()).thenReturn(1_100L);
+    underTest.onChunkCommitted(50);
+
+    assertThat(sleeps).containsExactly(400L);
+  }
+
+  @Test
+  public void do_not_sleep_when_rate_is_below_limit() {
+    when(system2.now()).thenReturn(1_000L);
+    PurgeThrottler underTest = newThrottler(10, 100);
+
+    when(system2.now()).thenReturn(2_000L);
+    underTest.onChunkCommitted(50);
+
+    assertThat(sleeps).isEmpty();
+  }
+
+  @Test
+  public void unlimited_throttler_uses_biggest_chunks() {
+    assertThat(PurgeThrottler.unlimited().getChunkSize()).isEqualTo(PurgeThrottler.MAX_CHUNK_SIZE);
+  }
+
+  @Test
+  public void fail_if_chunk_size_is_too_big() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Chunk size must be between 1 and 1000, got 1001");
+
+    new PurgeThrottler(1001, 0, system2);
+  }
+
+  private PurgeThrottler newThrottler(int chunkSize, int maxRowsPerSecond) {
+    return new PurgeThrottler(chunkSize, maxRowsPerSecond, system2) {
+      @Override
+      void sleep(long durationMs) {
+        sleeps.add(durationMs);
+      }
+    };
+  }
+}
@@ -143,6 +143,15 @@ public class RuleDaoTest {
     assertThat(ruleDto.getGapDescription()).isEqualTo("squid.S115.effortToFix");
   }
 
+  @Test
+  public void selectLastUpdateDate() {
+    assertThat(underTest.selectLastUpdateDate(dbTester.getSession())).isNull();
+
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    assertThat(underTest.selectLastUpdateDate(dbTester.getSession())).isEqualTo(1600000000000L);
+  }
+
   @Test
   public void selectAll() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -24,6 +24,8 @@ import com.google.common.base.Throwables;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
@@ -33,7 +35,9 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.api.Assertions.in;
 
@@ -73,6 +77,43 @@ public class FileSourceDaoTest {
     assertThat(fn.result).isEqualTo("ABC\\nDEF\\nGHI");
   }
 
+  @Test
+  public void select_line_hashes_of_many_files() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    underTest.insert(new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setBinaryData("FILE2_BINARY_DATA".getBytes())
+      .setDataHash("FILE2_DATA_HASH")
+      .setLineHashes("JKL")
+      .setSrcHash("FILE2_HASH")
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L)
+      .setRevision("123456789"));
+
+    Map<String, String> lineHashesByFileUuid = new HashMap<>();
+    underTest.readLineHashesStream(session, asList("FILE1_UUID", "FILE2_UUID", "unknown"), (fileUuid, reader) -> {
+      try {
+        lineHashesByFileUuid.put(fileUuid, IOUtils.toString(reader));
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    });
+
+    assertThat(lineHashesByFileUuid).containsOnly(entry("FILE1_UUID", "ABC\\nDEF\\nGHI"), entry("FILE2_UUID", "JKL"));
+  }
+
+  @Test
+  public void select_line_hashes_of_many_files_ignores_test_data() {
+    dbTester.prepareDbUnit(getClass(), "no_line_hashes_when_only_test_data.xml");
+
+    Map<String, String> lineHashesByFileUuid = new HashMap<>();
+    underTest.readLineHashesStream(session, asList("FILE1_UUID"), (fileUuid, reader) -> lineHashesByFileUuid.put(fileUuid, ""));
+
+    assertThat(lineHashesByFileUuid).isEmpty();
+  }
+
   @Test
   public void no_line_hashes_on_unknown_file() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -19,8 +19,11 @@
  */
 package org.sonar.db.source;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -80,6 +83,49 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void getSourceLines_returns_range_of_lines_spread_over_chunks() {
+    DbFileSources.Data data = createData(FileSourceDto.LINES_PER_CHUNK * 2 + 10);
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    List<DbFileSources.Line> lines = underTest.getSourceLines(FileSourceDto.LINES_PER_CHUNK - 1, FileSourceDto.LINES_PER_CHUNK + 2);
+    assertThat(lines).extracting(DbFileSources.Line::getLine)
+      .containsExactly(FileSourceDto.LINES_PER_CHUNK - 1, FileSourceDto.LINES_PER_CHUNK, FileSourceDto.LINES_PER_CHUNK + 1, FileSourceDto.LINES_PER_CHUNK + 2);
+    assertThat(underTest.getSourceLines(FileSourceDto.LINES_PER_CHUNK * 2 + 10, Integer.MAX_VALUE)).extracting(DbFileSources.Line::getSource)
+      .containsExactly("line " + (FileSourceDto.LINES_PER_CHUNK * 2 + 10));
+    assertThat(underTest.getSourceLines(1, Integer.MAX_VALUE)).hasSize(data.getLinesCount());
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+  }
+
+  @Test
+  public void encode_and_decode_empty_data() {
+    FileSourceDto underTest = new FileSourceDto().setSourceData(DbFileSources.Data.getDefaultInstance());
+
+    assertThat(underTest.getSourceData().getLinesCount()).isZero();
+    assertThat(underTest.getSourceLines(1, 10)).isEmpty();
+  }
+
+  @Test
+  public void decode_data_stored_before_chunks() throws IOException {
+    DbFileSources.Data data = createData(FileSourceDto.LINES_PER_CHUNK + 1);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream output = new LZ4BlockOutputStream(bytes)) {
+      data.writeTo(output);
+    }
+    FileSourceDto underTest = new FileSourceDto().setBinaryData(bytes.toByteArray());
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+    assertThat(underTest.getSourceLines(3, 4)).extracting(DbFileSources.Line::getLine).containsExactly(3, 4);
+  }
+
+  private static DbFileSources.Data createData(int numberOfLines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= numberOfLines; i++) {
+      dataBuilder.addLinesBuilder().setLine(i).setSource("line " + i);
+    }
+    return dataBuilder.build();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
@@ -50,6 +50,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private String hash;
   private int nonBlankLines;
   private int[] originalLineOffsets;
+  private String contents;
 
   public DefaultInputFile(String moduleKey, String relativePath) {
     this.moduleKey = moduleKey;
@@ -200,6 +201,35 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     return this;
   }
 
+  /**
+   * Decoded content of the file, without BOM. Served from memory when it was kept during indexing
+   * (see {@link #setContents(String)}), otherwise read again from disk.
+   */
+  public String contents() {
+    String cached = contents;
+    if (cached != null) {
+      return cached;
+    }
+    return FileMetadata.readContents(file(), charset());
+  }
+
+  /**
+   * Decoded content of the file kept in memory, or {@code null} if it has to be read from disk.
+   */
+  @CheckForNull
+  public String cachedContents() {
+    return contents;
+  }
+
+  /**
+   * Keep the decoded content of the file in memory, so that it's not read and decoded again by
+   * issue tracking, highlighting, copy-paste detection or source publishing. {@code null} releases it.
+   */
+  public DefaultInputFile setContents(@Nullable String contents) {
+    this.contents = contents;
+    return this;
+  }
+
   @Override
   public TextPointer newPointer(int line, int lineOffset) {
     DefaultTextPointer textPointer = new DefaultTextPointer(line, lineOffset);
@@ -27,11 +27,13 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -56,6 +58,14 @@ public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
 
+  /**
+   * Files bigger than this number of bytes are memory-mapped by {@link #readContents(File, Charset)}
+   */
+  static final long MAPPING_THRESHOLD = 4L * 1024 * 1024;
+
+  // longest marks first, UTF-32LE starts with the UTF-16LE mark
+  private static final ByteOrderMark[] BOMS = {ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE, ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE};
+
   public abstract static class CharHandler {
 
     protected void handleAll(char c) {
@@ -278,6 +288,18 @@ public class FileMetadata {
       lineOffsetCounter.getLastValidOffset());
   }
 
+  /**
+   * Same as {@link #readMetadata(File, Charset)} but from contents already decoded with {@link #readContents(File, Charset)}.
+   */
+  public Metadata readMetadata(File file, Charset encoding, CharSequence contents) {
+    LineCounter lineCounter = new LineCounter(file, encoding);
+    FileHashComputer fileHashComputer = new FileHashComputer(file);
+    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    read(contents, lineCounter, fileHashComputer, lineOffsetCounter);
+    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
+      lineOffsetCounter.getLastValidOffset());
+  }
+
   /**
    * For testing purpose
    */
@@ -295,8 +317,7 @@ public class FileMetadata {
   }
 
   public static void readFile(File file, Charset encoding, CharHandler... handlers) {
-    try (BOMInputStream bomIn = new BOMInputStream(new FileInputStream(file),
-      ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
+    try (BOMInputStream bomIn = new BOMInputStream(new FileInputStream(file), BOMS);
       Reader reader = new BufferedReader(new InputStreamReader(bomIn, encoding))) {
       read(reader, handlers);
     } catch (IOException e) {
@@ -304,12 +325,86 @@ public class FileMetadata {
     }
   }
 
+  /**
+   * Decode the whole file, ignoring the BOM if any. Files bigger than {@link #MAPPING_THRESHOLD} bytes are memory-mapped
+   * rather than copied in the heap before being decoded.
+   */
+  public static String readContents(File file, Charset encoding) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalStateException("File is too big: " + size);
+      }
+      ByteBuffer bytes;
+      if (size > MAPPING_THRESHOLD) {
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } else {
+        bytes = ByteBuffer.allocate((int) size);
+        while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+          // read until the end of file
+        }
+        bytes.flip();
+      }
+      skipBom(bytes);
+      return encoding.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        .decode(bytes)
+        .toString();
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+  }
+
+  private static void skipBom(ByteBuffer bytes) {
+    for (ByteOrderMark bom : BOMS) {
+      if (startsWith(bytes, bom)) {
+        bytes.position(bytes.position() + bom.length());
+        return;
+      }
+    }
+  }
+
+  private static boolean startsWith(ByteBuffer bytes, ByteOrderMark bom) {
+    if (bytes.remaining() < bom.length()) {
+      return false;
+    }
+    for (int i = 0; i < bom.length(); i++) {
+      if (bytes.get(bytes.position() + i) != (byte) bom.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static void read(Reader reader, CharHandler... handlers) throws IOException {
-    char c;
+    CharDispatcher dispatcher = new CharDispatcher(handlers);
     int i = reader.read();
-    boolean afterCR = false;
     while (i != -1) {
-      c = (char) i;
+      dispatcher.accept((char) i);
+      i = reader.read();
+    }
+    dispatcher.eof();
+  }
+
+  private static void read(CharSequence contents, CharHandler... handlers) {
+    CharDispatcher dispatcher = new CharDispatcher(handlers);
+    int length = contents.length();
+    for (int i = 0; i < length; i++) {
+      dispatcher.accept(contents.charAt(i));
+    }
+    dispatcher.eof();
+  }
+
+  private static class CharDispatcher {
+    private final CharHandler[] handlers;
+    private boolean afterCR = false;
+
+    CharDispatcher(CharHandler[] handlers) {
+      this.handlers = handlers;
+    }
+
+    void accept(char c) {
       if (afterCR) {
         for (CharHandler handler : handlers) {
           if (c == CARRIAGE_RETURN) {
@@ -341,13 +436,15 @@ public class FileMetadata {
           handler.handleAll(c);
         }
       }
-      i = reader.read();
     }
-    for (CharHandler handler : handlers) {
-      if (afterCR) {
-        handler.newLine();
+
+    void eof() {
+      for (CharHandler handler : handlers) {
+        if (afterCR) {
+          handler.newLine();
+        }
+        handler.eof();
       }
-      handler.eof();
     }
   }
 
@@ -377,6 +474,12 @@ public class FileMetadata {
    * Compute a MD5 hash of each line of the file after removing of all blank chars
    */
   public static void computeLineHashesForIssueTracking(DefaultInputFile f, LineHashConsumer consumer) {
-    readFile(f.file(), f.charset(), new LineHashComputer(consumer, f.file()));
+    LineHashComputer lineHashComputer = new LineHashComputer(consumer, f.file());
+    String contents = f.cachedContents();
+    if (contents != null) {
+      read(contents, lineHashComputer);
+    } else {
+      readFile(f.file(), f.charset(), lineHashComputer);
+    }
   }
 }
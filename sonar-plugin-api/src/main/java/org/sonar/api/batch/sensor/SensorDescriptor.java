@@ -79,4 +79,28 @@ public interface SensorDescriptor {
    */
   SensorDescriptor requireProperties(String... propertyKeys);
 
+  /**
+   * Declare that this {@link Sensor} does not depend on data saved by other sensors, and can be executed concurrently
+   * with other sensors declared the same way. Two such sensors are still executed one after the other when they
+   * save the same kind of data (see {@link #writesOutputs(Output...)}) on the same languages.
+   * Default is to execute the {@link Sensor} alone.
+   * @since 6.3
+   */
+  SensorDescriptor parallelSafe();
+
+  /**
+   * Kinds of data saved by this {@link Sensor}. Only used when the {@link Sensor} is {@link #parallelSafe()}.
+   * Default is all kinds of data.
+   * @since 6.3
+   */
+  SensorDescriptor writesOutputs(Output... outputs);
+
+  /**
+   * Kinds of data saved through the {@link SensorContext}.
+   * @since 6.3
+   */
+  enum Output {
+    ISSUES, MEASURES, COVERAGE, HIGHLIGHTING, SYMBOLS, CPD_TOKENS, CONTEXT_PROPERTIES
+  }
+
 }
@@ -21,6 +21,8 @@ package org.sonar.api.batch.sensor.internal;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorDescriptor;
@@ -32,6 +34,8 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
   private InputFile.Type type = null;
   private String[] ruleRepositories = new String[0];
   private String[] properties = new String[0];
+  private boolean parallelSafe = false;
+  private Set<Output> outputs = EnumSet.allOf(Output.class);
 
   public String name() {
     return name;
@@ -54,6 +58,14 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
     return Arrays.asList(properties);
   }
 
+  public boolean isParallelSafe() {
+    return parallelSafe;
+  }
+
+  public Set<Output> outputs() {
+    return outputs;
+  }
+
   @Override
   public DefaultSensorDescriptor name(String name) {
     this.name = name;
@@ -99,4 +111,16 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
     return this;
   }
 
+  @Override
+  public DefaultSensorDescriptor parallelSafe() {
+    this.parallelSafe = true;
+    return this;
+  }
+
+  @Override
+  public DefaultSensorDescriptor writesOutputs(Output... outputs) {
+    this.outputs = outputs.length == 0 ? EnumSet.noneOf(Output.class) : EnumSet.copyOf(Arrays.asList(outputs));
+    return this;
+  }
+
 }
@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -327,6 +328,16 @@ public abstract class Request {
    */
   public abstract String getPath();
 
+  /**
+   * Returns value of the HTTP header with the specified name, if present. Header names are case-insensitive.
+   * Requests which are not received through HTTP, for instance local calls between web services,
+   * have no headers.
+   * @since 6.3
+   */
+  public Optional<String> header(String name) {
+    return Optional.empty();
+  }
+
   /**
    * @since 6.0
    */
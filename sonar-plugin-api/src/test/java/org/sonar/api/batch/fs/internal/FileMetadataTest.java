@@ -316,4 +316,51 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void read_contents_without_bom() throws Exception {
+    File utf8 = temp.newFile();
+    FileUtils.write(utf8, "\uFEFFfoo\nbar\r\nbaz", StandardCharsets.UTF_8, true);
+    File utf16 = temp.newFile();
+    FileUtils.write(utf16, "f\u00f6o\r\nb\u00e0r", StandardCharsets.UTF_16, true);
+
+    assertThat(FileMetadata.readContents(utf8, StandardCharsets.UTF_8)).isEqualTo("foo\nbar\r\nbaz");
+    assertThat(FileMetadata.readContents(utf16, StandardCharsets.UTF_16)).isEqualTo("f\u00f6o\r\nb\u00e0r");
+  }
+
+  @Test
+  public void metadata_from_contents_is_the_same_as_from_file() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "\uFEFFfoo\r\n\nbar\rbaz\r", StandardCharsets.UTF_8, true);
+    File woff = new File(this.getClass().getResource("glyphicons-halflings-regular.woff").toURI());
+
+    for (File file : new File[] {tempFile, woff}) {
+      FileMetadata.Metadata fromFile = new FileMetadata().readMetadata(file, StandardCharsets.UTF_8);
+      FileMetadata.Metadata fromContents = new FileMetadata().readMetadata(file, StandardCharsets.UTF_8, FileMetadata.readContents(file, StandardCharsets.UTF_8));
+      assertThat(fromContents.lines).isEqualTo(fromFile.lines);
+      assertThat(fromContents.nonBlankLines).isEqualTo(fromFile.nonBlankLines);
+      assertThat(fromContents.hash).isEqualTo(fromFile.hash);
+      assertThat(fromContents.originalLineOffsets).isEqualTo(fromFile.originalLineOffsets);
+      assertThat(fromContents.lastValidOffset).isEqualTo(fromFile.lastValidOffset);
+    }
+  }
+
+  @Test
+  public void compute_line_hashes_from_cached_contents() throws Exception {
+    // the file on disk is ignored when contents are kept in memory
+    File tempFile = temp.newFile();
+    DefaultInputFile f = new DefaultInputFile("foo", tempFile.getName());
+    f.setModuleBaseDir(tempFile.getParentFile().toPath());
+    f.setCharset(StandardCharsets.UTF_8);
+    f.setContents(" foo\nb ar\r\n");
+
+    final String[] hashes = new String[3];
+    FileMetadata.computeLineHashesForIssueTracking(f, new LineHashConsumer() {
+      @Override
+      public void consume(int lineIdx, @Nullable byte[] hash) {
+        hashes[lineIdx - 1] = hash == null ? null : Hex.encodeHexString(hash);
+      }
+    });
+    assertThat(hashes).containsExactly(md5Hex("foo"), md5Hex("bar"), null);
+  }
+
 }
@@ -21,6 +21,7 @@ package org.sonar.api.batch.sensor.internal;
 
 import org.junit.Test;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorDescriptor.Output;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -41,6 +42,19 @@ public class DefaultSensorDescriptorTest {
     assertThat(descriptor.type()).isEqualTo(InputFile.Type.MAIN);
     assertThat(descriptor.properties()).containsOnly("sonar.foo.reportPath");
     assertThat(descriptor.ruleRepositories()).containsOnly("squid-java");
+    assertThat(descriptor.isParallelSafe()).isFalse();
+    assertThat(descriptor.outputs()).containsOnly(Output.values());
+  }
+
+  @Test
+  public void describe_parallel_safe_sensor() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor()
+      .parallelSafe()
+      .writesOutputs(Output.ISSUES, Output.HIGHLIGHTING);
+
+    assertThat(descriptor.isParallelSafe()).isTrue();
+    assertThat(descriptor.outputs()).containsOnly(Output.ISSUES, Output.HIGHLIGHTING);
+    assertThat(descriptor.writesOutputs().outputs()).isEmpty();
   }
 
 }
@@ -41,6 +41,7 @@ import org.sonarqube.ws.client.WsResponse;
 import static java.lang.String.format;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 
 public class BatchWsClient {
@@ -62,7 +63,7 @@ public class BatchWsClient {
    *     a connectivity problem or timeout. Because networks can
    *     fail during an exchange, it is possible that the remote server
    *     accepted the request before the failure
-   * @throws HttpException if the response code is not in range [200..300)
+   * @throws HttpException if the response code is not in range [200..300) nor 304 (Not Modified, answer to a conditional request)
    */
   public WsResponse call(WsRequest request) {
     Profiler profiler = Profiler.createIfDebug(LOG).start();
@@ -99,7 +100,9 @@ public class BatchWsClient {
       // SONAR-4397 Details are in response content
       throw MessageException.of(tryParseAsJsonError(response.content()));
     }
-    response.failIfNotSuccessful();
+    if (code != HTTP_NOT_MODIFIED) {
+      response.failIfNotSuccessful();
+    }
   }
 
   private static String tryParseAsJsonError(String responseContent) {
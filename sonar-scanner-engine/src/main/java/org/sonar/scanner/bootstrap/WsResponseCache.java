@@ -0,0 +1,287 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.Parameters;
+import org.sonarqube.ws.client.WsResponse;
+
+import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.net.HttpURLConnection.HTTP_OK;
+
+/**
+ * Keeps on disk the responses of the web services which are tagged by the server (header "ETag"). Next
+ * calls are conditional: when the server answers that the content is not modified, the cached
+ * response is returned instead of downloading it again.
+ * <p>
+ * Entries are stored in the directory "ws_cache" of the user home, next to the plugin cache. An entry
+ * is a single file containing the tag, the content type and the content of the response. It is replaced
+ * atomically, so concurrent analyses can share the cache.
+ * <p>
+ * Entries are readable by the owner only and are keyed by the authenticated login, as responses depend on
+ * the permissions of the user. Responses containing secured settings are not tagged by the server, so they
+ * are never stored.
+ */
+public class WsResponseCache {
+
+  private static final Logger LOG = Loggers.get(WsResponseCache.class);
+  private static final String ETAG = "ETag";
+  private static final String IF_NONE_MATCH = "If-None-Match";
+  private static final Set<PosixFilePermission> OWNER_ONLY_DIR = PosixFilePermissions.fromString("rwx------");
+  private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+  private final BatchWsClient wsClient;
+  private final File dir;
+  private final String login;
+
+  public WsResponseCache(BatchWsClient wsClient, FileCache fileCache, GlobalProperties properties) {
+    this.wsClient = wsClient;
+    this.dir = new File(fileCache.getDir().getParentFile(), "ws_cache");
+    this.login = StringUtils.defaultString(properties.property(CoreProperties.LOGIN));
+  }
+
+  /**
+   * Same contract as {@link BatchWsClient#call(org.sonarqube.ws.client.WsRequest)}. The returned response
+   * must be closed.
+   */
+  public WsResponse call(GetRequest request) {
+    File entryFile = new File(dir, key(request));
+    Entry entry = readEntry(entryFile);
+    if (entry != null) {
+      request.setHeader(IF_NONE_MATCH, entry.etag);
+    }
+    WsResponse response = wsClient.call(request);
+    if (response.code() == HTTP_NOT_MODIFIED) {
+      response.close();
+      if (entry == null) {
+        throw new HttpException(response.requestUrl(), HTTP_NOT_MODIFIED, "");
+      }
+      LOG.debug("Use cached response of {}", response.requestUrl());
+      return new CachedResponse(response.requestUrl(), entryFile, entry.contentType);
+    }
+    String etag = response.header(ETAG);
+    if (etag == null || response.code() != HTTP_OK || !prepareDir()) {
+      return response;
+    }
+    String contentType = response.contentType();
+    writeEntry(entryFile, etag, contentType == null ? "" : contentType, response);
+    return new CachedResponse(response.requestUrl(), entryFile, contentType);
+  }
+
+  File getDir() {
+    return dir;
+  }
+
+  private String key(GetRequest request) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(wsClient.baseUrl()).append('|').append(login).append('|').append(request.getPath()).append('|').append(request.getMediaType());
+    Parameters parameters = request.getParameters();
+    for (String paramKey : parameters.getKeys()) {
+      sb.append('|').append(paramKey).append('=').append(parameters.getValues(paramKey));
+    }
+    return DigestUtils.sha1Hex(sb.toString());
+  }
+
+  private boolean prepareDir() {
+    try {
+      FileUtils.forceMkdir(dir);
+      restrictToOwner(dir.toPath(), OWNER_ONLY_DIR);
+      return true;
+    } catch (IOException e) {
+      LOG.debug(format("Web service responses are not cached, directory can't be created: %s", dir), e);
+      return false;
+    }
+  }
+
+  private static void restrictToOwner(Path path, Set<PosixFilePermission> permissions) throws IOException {
+    if (Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) {
+      Files.setPosixFilePermissions(path, permissions);
+      return;
+    }
+    // best effort on other file systems, for example on Windows where the user home is already private
+    File file = path.toFile();
+    if (!(file.setReadable(false, false) && file.setReadable(true, true) && file.setWritable(false, false) && file.setWritable(true, true))) {
+      LOG.debug("Access to {} can't be restricted to its owner", path);
+    }
+  }
+
+  @CheckForNull
+  private static Entry readEntry(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream input = openEntry(file)) {
+      return new Entry(input.readUTF(), input.readUTF());
+    } catch (IOException e) {
+      LOG.debug(format("Ignore corrupted cache entry %s", file), e);
+      FileUtils.deleteQuietly(file);
+      return null;
+    }
+  }
+
+  private static DataInputStream openEntry(File file) throws IOException {
+    return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+  }
+
+  private void writeEntry(File file, String etag, String contentType, WsResponse response) {
+    File tmp = null;
+    try (InputStream content = response.contentStream()) {
+      tmp = File.createTempFile(file.getName(), ".tmp", dir);
+      restrictToOwner(tmp.toPath(), OWNER_ONLY_FILE);
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        output.writeUTF(etag);
+        output.writeUTF(contentType);
+        IOUtils.copyLarge(content, output);
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new IllegalStateException(format("Fail to cache response of %s in %s", response.requestUrl(), file), e);
+    } finally {
+      response.close();
+      if (tmp != null) {
+        FileUtils.deleteQuietly(tmp);
+      }
+    }
+  }
+
+  private static class Entry {
+    private final String etag;
+    private final String contentType;
+
+    Entry(String etag, String contentType) {
+      this.etag = etag;
+      this.contentType = contentType;
+    }
+  }
+
+  private static class CachedResponse implements WsResponse {
+    private final String requestUrl;
+    private final File file;
+    private final String contentType;
+    private InputStream stream;
+
+    CachedResponse(String requestUrl, File file, String contentType) {
+      this.requestUrl = requestUrl;
+      this.file = file;
+      this.contentType = contentType;
+    }
+
+    @Override
+    public String requestUrl() {
+      return requestUrl;
+    }
+
+    @Override
+    public int code() {
+      return HTTP_OK;
+    }
+
+    @Override
+    public boolean isSuccessful() {
+      return true;
+    }
+
+    @Override
+    public WsResponse failIfNotSuccessful() {
+      return this;
+    }
+
+    @Override
+    public String contentType() {
+      return contentType;
+    }
+
+    @Override
+    @CheckForNull
+    public String header(String name) {
+      return null;
+    }
+
+    @Override
+    public boolean hasContent() {
+      return true;
+    }
+
+    @Override
+    public InputStream contentStream() {
+      close();
+      try {
+        DataInputStream input = openEntry(file);
+        // skip tag and content type
+        input.readUTF();
+        input.readUTF();
+        stream = input;
+        return input;
+      } catch (IOException e) {
+        throw new IllegalStateException(format("Fail to read cached response of %s in %s", requestUrl, file), e);
+      }
+    }
+
+    @Override
+    public Reader contentReader() {
+      return new InputStreamReader(contentStream(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String content() {
+      try (InputStream input = contentStream()) {
+        return IOUtils.toString(input, StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        throw new IllegalStateException(format("Fail to read cached response of %s in %s", requestUrl, file), e);
+      }
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(stream);
+      stream = null;
+    }
+  }
+}
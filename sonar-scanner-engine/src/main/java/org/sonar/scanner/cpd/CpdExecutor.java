@@ -22,14 +22,19 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
@@ -54,11 +59,17 @@ import static com.google.common.collect.FluentIterable.from;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * <p>
+ * The index is read-only at this stage, so files are processed concurrently by a pool of threads which size is defined by
+ * {@link #THREADS_PROPERTY}. Duplications are written to the report in the order of the index.
  */
 public class CpdExecutor {
+  public static final String THREADS_PROPERTY = "sonar.cpd.threads";
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
   // timeout for the computation of duplicates in a file (seconds)
   private static final int TIMEOUT = 5 * 60;
+  // number of files submitted to the pool ahead of the one being written, per thread
+  private static final int PENDING_FILES_PER_THREAD = 4;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
   static final int MAX_CLONE_PART_PER_GROUP = 100;
 
@@ -66,44 +77,73 @@ public class CpdExecutor {
   private final ReportPublisher publisher;
   private final BatchComponentCache batchComponentCache;
   private final Settings settings;
-  private final ExecutorService executorService;
   private final ProgressReport progressReport;
   private int count;
   private int total;
+  private int timeouts;
 
   public CpdExecutor(Settings settings, SonarCpdBlockIndex index, ReportPublisher publisher, BatchComponentCache batchComponentCache) {
     this.settings = settings;
     this.index = index;
     this.publisher = publisher;
     this.batchComponentCache = batchComponentCache;
-    this.executorService = Executors.newSingleThreadExecutor();
     this.progressReport = new ProgressReport("CPD computation", TimeUnit.SECONDS.toMillis(10));
   }
 
   public void execute() {
     total = index.noResources();
-    progressReport.start(String.format("Calculating CPD for %d files", total));
+    int threads = getThreads();
+    progressReport.start(String.format("Calculating CPD for %d files with %d threads", total, threads));
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("CpdExecutor-%d").setDaemon(true).build());
     try {
       Iterator<ResourceBlocks> it = index.iterator();
+      Deque<FileDetection> pending = new ArrayDeque<>();
+      int maxPending = threads * PENDING_FILES_PER_THREAD;
 
-      while (it.hasNext()) {
-        ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(resourceBlocks.resourceId(), resourceBlocks.blocks());
+      while (it.hasNext() || !pending.isEmpty()) {
+        while (it.hasNext() && pending.size() < maxPending) {
+          ResourceBlocks resourceBlocks = it.next();
+          pending.add(submit(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks()));
+        }
+        processResult(pending.poll());
         count++;
       }
-      progressReport.stop("CPD calculation finished");
+      progressReport.stop(String.format("CPD calculation finished (%d files, %d timeouts)", count, timeouts));
     } catch (Exception e) {
       progressReport.stop("");
       throw e;
+    } finally {
+      executorService.shutdownNow();
     }
   }
 
-  private void runCpdAnalysis(String resource, final Collection<Block> fileBlocks) {
-    LOG.debug("Detection of duplications for {}", resource);
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    if (threads <= 0) {
+      threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+    return threads;
+  }
 
+  private FileDetection submit(ExecutorService executorService, String resource, Collection<Block> fileBlocks) {
     BatchComponent component = batchComponentCache.get(resource);
     if (component == null) {
       LOG.error("Resource not found in component cache: {}. Skipping CPD computation for it", resource);
+      return new FileDetection(resource, null);
+    }
+    FileDetection detection = new FileDetection(resource, component);
+    detection.future = executorService.submit(() -> {
+      detection.startedAt = System.currentTimeMillis();
+      LOG.debug("Detection of duplications for {}", resource);
+      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+    });
+    return detection;
+  }
+
+  private void processResult(FileDetection detection) {
+    BatchComponent component = detection.component;
+    if (component == null) {
       return;
     }
 
@@ -111,16 +151,16 @@ public class CpdExecutor {
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = null;
     try {
-      futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
-      duplications = futureResult.get(TIMEOUT, TimeUnit.SECONDS);
+      duplications = detection.get();
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      if (futureResult != null) {
-        futureResult.cancel(true);
-      }
+      detection.future.cancel(true);
+      timeouts++;
       return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during detection of duplication for " + inputFile.absolutePath(), e);
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
@@ -174,6 +214,39 @@ public class CpdExecutor {
     publisher.getWriter().writeComponentDuplications(component.batchId(), reportDuplications);
   }
 
+  /**
+   * Detection of the duplications of a file, which timeout starts when the detection actually starts, not when it is
+   * submitted to the pool.
+   */
+  private static final class FileDetection {
+    private final String resource;
+    private final BatchComponent component;
+    private Future<List<CloneGroup>> future;
+    private volatile long startedAt = 0L;
+
+    private FileDetection(String resource, @Nullable BatchComponent component) {
+      this.resource = resource;
+      this.component = component;
+    }
+
+    private List<CloneGroup> get() throws InterruptedException, ExecutionException, TimeoutException {
+      long timeoutMs = TimeUnit.SECONDS.toMillis(TIMEOUT);
+      while (true) {
+        long started = startedAt;
+        long remaining = started == 0L ? timeoutMs : (started + timeoutMs - System.currentTimeMillis());
+        try {
+          return future.get(Math.max(remaining, 1L), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          if (started != 0L) {
+            throw e;
+          }
+          // detection was not started yet
+          LOG.debug("Waiting for detection of duplications for {} to start", resource);
+        }
+      }
+    }
+  }
+
   private Duplication toReportDuplication(BatchComponent component, Duplication.Builder dupBuilder, Duplicate.Builder blockBuilder, CloneGroup input) {
     dupBuilder.clear();
     ClonePart originBlock = input.getOriginPart();
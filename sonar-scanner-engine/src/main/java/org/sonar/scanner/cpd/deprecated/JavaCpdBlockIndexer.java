@@ -20,12 +20,9 @@
 package org.sonar.scanner.cpd.deprecated;
 
 import com.google.common.collect.Lists;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,11 +88,8 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
 
       List<Statement> statements;
 
-      try (InputStream is = new FileInputStream(inputFile.file());
-        Reader reader = new InputStreamReader(is, fs.encoding())) {
+      try (Reader reader = new StringReader(((DefaultInputFile) inputFile).contents())) {
         statements = statementChunker.chunk(tokenChunker.chunk(reader));
-      } catch (FileNotFoundException e) {
-        throw new IllegalStateException("Cannot find file " + inputFile.file(), e);
       } catch (IOException e) {
         throw new IllegalStateException("Exception handling file: " + inputFile.file(), e);
       }
@@ -55,7 +55,7 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
     this.settings = settings;
   }
 
-  public void insert(InputFile inputFile, Collection<Block> blocks) {
+  public synchronized void insert(InputFile inputFile, Collection<Block> blocks) {
     if (isCrossProjectDuplicationEnabled(settings)) {
       int id = batchComponentCache.get(inputFile).batchId();
       if (publisher.getWriter().hasComponentData(FileStructure.Domain.CPD_TEXT_BLOCKS, id)) {
@@ -81,7 +81,7 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
     indexedFiles.add(inputFile);
   }
 
-  public boolean isIndexed(InputFile inputFile) {
+  public synchronized boolean isIndexed(InputFile inputFile) {
     return indexedFiles.contains(inputFile);
   }
 
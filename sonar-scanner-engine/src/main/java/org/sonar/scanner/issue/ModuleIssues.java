@@ -144,7 +144,7 @@ public class ModuleIssues {
     return rule;
   }
 
-  public void write(BatchComponent component, ScannerReport.Issue rawIssue) {
+  public synchronized void write(BatchComponent component, ScannerReport.Issue rawIssue) {
     reportPublisher.getWriter().appendComponentIssue(component.batchId(), rawIssue);
   }
 
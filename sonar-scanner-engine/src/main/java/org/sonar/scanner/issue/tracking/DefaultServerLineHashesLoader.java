@@ -19,34 +19,161 @@
  */
 package org.sonar.scanner.issue.tracking;
 
-import org.sonarqube.ws.client.GetRequest;
-
-import java.io.IOException;
-import java.io.Reader;
-
+import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
 import org.apache.commons.io.IOUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.protocol.input.ScannerInput.LineHashes;
 import org.sonar.scanner.util.BatchUtils;
+import org.sonarqube.ws.client.GetRequest;
+
+public class DefaultServerLineHashesLoader implements ServerLineHashesLoader, Startable {
+
+  private static final Logger LOG = Loggers.get(DefaultServerLineHashesLoader.class);
+
+  /**
+   * Number of file keys sent by bulk request, so that the URL stays reasonably short
+   */
+  static final int FILES_PER_REQUEST = 50;
 
-public class DefaultServerLineHashesLoader implements ServerLineHashesLoader {
-  private BatchWsClient wsClient;
+  /**
+   * Maximum length of the URL-encoded list of file keys sent by bulk request. Long keys would otherwise make the
+   * request line exceed the limit of the web server (8KB by default on Tomcat).
+   */
+  static final int MAX_ENCODED_FILES_LENGTH = 4_000;
+
+  private static final int ENCODED_SEPARATOR_LENGTH = BatchUtils.encodeForUrl(",").length();
+
+  private final BatchWsClient wsClient;
+  private final Map<String, Future<?>> pendingByFileKey = new ConcurrentHashMap<>();
+  private final Map<String, String> prefetchedByFileKey = new ConcurrentHashMap<>();
+  private ExecutorService executorService;
 
   public DefaultServerLineHashesLoader(BatchWsClient wsClient) {
     this.wsClient = wsClient;
   }
 
+  @Override
+  public void start() {
+    // executor is created on first prefetch
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Override
+  public synchronized void prefetch(String moduleKey, Collection<String> fileKeys) {
+    if (fileKeys.isEmpty()) {
+      return;
+    }
+    if (executorService == null) {
+      executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("LineHashesLoader-%d").setDaemon(true).build());
+    }
+    for (List<String> partition : partition(fileKeys)) {
+      Future<?> future = executorService.submit(() -> loadPartitionFromWs(moduleKey, partition));
+      for (String fileKey : partition) {
+        pendingByFileKey.put(fileKey, future);
+      }
+    }
+  }
+
+  /**
+   * Splits the file keys in groups of at most {@link #FILES_PER_REQUEST} keys, whose URL-encoded list does not exceed
+   * {@link #MAX_ENCODED_FILES_LENGTH} characters. A key longer than this limit is sent alone.
+   */
+  static List<List<String>> partition(Collection<String> fileKeys) {
+    List<List<String>> partitions = new ArrayList<>();
+    List<String> current = new ArrayList<>();
+    int currentLength = 0;
+    for (String fileKey : fileKeys) {
+      int length = BatchUtils.encodeForUrl(fileKey).length();
+      int lengthWithSeparator = current.isEmpty() ? length : (currentLength + ENCODED_SEPARATOR_LENGTH + length);
+      if (!current.isEmpty() && (current.size() == FILES_PER_REQUEST || lengthWithSeparator > MAX_ENCODED_FILES_LENGTH)) {
+        partitions.add(current);
+        current = new ArrayList<>();
+        lengthWithSeparator = length;
+      }
+      current.add(fileKey);
+      currentLength = lengthWithSeparator;
+    }
+    if (!current.isEmpty()) {
+      partitions.add(current);
+    }
+    return partitions;
+  }
+
   @Override
   public String[] getLineHashes(String fileKey) {
-    String hashesFromWs = loadHashesFromWs(fileKey);
-    return Iterators.toArray(Splitter.on('\n').split(hashesFromWs).iterator(), String.class);
+    String hashes = getPrefetchedHashes(fileKey);
+    if (hashes == null) {
+      hashes = loadHashesFromWs(fileKey);
+    }
+    return Iterators.toArray(Splitter.on('\n').split(hashes).iterator(), String.class);
+  }
+
+  @CheckForNull
+  private String getPrefetchedHashes(String fileKey) {
+    Future<?> pending = pendingByFileKey.remove(fileKey);
+    if (pending != null) {
+      try {
+        pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOG.debug("Fail to prefetch line hashes, fallback to loading them by file", e.getCause());
+      }
+    }
+    return prefetchedByFileKey.remove(fileKey);
+  }
+
+  private void loadPartitionFromWs(String moduleKey, List<String> fileKeys) {
+    Profiler profiler = Profiler.createIfDebug(LOG)
+      .addContext("module", moduleKey)
+      .addContext("files", fileKeys.size())
+      .startDebug("Load line hashes");
+
+    GetRequest getRequest = new GetRequest("/batch/line_hashes.protobuf?key=" + BatchUtils.encodeForUrl(moduleKey)
+      + "&files=" + BatchUtils.encodeForUrl(Joiner.on(',').join(fileKeys)));
+    InputStream is = wsClient.call(getRequest).contentStream();
+    try {
+      LineHashes lineHashes = LineHashes.parseDelimitedFrom(is);
+      while (lineHashes != null) {
+        prefetchedByFileKey.put(lineHashes.getFileKey(), lineHashes.getLineHashes());
+        lineHashes = LineHashes.parseDelimitedFrom(is);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to get line hashes", e);
+    } finally {
+      IOUtils.closeQuietly(is);
+      profiler.stopDebug();
+    }
   }
 
   private String loadHashesFromWs(String fileKey) {
-    Profiler profiler = Profiler.createIfDebug(Loggers.get(getClass()))
+    Profiler profiler = Profiler.createIfDebug(LOG)
       .addContext("file", fileKey)
       .startDebug("Load line hashes");
 
@@ -29,6 +29,7 @@ import org.sonar.scanner.issue.IssueTransformer;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.report.ReportPublisher;
+import org.sonar.scanner.scan.filesystem.DefaultModuleFileSystem;
 import org.sonar.scanner.util.ProgressReport;
 import javax.annotation.Nullable;
 
@@ -60,6 +61,12 @@ public class IssueTransition {
     this(componentCache, issueCache, reportPublisher, null);
   }
 
+  public void prefetchLineHashes(DefaultModuleFileSystem moduleFs) {
+    if (localIssueTracking != null) {
+      localIssueTracking.prefetchLineHashes(moduleFs);
+    }
+  }
+
   public void execute() {
     if (localIssueTracking != null) {
       localIssueTracking.init();
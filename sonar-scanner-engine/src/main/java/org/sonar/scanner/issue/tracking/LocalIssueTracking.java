@@ -30,6 +30,7 @@ import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.rule.ActiveRule;
@@ -43,6 +44,7 @@ import org.sonar.scanner.index.BatchComponent;
 import org.sonar.scanner.issue.IssueTransformer;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.repository.ProjectRepositories;
+import org.sonar.scanner.scan.filesystem.DefaultModuleFileSystem;
 
 @ScannerSide
 public class LocalIssueTracking {
@@ -70,6 +72,19 @@ public class LocalIssueTracking {
     }
   }
 
+  /**
+   * Starts loading the line hashes of the changed files of the module, which are required to track their issues.
+   */
+  public void prefetchLineHashes(DefaultModuleFileSystem moduleFs) {
+    if (hasServerAnalysis) {
+      List<String> fileKeys = new ArrayList<>();
+      for (InputFile inputFile : moduleFs.inputFiles(moduleFs.predicates().hasStatus(Status.CHANGED))) {
+        fileKeys.add(((DefaultInputFile) inputFile).key());
+      }
+      lastLineHashes.prefetch(moduleFs.moduleKey(), fileKeys);
+    }
+  }
+
   public List<TrackedIssue> trackIssues(BatchComponent component, Collection<ScannerReport.Issue> reportIssues, Date analysisDate) {
     List<TrackedIssue> trackedIssues = new LinkedList<>();
     if (hasServerAnalysis) {
@@ -19,10 +19,17 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import java.util.Collection;
 import org.sonar.api.batch.ScannerSide;
 
 @ScannerSide
 public interface ServerLineHashesLoader {
 
   String[] getLineHashes(String fileKey);
+
+  /**
+   * Starts loading in background the line hashes of the given files of a module, so that
+   * subsequent calls to {@link #getLineHashes(String)} do not have to wait for the server.
+   */
+  void prefetch(String moduleKey, Collection<String> fileKeys);
 }
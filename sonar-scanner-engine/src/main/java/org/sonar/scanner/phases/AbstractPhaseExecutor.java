@@ -75,6 +75,8 @@ public abstract class AbstractPhaseExecutor {
     // Initialize issue exclusions
     initIssueExclusions();
 
+    executeBeforeSensors(fs);
+
     sensorsExecutor.execute(sensorContext);
 
     if (module.isRoot()) {
@@ -87,6 +89,13 @@ public abstract class AbstractPhaseExecutor {
 
   protected abstract void executeOnRoot();
 
+  /**
+   * Executed on each module once its filesystem is indexed, just before its sensors
+   */
+  protected void executeBeforeSensors(DefaultModuleFileSystem moduleFs) {
+    // nothing by default
+  }
+
   private void initIssueExclusions() {
     if (issueExclusionsLoader.shouldExecute()) {
       String stepName = "Init issue exclusions";
@@ -52,6 +52,12 @@ public final class IssuesPhaseExecutor extends AbstractPhaseExecutor {
     this.issueCallback = issueCallback;
   }
 
+  @Override
+  protected void executeBeforeSensors(DefaultModuleFileSystem moduleFs) {
+    // line hashes of the previous analysis are loaded while sensors are executed
+    localIssueTracking.prefetchLineHashes(moduleFs);
+  }
+
   @Override
   protected void executeOnRoot() {
     localIssueTracking();
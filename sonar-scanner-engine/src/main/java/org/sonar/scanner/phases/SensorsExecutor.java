@@ -19,42 +19,174 @@
  */
 package org.sonar.scanner.phases;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.BatchExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
-import java.util.Collection;
+import org.sonar.scanner.sensor.SensorWrapper;
 
+/**
+ * Executes the sensors of a module, in the order defined by {@link BatchExtensionDictionnary}.
+ * <p>
+ * Consecutive sensors which are declared {@link org.sonar.api.batch.sensor.SensorDescriptor#parallelSafe()} are
+ * executed concurrently by a pool of threads which size is defined by {@link #THREADS_PROPERTY}, unless they save
+ * the same kind of data on the same languages. Such sensors are executed one after the other, in the same order as
+ * when executing all sensors sequentially, so that the data saved in the report does not depend on scheduling.
+ */
 @ScannerSide
 public class SensorsExecutor {
 
-  private EventBus eventBus;
-  private Project module;
-  private BatchExtensionDictionnary selector;
+  public static final String THREADS_PROPERTY = "sonar.sensors.threads";
+
+  private final EventBus eventBus;
+  private final Project module;
+  private final BatchExtensionDictionnary selector;
+  private final Settings settings;
+  // handlers of sensor events are not expected to be thread-safe
+  private final Object eventLock = new Object();
 
-  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus) {
+  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus, Settings settings) {
     this.selector = selector;
     this.eventBus = eventBus;
     this.module = project;
+    this.settings = settings;
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, null);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    ExecutorService executorService = null;
+    try {
+      for (List<Sensor> group : groupConcurrentSensors(sensors)) {
+        if (group.size() == 1) {
+          executeSensor(context, group.get(0));
+        } else {
+          if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(getThreads(), new ThreadFactoryBuilder().setNameFormat("SensorsExecutor-%d").setDaemon(true).build());
+          }
+          executeConcurrently(executorService, context, group);
+        }
+      }
+    } finally {
+      if (executorService != null) {
+        executorService.shutdownNow();
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    if (threads <= 0) {
+      threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+    return threads;
+  }
+
+  /**
+   * Split the ordered sensors in groups of sensors which can be executed concurrently. Groups are executed one after the other.
+   */
+  @VisibleForTesting
+  static List<List<Sensor>> groupConcurrentSensors(Collection<Sensor> sensors) {
+    List<List<Sensor>> groups = new ArrayList<>();
+    List<Sensor> group = new ArrayList<>();
+    for (Sensor sensor : sensors) {
+      DefaultSensorDescriptor descriptor = parallelSafeDescriptor(sensor);
+      if (!group.isEmpty() && (descriptor == null || !canBeExecutedWith(descriptor, group))) {
+        groups.add(group);
+        group = new ArrayList<>();
+      }
+      group.add(sensor);
+      if (descriptor == null) {
+        groups.add(group);
+        group = new ArrayList<>();
+      }
+    }
+    if (!group.isEmpty()) {
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  @CheckForNull
+  private static DefaultSensorDescriptor parallelSafeDescriptor(Sensor sensor) {
+    if (sensor instanceof SensorWrapper) {
+      DefaultSensorDescriptor descriptor = ((SensorWrapper) sensor).descriptor();
+      if (descriptor.isParallelSafe()) {
+        return descriptor;
+      }
+    }
+    return null;
+  }
+
+  private static boolean canBeExecutedWith(DefaultSensorDescriptor descriptor, List<Sensor> group) {
+    for (Sensor sensor : group) {
+      DefaultSensorDescriptor other = ((SensorWrapper) sensor).descriptor();
+      if (!Collections.disjoint(descriptor.outputs(), other.outputs()) && haveCommonLanguages(descriptor, other)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean haveCommonLanguages(DefaultSensorDescriptor descriptor, DefaultSensorDescriptor other) {
+    // no languages means all languages
+    return descriptor.languages().isEmpty() || other.languages().isEmpty() || !Collections.disjoint(descriptor.languages(), other.languages());
+  }
+
+  private void executeConcurrently(ExecutorService executorService, SensorContext context, List<Sensor> sensors) {
+    List<Future<?>> futures = new ArrayList<>(sensors.size());
+    for (Sensor sensor : sensors) {
+      futures.add(executorService.submit(() -> executeSensor(context, sensor)));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted during the execution of sensors", e);
+      } catch (ExecutionException e) {
+        // fail as if the sensor was executed in the current thread
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException("Fail to execute sensors", cause);
+      }
+    }
+  }
+
   private void executeSensor(SensorContext context, Sensor sensor) {
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+    fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(module, context);
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+    fireEvent(new SensorExecutionEvent(sensor, false));
+  }
+
+  private void fireEvent(SensorExecutionEvent event) {
+    synchronized (eventLock) {
+      eventBus.fireEvent(event);
+    }
   }
 }
@@ -19,19 +19,64 @@
  */
 package org.sonar.scanner.profiling;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.TimeUtils;
 
+/**
+ * Wall time of an item, and CPU time of the thread which executed it. The item is expected to be started
+ * and stopped by the thread executing it.
+ */
 public class ItemProfiling extends AbstractTimeProfiling {
 
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
   private final String itemName;
+  private final long startCpuTime;
+  private long cpuTime;
 
   public ItemProfiling(System2 system, String itemName) {
     super(system);
     this.itemName = itemName;
+    this.startCpuTime = currentThreadCpuTime();
   }
 
   public String itemName() {
     return itemName;
   }
 
+  @Override
+  public void stop() {
+    super.stop();
+    this.cpuTime = currentThreadCpuTime() - startCpuTime;
+  }
+
+  /**
+   * CPU time in milliseconds, 0 if not supported by the JVM
+   */
+  public long cpuTime() {
+    return cpuTime;
+  }
+
+  public String cpuTimeAsString() {
+    return TimeUtils.formatDuration(cpuTime);
+  }
+
+  @Override
+  protected void add(AbstractTimeProfiling other) {
+    super.add(other);
+    if (other instanceof ItemProfiling) {
+      this.cpuTime += ((ItemProfiling) other).cpuTime;
+    }
+  }
+
+  private static long currentThreadCpuTime() {
+    if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+      return 0L;
+    }
+    return TimeUnit.NANOSECONDS.toMillis(THREAD_MX_BEAN.getCurrentThreadCpuTime());
+  }
+
 }
@@ -27,6 +27,8 @@ import org.sonar.api.utils.System2;
 
 public class PhaseProfiling extends AbstractTimeProfiling {
 
+  static final String CPU_TIME_SUFFIX = ".cpu";
+
   private final Phase phase;
 
   private Map<String, ItemProfiling> profilingPerItem = new HashMap<>();
@@ -76,9 +78,10 @@ public class PhaseProfiling extends AbstractTimeProfiling {
     double percent = this.totalTime() / 100.0;
     for (ItemProfiling itemProfiling : profilingPerItem.values()) {
       props.setProperty(itemProfiling.itemName(), Long.toString(itemProfiling.totalTime()));
+      props.setProperty(itemProfiling.itemName() + CPU_TIME_SUFFIX, Long.toString(itemProfiling.cpuTime()));
     }
     for (ItemProfiling itemProfiling : truncate(sortByDescendingTotalTime(profilingPerItem).values())) {
-      println("   o " + itemProfiling.itemName() + ": ", percent, itemProfiling);
+      println("   o " + itemProfiling.itemName() + " (CPU " + itemProfiling.cpuTimeAsString() + "): ", percent, itemProfiling);
     }
   }
 
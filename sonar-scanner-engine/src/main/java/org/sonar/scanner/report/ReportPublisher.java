@@ -45,6 +45,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.protocol.output.ReportPacker;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 import org.sonarqube.ws.MediaTypes;
@@ -61,6 +62,10 @@ public class ReportPublisher implements Startable {
 
   public static final String KEEP_REPORT_PROP_KEY = "sonar.batch.keepReport";
   public static final String VERBOSE_KEY = "sonar.verbose";
+  /**
+   * Packs the files of the report in one data file per domain before compressing it. Requires server 6.3+.
+   */
+  public static final String PACK_REPORT_PROP_KEY = "sonar.batch.packReport";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
 
   private final Settings settings;
@@ -144,6 +149,13 @@ public class ReportPublisher implements Startable {
       long stopTime = System.currentTimeMillis();
       LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
 
+      if (settings.getBoolean(PACK_REPORT_PROP_KEY)) {
+        startTime = System.currentTimeMillis();
+        new ReportPacker(reportDir).pack();
+        stopTime = System.currentTimeMillis();
+        LOG.info("Analysis report packed in {}ms", stopTime - startTime);
+      }
+
       startTime = System.currentTimeMillis();
       File reportZip = temp.newFile("batch-report", ".zip");
       ZipUtils.zipDir(reportDir, reportZip);
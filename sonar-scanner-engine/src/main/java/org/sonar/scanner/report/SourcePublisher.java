@@ -19,27 +19,29 @@
  */
 package org.sonar.scanner.report;
 
-import org.apache.commons.io.ByteOrderMark;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BOMInputStream;
-import org.sonar.api.batch.fs.internal.DefaultInputFile;
-import org.sonar.scanner.index.BatchComponent;
-import org.sonar.scanner.index.BatchComponentCache;
-import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.scanner.index.BatchComponent;
+import org.sonar.scanner.index.BatchComponentCache;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.scan.filesystem.InputFileContentsCache;
 
 public class SourcePublisher implements ReportPublisherStep {
 
   private final BatchComponentCache resourceCache;
+  private final InputFileContentsCache contentsCache;
 
-  public SourcePublisher(BatchComponentCache resourceCache) {
+  public SourcePublisher(BatchComponentCache resourceCache, InputFileContentsCache contentsCache) {
     this.resourceCache = resourceCache;
+    this.contentsCache = contentsCache;
   }
 
   @Override
@@ -51,22 +53,27 @@ public class SourcePublisher implements ReportPublisherStep {
 
       DefaultInputFile inputFile = (DefaultInputFile) resource.inputComponent();
       File iofile = writer.getSourceFile(resource.batchId());
-      int line = 0;
-      try (FileOutputStream output = new FileOutputStream(iofile); BOMInputStream bomIn = new BOMInputStream(new FileInputStream(inputFile.file()),
-        ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
-        BufferedReader reader = new BufferedReader(new InputStreamReader(bomIn, inputFile.charset()))) {
-        String lineStr = reader.readLine();
-        while (lineStr != null) {
-          IOUtils.write(lineStr, output, StandardCharsets.UTF_8);
-          line++;
-          if (line < inputFile.lines()) {
-            IOUtils.write("\n", output, StandardCharsets.UTF_8);
-          }
-          lineStr = reader.readLine();
-        }
+      try (Writer output = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(iofile)), StandardCharsets.UTF_8)) {
+        writeLines(inputFile, output);
       } catch (IOException e) {
         throw new IllegalStateException("Unable to store file source in the report", e);
       }
+      // sources are published last, no need to keep them in memory anymore
+      contentsCache.release(inputFile);
+    }
+  }
+
+  private static void writeLines(DefaultInputFile inputFile, Writer output) throws IOException {
+    BufferedReader reader = new BufferedReader(new StringReader(inputFile.contents()));
+    int line = 0;
+    String lineStr = reader.readLine();
+    while (lineStr != null) {
+      output.write(lineStr);
+      line++;
+      if (line < inputFile.lines()) {
+        output.write('\n');
+      }
+      lineStr = reader.readLine();
     }
   }
 }
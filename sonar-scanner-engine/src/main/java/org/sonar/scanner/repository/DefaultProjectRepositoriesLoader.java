@@ -34,7 +34,7 @@ import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.utils.MessageException;
-import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.bootstrap.WsResponseCache;
 import org.sonar.scanner.util.BatchUtils;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
 import org.sonarqube.ws.WsBatch.WsProjectResponse.FileDataByPath;
@@ -46,16 +46,16 @@ import org.sonarqube.ws.client.WsResponse;
 public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoader {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultProjectRepositoriesLoader.class);
   private static final String BATCH_PROJECT_URL = "/batch/project.protobuf";
-  private BatchWsClient wsClient;
+  private WsResponseCache wsCache;
 
-  public DefaultProjectRepositoriesLoader(BatchWsClient wsClient) {
-    this.wsClient = wsClient;
+  public DefaultProjectRepositoriesLoader(WsResponseCache wsCache) {
+    this.wsCache = wsCache;
   }
 
   @Override
   public ProjectRepositories load(String projectKey, boolean issuesMode) {
     GetRequest request = new GetRequest(getUrl(projectKey, issuesMode));
-    try (WsResponse response = wsClient.call(request)) {
+    try (WsResponse response = wsCache.call(request)) {
       InputStream is = response.contentStream();
       return processStream(is, projectKey);
     } catch (RuntimeException e) {
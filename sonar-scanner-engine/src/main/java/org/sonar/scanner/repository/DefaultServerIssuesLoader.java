@@ -23,23 +23,23 @@ import com.google.common.base.Function;
 import java.io.IOException;
 import java.io.InputStream;
 import org.apache.commons.io.IOUtils;
-import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.bootstrap.WsResponseCache;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.util.BatchUtils;
 import org.sonarqube.ws.client.GetRequest;
 
 public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
-  private final BatchWsClient wsClient;
+  private final WsResponseCache wsCache;
 
-  public DefaultServerIssuesLoader(BatchWsClient wsClient) {
-    this.wsClient = wsClient;
+  public DefaultServerIssuesLoader(WsResponseCache wsCache) {
+    this.wsCache = wsCache;
   }
 
   @Override
   public void load(String componentKey, Function<ServerIssue, Void> consumer) {
     GetRequest getRequest = new GetRequest("/batch/issues.protobuf?key=" + BatchUtils.encodeForUrl(componentKey));
-    InputStream is = wsClient.call(getRequest).contentStream();
+    InputStream is = wsCache.call(getRequest).contentStream();
     parseIssues(is, consumer);
   }
 
@@ -28,7 +28,7 @@ import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.rule.RuleKey;
-import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.bootstrap.WsResponseCache;
 import org.sonar.scanner.util.BatchUtils;
 import org.sonarqube.ws.Rules.Active;
 import org.sonarqube.ws.Rules.Active.Param;
@@ -40,10 +40,10 @@ import org.sonarqube.ws.Rules.SearchResponse;
 public class DefaultActiveRulesLoader implements ActiveRulesLoader {
   private static final String RULES_SEARCH_URL = "/api/rules/search.protobuf?f=repo,name,severity,lang,internalKey,templateKey,params,actives&activation=true";
 
-  private final BatchWsClient wsClient;
+  private final WsResponseCache wsCache;
 
-  public DefaultActiveRulesLoader(BatchWsClient wsClient) {
-    this.wsClient = wsClient;
+  public DefaultActiveRulesLoader(WsResponseCache wsCache) {
+    this.wsCache = wsCache;
   }
 
   @Override
@@ -55,7 +55,7 @@ public class DefaultActiveRulesLoader implements ActiveRulesLoader {
 
     while (true) {
       GetRequest getRequest = new GetRequest(getUrl(qualityProfileKey, page, pageSize));
-      SearchResponse response = loadFromStream(wsClient.call(getRequest).contentStream());
+      SearchResponse response = loadFromStream(wsCache.call(getRequest).contentStream());
       List<LoadedActiveRule> pageRules = readPage(response);
       ruleList.addAll(pageRules);
       loaded += response.getPs();
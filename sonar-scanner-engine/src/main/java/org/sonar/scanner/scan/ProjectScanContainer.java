@@ -86,6 +86,7 @@ import org.sonar.scanner.rule.DefaultActiveRulesLoader;
 import org.sonar.scanner.rule.DefaultRulesLoader;
 import org.sonar.scanner.rule.RulesLoader;
 import org.sonar.scanner.rule.RulesProvider;
+import org.sonar.scanner.scan.filesystem.InputFileContentsCache;
 import org.sonar.scanner.scan.filesystem.InputPathCache;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
 import org.sonar.scanner.scan.measure.DeprecatedMetricFinder;
@@ -150,6 +151,7 @@ public class ProjectScanContainer extends ComponentContainer {
 
       // file system
       InputPathCache.class,
+      InputFileContentsCache.class,
       PathResolver.class,
 
       // rules
@@ -53,9 +53,10 @@ class InputFileBuilder {
   private final DefaultModuleFileSystem fs;
   private final Settings settings;
   private final FileMetadata fileMetadata;
+  private final InputFileContentsCache contentsCache;
 
   InputFileBuilder(String moduleKey, PathResolver pathResolver, LanguageDetection langDetection,
-    StatusDetection statusDetection, DefaultModuleFileSystem fs, Settings settings, FileMetadata fileMetadata) {
+    StatusDetection statusDetection, DefaultModuleFileSystem fs, Settings settings, FileMetadata fileMetadata, InputFileContentsCache contentsCache) {
     this.moduleKey = moduleKey;
     this.pathResolver = pathResolver;
     this.langDetection = langDetection;
@@ -63,6 +64,7 @@ class InputFileBuilder {
     this.fs = fs;
     this.settings = settings;
     this.fileMetadata = fileMetadata;
+    this.contentsCache = contentsCache;
   }
 
   String moduleKey() {
@@ -112,7 +114,12 @@ class InputFileBuilder {
     Charset charset = detectCharset(inputFile.file(), fs.encoding());
     inputFile.setCharset(charset);
 
-    inputFile.initMetadata(fileMetadata.readMetadata(inputFile.file(), charset));
+    String contents = contentsCache.load(inputFile);
+    if (contents != null) {
+      inputFile.initMetadata(fileMetadata.readMetadata(inputFile.file(), charset, contents));
+    } else {
+      inputFile.initMetadata(fileMetadata.readMetadata(inputFile.file(), charset));
+    }
 
     inputFile.setStatus(statusDetection.status(inputFile.moduleKey(), inputFile.relativePath(), inputFile.hash()));
 
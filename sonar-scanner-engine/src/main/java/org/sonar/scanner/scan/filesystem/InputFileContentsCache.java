@@ -0,0 +1,98 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.config.Settings;
+
+/**
+ * Keeps the decoded content of indexed files in memory, so that they are read and decoded once
+ * for metadata, line hashes, highlighting, copy-paste detection and source publishing.
+ * The total size of cached contents is bounded by {@link #SIZE_PROPERTY}. Files which
+ * do not fit are read from disk each time they are needed.
+ */
+@ScannerSide
+public class InputFileContentsCache {
+
+  public static final String SIZE_PROPERTY = "sonar.scanner.fileContentsCacheSizeMb";
+  static final int DEFAULT_SIZE_MB = 64;
+
+  private final long maxBytes;
+  private final AtomicLong usedBytes = new AtomicLong();
+
+  public InputFileContentsCache(Settings settings) {
+    long sizeMb = settings.hasKey(SIZE_PROPERTY) ? settings.getLong(SIZE_PROPERTY) : DEFAULT_SIZE_MB;
+    this.maxBytes = sizeMb * 1024L * 1024L;
+  }
+
+  /**
+   * Decode the file and keep its content in memory if it fits in the remaining budget.
+   *
+   * @return the decoded content, or {@code null} if the file is too big to be cached
+   */
+  @CheckForNull
+  public String load(DefaultInputFile inputFile) {
+    File file = inputFile.file();
+    // a char takes 2 bytes in the heap and a decoded file has at most as many chars as bytes
+    long reserved = 2L * file.length();
+    if (!reserve(reserved)) {
+      return null;
+    }
+    String contents = FileMetadata.readContents(file, inputFile.charset());
+    usedBytes.addAndGet(sizeOf(contents) - reserved);
+    inputFile.setContents(contents);
+    return contents;
+  }
+
+  /**
+   * Drop the content of the file from memory, if it was cached.
+   */
+  public void release(DefaultInputFile inputFile) {
+    String contents = inputFile.cachedContents();
+    if (contents != null) {
+      inputFile.setContents(null);
+      usedBytes.addAndGet(-sizeOf(contents));
+    }
+  }
+
+  long usedBytes() {
+    return usedBytes.get();
+  }
+
+  private boolean reserve(long bytes) {
+    long used;
+    do {
+      used = usedBytes.get();
+      if (used + bytes > maxBytes) {
+        return false;
+      }
+    } while (!usedBytes.compareAndSet(used, used + bytes));
+    return true;
+  }
+
+  private static long sizeOf(String contents) {
+    return 2L * contents.length();
+  }
+}
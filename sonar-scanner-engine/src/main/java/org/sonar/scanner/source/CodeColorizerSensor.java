@@ -22,6 +22,7 @@ package org.sonar.scanner.source;
 import org.sonar.api.batch.Phase;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
@@ -57,7 +58,7 @@ public final class CodeColorizerSensor implements Sensor {
       if (reader.hasSyntaxHighlighting(batchId) || language == null) {
         continue;
       }
-      codeColorizers.toSyntaxHighlighting(f.file(), fs.encoding(), language, context.newHighlighting().onFile(f));
+      codeColorizers.toSyntaxHighlighting((DefaultInputFile) f, language, context.newHighlighting().onFile(f));
     }
   }
 
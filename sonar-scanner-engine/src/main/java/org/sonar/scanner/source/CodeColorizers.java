@@ -25,6 +25,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
@@ -35,6 +36,7 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.web.CodeColorizerFormat;
 import org.sonar.colorizer.JavaTokenizers;
@@ -68,24 +70,45 @@ public class CodeColorizers {
 
   @CheckForNull
   public void toSyntaxHighlighting(File file, Charset charset, String language, NewHighlighting highlighting) {
+    List<Tokenizer> tokenizers = tokenizers(language);
+    if (tokenizers == null) {
+      return;
+    }
+    try (Reader reader = new BufferedReader(new InputStreamReader(new BOMInputStream(new FileInputStream(file)), charset))) {
+      new HighlightingRenderer().render(reader, tokenizers, highlighting);
+    } catch (Exception e) {
+      LOG.warn("Unable to perform colorization of file " + file, e);
+    }
+  }
+
+  /**
+   * Same as {@link #toSyntaxHighlighting(File, Charset, String, NewHighlighting)}, but does not read the file
+   * again when its content is kept in memory.
+   */
+  public void toSyntaxHighlighting(DefaultInputFile inputFile, String language, NewHighlighting highlighting) {
+    List<Tokenizer> tokenizers = tokenizers(language);
+    if (tokenizers == null) {
+      return;
+    }
+    try (Reader reader = new StringReader(inputFile.contents())) {
+      new HighlightingRenderer().render(reader, tokenizers, highlighting);
+    } catch (Exception e) {
+      LOG.warn("Unable to perform colorization of file " + inputFile.file(), e);
+    }
+  }
+
+  @CheckForNull
+  private List<Tokenizer> tokenizers(String language) {
     CodeColorizerFormat format = byLang.get(language);
-    List<Tokenizer> tokenizers;
     if (format == null) {
       // Workaround for Java test code since Java plugin only provides highlighting for main source and no colorizer
       // TODO can be dropped when Java plugin embed its own CodeColorizerFormat of (better) provides highlighting for tests
       // See SONARJAVA-830
       if ("java".equals(language)) {
-        tokenizers = JavaTokenizers.forHtml();
-      } else {
-        return;
+        return JavaTokenizers.forHtml();
       }
-    } else {
-      tokenizers = format.getTokenizers();
-    }
-    try (Reader reader = new BufferedReader(new InputStreamReader(new BOMInputStream(new FileInputStream(file)), charset))) {
-      new HighlightingRenderer().render(reader, tokenizers, highlighting);
-    } catch (Exception e) {
-      LOG.warn("Unable to perform colorization of file " + file, e);
+      return null;
     }
+    return format.getTokenizers();
   }
 }
@@ -19,56 +19,72 @@
  */
 package org.sonar.scanner.storage;
 
-import com.google.common.collect.Sets;
-import com.persistit.Exchange;
+import com.google.common.primitives.UnsignedBytes;
 import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
  * <p>
- * This storage is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * This storage is thread-safe. Values are appended to the {@link ValueLog} shared by the storages of the analysis. The
+ * position of each value is kept in memory in a concurrent map, sorted by key.
+ * </p>
+ * <p>
+ * Keys and values are still encoded by Persistit, so that the value coders registered with
+ * {@link Storages#registerValueCoder(Class, com.persistit.encoding.ValueCoder)} are supported and entries are
+ * iterated in the same order. Encoded keys keep the order of their segments when compared as unsigned bytes, and the
+ * encoding of a key is a prefix of the encodings of its sub-keys.
  * </p>
  */
 public class Storage<V> {
 
   private final String name;
-  private final Exchange exchange;
+  private final ValueLog log;
+  private final ConcurrentNavigableMap<byte[], Long> positionsByKey = new ConcurrentSkipListMap<>(UnsignedBytes.lexicographicalComparator());
+  // keys and values of Persistit are not thread-safe
+  private final ThreadLocal<Key> keys;
+  private final ThreadLocal<Value> values;
 
-  Storage(String name, Exchange exchange) {
+  Storage(String name, Persistit persistit, ValueLog log) {
     this.name = name;
-    this.exchange = exchange;
+    this.log = log;
+    this.keys = ThreadLocal.withInitial(() -> new Key(persistit));
+    this.values = ThreadLocal.withInitial(() -> new Value(persistit, Value.INITIAL_SIZE, Value.MAXIMUM_SIZE));
   }
 
   public Storage<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(encode(key), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return doPut(encode(firstKey, secondKey), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return doPut(encode(firstKey, secondKey, thirdKey), value);
   }
 
   public Storage<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(encode(key), value);
   }
 
-  private Storage<V> doPut(V value) {
+  private Storage<V> doPut(byte[] key, V value) {
     try {
-      exchange.getValue().put(value);
-      exchange.store();
+      Value encoder = values.get();
+      encoder.clear();
+      encoder.put(value);
+      positionsByKey.put(key, log.append(encoder.getEncodedBytes(), encoder.getEncodedSize()));
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
@@ -79,8 +95,7 @@ public class Storage<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return doGet(encode(key));
   }
 
   /**
@@ -88,8 +103,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return doGet(encode(firstKey, secondKey));
   }
 
   /**
@@ -97,8 +111,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return doGet(encode(firstKey, secondKey, thirdKey));
   }
 
   /**
@@ -106,82 +119,63 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
+    return doGet(encode(key));
   }
 
-  @SuppressWarnings("unchecked")
   @CheckForNull
-  private V doGet() {
+  private V doGet(byte[] key) {
+    Long position = positionsByKey.get(key);
+    if (position == null) {
+      return null;
+    }
     try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
-        return null;
-      }
-      return (V) exchange.getValue().get();
+      return read(position);
     } catch (Exception e) {
       // TODO add parameters to message
       throw new IllegalStateException("Fail to get element from cache " + name, e);
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @CheckForNull
+  private V read(long position) {
+    byte[] bytes = log.read(position);
+    Value decoder = values.get();
+    decoder.clear();
+    decoder.putEncodedBytes(bytes, 0, bytes.length);
+    return (V) decoder.get();
+  }
+
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return positionsByKey.containsKey(encode(key));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return positionsByKey.containsKey(encode(firstKey, secondKey));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return positionsByKey.containsKey(encode(firstKey, secondKey, thirdKey));
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
-  }
-
-  private boolean doContainsKey() {
-    try {
-      exchange.fetch();
-      return exchange.isValueDefined();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to check if element is in cache " + name, e);
-    }
+    return positionsByKey.containsKey(encode(key));
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return positionsByKey.remove(encode(key)) != null;
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return positionsByKey.remove(encode(firstKey, secondKey)) != null;
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return positionsByKey.remove(encode(firstKey, secondKey, thirdKey)) != null;
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
-  }
-
-  private boolean doRemove() {
-    try {
-      return exchange.remove();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
-    }
+    return positionsByKey.remove(encode(key)) != null;
   }
 
   /**
@@ -190,46 +184,31 @@ public class Storage<V> {
    * @param group The group name.
    */
   public Storage<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return doClear(key);
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return doClear(firstKey, secondKey);
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return doClear(firstKey, secondKey, thirdKey);
   }
 
   public Storage<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
+    return doClear(key);
   }
 
-  private Storage<V> doClear() {
-    try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
-      return this;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear values from cache " + name, e);
-    }
+  private Storage<V> doClear(Object... key) {
+    positionsByKey.subMap(encode(key), true, encodeAfter(key), false).clear();
+    return this;
   }
 
   /**
    * Clears the default as well as all group caches.
    */
   public void clear() {
-    try {
-      exchange.clear();
-      exchange.removeAll();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear cache", e);
-    }
+    positionsByKey.clear();
   }
 
   /**
@@ -241,37 +220,12 @@ public class Storage<V> {
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return childKeys(key);
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return childKeys(firstKey, secondKey);
   }
 
   /**
@@ -280,13 +234,22 @@ public class Storage<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
+    return childKeys();
+  }
+
+  /**
+   * The distinct segments which follow {@code parent} in the keys starting with {@code parent}
+   */
+  private Set<Object> childKeys(Object... parent) {
     try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
+      Set<Object> keys = new LinkedHashSet<>();
+      byte[] end = encodeAfter(parent);
+      byte[] child = positionsByKey.higherKey(encode(parent));
+      while (child != null && UnsignedBytes.lexicographicalComparator().compare(child, end) < 0) {
+        Object segment = decode(child)[parent.length];
+        keys.add(segment);
+        // skip the sub-keys of this child
+        child = positionsByKey.higherKey(encodeAfter(append(parent, segment)));
       }
       return keys;
     } catch (Exception e) {
@@ -298,177 +261,113 @@ public class Storage<V> {
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return () -> new LazyIterator<>(subKeys(firstKey, secondKey), entry -> readEntry(entry.getValue()));
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return () -> new LazyIterator<>(subKeys(firstKey), entry -> readEntry(entry.getValue()));
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return () -> new LazyIterator<>(positionsByKey, entry -> readEntry(entry.getValue()));
   }
 
   public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return () -> new LazyIterator<>(positionsByKey, entry -> new Entry<>(decode(entry.getKey()), readEntry(entry.getValue())));
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
+    return () -> new LazyIterator<>(subKeys(firstKey), entry -> new Entry<>(decode(entry.getKey()), readEntry(entry.getValue())));
   }
 
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
+  /**
+   * The keys starting with {@code parent}, excluding {@code parent} itself
+   */
+  private NavigableMap<byte[], Long> subKeys(Object... parent) {
+    return positionsByKey.subMap(encode(parent), false, encodeAfter(parent), false);
   }
 
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
+  @CheckForNull
+  private V readEntry(long position) {
+    try {
+      return read(position);
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to get element from cache " + name, e);
+    }
   }
 
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
+  private byte[] encode(Object... segments) {
+    return copyOf(resetKey(segments));
   }
 
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
-    }
+  /**
+   * Encoding which is greater than the encodings of {@code segments} and of all its sub-keys
+   */
+  private byte[] encodeAfter(Object... segments) {
+    return copyOf(resetKey(segments).append(Key.AFTER));
   }
 
-  //
-  // LAZY ITERATORS AND ITERABLES
-  //
-
-  private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
-
-    @Override
-    public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
+  private Key resetKey(Object[] segments) {
+    Key key = keys.get().clear();
+    for (Object segment : segments) {
+      key.append(segment);
     }
+    return key;
   }
 
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
-
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
-      }
-      throw new NoSuchElementException();
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
-    }
+  private static byte[] copyOf(Key key) {
+    return Arrays.copyOf(key.getEncodedBytes(), key.getEncodedSize());
   }
 
-  private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
+  private Object[] decode(byte[] encodedKey) {
+    Key key = keys.get();
+    key.clear();
+    System.arraycopy(encodedKey, 0, key.getEncodedBytes(), 0, encodedKey.length);
+    key.setEncodedSize(encodedKey.length);
+    Object[] segments = new Object[key.getDepth()];
+    key.reset();
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = key.decode();
     }
+    return segments;
+  }
 
-    @Override
-    public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
-    }
+  private static Object[] append(Object[] key, Object segment) {
+    Object[] result = Arrays.copyOf(key, key.length + 1);
+    result[key.length] = segment;
+    return result;
   }
 
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
+  //
+  // LAZY ITERATORS
+  //
 
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
+  /**
+   * Values are read when iterated. Entries added or removed during the iteration may or may not be returned.
+   */
+  private static class LazyIterator<T> implements Iterator<T> {
+    private final Iterator<Map.Entry<byte[], Long>> entries;
+    private final Function<Map.Entry<byte[], Long>, T> reader;
+
+    private LazyIterator(NavigableMap<byte[], Long> positionsByKey, Function<Map.Entry<byte[], Long>, T> reader) {
+      this.entries = positionsByKey.entrySet().iterator();
+      this.reader = reader;
     }
 
     @Override
     public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
+      return entries.hasNext();
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
-        }
-        return new Entry<>(array, value);
-      }
-      throw new NoSuchElementException();
+    public T next() {
+      return reader.apply(entries.next());
     }
 
     @Override
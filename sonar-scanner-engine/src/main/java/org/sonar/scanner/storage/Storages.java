@@ -19,31 +19,26 @@
  */
 package org.sonar.scanner.storage;
 
-import com.google.common.collect.Maps;
-
-import java.util.Map;
-import java.util.Map.Entry;
-
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Value;
-import com.persistit.encoding.CoderManager;
+import com.google.common.collect.Maps;
 import com.persistit.Persistit;
+import com.persistit.encoding.CoderManager;
 import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-import com.persistit.Volume;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = Maps.newHashMap();
+  private final Map<String, Storage<?>> cacheMap = Maps.newHashMap();
   private Persistit persistit;
-  private Volume volume;
+  private ValueLog log;
 
   public Storages(StoragesManager storagesManager) {
     persistit = storagesManager.persistit();
-    doStart();
+    doStart(storagesManager.tempDir());
   }
 
   @Override
@@ -51,12 +46,11 @@ public class Storages implements Startable {
     // done in constructor
   }
 
-  private void doStart() {
+  private void doStart(File tempDir) {
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create a cache volume", e);
+      log = new ValueLog(File.createTempFile("storages", ".log", tempDir));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create the storage file", e);
     }
   }
 
@@ -65,36 +59,21 @@ public class Storages implements Startable {
     cm.registerValueCoder(clazz, coder);
   }
 
-  public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
+  public synchronized <V> Storage<V> createCache(String cacheName) {
+    Preconditions.checkState(log != null, "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: " + cacheName);
-    try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
-    }
+    Storage<V> cache = new Storage<>(cacheName, persistit, log);
+    cacheMap.put(cacheName, cache);
+    return cache;
   }
 
   @Override
-  public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
-    }
-
+  public synchronized void stop() {
     cacheMap.clear();
 
-    if (volume != null) {
-      try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-      volume = null;
+    if (log != null) {
+      log.close();
+      log = null;
     }
   }
 }
@@ -32,7 +32,8 @@ import org.sonar.api.utils.TempFolder;
 import static org.sonar.core.util.FileUtils.deleteQuietly;
 
 /**
- * Factory of storages
+ * Factory of storages. Persistit is not used to store values anymore, but to encode keys and values, so that
+ * the value coders of plugins and of the scanner are still supported. It keeps the index of classes of encoded values.
  *
  * @since 3.6
  */
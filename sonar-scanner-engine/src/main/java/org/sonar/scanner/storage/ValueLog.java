@@ -0,0 +1,148 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File where the values of storages are appended. A value is never overwritten: the space of the removed or replaced
+ * values is reclaimed only when the log is closed, at the end of the analysis.
+ * <p/>
+ * Positional reads and writes of {@link FileChannel} are used, so that threads access the file concurrently. The space
+ * of each value is reserved before being written, without lock.
+ */
+class ValueLog {
+
+  private static final int HEADER_SIZE = Integer.BYTES;
+
+  private final File file;
+  private final AtomicLong end = new AtomicLong(0L);
+  private volatile FileChannel channel;
+  private volatile boolean closed = false;
+
+  ValueLog(File file) {
+    this.file = file;
+    try {
+      this.channel = open();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create storage file " + file, e);
+    }
+  }
+
+  /**
+   * Appends the {@code length} first bytes of {@code bytes} and returns their position, to be given to {@link #read(long)}
+   */
+  long append(byte[] bytes, int length) {
+    long position = end.getAndAdd((long) HEADER_SIZE + length);
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+    buffer.putInt(length).put(bytes, 0, length).flip();
+    try {
+      write(buffer, position);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write in storage file " + file, e);
+    }
+    return position;
+  }
+
+  byte[] read(long position) {
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      read(header, position);
+      ByteBuffer value = ByteBuffer.allocate(header.getInt(0));
+      read(value, position + HEADER_SIZE);
+      return value.array();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read storage file " + file, e);
+    }
+  }
+
+  /**
+   * Size of the file, including the values which have been removed or replaced
+   */
+  long size() {
+    return end.get();
+  }
+
+  void close() {
+    closed = true;
+    try {
+      channel.close();
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to delete storage file " + file, e);
+    }
+  }
+
+  private void write(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      FileChannel current = channel;
+      try {
+        current.write(buffer, position + buffer.position());
+      } catch (ClosedByInterruptException e) {
+        reopen(current);
+        throw e;
+      } catch (AsynchronousCloseException e) {
+        // closed because of the interruption of another thread
+        reopen(current);
+      }
+    }
+  }
+
+  private void read(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      FileChannel current = channel;
+      try {
+        if (current.read(buffer, position + buffer.position()) < 0) {
+          throw new IllegalStateException("Unexpected end of storage file " + file + " at position " + position);
+        }
+      } catch (ClosedByInterruptException e) {
+        reopen(current);
+        throw e;
+      } catch (AsynchronousCloseException e) {
+        reopen(current);
+      }
+    }
+  }
+
+  /**
+   * A channel is closed when a thread blocked in one of its I/O operations is interrupted. It's opened again
+   * for the other threads.
+   */
+  private synchronized void reopen(FileChannel closedChannel) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("Storage file is closed: " + file);
+    }
+    if (channel == closedChannel) {
+      channel = open();
+    }
+  }
+
+  private FileChannel open() throws IOException {
+    return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+}
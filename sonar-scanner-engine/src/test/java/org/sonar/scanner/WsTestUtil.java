@@ -22,12 +22,17 @@ package org.sonar.scanner;
 import org.apache.commons.lang.StringUtils;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.WsResponseCache;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.Collections;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
@@ -36,6 +41,15 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class WsTestUtil {
+  /**
+   * Cache of responses which delegates to the given mock. The mocked responses having no ETag, they are not cached.
+   */
+  public static WsResponseCache newResponseCache(BatchWsClient mock, File userHome) {
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(new File(userHome, "cache"));
+    return new WsResponseCache(mock, fileCache, new GlobalProperties(Collections.emptyMap()));
+  }
+
   public static void mockStream(BatchWsClient mock, String path, InputStream is) {
     WsResponse response = mock(WsResponse.class);
     when(response.contentStream()).thenReturn(is);
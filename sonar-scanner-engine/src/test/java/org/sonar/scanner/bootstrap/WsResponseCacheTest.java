@@ -0,0 +1,174 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.CoreProperties;
+import org.sonar.home.cache.FileCache;
+import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.WsRequest;
+import org.sonarqube.ws.client.WsResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WsResponseCacheTest {
+
+  private static final String URL = "/batch/project.protobuf?key=foo";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private BatchWsClient wsClient = mock(BatchWsClient.class);
+  private FileCache fileCache = mock(FileCache.class);
+  private WsResponseCache underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    when(fileCache.getDir()).thenReturn(temp.newFolder("cache"));
+    when(wsClient.baseUrl()).thenReturn("http://localhost:9000");
+    underTest = new WsResponseCache(wsClient, fileCache, new GlobalProperties(Collections.emptyMap()));
+  }
+
+  @Test
+  public void cache_tagged_response_and_reuse_it_when_not_modified() {
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v1\"", "the content"));
+
+    try (WsResponse response = underTest.call(new GetRequest(URL))) {
+      assertThat(response.content()).isEqualTo("the content");
+      assertThat(response.contentType()).isEqualTo("application/x-protobuf");
+    }
+    assertThat(underTest.getDir().listFiles()).hasSize(1);
+
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_NOT_MODIFIED, null, null));
+    try (WsResponse response = underTest.call(new GetRequest(URL))) {
+      assertThat(response.code()).isEqualTo(HttpURLConnection.HTTP_OK);
+      assertThat(response.content()).isEqualTo("the content");
+      // content can be read several times
+      assertThat(response.content()).isEqualTo("the content");
+    }
+
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(2)).call(requests.capture());
+    assertThat(requests.getAllValues().get(0).getHeaders()).isEmpty();
+    assertThat(requests.getAllValues().get(1).getHeaders()).containsEntry("If-None-Match", "\"v1\"");
+  }
+
+  @Test
+  public void replace_entry_when_content_is_modified() {
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v1\"", "first"));
+    underTest.call(new GetRequest(URL)).close();
+
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v2\"", "second"));
+    try (WsResponse response = underTest.call(new GetRequest(URL))) {
+      assertThat(response.content()).isEqualTo("second");
+    }
+
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_NOT_MODIFIED, null, null));
+    try (WsResponse response = underTest.call(new GetRequest(URL))) {
+      assertThat(response.content()).isEqualTo("second");
+    }
+    assertThat(underTest.getDir().listFiles()).hasSize(1);
+  }
+
+  @Test
+  public void do_not_cache_responses_without_tag() {
+    WsResponse untagged = newResponse(HttpURLConnection.HTTP_OK, null, "the content");
+    when(wsClient.call(any(WsRequest.class))).thenReturn(untagged);
+
+    assertThat(underTest.call(new GetRequest(URL))).isSameAs(untagged);
+    assertThat(underTest.getDir()).doesNotExist();
+  }
+
+  @Test
+  public void entries_are_not_shared_between_users() {
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v1\"", "the content"));
+    underTest.call(new GetRequest(URL)).close();
+
+    WsResponseCache otherUser = new WsResponseCache(wsClient, fileCache, new GlobalProperties(Collections.singletonMap(CoreProperties.LOGIN, "john")));
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v1\"", "the content"));
+    otherUser.call(new GetRequest(URL)).close();
+
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(2)).call(requests.capture());
+    assertThat(requests.getAllValues().get(1).getHeaders()).isEmpty();
+    assertThat(underTest.getDir().listFiles()).hasSize(2);
+  }
+
+  @Test
+  public void entries_are_readable_by_owner_only() throws IOException {
+    Assume.assumeTrue(Files.getFileStore(temp.getRoot().toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v1\"", "the content"));
+    underTest.call(new GetRequest(URL)).close();
+
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(underTest.getDir().toPath()))).isEqualTo("rwx------");
+    File entry = underTest.getDir().listFiles()[0];
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(entry.toPath()))).isEqualTo("rw-------");
+  }
+
+  @Test
+  public void ignore_corrupted_entry() throws IOException {
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v1\"", "the content"));
+    underTest.call(new GetRequest(URL)).close();
+    File entry = underTest.getDir().listFiles()[0];
+    FileUtils.write(entry, "");
+
+    when(wsClient.call(any(WsRequest.class))).thenReturn(newResponse(HttpURLConnection.HTTP_OK, "\"v1\"", "the content"));
+    try (WsResponse response = underTest.call(new GetRequest(URL))) {
+      assertThat(response.content()).isEqualTo("the content");
+    }
+
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(2)).call(requests.capture());
+    assertThat(requests.getAllValues().get(1).getHeaders()).isEmpty();
+  }
+
+  private static WsResponse newResponse(int code, String etag, String content) {
+    MockWsResponse response = new MockWsResponse()
+      .setCode(code)
+      .setRequestUrl("http://localhost:9000" + URL)
+      .setContentType("application/x-protobuf");
+    if (etag != null) {
+      response.setHeader("ETag", etag);
+    }
+    if (content != null) {
+      response.setContent(content);
+    }
+    return response;
+  }
+}
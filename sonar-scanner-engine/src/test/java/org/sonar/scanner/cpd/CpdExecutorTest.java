@@ -29,6 +29,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.config.Settings;
@@ -37,6 +38,8 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
@@ -48,6 +51,7 @@ import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -113,6 +117,38 @@ public class CpdExecutorTest {
     assertThat(executor.getMinimumTokens("php")).isEqualTo(33);
   }
 
+  @Test
+  public void threads_default_to_number_of_processors_minus_one() {
+    assertThat(executor.getThreads()).isEqualTo(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+  }
+
+  @Test
+  public void threads_can_be_configured() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, 3);
+    assertThat(executor.getThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void execute_detects_duplications_of_all_files_concurrently() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, 2);
+    SonarCpdBlockIndex realIndex = new SonarCpdBlockIndex(publisher, componentCache, settings);
+    ((DefaultInputFile) batchComponent1.inputComponent()).setLanguage("java");
+    ((DefaultInputFile) batchComponent2.inputComponent()).setLanguage("java");
+    ((DefaultInputFile) batchComponent3.inputComponent()).setLanguage("java");
+    realIndex.insert((InputFile) batchComponent1.inputComponent(), asList(newBlock(batchComponent1, "a1", 0, 1), newBlock(batchComponent1, "a2", 1, 2)));
+    realIndex.insert((InputFile) batchComponent2.inputComponent(), asList(newBlock(batchComponent2, "a1", 0, 3), newBlock(batchComponent2, "a2", 1, 4)));
+    realIndex.insert((InputFile) batchComponent3.inputComponent(), asList(newBlock(batchComponent3, "b1", 0, 1)));
+    executor = new CpdExecutor(settings, realIndex, publisher, componentCache);
+
+    executor.execute();
+
+    Duplication[] dups = readDuplications(1);
+    assertDuplication(dups[0], 1, 2, batchComponent2.batchId(), 3, 4);
+    assertThat(reader.readComponentDuplications(batchComponent2.batchId())).hasSize(1);
+    assertThat(reader.readComponentDuplications(batchComponent3.batchId())).hasSize(0);
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("CPD calculation finished (3 files, 0 timeouts)");
+  }
+
   @Test
   public void testNothingToSave() {
     executor.saveDuplications(batchComponent1, Collections.<CloneGroup>emptyList());
@@ -234,6 +270,16 @@ public class CpdExecutorTest {
     assertThat(d.getDuplicate(0).getRange().getEndLine()).isEqualTo(rangeEndLine);
   }
 
+  private static Block newBlock(BatchComponent component, String hash, int indexInFile, int line) {
+    return Block.builder()
+      .setResourceId(component.key())
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(line, line)
+      .setUnit(indexInFile, indexInFile)
+      .build();
+  }
+
   private CloneGroup newCloneGroup(ClonePart... parts) {
     return CloneGroup.builder().setLength(0).setOrigin(parts[0]).setParts(Arrays.asList(parts)).build();
   }
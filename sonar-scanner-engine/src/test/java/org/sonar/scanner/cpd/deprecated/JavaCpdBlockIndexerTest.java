@@ -21,6 +21,7 @@ package org.sonar.scanner.cpd.deprecated;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -69,7 +70,7 @@ public class JavaCpdBlockIndexerTest {
 
     File baseDir = temp.newFolder();
     DefaultFileSystem fs = new DefaultFileSystem(baseDir);
-    file = new DefaultInputFile("foo", "src/ManyStatements.java").setLanguage(JAVA);
+    file = new DefaultInputFile("foo", "src/ManyStatements.java").setLanguage(JAVA).setCharset(StandardCharsets.UTF_8);
     fs.add(file);
     BatchComponentCache batchComponentCache = new BatchComponentCache();
     batchComponentCache.add(org.sonar.api.resources.File.create("src/Foo.java").setEffectiveKey("foo:src/ManyStatements.java"), null).setInputComponent(file);
@@ -19,9 +19,15 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -29,9 +35,18 @@ import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.HttpDownloader;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.protocol.input.ScannerInput.LineHashes;
+import org.sonar.scanner.util.BatchUtils;
+import org.sonarqube.ws.client.WsRequest;
+import org.sonarqube.ws.client.WsResponse;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DefaultServerLineHashesLoaderTest {
   private BatchWsClient wsClient;
@@ -73,4 +88,81 @@ public class DefaultServerLineHashesLoaderTest {
     lastSnapshots.getLineHashes("foo");
   }
 
+  @Test
+  public void should_use_prefetched_line_hashes() throws IOException {
+    WsTestUtil.mockStream(wsClient, lineHashes("myproject:Foo.c", "ae12\n\n43fb", "myproject:Bar.c", "ab"));
+    DefaultServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient);
+
+    lastSnapshots.prefetch("myproject", asList("myproject:Foo.c", "myproject:Bar.c"));
+
+    assertThat(lastSnapshots.getLineHashes("myproject:Foo.c")).containsExactly("ae12", "", "43fb");
+    assertThat(lastSnapshots.getLineHashes("myproject:Bar.c")).containsExactly("ab");
+    WsTestUtil.verifyCall(wsClient, "/batch/line_hashes.protobuf?key=myproject&files=myproject%3AFoo.c%2Cmyproject%3ABar.c");
+    verify(wsClient, times(1)).call(any(WsRequest.class));
+    lastSnapshots.stop();
+  }
+
+  @Test
+  public void should_split_prefetch_in_several_requests() throws IOException {
+    WsResponse response = mock(WsResponse.class);
+    when(response.contentStream()).thenAnswer(invocation -> lineHashes());
+    when(response.contentReader()).thenAnswer(invocation -> new StringReader("ab"));
+    when(wsClient.call(any(WsRequest.class))).thenReturn(response);
+    DefaultServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient);
+
+    String[] fileKeys = new String[DefaultServerLineHashesLoader.FILES_PER_REQUEST + 1];
+    for (int i = 0; i < fileKeys.length; i++) {
+      fileKeys[i] = "myproject:File" + i + ".c";
+    }
+    lastSnapshots.prefetch("myproject", asList(fileKeys));
+    for (String fileKey : fileKeys) {
+      assertThat(lastSnapshots.getLineHashes(fileKey)).containsExactly("ab");
+    }
+
+    // 2 bulk requests, then 1 request per file not returned by the bulk requests
+    verify(wsClient, times(2 + fileKeys.length)).call(any(WsRequest.class));
+    lastSnapshots.stop();
+  }
+
+  @Test
+  public void should_split_prefetch_when_encoded_file_keys_are_too_long() {
+    String longPath = Strings.repeat("a", DefaultServerLineHashesLoader.MAX_ENCODED_FILES_LENGTH / 3);
+    List<String> fileKeys = asList("myproject:" + longPath + "1", "myproject:" + longPath + "2", "myproject:" + longPath + "3", "myproject:" + longPath + "4");
+
+    List<List<String>> partitions = DefaultServerLineHashesLoader.partition(fileKeys);
+
+    assertThat(partitions).containsExactly(fileKeys.subList(0, 2), fileKeys.subList(2, 4));
+    for (List<String> partition : partitions) {
+      assertThat(BatchUtils.encodeForUrl(Joiner.on(',').join(partition)).length()).isLessThanOrEqualTo(DefaultServerLineHashesLoader.MAX_ENCODED_FILES_LENGTH);
+    }
+  }
+
+  @Test
+  public void should_send_alone_a_file_key_longer_than_max_length() {
+    String tooLongKey = "myproject:" + Strings.repeat("a", DefaultServerLineHashesLoader.MAX_ENCODED_FILES_LENGTH);
+
+    List<List<String>> partitions = DefaultServerLineHashesLoader.partition(asList("myproject:Foo.c", tooLongKey, "myproject:Bar.c"));
+
+    assertThat(partitions).containsExactly(asList("myproject:Foo.c"), asList(tooLongKey), asList("myproject:Bar.c"));
+  }
+
+  @Test
+  public void should_fallback_to_single_file_request_if_not_prefetched() throws IOException {
+    WsTestUtil.mockStream(wsClient, lineHashes());
+    WsTestUtil.mockReader(wsClient, "/api/sources/hash?key=myproject%3AFoo.c", new StringReader("ae12"));
+    DefaultServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient);
+    lastSnapshots.prefetch("myproject", asList("myproject:Foo.c"));
+
+    assertThat(lastSnapshots.getLineHashes("myproject:Foo.c")).containsExactly("ae12");
+    WsTestUtil.verifyCall(wsClient, "/api/sources/hash?key=myproject%3AFoo.c");
+    lastSnapshots.stop();
+  }
+
+  private static ByteArrayInputStream lineHashes(String... keysAndHashes) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (int i = 0; i < keysAndHashes.length; i += 2) {
+      LineHashes.newBuilder().setFileKey(keysAndHashes[i]).setLineHashes(keysAndHashes[i + 1]).build().writeDelimitedTo(output);
+    }
+    return new ByteArrayInputStream(output.toByteArray());
+  }
 }
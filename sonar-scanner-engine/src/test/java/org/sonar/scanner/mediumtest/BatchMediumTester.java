@@ -60,6 +60,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -489,6 +490,11 @@ public class BatchMediumTester {
         throw new IllegalStateException("You forgot to mock line hashes for " + fileKey);
       }
     }
+
+    @Override
+    public void prefetch(String moduleKey, Collection<String> fileKeys) {
+      // line hashes are mocked
+    }
   }
 
 }
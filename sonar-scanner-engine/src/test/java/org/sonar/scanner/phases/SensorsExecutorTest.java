@@ -0,0 +1,160 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.phases;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.batch.sensor.SensorDescriptor.Output;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.resources.Project;
+import org.sonar.scanner.bootstrap.BatchExtensionDictionnary;
+import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private Project project = new Project("project");
+  private BatchExtensionDictionnary selector = mock(BatchExtensionDictionnary.class);
+  private SensorContext context = mock(SensorContext.class);
+  private MapSettings settings = new MapSettings();
+  private SensorsExecutor underTest = new SensorsExecutor(selector, project, mock(EventBus.class), settings);
+
+  @Test
+  public void execute_sensors() {
+    Sensor sensor1 = mock(Sensor.class);
+    Sensor sensor2 = mock(Sensor.class);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    underTest.execute(context);
+
+    verify(sensor1).analyse(project, context);
+    verify(sensor2).analyse(project, context);
+  }
+
+  @Test
+  public void sensors_are_executed_alone_by_default() {
+    Sensor deprecated = mock(Sensor.class);
+    SensorWrapper notParallelSafe = newSensor(d -> d.writesOutputs(Output.ISSUES), c -> {
+    });
+    SensorWrapper parallelSafe = newSensor(d -> d.parallelSafe().writesOutputs(Output.MEASURES), c -> {
+    });
+
+    List<List<Sensor>> groups = SensorsExecutor.groupConcurrentSensors(Arrays.<Sensor>asList(deprecated, parallelSafe, notParallelSafe, parallelSafe));
+
+    assertThat(groups).containsExactly(Arrays.<Sensor>asList(deprecated), Arrays.<Sensor>asList(parallelSafe), Arrays.<Sensor>asList(notParallelSafe),
+      Arrays.<Sensor>asList(parallelSafe));
+  }
+
+  @Test
+  public void group_consecutive_parallel_safe_sensors_writing_different_outputs_or_languages() {
+    SensorWrapper javaIssues = newSensor(d -> d.parallelSafe().onlyOnLanguage("java").writesOutputs(Output.ISSUES, Output.HIGHLIGHTING), c -> {
+    });
+    SensorWrapper jsIssues = newSensor(d -> d.parallelSafe().onlyOnLanguage("js").writesOutputs(Output.ISSUES), c -> {
+    });
+    SensorWrapper coverage = newSensor(d -> d.parallelSafe().writesOutputs(Output.COVERAGE), c -> {
+    });
+    SensorWrapper allIssues = newSensor(d -> d.parallelSafe().writesOutputs(Output.ISSUES), c -> {
+    });
+    SensorWrapper allOutputs = newSensor(d -> d.parallelSafe(), c -> {
+    });
+
+    List<List<Sensor>> groups = SensorsExecutor.groupConcurrentSensors(Arrays.<Sensor>asList(javaIssues, jsIssues, coverage, allIssues, allOutputs));
+
+    assertThat(groups).containsExactly(Arrays.<Sensor>asList(javaIssues, jsIssues, coverage), Arrays.<Sensor>asList(allIssues), Arrays.<Sensor>asList(allOutputs));
+  }
+
+  @Test
+  public void execute_parallel_safe_sensors_concurrently() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    // each sensor waits for the other one to be started
+    CountDownLatch latch = new CountDownLatch(2);
+    Consumer<org.sonar.api.batch.sensor.SensorContext> execution = c -> {
+      latch.countDown();
+      try {
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    SensorWrapper sensor1 = newSensor(d -> d.parallelSafe().writesOutputs(Output.HIGHLIGHTING), execution);
+    SensorWrapper sensor2 = newSensor(d -> d.parallelSafe().writesOutputs(Output.SYMBOLS), execution);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.<Sensor>asList(sensor1, sensor2));
+
+    underTest.execute(context);
+
+    assertThat(latch.getCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void fail_with_the_error_of_a_concurrent_sensor() {
+    SensorWrapper sensor1 = newSensor(d -> d.parallelSafe().writesOutputs(Output.HIGHLIGHTING), c -> {
+    });
+    SensorWrapper sensor2 = newSensor(d -> d.parallelSafe().writesOutputs(Output.SYMBOLS), c -> {
+      throw new IllegalArgumentException("Fail to parse file");
+    });
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.<Sensor>asList(sensor1, sensor2));
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Fail to parse file");
+
+    underTest.execute(context);
+  }
+
+  @Test
+  public void default_number_of_threads_depends_on_processors() {
+    assertThat(underTest.getThreads()).isEqualTo(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 3);
+    assertThat(underTest.getThreads()).isEqualTo(3);
+  }
+
+  private static SensorWrapper newSensor(Consumer<SensorDescriptor> description, Consumer<org.sonar.api.batch.sensor.SensorContext> execution) {
+    org.sonar.api.batch.sensor.Sensor sensor = new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        description.accept(descriptor);
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        execution.accept(context);
+      }
+    };
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+  }
+}
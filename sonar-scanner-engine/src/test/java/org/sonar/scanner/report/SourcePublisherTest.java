@@ -30,11 +30,13 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.scanner.index.BatchComponentCache;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.SourcePublisher;
+import org.sonar.scanner.scan.filesystem.InputFileContentsCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -62,7 +64,7 @@ public class SourcePublisherTest {
     sourceFile = new File(baseDir, "src/Foo.php");
     resourceCache.add(sampleFile, null).setInputComponent(
       new DefaultInputFile("foo", "src/Foo.php").setLines(5).setModuleBaseDir(baseDir.toPath()).setCharset(StandardCharsets.ISO_8859_1));
-    publisher = new SourcePublisher(resourceCache);
+    publisher = new SourcePublisher(resourceCache, new InputFileContentsCache(new MapSettings()));
     File outputDir = temp.newFolder();
     writer = new ScannerReportWriter(outputDir);
   }
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.WsTestUtil;
@@ -41,6 +42,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class DefaultProjectRepositoriesLoaderTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private final static String PROJECT_KEY = "foo?";
   @Rule
   public ExpectedException thrown = ExpectedException.none();
@@ -53,7 +57,7 @@ public class DefaultProjectRepositoriesLoaderTest {
     wsClient = mock(BatchWsClient.class);
     InputStream is = mockData();
     WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", is);
-    loader = new DefaultProjectRepositoriesLoader(wsClient);
+    loader = new DefaultProjectRepositoriesLoader(WsTestUtil.newResponseCache(wsClient, temp.getRoot()));
   }
 
   @Test
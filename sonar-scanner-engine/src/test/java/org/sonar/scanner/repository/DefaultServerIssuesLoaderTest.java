@@ -26,7 +26,9 @@ import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.repository.DefaultServerIssuesLoader;
 import com.google.common.base.Function;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -39,13 +41,16 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class DefaultServerIssuesLoaderTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private DefaultServerIssuesLoader loader;
   private BatchWsClient wsClient;
 
   @Before
   public void prepare() {
     wsClient = mock(BatchWsClient.class);
-    loader = new DefaultServerIssuesLoader(wsClient);
+    loader = new DefaultServerIssuesLoader(WsTestUtil.newResponseCache(wsClient, temp.getRoot()));
   }
 
   @Test
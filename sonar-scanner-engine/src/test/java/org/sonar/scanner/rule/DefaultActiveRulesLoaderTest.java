@@ -26,24 +26,31 @@ import org.sonar.scanner.rule.DefaultActiveRulesLoader;
 import org.sonar.scanner.rule.LoadedActiveRule;
 import com.google.common.io.Resources;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import org.junit.Before;
+import org.junit.Rule;
 
 public class DefaultActiveRulesLoaderTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private DefaultActiveRulesLoader loader;
   private BatchWsClient wsClient;
 
   @Before
   public void setUp() {
     wsClient = mock(BatchWsClient.class);
-    loader = new DefaultActiveRulesLoader(wsClient);
+    loader = new DefaultActiveRulesLoader(WsTestUtil.newResponseCache(wsClient, temp.getRoot()));
   }
 
   @Test
@@ -62,6 +69,8 @@ public class DefaultActiveRulesLoaderTest {
 
     WsTestUtil.verifyCall(wsClient, req1);
     WsTestUtil.verifyCall(wsClient, req2);
+    // key of the cached responses
+    verify(wsClient, atLeastOnce()).baseUrl();
 
     verifyNoMoreInteractions(wsClient);
   }
@@ -47,6 +47,7 @@ public class InputFileBuilderTest {
   LanguageDetection langDetection = mock(LanguageDetection.class);
   StatusDetection statusDetection = mock(StatusDetection.class);
   DefaultModuleFileSystem fs = mock(DefaultModuleFileSystem.class);
+  InputFileContentsCache contentsCache = new InputFileContentsCache(new MapSettings());
 
   @Test
   public void should_detect_charset_from_BOM() {
@@ -54,7 +55,7 @@ public class InputFileBuilderTest {
     when(fs.baseDir()).thenReturn(basedir);
     when(fs.encoding()).thenReturn(StandardCharsets.US_ASCII);
     when(langDetection.language(any(InputFile.class))).thenReturn("java");
-    InputFileBuilder builder = new InputFileBuilder("moduleKey", new PathResolver(), langDetection, statusDetection, fs, new MapSettings(), new FileMetadata());
+    InputFileBuilder builder = new InputFileBuilder("moduleKey", new PathResolver(), langDetection, statusDetection, fs, new MapSettings(), new FileMetadata(), contentsCache);
 
     assertThat(createAndComplete(builder, new File(basedir, "without_BOM.txt")).charset())
       .isEqualTo(StandardCharsets.US_ASCII);
@@ -102,7 +103,7 @@ public class InputFileBuilderTest {
       .thenReturn(InputFile.Status.ADDED);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata());
+      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata(), contentsCache);
     DefaultInputFile inputFile = builder.create(srcFile);
     builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
 
@@ -113,6 +114,28 @@ public class InputFileBuilderTest {
     assertThat(inputFile.key()).isEqualTo("struts:src/main/java/foo/Bar.java");
     assertThat(inputFile.relativePath()).isEqualTo("src/main/java/foo/Bar.java");
     assertThat(inputFile.lines()).isEqualTo(1);
+    assertThat(inputFile.cachedContents()).isEqualTo("single line");
+  }
+
+  @Test
+  public void read_file_from_disk_when_contents_do_not_fit_in_cache() throws Exception {
+    File basedir = temp.newFolder();
+    File srcFile = new File(basedir, "src/main/java/foo/Bar.java");
+    FileUtils.write(srcFile, "first line\nsecond line", StandardCharsets.UTF_8);
+    when(fs.baseDir()).thenReturn(basedir);
+    when(fs.encoding()).thenReturn(StandardCharsets.UTF_8);
+    when(langDetection.language(any(InputFile.class))).thenReturn("java");
+
+    InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
+      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata(),
+      new InputFileContentsCache(new MapSettings().setProperty(InputFileContentsCache.SIZE_PROPERTY, 0)));
+    DefaultInputFile inputFile = builder.create(srcFile);
+    builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
+
+    assertThat(inputFile.cachedContents()).isNull();
+    assertThat(inputFile.lines()).isEqualTo(2);
+    assertThat(inputFile.originalLineOffsets()).containsOnly(0, 11);
+    assertThat(inputFile.contents()).isEqualTo("first line\nsecond line");
   }
 
   @Test
@@ -125,7 +148,7 @@ public class InputFileBuilderTest {
     when(fs.baseDir()).thenReturn(basedir);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata());
+      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata(), contentsCache);
     DefaultInputFile inputFile = builder.create(srcFile);
 
     assertThat(inputFile).isNull();
@@ -145,7 +168,7 @@ public class InputFileBuilderTest {
     when(langDetection.language(any(InputFile.class))).thenReturn(null);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata());
+      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata(), contentsCache);
     DefaultInputFile inputFile = builder.create(srcFile);
     inputFile = builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
 
@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.MapSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InputFileContentsCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File baseDir;
+
+  @Test
+  public void load_and_release_contents() throws IOException {
+    InputFileContentsCache underTest = new InputFileContentsCache(new MapSettings());
+    DefaultInputFile inputFile = newInputFile("Foo.java", "foo\nbar");
+
+    assertThat(underTest.load(inputFile)).isEqualTo("foo\nbar");
+    assertThat(inputFile.cachedContents()).isEqualTo("foo\nbar");
+    assertThat(underTest.usedBytes()).isEqualTo(14);
+
+    underTest.release(inputFile);
+    assertThat(inputFile.cachedContents()).isNull();
+    assertThat(underTest.usedBytes()).isEqualTo(0);
+    // still readable from disk
+    assertThat(inputFile.contents()).isEqualTo("foo\nbar");
+
+    // releasing twice has no effect
+    underTest.release(inputFile);
+    assertThat(underTest.usedBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void do_not_cache_files_beyond_budget() throws IOException {
+    InputFileContentsCache underTest = new InputFileContentsCache(new MapSettings().setProperty(InputFileContentsCache.SIZE_PROPERTY, 1));
+    DefaultInputFile small = newInputFile("Small.java", "foo");
+    DefaultInputFile big = newInputFile("Big.java", new String(new char[600 * 1024]).replace('\0', 'a'));
+
+    assertThat(underTest.load(small)).isEqualTo("foo");
+    assertThat(underTest.load(big)).isNull();
+    assertThat(big.cachedContents()).isNull();
+    assertThat(underTest.usedBytes()).isEqualTo(6);
+  }
+
+  @Test
+  public void cache_is_disabled_when_size_is_zero() throws IOException {
+    InputFileContentsCache underTest = new InputFileContentsCache(new MapSettings().setProperty(InputFileContentsCache.SIZE_PROPERTY, 0));
+    DefaultInputFile inputFile = newInputFile("Foo.java", "foo");
+
+    assertThat(underTest.load(inputFile)).isNull();
+    assertThat(underTest.usedBytes()).isEqualTo(0);
+  }
+
+  private DefaultInputFile newInputFile(String name, String contents) throws IOException {
+    if (baseDir == null) {
+      baseDir = temp.newFolder();
+    }
+    FileUtils.write(new File(baseDir, name), contents, StandardCharsets.UTF_8);
+    return new DefaultInputFile("foo", name).setModuleBaseDir(baseDir.toPath()).setCharset(StandardCharsets.UTF_8);
+  }
+}
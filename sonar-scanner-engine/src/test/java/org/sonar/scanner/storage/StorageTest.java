@@ -20,6 +20,11 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage;
@@ -249,4 +254,34 @@ public class StorageTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void concurrent_readers_and_writers() throws Exception {
+    Storage<String> cache = caches.createCache("concurrent");
+    int threads = 4;
+    int valuesPerThread = 1_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        String thread = "thread" + t;
+        futures.add(executor.submit(() -> {
+          boolean consistent = true;
+          for (int i = 0; i < valuesPerThread; i++) {
+            cache.put(thread, i, "value" + i);
+            consistent &= ("value" + i).equals(cache.get(thread, i));
+          }
+          return consistent && Iterables.size(cache.values(thread)) == valuesPerThread;
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertThat(future.get()).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(cache.keySet()).hasSize(threads);
+    assertThat(cache.values()).hasSize(threads * valuesPerThread);
+  }
 }
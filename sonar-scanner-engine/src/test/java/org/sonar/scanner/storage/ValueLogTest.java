@@ -0,0 +1,125 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ValueLogTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File file;
+  private ValueLog underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    file = temp.newFile();
+    underTest = new ValueLog(file);
+  }
+
+  @After
+  public void tearDown() {
+    underTest.close();
+  }
+
+  @Test
+  public void read_appended_values() {
+    long foo = underTest.append(bytes("foo"), 3);
+    long empty = underTest.append(new byte[0], 0);
+    long bar = underTest.append(bytes("barbaz"), 3);
+
+    assertThat(underTest.read(foo)).isEqualTo(bytes("foo"));
+    assertThat(underTest.read(empty)).isEmpty();
+    assertThat(underTest.read(bar)).isEqualTo(bytes("bar"));
+    assertThat(underTest.size()).isEqualTo(3 * Integer.BYTES + 6);
+  }
+
+  @Test
+  public void append_concurrently() throws Exception {
+    int threads = 4;
+    int valuesPerThread = 1_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        String prefix = "thread" + t + "-";
+        futures.add(executor.submit(() -> {
+          boolean consistent = true;
+          for (int i = 0; i < valuesPerThread; i++) {
+            byte[] value = bytes(prefix + i);
+            consistent &= new String(underTest.read(underTest.append(value, value.length)), StandardCharsets.UTF_8).equals(prefix + i);
+          }
+          return consistent;
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertThat(future.get()).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void values_are_still_readable_after_interruption_of_a_thread() throws Exception {
+    long foo = underTest.append(bytes("foo"), 3);
+
+    Thread.currentThread().interrupt();
+    try {
+      underTest.read(foo);
+    } catch (IllegalStateException e) {
+      // channel is closed by the interruption
+    } finally {
+      Thread.interrupted();
+    }
+
+    assertThat(underTest.read(foo)).isEqualTo(bytes("foo"));
+    long bar = underTest.append(bytes("bar"), 3);
+    assertThat(underTest.read(bar)).isEqualTo(bytes("bar"));
+  }
+
+  @Test
+  public void close_deletes_file() {
+    underTest.append(bytes("foo"), 3);
+    assertThat(file).exists();
+
+    underTest.close();
+
+    assertThat(file).doesNotExist();
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -20,6 +20,9 @@
 package org.sonar.scanner.protocol.output;
 
 import java.io.File;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
 
 /**
  * Structure of files in the zipped report
@@ -75,6 +78,55 @@ public class FileStructure {
     return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
   }
 
+  /**
+   * Data of all the components of a domain, once the report has been packed by {@link ReportPacker}.
+   */
+  public File packedDataFile(Domain domain) {
+    return new File(dir, domain.filePrefix + "pack.dat");
+  }
+
+  /**
+   * Offsets of the components in {@link #packedDataFile(Domain)}, sorted by component ref.
+   */
+  public File packedIndexFile(Domain domain) {
+    return new File(dir, domain.filePrefix + "pack.idx");
+  }
+
+  /**
+   * Files of the domain which are stored one per component, sorted by component ref.
+   */
+  SortedMap<Integer, File> filesFor(Domain domain) {
+    SortedMap<Integer, File> result = new TreeMap<>();
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return result;
+    }
+    for (File file : files) {
+      Integer ref = componentRefOf(domain, file.getName());
+      if (ref != null && file.isFile()) {
+        result.put(ref, file);
+      }
+    }
+    return result;
+  }
+
+  @CheckForNull
+  private static Integer componentRefOf(Domain domain, String fileName) {
+    if (!fileName.startsWith(domain.filePrefix) || !fileName.endsWith(domain.fileSuffix)) {
+      return null;
+    }
+    String ref = fileName.substring(domain.filePrefix.length(), fileName.length() - domain.fileSuffix.length());
+    if (ref.isEmpty()) {
+      return null;
+    }
+    for (int i = 0; i < ref.length(); i++) {
+      if (!Character.isDigit(ref.charAt(i))) {
+        return null;
+      }
+    }
+    return Integer.parseInt(ref);
+  }
+
   public File contextProperties() {
     return new File(dir, "context-props.pb");
   }
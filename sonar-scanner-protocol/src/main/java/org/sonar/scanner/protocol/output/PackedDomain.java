@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * Random access to the components of a domain packed by {@link ReportPacker}. The index is
+ * loaded once in memory (20 bytes per component), data is read on demand.
+ */
+class PackedDomain {
+
+  static final int VERSION = 1;
+
+  private final File dataFile;
+  private final int[] refs;
+  private final long[] offsets;
+  private final long[] lengths;
+
+  private PackedDomain(File dataFile, int[] refs, long[] offsets, long[] lengths) {
+    this.dataFile = dataFile;
+    this.refs = refs;
+    this.offsets = offsets;
+    this.lengths = lengths;
+  }
+
+  /**
+   * Loads the index. The stream {@code indexInput} is closed by this method.
+   */
+  static PackedDomain load(File indexFile, InputStream indexInput, File dataFile) {
+    try (DataInputStream input = new DataInputStream(indexInput)) {
+      int version = input.readInt();
+      if (version != VERSION) {
+        throw new IllegalStateException("Unsupported version " + version + " of index file " + indexFile);
+      }
+      int size = input.readInt();
+      int[] refs = new int[size];
+      long[] offsets = new long[size];
+      long[] lengths = new long[size];
+      for (int i = 0; i < size; i++) {
+        refs[i] = input.readInt();
+        offsets[i] = input.readLong();
+        lengths[i] = input.readLong();
+      }
+      return new PackedDomain(dataFile, refs, offsets, lengths);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read index file " + indexFile, e);
+    }
+  }
+
+  boolean contains(int componentRef) {
+    return Arrays.binarySearch(refs, componentRef) >= 0;
+  }
+
+  /**
+   * Opens the data of a component. The stream must be closed by caller.
+   *
+   * @return {@code null} if the component has no data in this domain
+   */
+  @CheckForNull
+  InputStream open(int componentRef) {
+    int i = Arrays.binarySearch(refs, componentRef);
+    if (i < 0) {
+      return null;
+    }
+    FileChannel channel = null;
+    try {
+      channel = new FileInputStream(dataFile).getChannel();
+      channel.position(offsets[i]);
+      // closing the bounded stream closes the channel
+      return new BufferedInputStream(new BoundedInputStream(Channels.newInputStream(channel), lengths[i]));
+    } catch (IOException e) {
+      IOUtils.closeQuietly(channel);
+      throw new IllegalStateException("Fail to read data of component #" + componentRef + " in " + dataFile, e);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.SortedMap;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Moves the files written one per component by {@link ScannerReportWriter} into a single data file
+ * per domain, plus an index of the offsets of each component. Huge projects generate hundreds of thousands
+ * of tiny files, which are expensive to compress, upload and extract.
+ * <p>
+ * Packed reports are read transparently by {@link ScannerReportReader}.
+ * </p>
+ */
+public class ReportPacker {
+
+  private final FileStructure fileStructure;
+
+  public ReportPacker(File dir) {
+    this.fileStructure = new FileStructure(dir);
+  }
+
+  /**
+   * Packs all the domains. Files of components are deleted once they are copied to the data file.
+   */
+  public void pack() {
+    for (FileStructure.Domain domain : FileStructure.Domain.values()) {
+      SortedMap<Integer, File> files = fileStructure.filesFor(domain);
+      if (!files.isEmpty()) {
+        pack(domain, files);
+      }
+    }
+  }
+
+  private void pack(FileStructure.Domain domain, SortedMap<Integer, File> files) {
+    File dataFile = fileStructure.packedDataFile(domain);
+    File indexFile = fileStructure.packedIndexFile(domain);
+    try (FileChannel data = new FileOutputStream(dataFile).getChannel();
+      DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+      index.writeInt(PackedDomain.VERSION);
+      index.writeInt(files.size());
+      long offset = 0L;
+      for (Map.Entry<Integer, File> entry : files.entrySet()) {
+        long length = append(entry.getValue(), data);
+        index.writeInt(entry.getKey());
+        index.writeLong(offset);
+        index.writeLong(length);
+        offset += length;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to pack analysis report files of domain " + domain, e);
+    }
+    for (File file : files.values()) {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  private static long append(File file, FileChannel data) throws IOException {
+    try (FileChannel in = new FileInputStream(file).getChannel()) {
+      long size = in.size();
+      long position = 0L;
+      while (position < size) {
+        position += in.transferTo(position, size - position, data);
+      }
+      return size;
+    }
+  }
+}
@@ -19,7 +19,16 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
@@ -29,6 +38,7 @@ import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 public class ScannerReportReader {
 
   private final FileStructure fileStructure;
+  private final Map<FileStructure.Domain, Optional<PackedDomain>> packedDomains = new EnumMap<>(FileStructure.Domain.class);
 
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
@@ -39,7 +49,7 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       throw new IllegalStateException("Metadata file is missing in analysis report: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Metadata.parser());
+    return Protobuf.read(openFile(file), ScannerReport.Metadata.parser());
   }
 
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
@@ -47,133 +57,214 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ActiveRule.parser());
+    return Protobuf.readStream(openFile(file), ScannerReport.ActiveRule.parser());
   }
 
-  public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
+  /**
+   * Opens the UTF-8 logs of the scanner. The stream must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openAnalysisLog() {
+    File file = fileStructure.analysisLog();
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
+      return openFile(file);
     }
-    return emptyCloseableIterator();
+    return null;
+  }
+
+  public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
+    return readComponentStream(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
+    InputStream input = openComponentData(FileStructure.Domain.CHANGESETS, componentRef);
+    if (input != null) {
+      return Protobuf.read(input, ScannerReport.Changesets.parser());
     }
     return null;
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
+    InputStream input = openComponentData(FileStructure.Domain.COMPONENT, componentRef);
+    if (input == null) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: "
+        + fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef));
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return Protobuf.read(input, ScannerReport.Component.parser());
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.COVERAGES, componentRef);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
   }
 
+  /**
+   * Only supports reports which are not packed. Use {@link #openFileSource(int)} instead.
+   */
   @CheckForNull
   public File readFileSource(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
     if (fileExists(file)) {
-      return file;
+      return toLocalFile(file);
     }
     return null;
   }
 
+  /**
+   * Opens the UTF-8 source of a file. The stream must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openFileSource(int fileRef) {
+    return openComponentData(FileStructure.Domain.SOURCE, fileRef);
+  }
+
+  /**
+   * Only supports reports which are not packed. Use {@link #openTests(int)} instead.
+   */
   @CheckForNull
   public File readTests(int testFileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.TESTS, testFileRef);
     if (fileExists(file)) {
-      return file;
+      return toLocalFile(file);
     }
 
     return null;
   }
 
+  /**
+   * Opens the stream of {@link ScannerReport.Test} of a test file. The stream must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openTests(int testFileRef) {
+    return openComponentData(FileStructure.Domain.TESTS, testFileRef);
+  }
+
+  /**
+   * Only supports reports which are not packed. Use {@link #openCoverageDetails(int)} instead.
+   */
   @CheckForNull
   public File readCoverageDetails(int testFileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
     if (fileExists(file)) {
-      return file;
+      return toLocalFile(file);
     }
 
     return null;
   }
 
+  /**
+   * Opens the stream of {@link ScannerReport.CoverageDetail} of a test file. The stream must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openCoverageDetails(int testFileRef) {
+    return openComponentData(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
+  }
+
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
     File file = fileStructure.contextProperties();
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
+    return Protobuf.readStream(openFile(file), ScannerReport.ContextProperty.parser());
   }
 
-  private static boolean fileExists(File file) {
+  private <MSG extends Message> CloseableIterator<MSG> readComponentStream(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    InputStream input = openComponentData(domain, componentRef);
+    if (input != null) {
+      return Protobuf.readStream(input, parser);
+    }
+    return emptyCloseableIterator();
+  }
+
+  private boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    PackedDomain packedDomain = packedDomain(domain);
+    if (packedDomain != null) {
+      return packedDomain.contains(componentRef);
+    }
+    return fileExists(fileStructure.fileFor(domain, componentRef));
+  }
+
+  @CheckForNull
+  private InputStream openComponentData(FileStructure.Domain domain, int componentRef) {
+    PackedDomain packedDomain = packedDomain(domain);
+    if (packedDomain != null) {
+      return packedDomain.open(componentRef);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (!fileExists(file)) {
+      return null;
+    }
+    return openFile(file);
+  }
+
+  @CheckForNull
+  private synchronized PackedDomain packedDomain(FileStructure.Domain domain) {
+    Optional<PackedDomain> packedDomain = packedDomains.get(domain);
+    if (packedDomain == null) {
+      File indexFile = fileStructure.packedIndexFile(domain);
+      if (fileExists(indexFile)) {
+        packedDomain = Optional.of(PackedDomain.load(indexFile, openFile(indexFile), toLocalFile(fileStructure.packedDataFile(domain))));
+      } else {
+        packedDomain = Optional.empty();
+      }
+      packedDomains.put(domain, packedDomain);
+    }
+    return packedDomain.orElse(null);
+  }
+
+  /**
+   * Whether a file of the report exists. Overridden when the report is not extracted in {@link FileStructure}'s directory.
+   */
+  protected boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
 
+  /**
+   * Opens an existing file of the report. The stream must be closed by caller.
+   */
+  protected InputStream openFile(File file) {
+    try {
+      return new BufferedInputStream(new FileInputStream(file));
+    } catch (FileNotFoundException e) {
+      throw new IllegalStateException("Fail to open file " + file, e);
+    }
+  }
+
+  /**
+   * Ensures that an existing file of the report is available on the local filesystem.
+   */
+  protected File toLocalFile(File file) {
+    return file;
+  }
+
   public FileStructure getFileStructure() {
     return fileStructure;
   }
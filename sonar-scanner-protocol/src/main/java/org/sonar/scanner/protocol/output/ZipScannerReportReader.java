@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Reads an analysis report from its zip file without extracting it. Entries are decompressed
+ * when they are read. The few entries which must be available as files, for example the data
+ * files of a packed report, are extracted on demand to the working directory.
+ */
+public class ZipScannerReportReader extends ScannerReportReader implements Closeable {
+
+  private final ZipFile zipFile;
+
+  /**
+   * @param zip the zipped report
+   * @param workDir existing directory in which entries are extracted when needed
+   */
+  public ZipScannerReportReader(File zip, File workDir) {
+    super(workDir);
+    try {
+      this.zipFile = new ZipFile(zip);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open analysis report " + zip, e);
+    }
+  }
+
+  @Override
+  protected boolean fileExists(File file) {
+    ZipEntry entry = zipFile.getEntry(file.getName());
+    return entry != null && !entry.isDirectory();
+  }
+
+  @Override
+  protected InputStream openFile(File file) {
+    ZipEntry entry = zipFile.getEntry(file.getName());
+    if (entry == null) {
+      throw new IllegalStateException("Entry is missing in analysis report: " + file.getName());
+    }
+    try {
+      return new BufferedInputStream(zipFile.getInputStream(entry));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read entry " + file.getName() + " of analysis report", e);
+    }
+  }
+
+  @Override
+  protected synchronized File toLocalFile(File file) {
+    if (!file.exists()) {
+      try (InputStream input = openFile(file)) {
+        FileUtils.copyInputStreamToFile(input, file);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to extract entry " + file.getName() + " of analysis report", e);
+      }
+    }
+    return file;
+  }
+
+  @Override
+  public void close() throws IOException {
+    zipFile.close();
+  }
+}
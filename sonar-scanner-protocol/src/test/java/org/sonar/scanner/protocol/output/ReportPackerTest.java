@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.util.CloseableIterator;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportPackerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File dir;
+  private ScannerReportWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = temp.newFolder();
+    writer = new ScannerReportWriter(dir);
+  }
+
+  @Test
+  public void pack_files_of_components_in_one_data_file_per_domain() {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(2).build());
+    writer.writeComponentIssues(2, asList(ScannerReport.Issue.newBuilder().setMsg("foo").build()));
+
+    new ReportPacker(dir).pack();
+
+    FileStructure fileStructure = writer.getFileStructure();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.COMPONENT, 1)).doesNotExist();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.COMPONENT, 2)).doesNotExist();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.ISSUES, 2)).doesNotExist();
+    assertThat(fileStructure.packedDataFile(FileStructure.Domain.COMPONENT)).isFile();
+    assertThat(fileStructure.packedIndexFile(FileStructure.Domain.COMPONENT)).isFile();
+    assertThat(fileStructure.packedDataFile(FileStructure.Domain.ISSUES)).isFile();
+    assertThat(fileStructure.packedDataFile(FileStructure.Domain.MEASURES)).doesNotExist();
+  }
+
+  @Test
+  public void do_not_pack_files_which_are_not_stored_per_component() {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setRootComponentRef(1).build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+
+    new ReportPacker(dir).pack();
+
+    assertThat(writer.getFileStructure().metadataFile()).isFile();
+    assertThat(new ScannerReportReader(dir).readMetadata().getRootComponentRef()).isEqualTo(1);
+  }
+
+  @Test
+  public void read_packed_report() throws Exception {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setPath("src/Foo.java").build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(12).setPath("src/Bar.java").build());
+    writer.writeComponentIssues(1, asList(
+      ScannerReport.Issue.newBuilder().setMsg("first").build(),
+      ScannerReport.Issue.newBuilder().setMsg("second").build()));
+    writer.writeComponentIssues(12, asList(ScannerReport.Issue.newBuilder().setMsg("third").build()));
+    writer.writeComponentCoverage(12, asList(ScannerReport.LineCoverage.newBuilder().setLine(3).build()));
+    FileUtils.write(writer.getSourceFile(12), "line1\nline2", StandardCharsets.UTF_8);
+
+    new ReportPacker(dir).pack();
+    ScannerReportReader reader = new ScannerReportReader(dir);
+
+    assertThat(reader.readComponent(1).getPath()).isEqualTo("src/Foo.java");
+    assertThat(reader.readComponent(12).getPath()).isEqualTo("src/Bar.java");
+    try (CloseableIterator<ScannerReport.Issue> issues = reader.readComponentIssues(1)) {
+      assertThat(issues.next().getMsg()).isEqualTo("first");
+      assertThat(issues.next().getMsg()).isEqualTo("second");
+      assertThat(issues.hasNext()).isFalse();
+    }
+    assertThat(reader.readComponentIssues(12)).hasSize(1);
+    assertThat(reader.readComponentIssues(5)).isEmpty();
+    assertThat(reader.hasCoverage(12)).isTrue();
+    assertThat(reader.hasCoverage(1)).isFalse();
+    try (InputStream source = reader.openFileSource(12)) {
+      assertThat(IOUtils.toString(source, StandardCharsets.UTF_8)).isEqualTo("line1\nline2");
+    }
+    assertThat(reader.openFileSource(1)).isNull();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void fail_to_read_missing_component_of_packed_report() {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+
+    new ReportPacker(dir).pack();
+
+    new ScannerReportReader(dir).readComponent(2);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipScannerReportReaderTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File reportDir;
+  private File workDir;
+  private ScannerReportWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    reportDir = temp.newFolder();
+    workDir = temp.newFolder();
+    writer = new ScannerReportWriter(reportDir);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("foo").build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setPath("src/Foo.java").build());
+    writer.writeComponentIssues(1, asList(ScannerReport.Issue.newBuilder().setMsg("bar").build()));
+    FileUtils.write(writer.getSourceFile(1), "line1\nline2", StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void read_entries_without_extracting_them() throws Exception {
+    try (ZipScannerReportReader underTest = new ZipScannerReportReader(zip(), workDir)) {
+      assertThat(underTest.readMetadata().getProjectKey()).isEqualTo("foo");
+      assertThat(underTest.readComponent(1).getPath()).isEqualTo("src/Foo.java");
+      assertThat(underTest.readComponentIssues(1)).hasSize(1);
+      assertThat(underTest.readComponentIssues(2)).isEmpty();
+      assertThat(underTest.readChangesets(1)).isNull();
+      try (InputStream source = underTest.openFileSource(1)) {
+        assertThat(IOUtils.toString(source, StandardCharsets.UTF_8)).isEqualTo("line1\nline2");
+      }
+    }
+    assertThat(workDir.listFiles()).isEmpty();
+  }
+
+  @Test
+  public void extract_entry_when_file_is_requested() throws Exception {
+    try (ZipScannerReportReader underTest = new ZipScannerReportReader(zip(), workDir)) {
+      File source = underTest.readFileSource(1);
+
+      assertThat(source.getParentFile()).isEqualTo(workDir);
+      assertThat(FileUtils.readFileToString(source, StandardCharsets.UTF_8)).isEqualTo("line1\nline2");
+      assertThat(underTest.readFileSource(2)).isNull();
+    }
+  }
+
+  @Test
+  public void read_packed_report() throws Exception {
+    new ReportPacker(reportDir).pack();
+
+    try (ZipScannerReportReader underTest = new ZipScannerReportReader(zip(), workDir)) {
+      assertThat(underTest.readComponent(1).getPath()).isEqualTo("src/Foo.java");
+      assertThat(underTest.readComponentIssues(1)).hasSize(1);
+    }
+    // only data files of the read domains are extracted
+    assertThat(workDir.list()).containsOnly("component-pack.dat", "issues-pack.dat");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void fail_if_zip_does_not_exist() {
+    new ZipScannerReportReader(new File(temp.getRoot(), "unknown.zip"), workDir);
+  }
+
+  private File zip() throws Exception {
+    File zip = temp.newFile();
+    try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(zip))) {
+      for (File file : reportDir.listFiles()) {
+        output.putNextEntry(new ZipEntry(file.getName()));
+        FileUtils.copyFile(file, output);
+        output.closeEntry();
+      }
+    }
+    return zip;
+  }
+}
@@ -22,6 +22,7 @@ package org.sonarqube.ws.client;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,8 @@ abstract class BaseRequest<SELF extends BaseRequest> implements WsRequest {
 
   private final DefaultParameters parameters = new DefaultParameters();
 
+  private final Map<String, String> headers = new LinkedHashMap<>();
+
   BaseRequest(String path) {
     this.path = path;
   }
@@ -131,6 +134,24 @@ abstract class BaseRequest<SELF extends BaseRequest> implements WsRequest {
     return parameters;
   }
 
+  /**
+   * Sets an HTTP header. The header is removed if value is {@code null}.
+   */
+  public SELF setHeader(String name, @Nullable String value) {
+    checkArgument(!isNullOrEmpty(name), "a header name cannot be null");
+    if (value == null) {
+      headers.remove(name);
+    } else {
+      headers.put(name, value);
+    }
+    return (SELF) this;
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    return Collections.unmodifiableMap(headers);
+  }
+
   private static class DefaultParameters implements Parameters {
     // preserve insertion order
     private final ListMultimap<String, String> keyValues = LinkedListMultimap.create();
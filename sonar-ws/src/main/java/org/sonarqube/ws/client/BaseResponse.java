@@ -19,6 +19,8 @@
  */
 package org.sonarqube.ws.client;
 
+import javax.annotation.CheckForNull;
+
 import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
 
 abstract class BaseResponse implements WsResponse {
@@ -38,6 +40,13 @@ abstract class BaseResponse implements WsResponse {
     return this;
   }
 
+  @Override
+  @CheckForNull
+  public String header(String name) {
+    // override if headers are available
+    return null;
+  }
+
   @Override
   public boolean hasContent() {
     return code() != HTTP_NO_CONTENT;
@@ -153,6 +153,9 @@ public class HttpConnector implements WsConnector {
     if (credentials != null) {
       okHttpRequestBuilder.header("Authorization", credentials);
     }
+    for (Map.Entry<String, String> header : getRequest.getHeaders().entrySet()) {
+      okHttpRequestBuilder.header(header.getKey(), header.getValue());
+    }
     return okHttpRequestBuilder;
   }
 
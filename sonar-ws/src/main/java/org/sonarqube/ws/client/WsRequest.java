@@ -43,6 +43,12 @@ public interface WsRequest {
 
   Parameters getParameters();
 
+  /**
+   * Additional HTTP headers, for example for conditional requests
+   * @since 6.3
+   */
+  Map<String, String> getHeaders();
+
   enum Method {
     GET, POST
   }
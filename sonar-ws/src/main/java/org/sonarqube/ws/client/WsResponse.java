@@ -22,6 +22,7 @@ package org.sonarqube.ws.client;
 import java.io.Closeable;
 import java.io.InputStream;
 import java.io.Reader;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -51,6 +52,13 @@ public interface WsResponse extends Closeable {
 
   String contentType();
 
+  /**
+   * Value of the HTTP header, or {@code null} if the header is missing or if headers are not available.
+   * @since 6.3
+   */
+  @CheckForNull
+  String header(String name);
+
   boolean hasContent();
 
   InputStream contentStream();
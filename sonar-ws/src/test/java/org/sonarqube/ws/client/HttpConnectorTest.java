@@ -87,6 +87,21 @@ public class HttpConnectorTest {
     assertThat(recordedRequest.getHeader("Accept-Encoding")).isEqualTo("gzip");
   }
 
+  @Test
+  public void send_request_headers_and_read_response_headers() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+
+    GetRequest request = new GetRequest("api/issues/search").setHeader("If-None-Match", "\"v1\"");
+    WsResponse response = underTest.call(request);
+
+    assertThat(response.code()).isEqualTo(304);
+    assertThat(response.header("ETag")).isEqualTo("\"v1\"");
+    assertThat(response.header("Unknown")).isNull();
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertThat(recordedRequest.getHeader("If-None-Match")).isEqualTo("\"v1\"");
+  }
+
   @Test
   public void use_basic_authentication() throws Exception {
     answerHelloWorld();
@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.perf;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ScannerLogs {
+
+  /**
+   * INFO: Analysis report generated in 1234ms, dir size=12 MB
+   */
+  public static Long extractReportGenerationTime(String logs) {
+    return extractLong(logs, "Analysis report generated in (\\d+)ms");
+  }
+
+  /**
+   * INFO: Analysis report packed in 123ms
+   */
+  public static Long extractReportPackingTime(String logs) {
+    return extractLong(logs, "Analysis report packed in (\\d+)ms");
+  }
+
+  /**
+   * INFO: Analysis reports compressed in 456ms, zip size=3 MB
+   */
+  public static Long extractReportCompressionTime(String logs) {
+    return extractLong(logs, "Analysis reports compressed in (\\d+)ms");
+  }
+
+  private static Long extractLong(String logs, String format) {
+    Matcher matcher = Pattern.compile(format).matcher(logs);
+    if (matcher.find()) {
+      return Long.parseLong(matcher.group(1));
+    }
+    return null;
+  }
+}
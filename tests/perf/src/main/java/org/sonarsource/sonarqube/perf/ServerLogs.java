@@ -90,4 +90,25 @@ public class ServerLogs {
     return null;
   }
 
+  /**
+   * 2016.10.18 16:57:45 DEBUG ce[AVAZm9oHIXrp54OmOeQe][o.s.s.c.t.s.ComputationStepExecutor] Extract report | time=12ms
+   */
+  public static Long extractComputationStepTime(Orchestrator orchestrator, String stepDescription) throws IOException {
+    File report = orchestrator.getServer().getCeLogs();
+    List<String> logsLines = FileUtils.readLines(report, Charsets.UTF_8);
+    return extractComputationStepTime(logsLines, stepDescription);
+  }
+
+  static Long extractComputationStepTime(List<String> logs, String stepDescription) {
+    Pattern pattern = Pattern.compile(".*DEBUG.*\\] " + Pattern.quote(stepDescription) + " \\| time=(\\d+)ms.*");
+    for (int i = logs.size() - 1; i >= 0; i--) {
+      Matcher matcher = pattern.matcher(logs.get(i));
+      if (matcher.matches()) {
+        return Long.parseLong(matcher.group(1));
+      }
+    }
+
+    return null;
+  }
+
 }
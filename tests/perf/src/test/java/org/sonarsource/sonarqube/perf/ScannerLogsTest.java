@@ -0,0 +1,45 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.perf;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ScannerLogsTest {
+
+  private static final String LOGS = "INFO: Sensor Zero Coverage Sensor (done) | time=12ms\n" +
+    "INFO: Analysis report generated in 1234ms, dir size=12 MB\n" +
+    "INFO: Analysis report packed in 123ms\n" +
+    "INFO: Analysis reports compressed in 456ms, zip size=3 MB\n" +
+    "INFO: Analysis report uploaded in 78ms\n";
+
+  @Test
+  public void extract_report_phases_durations() {
+    assertThat(ScannerLogs.extractReportGenerationTime(LOGS)).isEqualTo(1234L);
+    assertThat(ScannerLogs.extractReportPackingTime(LOGS)).isEqualTo(123L);
+    assertThat(ScannerLogs.extractReportCompressionTime(LOGS)).isEqualTo(456L);
+  }
+
+  @Test
+  public void return_null_if_report_is_not_packed() {
+    assertThat(ScannerLogs.extractReportPackingTime("INFO: Analysis report generated in 1234ms, dir size=12 MB\n")).isNull();
+  }
+}
@@ -33,4 +33,20 @@ public class ServerLogsTest {
         .isEqualTo(1234L);
   }
 
+  @Test
+  public void extract_duration_of_the_last_execution_of_a_computation_step() throws Exception {
+    assertThat(ServerLogs.extractComputationStepTime(Lists.newArrayList(
+      "2016.10.18 16:57:45 DEBUG ce[AVAZm9oHIXrp54OmOeQe][o.s.s.c.t.s.ComputationStepExecutor] Extract report | time=12ms",
+      "2016.10.18 16:57:45 DEBUG ce[AVAZm9oHIXrp54OmOeQe][o.s.s.c.t.s.ComputationStepExecutor] Build tree of components | time=56ms",
+      "2016.10.18 16:58:45 DEBUG ce[AVAZm9oHIXrp54OmOeQf][o.s.s.c.t.s.ComputationStepExecutor] Extract report | time=34ms"), "Extract report"))
+        .isEqualTo(34L);
+  }
+
+  @Test
+  public void extract_duration_of_a_computation_step_returns_null_if_step_is_not_logged() throws Exception {
+    assertThat(ServerLogs.extractComputationStepTime(Lists.newArrayList(
+      "2016.10.18 16:57:45 DEBUG ce[AVAZm9oHIXrp54OmOeQe][o.s.s.c.t.s.ComputationStepExecutor] Build tree of components | time=56ms"), "Extract report"))
+        .isNull();
+  }
+
 }
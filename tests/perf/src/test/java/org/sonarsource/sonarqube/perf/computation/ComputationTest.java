@@ -20,6 +20,7 @@
 package org.sonarsource.sonarqube.perf.computation;
 
 import com.sonar.orchestrator.Orchestrator;
+import com.sonar.orchestrator.build.BuildResult;
 import com.sonar.orchestrator.build.SonarScanner;
 import com.sonar.orchestrator.locator.FileLocation;
 import java.io.File;
@@ -32,6 +33,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonarsource.sonarqube.perf.PerfTestCase;
+import org.sonarsource.sonarqube.perf.ScannerLogs;
 import org.sonarsource.sonarqube.perf.ServerLogs;
 
 public class ComputationTest extends PerfTestCase {
@@ -51,6 +53,11 @@ public class ComputationTest extends PerfTestCase {
     .restoreProfileAtStartup(FileLocation.ofClasspath("/one-xoo-issue-per-line.xml"))
     .build();
 
+  /**
+   * Computation steps which do little more than extracting and reading the analysis report
+   */
+  private static final String[] REPORT_READING_STEPS = {"Extract report", "Build tree of components", "Load inner file and in project duplications"};
+
   private static File bigProjectBaseDir;
 
   @BeforeClass
@@ -79,6 +86,51 @@ public class ComputationTest extends PerfTestCase {
     assertComputationDurationAround(340000L);
   }
 
+  @Test
+  public void packed_report_is_faster_to_compress_and_to_read_than_one_file_per_component() throws Exception {
+    ReportDurations unpacked = analyseBigProject("big-project", false);
+    ReportDurations packed = analyseBigProject("big-project-packed", true);
+
+    System.out.printf("Unpacked report: %s\nPacked report: %s\n", unpacked, packed);
+    assertDurationLessThan(packed.compression + packed.ceReading, unpacked.compression + unpacked.ceReading);
+  }
+
+  private static ReportDurations analyseBigProject(String projectKey, boolean packReport) throws IOException {
+    SonarScanner scanner = SonarScanner.create()
+      .setProperties(
+        "sonar.projectKey", projectKey,
+        "sonar.projectName", "Big Project",
+        "sonar.projectVersion", "1.0",
+        "sonar.sources", "src",
+        "sonar.profile", "one-xoo-issue-per-line",
+        "sonar.batch.packReport", String.valueOf(packReport))
+      .setProjectDir(bigProjectBaseDir);
+
+    BuildResult result = orchestrator.executeBuild(scanner);
+
+    String logs = result.getLogs();
+    ReportDurations durations = new ReportDurations();
+    durations.generation = ScannerLogs.extractReportGenerationTime(logs);
+    durations.packing = packReport ? ScannerLogs.extractReportPackingTime(logs) : 0L;
+    durations.compression = ScannerLogs.extractReportCompressionTime(logs);
+    for (String step : REPORT_READING_STEPS) {
+      durations.ceReading += ServerLogs.extractComputationStepTime(orchestrator, step);
+    }
+    return durations;
+  }
+
+  private static class ReportDurations {
+    private long generation;
+    private long packing;
+    private long compression;
+    private long ceReading;
+
+    @Override
+    public String toString() {
+      return String.format("generation=%dms, packing=%dms, compression=%dms, reading by CE=%dms", generation, packing, compression, ceReading);
+    }
+  }
+
   private void assertComputationDurationAround(long expectedDuration) throws IOException {
     Long duration = ServerLogs.extractComputationTotalTime(orchestrator);
 
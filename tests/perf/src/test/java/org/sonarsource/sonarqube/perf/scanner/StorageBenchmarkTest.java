@@ -0,0 +1,269 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.perf.scanner;
+
+import com.google.common.collect.Iterables;
+import com.persistit.Exchange;
+import com.persistit.Key;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import com.persistit.Volume;
+import com.persistit.exception.PersistitException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.internal.JUnitTempFolder;
+import org.sonar.scanner.storage.Storage;
+import org.sonar.scanner.storage.Storages;
+import org.sonar.scanner.storage.StoragesManager;
+import org.sonarsource.sonarqube.perf.PerfTestCase;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Throughput and heap of the scanner storages, compared to the previous implementation which stored
+ * the values in a Persistit tree per storage, accessed through one {@link Exchange} per thread.
+ * <p/>
+ * Each thread stores the measures of its own files, reads them by key, then iterates them file per file.
+ * Number of values can be changed with the property "sonar.perf.storage.values" (1M by default).
+ */
+public class StorageBenchmarkTest extends PerfTestCase {
+
+  private static final int VALUES = Integer.getInteger("sonar.perf.storage.values", 1_000_000);
+  private static final int THREADS = 4;
+  private static final int METRICS = 50;
+  private static final int FILES_PER_THREAD = VALUES / THREADS / METRICS;
+
+  @Rule
+  public JUnitTempFolder temp = new JUnitTempFolder();
+
+  @Test
+  public void storage_is_faster_than_persistit_trees() throws Exception {
+    long persistitDuration = measure("Persistit tree", () -> new PersistitStore(temp.newDir("persistit")));
+    long storageDuration = measure("Storage", () -> new ScannerStore(new StoragesManager(temp)));
+
+    assertDurationLessThan(storageDuration, persistitDuration);
+  }
+
+  /**
+   * Heap is measured once all the values are stored, including the buffers allocated when creating the store
+   */
+  private static long measure(String name, Callable<Store> storeFactory) throws Exception {
+    long heapBefore = usedHeap();
+    Store store = storeFactory.call();
+    try {
+      long start = System.currentTimeMillis();
+      run(store::put);
+      long putDuration = System.currentTimeMillis() - start;
+      long heap = usedHeap() - heapBefore;
+
+      start = System.currentTimeMillis();
+      run((file, metric, value) -> assertThat(store.get(file, metric)).isEqualTo(value));
+      long getDuration = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      run((file, metric, value) -> {
+        if (metric == 0) {
+          assertThat(store.count(file)).isEqualTo(METRICS);
+        }
+      });
+      long iterateDuration = System.currentTimeMillis() - start;
+
+      long duration = putDuration + getDuration + iterateDuration;
+      System.out.printf("%s: %d values by %d threads in %d ms (%d operations/s), put=%dms, get=%dms, iterate=%dms, heap=%dMB\n",
+        name, VALUES, THREADS, duration, 3_000L * VALUES / Math.max(duration, 1L), putDuration, getDuration, iterateDuration, heap / 1024 / 1024);
+      return duration;
+    } finally {
+      store.close();
+    }
+  }
+
+  /**
+   * Each thread handles its own files, as the sensors executed in parallel
+   */
+  private static void run(Operation operation) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int f = 0; f < FILES_PER_THREAD; f++) {
+            String file = "project:src/thread" + thread + "/File" + f + ".java";
+            for (int metric = 0; metric < METRICS; metric++) {
+              operation.apply(file, metric, "value of metric " + metric + " on " + file);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  @FunctionalInterface
+  private interface Operation {
+    void apply(String file, int metric, String value);
+  }
+
+  private interface Store {
+    void put(String file, int metric, String value);
+
+    String get(String file, int metric);
+
+    int count(String file);
+
+    void close() throws Exception;
+  }
+
+  private static class ScannerStore implements Store {
+    private final StoragesManager manager;
+    private final Storages storages;
+    private final Storage<String> storage;
+
+    ScannerStore(StoragesManager manager) {
+      this.manager = manager;
+      this.storages = new Storages(manager);
+      this.storage = storages.createCache("measures");
+    }
+
+    @Override
+    public void put(String file, int metric, String value) {
+      storage.put(file, metric, value);
+    }
+
+    @Override
+    public String get(String file, int metric) {
+      return storage.get(file, metric);
+    }
+
+    @Override
+    public int count(String file) {
+      return Iterables.size(storage.values(file));
+    }
+
+    @Override
+    public void close() {
+      storages.stop();
+      manager.stop();
+    }
+  }
+
+  /**
+   * Previous implementation, with the same configuration of Persistit
+   */
+  private static class PersistitStore implements Store {
+    private final Persistit persistit;
+    private final Volume volume;
+    private final ThreadLocal<Exchange> exchanges = ThreadLocal.withInitial(this::newExchange);
+
+    PersistitStore(File dir) throws PersistitException {
+      persistit = new Persistit();
+      Properties props = new Properties();
+      props.setProperty("datapath", dir.getAbsolutePath());
+      props.setProperty("logpath", "${datapath}/log");
+      props.setProperty("logfile", "${logpath}/persistit_${timestamp}.log");
+      props.setProperty("buffer.count.8192", "10");
+      props.setProperty("journalpath", "${datapath}/journal");
+      props.setProperty("tmpvoldir", "${datapath}");
+      props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:8192,initialPages:10,extensionPages:100,maximumPages:25000");
+      props.setProperty("jmx", "false");
+      persistit.setProperties(props);
+      persistit.initialize();
+      volume = persistit.createTemporaryVolume();
+    }
+
+    private Exchange newExchange() {
+      try {
+        Exchange exchange = new Exchange(persistit, volume, "measures", true);
+        exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+        return exchange;
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void put(String file, int metric, String value) {
+      Exchange exchange = exchanges.get();
+      try {
+        exchange.clear().append(file).append(metric);
+        exchange.getValue().put(value);
+        exchange.store();
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public String get(String file, int metric) {
+      Exchange exchange = exchanges.get();
+      try {
+        exchange.clear().append(file).append(metric).fetch();
+        return exchange.getValue().isDefined() ? (String) exchange.getValue().get() : null;
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public int count(String file) {
+      Exchange exchange = exchanges.get();
+      try {
+        int count = 0;
+        exchange.clear().append(file).append(Key.BEFORE);
+        while (exchange.next()) {
+          if (exchange.getValue().get() != null) {
+            count++;
+          }
+        }
+        return count;
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void close() throws PersistitException {
+      volume.close();
+      volume.delete();
+      persistit.close(false);
+    }
+  }
+}
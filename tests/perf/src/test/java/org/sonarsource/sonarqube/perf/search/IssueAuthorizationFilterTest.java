@@ -0,0 +1,228 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.perf.search;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.security.DefaultGroups;
+import org.sonar.api.utils.System2;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.issue.IssueQuery;
+import org.sonar.server.issue.index.IssueDoc;
+import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.tester.MockUserSession;
+import org.sonarsource.sonarqube.perf.PerfTestCase;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.hasParentQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Latency of issue searches depending on the filter of authorized projects:
+ * <ul>
+ *   <li>terms filter on the uuids of the browsable projects, used when a user can browse at most 2,000 projects</li>
+ *   <li>has_parent join on the authorization documents, used as a fallback above 2,000 projects</li>
+ *   <li>has_parent join whatever the number of projects, which was used before the terms filter</li>
+ * </ul>
+ * Number of issues can be changed with the property "sonar.perf.issues" (10M by default).
+ */
+public class IssueAuthorizationFilterTest extends PerfTestCase {
+
+  private static final int ISSUES = Integer.getInteger("sonar.perf.issues", 10_000_000);
+  private static final int PROJECTS = 5_000;
+  // below the limit of terms filter
+  private static final int PROJECTS_OF_SMALL_USER = 1_000;
+  // above the limit of terms filter
+  private static final int PROJECTS_OF_LARGE_USER = 4_000;
+  private static final long SMALL_USER_ID = 1L;
+  private static final long LARGE_USER_ID = 2L;
+  private static final int WARMUP_SEARCHES = 20;
+  private static final int MEASURED_SEARCHES = 100;
+
+  @ClassRule
+  public static EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings()));
+
+  @BeforeClass
+  public static void indexIssues() {
+    BulkIndexer authorizations = new BulkIndexer(esTester.client(), IssueIndexDefinition.INDEX).setLarge(true);
+    authorizations.start();
+    for (int i = 0; i < PROJECTS; i++) {
+      List<Long> users = new ArrayList<>();
+      if (i < PROJECTS_OF_SMALL_USER) {
+        users.add(SMALL_USER_ID);
+      }
+      if (i < PROJECTS_OF_LARGE_USER) {
+        users.add(LARGE_USER_ID);
+      }
+      String projectUuid = projectUuid(i);
+      authorizations.add(new IndexRequest(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_AUTHORIZATION, projectUuid)
+        .routing(projectUuid)
+        .source(ImmutableMap.of(
+          IssueIndexDefinition.FIELD_AUTHORIZATION_PROJECT_UUID, projectUuid,
+          IssueIndexDefinition.FIELD_AUTHORIZATION_GROUPS, new ArrayList<String>(),
+          IssueIndexDefinition.FIELD_AUTHORIZATION_USERS, users,
+          IssueIndexDefinition.FIELD_AUTHORIZATION_UPDATED_AT, new Date())));
+    }
+    authorizations.stop();
+
+    long start = System.currentTimeMillis();
+    new IssueIndexer(System2.INSTANCE, null, esTester.client(), null).index(new IssueIterator(ISSUES));
+    System.out.printf("%d issues indexed in %d ms\n", ISSUES, System.currentTimeMillis() - start);
+  }
+
+  @Test
+  public void terms_filter_is_faster_than_join_below_limit_of_projects() {
+    long termsFilter = measureSearch(termsQuery(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, projectUuids(PROJECTS_OF_SMALL_USER)));
+    long join = measureSearch(joinOnAuthorizations(SMALL_USER_ID));
+    System.out.printf("User browsing %d projects: terms filter=%dms, has_parent join (previous filter)=%dms\n", PROJECTS_OF_SMALL_USER, termsFilter, join);
+
+    assertDurationLessThan(termsFilter, join);
+  }
+
+  @Test
+  public void fallback_to_join_above_limit_of_projects() {
+    long join = measureSearch(joinOnAuthorizations(LARGE_USER_ID));
+    long termsFilter = measureSearch(termsQuery(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, projectUuids(PROJECTS_OF_LARGE_USER)));
+    System.out.printf("User browsing %d projects: has_parent join (fallback)=%dms, terms filter=%dms\n", PROJECTS_OF_LARGE_USER, join, termsFilter);
+  }
+
+  @Test
+  public void issue_index_uses_filter_depending_on_number_of_projects() {
+    IssueIndex index = new IssueIndex(esTester.client(), System2.INSTANCE, new MockUserSession("user"));
+
+    long smallUserIssues = search(index, SMALL_USER_ID);
+    long largeUserIssues = search(index, LARGE_USER_ID);
+
+    assertThat(smallUserIssues).isEqualTo(esTester.client().prepareSearch(IssueIndexDefinition.INDEX).setTypes(IssueIndexDefinition.TYPE_ISSUE)
+      .setQuery(boolQuery().filter(joinOnAuthorizations(SMALL_USER_ID))).setSize(0).get().getHits().getTotalHits());
+    assertThat(largeUserIssues).isEqualTo(esTester.client().prepareSearch(IssueIndexDefinition.INDEX).setTypes(IssueIndexDefinition.TYPE_ISSUE)
+      .setQuery(boolQuery().filter(joinOnAuthorizations(LARGE_USER_ID))).setSize(0).get().getHits().getTotalHits());
+  }
+
+  private static long search(IssueIndex index, long userId) {
+    MockUserSession userSession = new MockUserSession("user" + userId).setUserId((int) userId);
+    long start = System.currentTimeMillis();
+    long total = index.search(IssueQuery.builder(userSession).build(), new SearchOptions().setLimit(100)).getTotal();
+    System.out.printf("IssueIndex search of user browsing %d projects: %dms\n",
+      userId == SMALL_USER_ID ? PROJECTS_OF_SMALL_USER : PROJECTS_OF_LARGE_USER, System.currentTimeMillis() - start);
+    return total;
+  }
+
+  /**
+   * Average duration of the first page of issues, sorted by creation date, as requested by api/issues/search
+   */
+  private static long measureSearch(QueryBuilder authorizationFilter) {
+    long[] durations = new long[MEASURED_SEARCHES];
+    for (int i = 0; i < WARMUP_SEARCHES + MEASURED_SEARCHES; i++) {
+      long start = System.nanoTime();
+      esTester.client().prepareSearch(IssueIndexDefinition.INDEX)
+        .setTypes(IssueIndexDefinition.TYPE_ISSUE)
+        .setQuery(boolQuery().must(matchAllQuery()).filter(authorizationFilter))
+        .addSort(IssueIndexDefinition.FIELD_ISSUE_FUNC_CREATED_AT, SortOrder.DESC)
+        .setSize(100)
+        .get();
+      if (i >= WARMUP_SEARCHES) {
+        durations[i - WARMUP_SEARCHES] = (System.nanoTime() - start) / 1_000_000L;
+      }
+    }
+    return Arrays.stream(durations).sum() / MEASURED_SEARCHES;
+  }
+
+  private static QueryBuilder joinOnAuthorizations(long userId) {
+    return hasParentQuery(IssueIndexDefinition.TYPE_AUTHORIZATION, boolQuery().must(matchAllQuery()).filter(boolQuery()
+      .should(termQuery(IssueIndexDefinition.FIELD_AUTHORIZATION_USERS, userId))
+      .should(termQuery(IssueIndexDefinition.FIELD_AUTHORIZATION_GROUPS, DefaultGroups.ANYONE))));
+  }
+
+  private static List<String> projectUuids(int count) {
+    List<String> uuids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      uuids.add(projectUuid(i));
+    }
+    return uuids;
+  }
+
+  private static String projectUuid(int index) {
+    return "PROJECT_" + index;
+  }
+
+  private static class IssueIterator implements Iterator<IssueDoc> {
+    private final int count;
+    private final long now = System.currentTimeMillis();
+    private int index = 0;
+
+    IssueIterator(int count) {
+      this.count = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < count;
+    }
+
+    @Override
+    public IssueDoc next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int project = index % PROJECTS;
+      String projectUuid = projectUuid(project);
+      Date date = new Date(now - index * 1_000L);
+      IssueDoc issue = new IssueDoc()
+        .setKey("ISSUE_" + index)
+        .setProjectUuid(projectUuid)
+        .setModuleUuid(projectUuid)
+        .setModuleUuidPath("." + projectUuid + ".")
+        .setComponentUuid(projectUuid + "_FILE_" + (index / PROJECTS) % 100)
+        .setFilePath("src/File" + (index / PROJECTS) % 100 + ".xoo")
+        .setRuleKey("xoo:x" + index % 50)
+        .setLanguage("xoo")
+        .setSeverity(Severity.ALL.get(index % Severity.ALL.size()))
+        .setStatus(Issue.STATUS_OPEN)
+        .setLine(index % 1_000 + 1)
+        .setFuncCreationDate(date)
+        .setFuncUpdateDate(date)
+        .setTechnicalUpdateDate(date);
+      index++;
+      return issue;
+    }
+  }
+}